@@ -0,0 +1,35 @@
+import net.ltgt.gradle.errorprone.errorprone
+
+plugins { id("com.ibm.wala.gradle.java") }
+
+// directories holding the jars and scope files that the benchmarks analyze
+val benchmarkResources: Configuration by configurations.creating { isCanBeConsumed = false }
+
+dependencies {
+  annotationProcessor(libs.jmh.generator.annprocess)
+  benchmarkResources(project("path" to ":core", "configuration" to "benchmarkResources"))
+  benchmarkResources(project("path" to ":core", "configuration" to "testResources"))
+  implementation(libs.jmh.core)
+  implementation(projects.core)
+  implementation(projects.shrike)
+  implementation(projects.util)
+  runtimeOnly(files(benchmarkResources))
+  runtimeOnly(testFixtures(projects.core))
+}
+
+tasks.withType<JavaCompile>().configureEach {
+  // code generated by the JMH annotation processor is not ours to fix
+  options.errorprone.excludedPaths = ".*/build/generated/.*"
+}
+
+// Run all benchmarks with `./gradlew :benchmarks:jmh`.  JMH options go in `--args`; for example,
+// `./gradlew :benchmarks:jmh --args='-f 1 -wi 3 -i 5 IntSetBenchmark'` runs only the IntSet
+// benchmarks, in one fork, and `--args='-prof gc'` also reports allocation rates.
+val jmh by
+    tasks.registering(JavaExec::class) {
+      group = "benchmark"
+      description = "Runs the JMH benchmarks."
+      classpath = sourceSets.main.get().runtimeClasspath
+      mainClass = "org.openjdk.jmh.Main"
+      outputs.upToDateWhen { false }
+    }
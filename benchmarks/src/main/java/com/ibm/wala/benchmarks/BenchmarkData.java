@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * The fixed inputs of the benchmarks: the WALA test data jar and JLex, both found on the class
+ * path.
+ */
+final class BenchmarkData {
+
+  static final String TESTDATA_JAR = "com.ibm.wala.core.testdata_1.0.0.jar";
+
+  private BenchmarkData() {}
+
+  /**
+   * @return a scope with the primordial model and the WALA test data jar
+   */
+  static AnalysisScope testDataScope() throws IOException {
+    return CallGraphTestUtil.makeJ2SEAnalysisScope(
+        TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+  }
+
+  /**
+   * @return a scope with the primordial model and JLex
+   */
+  static AnalysisScope jlexScope() throws IOException {
+    return CallGraphTestUtil.makeJ2SEAnalysisScope(
+        TestConstants.JLEX, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+  }
+
+  /**
+   * @return the concrete methods declared by application classes
+   */
+  static List<IMethod> applicationMethods(IClassHierarchy cha) {
+    List<IMethod> result = new ArrayList<>();
+    for (IClass klass : cha) {
+      if (!klass.getClassLoader().getReference().equals(cha.getScope().getApplicationLoader())) {
+        continue;
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative()) {
+          result.add(m);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the contents of every class file in the WALA test data jar
+   */
+  static List<byte[]> testDataClassFiles() throws IOException {
+    List<byte[]> result = new ArrayList<>();
+    try (JarFile jar = new JarFile(new FileProvider().getFile(TESTDATA_JAR))) {
+      for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+        JarEntry entry = e.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          try (InputStream s = jar.getInputStream(entry)) {
+            result.add(s.readAllBytes());
+          }
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.CompactMutableIntSetFactory;
+import com.ibm.wala.util.intset.RoaringMutableIntSetFactory;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A full 0-CFA call graph and pointer analysis of JLex, starting from an empty analysis cache each
+ * time, so that IR construction is included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class CallGraphBenchmark {
+
+  /** the representation of points-to sets */
+  @Param({"default", "compact", "roaring"})
+  public String pointsToSets;
+
+  /** number of pointer analysis solver threads */
+  @Param("1")
+  public int solverParallelism;
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy cha;
+
+  private Iterable<Entrypoint> entrypoints;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException {
+    scope = BenchmarkData.jlexScope();
+    cha = ClassHierarchyFactory.make(scope);
+    entrypoints = Util.makeMainEntrypoints(cha, TestConstants.JLEX_MAIN);
+  }
+
+  @Benchmark
+  public CallGraph zeroCFA() throws CancelException {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    if (pointsToSets.equals("compact")) {
+      options.setPointsToSetFactory(new CompactMutableIntSetFactory());
+    } else if (pointsToSets.equals("roaring")) {
+      options.setPointsToSetFactory(new RoaringMutableIntSetFactory());
+    }
+    options.setSolverParallelism(solverParallelism);
+    return Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha)
+        .makeCallGraph(options, null);
+  }
+}
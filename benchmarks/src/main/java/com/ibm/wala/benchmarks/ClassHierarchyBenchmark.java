@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Class hierarchy construction for the primordial model plus the WALA test data jar, which is
+ * dominated by reading and parsing class files.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClassHierarchyBenchmark {
+
+  /** number of threads parsing class files; 1 uses the sequential path */
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private AnalysisScope scope;
+
+  @Setup
+  public void setup() throws IOException {
+    scope = BenchmarkData.testDataScope();
+  }
+
+  @Benchmark
+  public ClassHierarchy make() throws ClassHierarchyException {
+    return parallelism == 1
+        ? ClassHierarchyFactory.make(scope)
+        : ClassHierarchyFactory.makeParallel(scope, parallelism);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.shrike.shrikeBT.ConstantPoolReader;
+import com.ibm.wala.shrike.shrikeBT.Decoder.InvalidBytecodeException;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.CodeReader;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Shrike bytecode decoding of every method in the WALA test data jar. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderBenchmark {
+
+  private List<byte[]> classFiles;
+
+  private final List<CodeReader> code = new ArrayList<>();
+
+  private final List<ConstantPoolReader> constantPools = new ArrayList<>();
+
+  @Setup
+  public void setup() throws IOException, InvalidClassFileException {
+    classFiles = BenchmarkData.testDataClassFiles();
+    for (byte[] bytes : classFiles) {
+      ClassReader cr = new ClassReader(bytes);
+      ConstantPoolReader cpr = CTDecoder.makeConstantPoolReader(cr);
+      ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+      for (int m = 0; m < cr.getMethodCount(); m++) {
+        for (cr.initMethodAttributeIterator(m, iter); iter.isValid(); iter.advance()) {
+          if (iter.getName().equals("Code")) {
+            code.add(new CodeReader(iter));
+            constantPools.add(cpr);
+          }
+        }
+      }
+    }
+  }
+
+  /** decode methods whose class files have been parsed already */
+  @Benchmark
+  public void decode(Blackhole bh) throws InvalidBytecodeException {
+    for (int i = 0; i < code.size(); i++) {
+      CTDecoder d = new CTDecoder(code.get(i), constantPools.get(i));
+      d.decode();
+      bh.consume(d.getInstructions());
+    }
+  }
+
+  /** parse class files and decode all their methods */
+  @Benchmark
+  public void parseAndDecode(Blackhole bh)
+      throws InvalidClassFileException, InvalidBytecodeException {
+    ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+    for (byte[] bytes : classFiles) {
+      ClassReader cr = new ClassReader(bytes);
+      ConstantPoolReader cpr = CTDecoder.makeConstantPoolReader(cr);
+      for (int m = 0; m < cr.getMethodCount(); m++) {
+        for (cr.initMethodAttributeIterator(m, iter); iter.isValid(); iter.advance()) {
+          if (iter.getName().equals("Code")) {
+            CTDecoder d = new CTDecoder(new CodeReader(iter), cpr);
+            d.decode();
+            bh.consume(d.getInstructions());
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSACFG;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.graph.dominators.DominanceFrontiers;
+import com.ibm.wala.util.graph.dominators.Dominators;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Dominators and dominance frontiers of the SSA CFGs of the WALA test data jar. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DominanceFrontiersBenchmark {
+
+  private final List<SSACFG> cfgs = new ArrayList<>();
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException {
+    DefaultIRFactory factory = new DefaultIRFactory();
+    SSAOptions options = SSAOptions.defaultOptions();
+    IClassHierarchy cha = ClassHierarchyFactory.make(BenchmarkData.testDataScope());
+    for (IMethod m : BenchmarkData.applicationMethods(cha)) {
+      cfgs.add(factory.makeIR(m, Everywhere.EVERYWHERE, options).getControlFlowGraph());
+    }
+  }
+
+  @Benchmark
+  public void dominators(Blackhole bh) {
+    for (SSACFG cfg : cfgs) {
+      bh.consume(Dominators.make(cfg, cfg.entry()).dominatorTree());
+    }
+  }
+
+  @Benchmark
+  public void dominanceFrontiers(Blackhole bh) {
+    for (SSACFG cfg : cfgs) {
+      bh.consume(new DominanceFrontiers<ISSABasicBlock>(cfg, cfg.entry()));
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * SSA construction, without any caching, for every concrete method of the WALA test data jar.
+ * Bytecode decoding is cached by the methods themselves, so after warmup this measures the CFG and
+ * the SSA builder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IRBenchmark {
+
+  private final DefaultIRFactory factory = new DefaultIRFactory();
+
+  private final SSAOptions options = SSAOptions.defaultOptions();
+
+  private List<IMethod> methods;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException {
+    IClassHierarchy cha = ClassHierarchyFactory.make(BenchmarkData.testDataScope());
+    methods = BenchmarkData.applicationMethods(cha);
+  }
+
+  @Benchmark
+  public void makeIR(Blackhole bh) {
+    for (IMethod m : methods) {
+      bh.consume(factory.makeIR(m, Everywhere.EVERYWHERE, options));
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.util.intset.CompactMutableIntSetFactory;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+import com.ibm.wala.util.intset.RoaringMutableIntSetFactory;
+import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The {@link MutableIntSet} operations that dominate points-to set propagation, on pairs of
+ * overlapping random sets.
+ *
+ * <p>Run with {@code -prof gc} to compare the footprint of the implementations as well: the
+ * normalized allocation of {@link #makeCopy()} is the size of one copy of a set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntSetBenchmark {
+
+  @Param({
+    "MutableSharedBitVectorIntSet",
+    "SemiSparseMutableIntSet",
+    "CompactMutableIntSet",
+    "RoaringMutableIntSet"
+  })
+  public String implementation;
+
+  /** number of elements in each set */
+  @Param({"16", "1024"})
+  public int size;
+
+  /** the elements are drawn from [0, size * spread) */
+  @Param({"4", "64"})
+  public int spread;
+
+  /**
+   * "uniform" draws elements uniformly; "clustered" draws runs of up to 64 consecutive elements
+   * starting anywhere in [0, size * spread * 64), like the instance keys of a large program, which
+   * are numbered in the order they are discovered
+   */
+  @Param({"uniform", "clustered"})
+  public String layout;
+
+  private MutableIntSetFactory<?> factory;
+
+  private MutableIntSet a;
+
+  private MutableIntSet b;
+
+  private int[] probes;
+
+  @Setup
+  public void setup() {
+    switch (implementation) {
+      case "MutableSharedBitVectorIntSet":
+        factory = new MutableSharedBitVectorIntSetFactory();
+        break;
+      case "SemiSparseMutableIntSet":
+        factory = new SemiSparseMutableIntSetFactory();
+        break;
+      case "CompactMutableIntSet":
+        factory = new CompactMutableIntSetFactory();
+        break;
+      case "RoaringMutableIntSet":
+        factory = new RoaringMutableIntSetFactory();
+        break;
+      default:
+        throw new IllegalArgumentException("unknown implementation " + implementation);
+    }
+    Random r = new Random(size * 31L + spread);
+    a = randomSet(r);
+    b = randomSet(r);
+    probes = new int[size];
+    for (int i = 0; i < size; i++) {
+      probes[i] = r.nextInt(size * spread * (layout.equals("clustered") ? 64 : 1));
+    }
+  }
+
+  private MutableIntSet randomSet(Random r) {
+    MutableIntSet s = factory.make();
+    while (s.size() < size) {
+      if (layout.equals("clustered")) {
+        int start = r.nextInt(size * spread * 64);
+        for (int i = start + r.nextInt(64); i >= start && s.size() < size; i--) {
+          s.add(i);
+        }
+      } else {
+        s.add(r.nextInt(size * spread));
+      }
+    }
+    // give the implementations that choose their representation in bulk operations the chance
+    return factory.makeCopy(s);
+  }
+
+  @Benchmark
+  public MutableIntSet makeCopy() {
+    return factory.makeCopy(a);
+  }
+
+  @Benchmark
+  public MutableIntSet addAll() {
+    MutableIntSet s = factory.makeCopy(a);
+    s.addAll(b);
+    return s;
+  }
+
+  @Benchmark
+  public MutableIntSet addAllInIntersection() {
+    MutableIntSet s = factory.make();
+    s.addAllInIntersection(a, b);
+    return s;
+  }
+
+  @Benchmark
+  public IntSet intersection() {
+    return a.intersection(b);
+  }
+
+  @Benchmark
+  public boolean isSubset() {
+    return a.isSubset(b);
+  }
+
+  @Benchmark
+  public boolean sameValue() {
+    return a.sameValue(b);
+  }
+
+  @Benchmark
+  public void contains(Blackhole bh) {
+    for (int p : probes) {
+      bh.consume(a.contains(p));
+    }
+  }
+
+  @Benchmark
+  public void foreach(Blackhole bh) {
+    a.foreach(bh::consume);
+  }
+
+  @Benchmark
+  public MutableIntSet addOneByOne() {
+    MutableIntSet s = factory.make();
+    for (int p : probes) {
+      s.add(p);
+    }
+    return s;
+  }
+}
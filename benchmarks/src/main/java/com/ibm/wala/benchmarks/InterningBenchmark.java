@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups of already interned names, types and method references from many threads at once, as
+ * happens when class files are parsed and IRs built in parallel. Run with {@code -t 1} to compare
+ * against uncontended lookups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class InterningBenchmark {
+
+  private static final int NAMES = 4096;
+
+  private final String[] typeNames = new String[NAMES];
+
+  private final String[] methodNames = new String[NAMES];
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < NAMES; i++) {
+      typeNames[i] = "Lcom/example/p" + (i % 64) + "/C" + i;
+      methodNames[i] = "m" + i;
+      TypeReference.findOrCreate(ClassLoaderReference.Application, typeNames[i]);
+      Atom.findOrCreateUnicodeAtom(methodNames[i]);
+    }
+  }
+
+  @Benchmark
+  public Atom atom() {
+    return Atom.findOrCreateUnicodeAtom(methodNames[ThreadLocalRandom.current().nextInt(NAMES)]);
+  }
+
+  @Benchmark
+  public TypeReference typeReference() {
+    return TypeReference.findOrCreate(
+        ClassLoaderReference.Application, typeNames[ThreadLocalRandom.current().nextInt(NAMES)]);
+  }
+
+  @Benchmark
+  public MethodReference methodReference() {
+    int i = ThreadLocalRandom.current().nextInt(NAMES);
+    TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, typeNames[i]);
+    return MethodReference.findOrCreate(
+        type, Selector.make(methodNames[i] + "(Ljava/lang/Object;)V"));
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.examples.analysis.dataflow.ContextSensitiveReachingDefs;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Pair;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * An IFDS problem, context-sensitive reaching definitions of static fields, solved by the
+ * tabulation solver over the exploded supergraph of a 0-CFA call graph of JLex.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class TabulationSolverBenchmark {
+
+  /** number of tabulation threads */
+  @Param("1")
+  public int parallelism;
+
+  private CallGraph cg;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException, CancelException {
+    AnalysisScope scope = BenchmarkData.jlexScope();
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    AnalysisOptions options =
+        CallGraphTestUtil.makeAnalysisOptions(
+            scope, Util.makeMainEntrypoints(cha, TestConstants.JLEX_MAIN));
+    cg =
+        Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha)
+            .makeCallGraph(options, null);
+  }
+
+  /** build the supergraph and solve the problem */
+  @Benchmark
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+      reachingDefs() {
+    return new ContextSensitiveReachingDefs(cg).analyze(parallelism);
+  }
+}
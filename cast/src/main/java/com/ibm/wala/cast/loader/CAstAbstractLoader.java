@@ -166,4 +166,14 @@ public abstract class CAstAbstractLoader implements IClassLoader {
       types.remove(remove.getName());
     }
   }
+
+  @Override
+  public void addAll(Collection<IClass> toAdd) {
+    for (IClass add : toAdd) {
+      if (add.getClassLoader() != this) {
+        throw new IllegalArgumentException(add + " is not defined by " + this);
+      }
+      types.put(add.getName(), add);
+    }
+  }
 }
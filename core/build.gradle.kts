@@ -396,3 +396,9 @@ listOf(
         extractBcel,
     )
     .forEach { artifacts.add(dalvikTestResources.name, it) }
+
+val benchmarkResources: Configuration by configurations.creating { isCanBeResolved = false }
+
+listOf(collectJLex, collectTestData).forEach {
+  artifacts.add(benchmarkResources.name, it.map { jar -> jar.destinationDirectory })
+}
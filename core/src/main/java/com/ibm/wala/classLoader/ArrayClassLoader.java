@@ -15,6 +15,7 @@ import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import java.util.HashMap;
+import java.util.Set;
 
 /**
  * Pseudo-classloader for all array classes; all other IClassLoader implementations should delegate
@@ -78,6 +79,16 @@ public class ArrayClassLoader {
     return l;
   }
 
+  /**
+   * Forget the array classes whose innermost element type has one of the given names, so that the
+   * next lookup creates them afresh from the current element class.
+   */
+  public void removeArrayClassesOf(Set<TypeName> elementTypes) {
+    arrayClasses
+        .keySet()
+        .removeIf(t -> elementTypes.contains(t.getName().getInnermostElementType()));
+  }
+
   public int getNumberOfClasses() {
     return arrayClasses.size();
   }
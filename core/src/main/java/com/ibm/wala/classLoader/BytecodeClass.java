@@ -251,6 +251,18 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     return null;
   }
 
+  /**
+   * Forget the superclass, the interfaces and the members inherited from them, so that they are
+   * looked up again from the class loader. Call this when a supertype of this class was replaced.
+   */
+  public void clearSupertypeCaches() {
+    superClass = null;
+    superclassComputed = false;
+    allInterfaces = null;
+    inheritCache = null;
+    fieldMap.clear();
+  }
+
   private void computeSuperclass() {
     superclassComputed = true;
 
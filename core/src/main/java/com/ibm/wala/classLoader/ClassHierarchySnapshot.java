@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.core.util.strings.ImmutableByteArray;
+import com.ibm.wala.core.util.strings.UTF8Convert;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.generics.TypeSignature;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+
+/**
+ * A persistent record of the class headers read by {@link ClassLoaderImpl}s, so that later runs
+ * over the same jar files need not parse every class file again.
+ *
+ * <p>For each class loader and {@link JarFileModule}, the snapshot holds a section with a content
+ * hash of the jar (computed from its central directory, i.e. the name, CRC and size of every entry)
+ * and, for each class loaded from it, the modifiers, superclass, interfaces and fields. A class
+ * loader consults the section for a module only if the hash still matches, and then creates its
+ * {@link ShrikeClass}es from the records; the class files themselves are read only when methods are
+ * needed. Sections whose jar changed are ignored, which marks the snapshot {@link #isStale()
+ * stale}. Classes with field annotations are not recorded and are always parsed.
+ *
+ * <p>The file is memory-mapped when loaded, and each section is decoded only when a loader asks
+ * for it.
+ */
+public class ClassHierarchySnapshot {
+
+  private static final int MAGIC = 0x57434853;
+
+  private static final int VERSION = 1;
+
+  /** sections read from disk, by {@link #key(ClassLoaderReference, JarFileModule)} */
+  private final Map<String, Section> sections;
+
+  /** content hashes of the modules seen so far */
+  private final Map<JarFileModule, byte[]> hashes = HashMapFactory.make();
+
+  /** did some module miss its section? */
+  private boolean stale = false;
+
+  private ClassHierarchySnapshot(Map<String, Section> sections) {
+    this.sections = sections;
+  }
+
+  /**
+   * @return a snapshot with no recorded classes
+   */
+  public static ClassHierarchySnapshot empty() {
+    return new ClassHierarchySnapshot(HashMapFactory.make());
+  }
+
+  /**
+   * Map a snapshot written by {@link #write(IClassHierarchy, File)}.
+   *
+   * @throws IOException if the file cannot be read or is not a snapshot of this version
+   */
+  public static ClassHierarchySnapshot load(File file) throws IOException {
+    ByteBuffer buf;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+        throw new IOException("not a class hierarchy snapshot: " + file);
+      }
+      Map<String, Section> sections = HashMapFactory.make();
+      int nSections = buf.getInt();
+      for (int i = 0; i < nSections; i++) {
+        String key = readString(buf);
+        byte[] hash = readBytes(buf);
+        int length = buf.getInt();
+        ByteBuffer body = buf.slice();
+        body.limit(length);
+        buf.position(buf.position() + length);
+        sections.put(key, new Section(hash, body));
+      }
+      return new ClassHierarchySnapshot(sections);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("corrupt class hierarchy snapshot: " + file, e);
+    }
+  }
+
+  /**
+   * @return true iff some jar file loaded with this snapshot had no up-to-date section, so that
+   *     writing a new snapshot would save work next time; other modules are never recorded, and do
+   *     not count
+   */
+  public boolean isStale() {
+    return stale;
+  }
+
+  /**
+   * @return the number of modules with a section, up to date or not
+   */
+  public int getNumberOfSections() {
+    return sections.size();
+  }
+
+  /**
+   * @return true iff the snapshot has a section for module in loader whose jar has not changed
+   */
+  public boolean isUpToDate(ClassLoaderReference loader, Module module) {
+    if (!(module instanceof JarFileModule)) {
+      return false;
+    }
+    JarFileModule jar = (JarFileModule) module;
+    Section section = sections.get(key(loader, jar));
+    return section != null && Arrays.equals(section.hash, contentHash(jar));
+  }
+
+  /**
+   * @return the recorded classes of module in loader, by entry name, or null if there are none
+   */
+  Map<String, ClassRecord> getClasses(ClassLoaderReference loader, Module module) {
+    if (!(module instanceof JarFileModule)) {
+      return null;
+    }
+    if (!isUpToDate(loader, module)) {
+      stale = true;
+      return null;
+    }
+    try {
+      return sections.get(key(loader, (JarFileModule) module)).getClasses();
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      stale = true;
+      return null;
+    }
+  }
+
+  /**
+   * Record the classes that cha loaded from jar files into file. Every jar file of the scope of cha
+   * gets a section, even if none of its classes can be recorded, so that it does not make the
+   * snapshot stale next time. The file is replaced atomically if the file system allows it.
+   */
+  public void write(IClassHierarchy cha, File file) throws IOException {
+    Map<String, JarFileModule> modules = new TreeMap<>();
+    Map<String, Map<String, ShrikeClass>> classes = new TreeMap<>();
+    for (IClassLoader loader : cha.getLoaders()) {
+      for (Module m : cha.getScope().getModules(loader.getReference())) {
+        if (m instanceof JarFileModule) {
+          String key = key(loader.getReference(), (JarFileModule) m);
+          modules.put(key, (JarFileModule) m);
+          classes.put(key, new TreeMap<>());
+        }
+      }
+      for (IClass klass : Iterator2Iterable.make(loader.iterateAllClasses())) {
+        if (!(klass instanceof ShrikeClass) || !isRecordable(klass)) {
+          continue;
+        }
+        ModuleEntry entry = ((ShrikeClass) klass).getModuleEntry();
+        if (!(entry.getContainer() instanceof JarFileModule)) {
+          continue;
+        }
+        JarFileModule jar = (JarFileModule) entry.getContainer();
+        String key = key(loader.getReference(), jar);
+        modules.put(key, jar);
+        classes
+            .computeIfAbsent(key, k -> new TreeMap<>())
+            .put(entry.getName(), (ShrikeClass) klass);
+      }
+    }
+
+    Path target = file.toPath().toAbsolutePath();
+    Path tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+    try {
+      try (OutputStream os = Files.newOutputStream(tmp);
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(classes.size());
+        for (Map.Entry<String, Map<String, ShrikeClass>> e : classes.entrySet()) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          DataOutputStream body = new DataOutputStream(bytes);
+          body.writeInt(e.getValue().size());
+          for (Map.Entry<String, ShrikeClass> c : e.getValue().entrySet()) {
+            writeString(body, c.getKey());
+            writeClass(body, c.getValue());
+          }
+          body.flush();
+          writeString(out, e.getKey());
+          writeBytes(out, contentHash(modules.get(e.getKey())));
+          out.writeInt(bytes.size());
+          bytes.writeTo(out);
+        }
+      }
+      try {
+        Files.move(
+            tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** can klass be recreated from a {@link ClassRecord}? */
+  private static boolean isRecordable(IClass klass) {
+    for (IField f : klass.getDeclaredInstanceFields()) {
+      if (!isRecordable(f)) {
+        return false;
+      }
+    }
+    for (IField f : klass.getDeclaredStaticFields()) {
+      if (!isRecordable(f)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isRecordable(IField f) {
+    return f instanceof FieldImpl
+        && isEmpty(f.getAnnotations())
+        && isEmpty(((FieldImpl) f).getTypeAnnotations());
+  }
+
+  private static boolean isEmpty(Collection<?> c) {
+    return c == null || c.isEmpty();
+  }
+
+  private static void writeClass(DataOutputStream out, ShrikeClass klass) throws IOException {
+    out.writeInt(klass.getModifiers());
+    writeBytes(out, klass.superName == null ? null : bytes(klass.superName));
+    out.writeInt(klass.interfaceNames.length);
+    for (ImmutableByteArray i : klass.interfaceNames) {
+      writeBytes(out, bytes(i));
+    }
+    Collection<IField> instanceFields = klass.getDeclaredInstanceFields();
+    Collection<IField> staticFields = klass.getDeclaredStaticFields();
+    out.writeInt(instanceFields.size() + staticFields.size());
+    for (IField f : instanceFields) {
+      writeField(out, (FieldImpl) f);
+    }
+    for (IField f : staticFields) {
+      writeField(out, (FieldImpl) f);
+    }
+  }
+
+  private static void writeField(DataOutputStream out, FieldImpl f) throws IOException {
+    writeBytes(out, f.getName().getValArray());
+    writeString(out, f.getFieldTypeReference().getName().toUnicodeString());
+    out.writeInt(f.getAccessFlags());
+    TypeSignature sig = f.getGenericSignature();
+    writeString(out, sig == null ? null : sig.toString());
+  }
+
+  private static String key(ClassLoaderReference loader, JarFileModule jar) {
+    return loader.getName() + "!" + jar.getAbsolutePath();
+  }
+
+  private byte[] contentHash(JarFileModule jar) {
+    byte[] result = hashes.get(jar);
+    if (result == null) {
+      MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        // every Java platform supports SHA-256
+        throw new IllegalStateException(e);
+      }
+      ByteBuffer buf = ByteBuffer.allocate(16);
+      for (Enumeration<JarEntry> e = jar.getJarFile().entries(); e.hasMoreElements(); ) {
+        JarEntry entry = e.nextElement();
+        digest.update(UTF8Convert.toUTF8(entry.getName()));
+        buf.clear();
+        buf.putLong(entry.getCrc()).putLong(entry.getSize());
+        digest.update(buf.array());
+        if (entry.getCrc() == -1 && !entry.isDirectory()) {
+          // no checksum in the central directory; hash the contents instead
+          digest.update(jar.getContents(entry));
+        }
+      }
+      result = digest.digest();
+      hashes.put(jar, result);
+    }
+    return result;
+  }
+
+  private static byte[] bytes(ImmutableByteArray b) {
+    return b.substring(0, b.length());
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] b) throws IOException {
+    if (b == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    writeBytes(out, s == null ? null : UTF8Convert.toUTF8(s));
+  }
+
+  private static byte[] readBytes(ByteBuffer buf) {
+    int length = buf.getInt();
+    if (length == -1) {
+      return null;
+    }
+    byte[] result = new byte[length];
+    buf.get(result);
+    return result;
+  }
+
+  private static String readString(ByteBuffer buf) {
+    byte[] b = readBytes(buf);
+    if (b == null) {
+      return null;
+    }
+    try {
+      return UTF8Convert.fromUTF8(b);
+    } catch (UTFDataFormatException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /** The recorded classes of one module, decoded on first use. */
+  private static final class Section {
+    private final byte[] hash;
+
+    private final ByteBuffer body;
+
+    private Map<String, ClassRecord> classes = null;
+
+    Section(byte[] hash, ByteBuffer body) {
+      this.hash = hash;
+      this.body = body;
+    }
+
+    Map<String, ClassRecord> getClasses() {
+      if (classes == null) {
+        ByteBuffer buf = body.duplicate();
+        int n = buf.getInt();
+        Map<String, ClassRecord> result = HashMapFactory.make(n);
+        for (int i = 0; i < n; i++) {
+          result.put(readString(buf), new ClassRecord(buf));
+        }
+        classes = result;
+      }
+      return classes;
+    }
+  }
+
+  /** The header of a class file, as needed to create a {@link ShrikeClass}. */
+  static final class ClassRecord {
+    final int modifiers;
+
+    final ImmutableByteArray superName;
+
+    final ImmutableByteArray[] interfaceNames;
+
+    final FieldRecord[] fields;
+
+    private ClassRecord(ByteBuffer buf) {
+      modifiers = buf.getInt();
+      byte[] s = readBytes(buf);
+      superName = s == null ? null : new ImmutableByteArray(s);
+      interfaceNames = new ImmutableByteArray[buf.getInt()];
+      for (int i = 0; i < interfaceNames.length; i++) {
+        interfaceNames[i] = new ImmutableByteArray(readBytes(buf));
+      }
+      fields = new FieldRecord[buf.getInt()];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = new FieldRecord(buf);
+      }
+    }
+  }
+
+  /** A field declaration, as needed to create a {@link FieldImpl}. */
+  static final class FieldRecord {
+    final Atom name;
+
+    final ImmutableByteArray type;
+
+    final int accessFlags;
+
+    final TypeSignature signature;
+
+    private FieldRecord(ByteBuffer buf) {
+      name = Atom.findOrCreate(readBytes(buf));
+      type = ImmutableByteArray.make(readString(buf));
+      accessFlags = buf.getInt();
+      String sig = readString(buf);
+      signature = sig == null ? null : TypeSignature.make(sig);
+    }
+  }
+}
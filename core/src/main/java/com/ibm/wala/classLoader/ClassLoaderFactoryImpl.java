@@ -30,6 +30,12 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
    */
   private final SetOfClasses exclusions;
 
+  /** number of threads each {@link ClassLoaderImpl} uses to parse its class files */
+  private final int parallelism;
+
+  /** class headers for each {@link ClassLoaderImpl} to use instead of parsing, or null */
+  private final ClassHierarchySnapshot snapshot;
+
   /** A Mapping from ClassLoaderReference to IClassLoader */
   private final HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
@@ -37,7 +43,30 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
    * @param exclusions A set of classes that class loaders should pretend don't exist.
    */
   public ClassLoaderFactoryImpl(SetOfClasses exclusions) {
+    this(exclusions, 1);
+  }
+
+  /**
+   * @param exclusions A set of classes that class loaders should pretend don't exist.
+   * @param parallelism number of threads each {@link ClassLoaderImpl} uses to parse class files
+   */
+  public ClassLoaderFactoryImpl(SetOfClasses exclusions, int parallelism) {
+    this(exclusions, parallelism, null);
+  }
+
+  /**
+   * @param exclusions A set of classes that class loaders should pretend don't exist.
+   * @param parallelism number of threads each {@link ClassLoaderImpl} uses to parse class files
+   * @param snapshot class headers recorded by an earlier run, or null
+   */
+  public ClassLoaderFactoryImpl(
+      SetOfClasses exclusions, int parallelism, ClassHierarchySnapshot snapshot) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
     this.exclusions = exclusions;
+    this.parallelism = parallelism;
+    this.snapshot = snapshot;
   }
 
   /**
@@ -130,6 +159,10 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
                   classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setParallelism(parallelism);
+      ((ClassLoaderImpl) cl).setSnapshot(snapshot);
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
@@ -160,4 +193,8 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
   public SetOfClasses getExclusions() {
     return exclusions;
   }
+
+  public int getParallelism() {
+    return parallelism;
+  }
 }
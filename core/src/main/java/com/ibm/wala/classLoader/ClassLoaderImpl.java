@@ -34,13 +34,20 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
@@ -72,6 +79,12 @@ public class ClassLoaderImpl implements IClassLoader {
   /** an object to delegate to for loading of array classes */
   private final ArrayClassLoader arrayClassLoader;
 
+  /** number of threads used to parse class files in {@link #init(List)} */
+  private int parallelism = 1;
+
+  /** recorded class headers to use instead of parsing class files, if any */
+  private ClassHierarchySnapshot snapshot = null;
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -205,41 +218,93 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
-  /** Set up the set of classes loaded by this object. */
+  /**
+   * @return the name of the class defined by entry, in internal form, or null if the entry does not
+   *     define a class that should be loaded
+   */
   @SuppressWarnings("unused")
-  private void loadAllClasses(
-      Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents, boolean isJMODType) {
-    for (ModuleEntry entry : moduleEntries) {
-      // java11 support for jmod files
-      if (!entry.isClassFile()
-          || (isJMODType && entry.getClassName().startsWith("classes/module-info"))) {
-        continue;
-      }
+  private String getClassName(ModuleEntry entry, boolean isJMODType) {
+    // java11 support for jmod files
+    if (!entry.isClassFile()
+        || (isJMODType && entry.getClassName().startsWith("classes/module-info"))) {
+      return null;
+    }
 
-      @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
-      String className = entry.getClassName().replace('.', '/');
+    @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
+    String className = entry.getClassName().replace('.', '/');
 
-      // java11 support for jmod files
-      if (isJMODType && className.startsWith("classes/")) {
-        className = className.replace("classes/", "");
-      }
+    // java11 support for jmod files
+    if (isJMODType && className.startsWith("classes/")) {
+      className = className.replace("classes/", "");
+    }
+
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("Consider " + className);
+    }
 
+    if (exclusions != null && exclusions.contains(className)) {
       if (DEBUG_LEVEL > 0) {
-        System.err.println("Consider " + className);
+        System.err.println("Excluding " + className);
       }
+      return null;
+    }
 
-      if (exclusions != null && exclusions.contains(className)) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Excluding " + className);
-        }
-        continue;
-      }
+    className = 'L' + className;
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("Load class " + className);
+    }
+    return className;
+  }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+  /**
+   * Parse the class defined by entry. This touches no state of this loader, so it may be called
+   * from several threads at once.
+   *
+   * @param recorded class headers recorded for the module of entry, or null
+   * @return the class, or null if entry does not define a class named T
+   */
+  private ShrikeClass readClass(
+      ModuleEntry entry,
+      TypeName T,
+      Map<String, Object> fileContents,
+      Map<String, ClassHierarchySnapshot.ClassRecord> recorded)
+      throws InvalidClassFileException {
+    ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    if (recorded != null) {
+      ClassHierarchySnapshot.ClassRecord record = recorded.get(entry.getName());
+      if (record != null) {
+        return new ShrikeClass(entryReader, this, cha, T, record);
+      }
+    }
+    // try to read from memory
+    ShrikeClassReaderHandle reader = entryReader;
+    if (fileContents != null) {
+      final Object contents = fileContents.get(entry.getName());
+      if (contents != null) {
+        // reader that uses the in-memory bytes
+        reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
+      }
+    }
+    ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
+    if (!tmpKlass.getReference().getName().equals(T)) {
+      return null;
+    }
+    // always used the reader based on the entry after this point,
+    // so we can null out and re-read class file contents
+    return reader == entryReader ? tmpKlass : new ShrikeClass(entryReader, this, cha);
+  }
 
-      className = 'L' + className;
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("Load class " + className);
+  /** Set up the set of classes loaded by this object. */
+  @SuppressWarnings("unused")
+  private void loadAllClasses(
+      Collection<ModuleEntry> moduleEntries,
+      Map<String, Object> fileContents,
+      boolean isJMODType,
+      Map<String, ClassHierarchySnapshot.ClassRecord> recorded) {
+    for (ModuleEntry entry : moduleEntries) {
+      String className = getClassName(entry, isJMODType);
+      if (className == null) {
+        continue;
       }
       try {
         TypeName T = TypeName.string2TypeName(className);
@@ -248,20 +313,9 @@ public class ClassLoaderImpl implements IClassLoader {
         } else if (parent != null && parent.lookupClass(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
-          }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
+          ShrikeClass klass = readClass(entry, T, fileContents, recorded);
+          if (klass != null) {
+            loadedClasses.put(T, klass);
             if (DEBUG_LEVEL > 1) {
               System.err.println("put " + T + ' ');
             }
@@ -278,6 +332,78 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Set up the set of classes loaded by this object, parsing the class files on the threads of
+   * pool. The classes are entered in the same order, and with the same warnings, as by {@link
+   * #loadAllClasses(Collection, Map, boolean, Map)}.
+   */
+  private void loadAllClasses(
+      Collection<ModuleEntry> moduleEntries,
+      Map<String, Object> fileContents,
+      boolean isJMODType,
+      Map<String, ClassHierarchySnapshot.ClassRecord> recorded,
+      ExecutorService pool)
+      throws IOException {
+    List<String> classNames = new ArrayList<>();
+    List<Callable<ShrikeClass>> tasks = new ArrayList<>();
+    for (ModuleEntry entry : moduleEntries) {
+      String className = getClassName(entry, isJMODType);
+      if (className == null) {
+        continue;
+      }
+      TypeName T = TypeName.string2TypeName(className);
+      if (parent != null && parent.lookupClass(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+        continue;
+      }
+      classNames.add(className);
+      tasks.add(
+          () -> {
+            try {
+              return readClass(entry, T, fileContents, recorded);
+            } catch (InvalidClassFileException e) {
+              if (DEBUG_LEVEL > 0) {
+                System.err.println(
+                    "Ignoring class " + className + " due to InvalidClassFileException");
+              }
+              return null;
+            }
+          });
+    }
+
+    List<Future<ShrikeClass>> results;
+    try {
+      results = pool.invokeAll(tasks);
+      for (int i = 0; i < classNames.size(); i++) {
+        String className = classNames.get(i);
+        TypeName T = TypeName.string2TypeName(className);
+        ShrikeClass klass = results.get(i).get();
+        if (loadedClasses.get(T) != null) {
+          Warnings.add(MultipleImplementationsWarning.create(className));
+        } else if (klass != null) {
+          loadedClasses.put(T, klass);
+          if (DEBUG_LEVEL > 1) {
+            System.err.println("put " + T + ' ');
+          }
+        } else {
+          Warnings.add(InvalidClassFile.create(className));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while loading classes");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException(cause);
+      }
+    }
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Object> getAllClassAndSourceFileContents(
       byte[] jarFileContents, String fileName, Map<String, Map<String, Long>> entrySizes) {
@@ -458,6 +584,23 @@ public class ClassLoaderImpl implements IClassLoader {
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
     Set<ModuleEntry> sourceModuleEntries = HashSetFactory.make();
+    ExecutorService pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    try {
+      initModules(modules, classModuleEntries, sourceModuleEntries, pool);
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
+      }
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private void initModules(
+      List<Module> modules,
+      Set<ModuleEntry> classModuleEntries,
+      Set<ModuleEntry> sourceModuleEntries,
+      ExecutorService pool)
+      throws IOException {
     for (Module archive : modules) {
       boolean isJMODType = false;
       if (archive instanceof JarFileModule) {
@@ -468,7 +611,10 @@ public class ClassLoaderImpl implements IClassLoader {
         System.err.println("add archive: " + archive);
       }
       // byte[] jarFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
+      // (a mapped jar file is paged in as its entries are read)
+      if (OPTIMIZE_JAR_FILE_IO
+          && archive instanceof JarFileModule
+          && !(archive instanceof MappedJarFileModule)) {
         // if we have a jar file, we read the whole thing into memory and operate on that; enables
         // more
         // efficient sequential I/O
@@ -502,7 +648,13 @@ public class ClassLoaderImpl implements IClassLoader {
         // }
         // jarFileContents = null;
       }
-      loadAllClasses(classFiles, allClassAndSourceFileContents, isJMODType);
+      Map<String, ClassHierarchySnapshot.ClassRecord> recorded =
+          snapshot == null ? null : snapshot.getClasses(loader, archive);
+      if (pool != null) {
+        loadAllClasses(classFiles, allClassAndSourceFileContents, isJMODType, recorded, pool);
+      } else {
+        loadAllClasses(classFiles, allClassAndSourceFileContents, isJMODType, recorded);
+      }
       loadAllSources(sourceFiles);
       classModuleEntries.addAll(classFiles);
       sourceModuleEntries.addAll(sourceFiles);
@@ -594,6 +746,30 @@ public class ClassLoaderImpl implements IClassLoader {
     return parent;
   }
 
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Set the number of threads used to parse class files when this loader is initialized. With more
+   * than one thread, the classes of each module are parsed concurrently; the set of loaded classes
+   * is the same as with one.
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Use the class headers recorded in snapshot, where they are up to date, instead of parsing the
+   * class files when this loader is initialized.
+   */
+  public void setSnapshot(ClassHierarchySnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
   @Override
   public Atom getName() {
     return loader.getName();
@@ -659,6 +835,19 @@ public class ClassLoaderImpl implements IClassLoader {
     toRemove.stream().map(IClass::getName).peek(loadedClasses::remove).forEach(sourceMap::remove);
   }
 
+  @Override
+  public void addAll(Collection<IClass> toAdd) {
+    if (toAdd == null) {
+      throw new IllegalArgumentException("toAdd is null");
+    }
+    for (IClass klass : toAdd) {
+      if (klass.getClassLoader() != this) {
+        throw new IllegalArgumentException(klass + " is not defined by " + this);
+      }
+      loadedClasses.put(klass.getName(), klass);
+    }
+  }
+
   @Override
   public SSAInstructionFactory getInstructionFactory() {
     return getLanguage().instructionFactory();
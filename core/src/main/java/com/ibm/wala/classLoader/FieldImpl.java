@@ -84,6 +84,13 @@ public final class FieldImpl implements IField {
     return genericSignature;
   }
 
+  /**
+   * @return the access flags of the field, as in the class file
+   */
+  int getAccessFlags() {
+    return accessFlags;
+  }
+
   /**
    * @see com.ibm.wala.classLoader.IMember#getDeclaringClass()
    */
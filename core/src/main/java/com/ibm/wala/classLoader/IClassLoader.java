@@ -122,4 +122,12 @@ public interface IClassLoader {
    * @param toRemove Collection&lt;IClass&gt;
    */
   void removeAll(Collection<IClass> toRemove);
+
+  /**
+   * define the classes in the set, replacing any classes of the same names
+   *
+   * @param toAdd Collection&lt;IClass&gt; of classes whose loader is this one
+   * @throws IllegalArgumentException if some class in toAdd has another loader
+   */
+  void addAll(Collection<IClass> toAdd);
 }
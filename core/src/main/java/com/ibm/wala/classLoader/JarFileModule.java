@@ -11,14 +11,13 @@
 package com.ibm.wala.classLoader;
 
 import com.ibm.wala.core.util.ref.CacheReference;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.io.FileUtil;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
@@ -30,9 +29,9 @@ public class JarFileModule implements Module {
 
   /**
    * For efficiency, try to cache the byte[] holding each ZipEntries contents; this will help avoid
-   * multiple unzipping
+   * multiple unzipping. Class loaders may read entries from several threads, so this is concurrent.
    */
-  private final HashMap<ZipEntry, Object> cache = HashMapFactory.make();
+  private final ConcurrentHashMap<ZipEntry, Object> cache = new ConcurrentHashMap<>();
 
   public JarFileModule(JarFile f) {
     if (f == null) {
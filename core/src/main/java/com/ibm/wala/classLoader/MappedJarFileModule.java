@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.debug.Assertions;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * A {@link JarFileModule} that reads the contents of its entries straight from a memory mapping of
+ * the jar file. Unlike a plain {@link JarFileModule}, it keeps no copies of the contents: each read
+ * decodes the entry again from the mapping into an array of exactly the right size, and the
+ * operating system pages the file in and out as needed. This lowers the memory held while loading
+ * classes from large jars, since {@link com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle}s
+ * re-read the class files they have dropped.
+ *
+ * <p>The {@link JarFile} is still used to enumerate the entries. Entries of archives this class
+ * cannot locate in the mapping, e.g. ZIP64 archives or archives larger than 2GB, are read through
+ * it as before.
+ */
+public class MappedJarFileModule extends JarFileModule {
+
+  private static final int LOCAL_HEADER = 0x04034b50;
+
+  private static final int CENTRAL_HEADER = 0x02014b50;
+
+  private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+  /** size of the end of central directory record, without the archive comment */
+  private static final int END_SIZE = 22;
+
+  /** the mapped file; read only through absolute gets, so threads may share it */
+  private final ByteBuffer mapping;
+
+  /** where the contents of each entry are, by name */
+  private final Map<String, Location> locations;
+
+  /**
+   * @throws IOException if the file of f cannot be mapped
+   */
+  public MappedJarFileModule(JarFile f) throws IOException {
+    super(f);
+    mapping = map(f.getName());
+    locations = mapping == null ? HashMapFactory.make() : readCentralDirectory(mapping);
+  }
+
+  /**
+   * @return a read-only mapping of the named file, or null if it is too big to map in one piece
+   */
+  private static ByteBuffer map(String fileName) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        return null;
+      }
+      MappedByteBuffer m = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return m.order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  /** Where the compressed contents of an entry are, and how to decode them. */
+  private static final class Location {
+    /** offset of the local file header */
+    final int header;
+
+    final int method;
+
+    final int compressedSize;
+
+    final int size;
+
+    Location(int header, int method, int compressedSize, int size) {
+      this.header = header;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+  }
+
+  /**
+   * @return the locations of the entries listed in the central directory of the archive in
+   *     mapping, or an empty map if it cannot be found
+   */
+  private static Map<String, Location> readCentralDirectory(ByteBuffer mapping) {
+    Map<String, Location> result = HashMapFactory.make();
+    // the record is followed by a comment of at most 0xFFFF bytes
+    int end = -1;
+    int last = mapping.limit() - END_SIZE;
+    for (int i = last; i >= 0 && i >= last - 0xFFFF; i--) {
+      if (mapping.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      return result;
+    }
+    int count = Short.toUnsignedInt(mapping.getShort(end + 10));
+    long offset = Integer.toUnsignedLong(mapping.getInt(end + 16));
+    if (count == 0xFFFF || offset == 0xFFFFFFFFL || offset >= end) {
+      // ZIP64
+      return result;
+    }
+    int p = (int) offset;
+    byte[] name = new byte[0];
+    for (int i = 0; i < count && p + 46 <= end; i++) {
+      if (mapping.getInt(p) != CENTRAL_HEADER) {
+        return HashMapFactory.make();
+      }
+      int method = Short.toUnsignedInt(mapping.getShort(p + 10));
+      long compressedSize = Integer.toUnsignedLong(mapping.getInt(p + 20));
+      long size = Integer.toUnsignedLong(mapping.getInt(p + 24));
+      int nameLength = Short.toUnsignedInt(mapping.getShort(p + 28));
+      int extraLength = Short.toUnsignedInt(mapping.getShort(p + 30));
+      int commentLength = Short.toUnsignedInt(mapping.getShort(p + 32));
+      long header = Integer.toUnsignedLong(mapping.getInt(p + 42));
+      if (name.length < nameLength) {
+        name = new byte[nameLength];
+      }
+      ByteBuffer b = mapping.duplicate();
+      b.position(p + 46);
+      b.get(name, 0, nameLength);
+      if (compressedSize < Integer.MAX_VALUE
+          && size < Integer.MAX_VALUE
+          && header < end
+          && (method == ZipEntry.STORED || method == ZipEntry.DEFLATED)) {
+        result.put(
+            new String(name, 0, nameLength, StandardCharsets.UTF_8),
+            new Location((int) header, method, (int) compressedSize, (int) size));
+      }
+      p += 46 + nameLength + extraLength + commentLength;
+    }
+    return result;
+  }
+
+  /**
+   * Read the contents of an entry from the mapping. The result is not cached.
+   *
+   * @return the contents of the entry, or null if it is not in the mapping
+   * @throws IOException if the entry is corrupt
+   */
+  private byte[] read(String entryName) throws IOException {
+    Location l = locations.get(entryName);
+    if (l == null) {
+      return null;
+    }
+    if (mapping.getInt(l.header) != LOCAL_HEADER) {
+      throw new IOException("bad local header for " + entryName + " in " + getAbsolutePath());
+    }
+    int start =
+        l.header
+            + 30
+            + Short.toUnsignedInt(mapping.getShort(l.header + 26))
+            + Short.toUnsignedInt(mapping.getShort(l.header + 28));
+    ByteBuffer data = mapping.duplicate();
+    data.position(start);
+    data.limit(start + l.compressedSize);
+    byte[] result = new byte[l.size];
+    if (l.method == ZipEntry.STORED) {
+      data.get(result);
+      return result;
+    }
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(data);
+      int n = 0;
+      while (n < result.length) {
+        int k = inflater.inflate(result, n, result.length - n);
+        if (k == 0 && (inflater.finished() || inflater.needsInput())) {
+          break;
+        }
+        n += k;
+      }
+      if (n != result.length) {
+        throw new IOException("truncated entry " + entryName + " in " + getAbsolutePath());
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("bad entry " + entryName + " in " + getAbsolutePath(), e);
+    } finally {
+      inflater.end();
+    }
+    return result;
+  }
+
+  /**
+   * @return true iff the contents of the named entry are read from the mapping
+   */
+  public boolean isMapped(String entryName) {
+    return locations.containsKey(entryName);
+  }
+
+  /** Read the contents of entry afresh, from the mapping if possible. */
+  @Override
+  public byte[] getContents(ZipEntry entry) {
+    if (entry == null) {
+      throw new IllegalArgumentException("null entry");
+    }
+    return getContents(entry.getName());
+  }
+
+  /**
+   * Read the contents of the named entry afresh, from the mapping if possible.
+   *
+   * @return the contents, or null if there is no such entry
+   */
+  public byte[] getContents(String entryName) {
+    try {
+      byte[] result = read(entryName);
+      if (result != null) {
+        return result;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+      return null;
+    }
+    ZipEntry z = getJarFile().getEntry(entryName);
+    return z == null ? null : super.getContents(z);
+  }
+
+  @Override
+  protected ModuleEntry createEntry(ZipEntry z) {
+    return new JarFileEntry(z.getName(), this) {
+      @Override
+      public InputStream getInputStream() {
+        byte[] contents = getContents(getName());
+        return contents == null ? super.getInputStream() : new ByteArrayInputStream(contents);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJarFileModule:" + getAbsolutePath();
+  }
+}
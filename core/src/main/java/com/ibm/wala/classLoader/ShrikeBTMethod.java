@@ -63,7 +63,15 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
 
   // break these out to save some space; they're computed lazily.
   protected static class BytecodeInfo {
-    Decoder decoder;
+    /**
+     * The decoded instructions, or null if the method has no code. Only the results of decoding
+     * are kept, not the {@link Decoder}, which holds on to its input.
+     */
+    IInstruction[] instructions;
+
+    ExceptionHandler[][] handlers;
+
+    boolean containsSubroutines;
 
     CallSiteReference[] callSites;
 
@@ -151,7 +159,7 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
     }
 
     final BytecodeInfo info = getBCInfo();
-    if (info.decoder.containsSubroutines()) return -1;
+    if (info.containsSubroutines) return -1;
 
     final int[] pcMap = info.pcMap;
     assert isSorted(pcMap);
@@ -442,22 +450,25 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
   protected abstract void processDebugInfo(BytecodeInfo bcInfo) throws InvalidClassFileException;
 
   private void processBytecodesWithShrikeBT(BytecodeInfo info) throws InvalidClassFileException {
-    info.decoder = makeDecoder();
-    if (!isAbstract() && info.decoder == null) {
+    Decoder decoder = makeDecoder();
+    if (!isAbstract() && decoder == null) {
       throw new InvalidClassFileException(
           -1, "non-abstract method " + getReference() + " has no bytecodes");
     }
-    if (info.decoder == null) {
+    if (decoder == null) {
       return;
     }
-    info.pcMap = info.decoder.getInstructionsToBytecodes();
+    info.instructions = decoder.getInstructions();
+    info.handlers = decoder.getHandlers();
+    info.containsSubroutines = decoder.containsSubroutines();
+    info.pcMap = decoder.getInstructionsToBytecodes();
 
     processDebugInfo(info);
 
     SimpleVisitor simpleVisitor = new SimpleVisitor(info);
 
     BytecodeLanguage lang = (BytecodeLanguage) getDeclaringClass().getClassLoader().getLanguage();
-    IInstruction[] instructions = info.decoder.getInstructions();
+    IInstruction[] instructions = info.instructions;
     for (int i = 0; i < instructions.length; i++) {
       simpleVisitor.setInstructionIndex(i);
       instructions[i].visit(simpleVisitor);
@@ -690,19 +701,11 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
 
   /** */
   public IInstruction[] getInstructions() throws InvalidClassFileException {
-    if (getBCInfo().decoder == null) {
-      return null;
-    } else {
-      return getBCInfo().decoder.getInstructions();
-    }
+    return getBCInfo().instructions;
   }
 
   public ExceptionHandler[][] getHandlers() throws InvalidClassFileException {
-    if (getBCInfo().decoder == null) {
-      return null;
-    } else {
-      return getBCInfo().decoder.getHandlers();
-    }
+    return getBCInfo().handlers;
   }
 
   /** By convention, for a non-static method, getParameterType(0) is the this pointer */
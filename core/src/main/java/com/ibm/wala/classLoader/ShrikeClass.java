@@ -67,6 +67,34 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     computeFields();
   }
 
+  /**
+   * Create a class from a header recorded in a {@link ClassHierarchySnapshot}, without reading the
+   * class file; reader is consulted only once methods or attributes are needed.
+   */
+  ShrikeClass(
+      ShrikeClassReaderHandle reader,
+      IClassLoader loader,
+      IClassHierarchy cha,
+      TypeName name,
+      ClassHierarchySnapshot.ClassRecord record) {
+    super(loader, cha);
+    this.reader = reader;
+    typeReference = TypeReference.findOrCreate(loader.getReference(), name);
+    this.hashCode = 2161 * getReference().hashCode();
+    superName = record.superName;
+    modifiers = record.modifiers;
+    interfaceNames = record.interfaceNames;
+    List<FieldImpl> instanceList = new ArrayList<>(record.fields.length);
+    List<FieldImpl> staticList = new ArrayList<>(record.fields.length);
+    for (ClassHierarchySnapshot.FieldRecord f : record.fields) {
+      List<FieldImpl> L =
+          (f.accessFlags & ClassConstants.ACC_STATIC) == 0 ? instanceList : staticList;
+      addFieldToList(L, f.name, f.type, f.accessFlags, null, null, f.signature);
+    }
+    instanceFields = instanceList.toArray(new IField[0]);
+    staticFields = staticList.toArray(new IField[0]);
+  }
+
   /**
    * Compute the fields declared by this class
    *
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A Java Flight Recorder event for the construction of a class hierarchy. */
+@Name("com.ibm.wala.ClassHierarchy")
+@Label("Class Hierarchy Construction")
+@Category({"WALA", "Class Hierarchy"})
+@StackTrace(false)
+public final class ClassHierarchyEvent extends Event {
+
+  @Label("Loaders")
+  public int loaders;
+
+  @Label("Classes")
+  public int classes;
+}
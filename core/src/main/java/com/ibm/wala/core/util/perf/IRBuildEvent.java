@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for the construction of the SSA instructions of a method from its
+ * bytecode. There is one per IR built, so a recording may want to set a threshold on it.
+ */
+@Name("com.ibm.wala.IRBuild")
+@Label("IR Construction")
+@Category({"WALA", "IR"})
+@StackTrace(false)
+public final class IRBuildEvent extends Event {
+
+  @Label("Method")
+  public String method;
+
+  @Label("Bytecode Instructions")
+  public int bytecodeInstructions;
+
+  @Label("Basic Blocks")
+  public int basicBlocks;
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A Java Flight Recorder event for a run of an IFDS tabulation solver. */
+@Name("com.ibm.wala.Tabulation")
+@Label("IFDS Tabulation")
+@Category({"WALA", "IFDS"})
+@StackTrace(false)
+public final class TabulationEvent extends Event {
+
+  @Label("Problem")
+  public Class<?> problem;
+
+  @Label("Parallelism")
+  public int parallelism;
+
+  @Label("Path Edges Processed")
+  public long pathEdgesProcessed;
+}
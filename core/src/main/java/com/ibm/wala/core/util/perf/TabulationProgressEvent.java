@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event emitted by an IFDS tabulation solver each time a thread has
+ * processed a fixed number of path edges.
+ */
+@Name("com.ibm.wala.TabulationProgress")
+@Label("IFDS Tabulation Progress")
+@Category({"WALA", "IFDS"})
+@StackTrace(false)
+public final class TabulationProgressEvent extends Event {
+
+  @Label("Path Edges Processed")
+  @Description("Path edges processed so far by the emitting thread")
+  public long pathEdgesProcessed;
+
+  @Label("Work List Size")
+  public int workListSize;
+}
@@ -10,6 +10,8 @@
  */
 package com.ibm.wala.core.util.shrike;
 
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.core.util.ref.CacheReference;
 import com.ibm.wala.shrike.shrikeCT.ClassReader;
@@ -18,6 +20,7 @@ import com.ibm.wala.util.debug.Assertions;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 
 /**
  * A soft handle to a Shrike class reader
@@ -62,19 +65,36 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
+      result = new ClassReader(readContents());
+      reader = CacheReference.make(result);
+    }
+    return result;
+  }
+
+  /**
+   * Read the class file afresh. Files and entries of memory-mapped jars are read straight into an
+   * array of the right size; other entries go through a stream.
+   */
+  private byte[] readContents() {
+    try {
+      if (entry.getContainer() instanceof MappedJarFileModule) {
+        byte[] contents = ((MappedJarFileModule) entry.getContainer()).getContents(entry.getName());
+        if (contents != null) {
+          return contents;
+        }
+      } else if (entry instanceof FileModule) {
+        return Files.readAllBytes(((FileModule) entry).getFile().toPath());
+      }
       ByteArrayOutputStream S = new ByteArrayOutputStream();
-      try {
-        InputStream s = entry.getInputStream();
+      try (InputStream s = entry.getInputStream()) {
         readBytes(s, S);
-        s.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-        Assertions.UNREACHABLE();
       }
-      result = new ClassReader(S.toByteArray());
-      reader = CacheReference.make(result);
+      return S.toByteArray();
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+      return null;
     }
-    return result;
   }
 
   /** Read is into bytes */
@@ -10,10 +10,9 @@
  */
 package com.ibm.wala.core.util.strings;
 
-import com.ibm.wala.util.collections.HashMapFactory;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An utf8-encoded byte string.
@@ -31,9 +30,10 @@ public final class Atom implements Serializable {
 
   /**
    * Used to canonicalize Atoms, a mapping from AtomKey -&gt; Atom. AtomKeys are not canonical, but
-   * Atoms are.
+   * Atoms are. Concurrent so that class files may be parsed on several threads without serializing
+   * on a global lock.
    */
-  private static final HashMap<AtomKey, Atom> dictionary = HashMapFactory.make();
+  private static final ConcurrentHashMap<AtomKey, Atom> dictionary = new ConcurrentHashMap<>();
 
   /** The utf8 value this atom represents */
   private final byte val[];
@@ -112,7 +112,7 @@ public final class Atom implements Serializable {
     return findOrCreate(val);
   }
 
-  public static synchronized Atom findOrCreate(byte[] bytes) {
+  public static Atom findOrCreate(byte[] bytes) {
     if (bytes == null) {
       throw new IllegalArgumentException("bytes is null");
     }
@@ -121,19 +121,17 @@ public final class Atom implements Serializable {
     if (val != null) {
       return val;
     }
-    val = new Atom(key);
-    dictionary.put(key, val);
-    return val;
+    return dictionary.computeIfAbsent(key, Atom::new);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b) {
+  public static Atom findOrCreate(ImmutableByteArray b) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
     return findOrCreate(b.b);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b, int start, int length) {
+  public static Atom findOrCreate(ImmutableByteArray b, int start, int length) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
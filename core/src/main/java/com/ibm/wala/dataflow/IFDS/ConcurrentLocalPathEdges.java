@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * {@link LocalPathEdges} that may be shared by several tabulation threads. Queries return copies,
+ * since the underlying sets may be mutated by another thread.
+ */
+final class ConcurrentLocalPathEdges extends LocalPathEdges {
+
+  ConcurrentLocalPathEdges(boolean fastMerge) {
+    super(fastMerge);
+  }
+
+  @Override
+  public synchronized void addPathEdge(int i, int n, int j) {
+    super.addPathEdge(i, n, j);
+  }
+
+  @Override
+  public synchronized boolean addPathEdgeIfAbsent(int i, int n, int j) {
+    return super.addPathEdgeIfAbsent(i, n, j);
+  }
+
+  @Override
+  public synchronized IntSet getInverse(int n, int d2) {
+    return copy(super.getInverse(n, d2));
+  }
+
+  @Override
+  public synchronized boolean contains(int i, int n, int j) {
+    return super.contains(i, n, j);
+  }
+
+  @Override
+  public synchronized IntSet getReachable(int n, int d1) {
+    return copy(super.getReachable(n, d1));
+  }
+
+  @Override
+  public synchronized IntSet getReachable(int n) {
+    return super.getReachable(n);
+  }
+
+  @Override
+  public synchronized IntSet getReachedNodeNumbers() {
+    return super.getReachedNodeNumbers();
+  }
+
+  static IntSet copy(IntSet s) {
+    return s == null ? null : MutableSparseIntSet.make(s);
+  }
+}
@@ -12,6 +12,8 @@ package com.ibm.wala.dataflow.IFDS;
 
 import com.ibm.wala.cfg.IBasicBlock;
 import com.ibm.wala.core.util.CancelRuntimeException;
+import com.ibm.wala.core.util.perf.TabulationEvent;
+import com.ibm.wala.core.util.perf.TabulationProgressEvent;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
@@ -29,15 +31,26 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A precise interprocedural tabulation solver.
@@ -51,6 +64,7 @@ import java.util.TreeSet;
  *       site.
  *   <li>it supports an optional merge operator, useful for non-IFDS problems and widening.
  *   <li>it stores summary edges at each callee instead of at each call site.
+ *   <li>it can process path edges on several threads; see {@link #setParallelism(int)}.
  * </ul>
  *
  * @param <T> type of node in the supergraph
@@ -107,7 +121,7 @@ public class TabulationSolver<T, P, F> {
    * <p>Logically, this represents a set of edges (s_p,d_i) -&gt; (n, d_j). The data structure is
    * chosen to attempt to save space over representing each edge explicitly.
    */
-  private final Map<T, LocalPathEdges> pathEdges = HashMapFactory.make();
+  private Map<T, LocalPathEdges> pathEdges = HashMapFactory.make();
 
   /**
    * A map from Object (entry node in supergraph) -&gt; CallFlowEdges.
@@ -115,10 +129,10 @@ public class TabulationSolver<T, P, F> {
    * <p>Logically, this represents a set of edges (c,d_i) -&gt; (s_p, d_j). The data structure is
    * chosen to attempt to save space over representing each edge explicitly.
    */
-  private final Map<T, CallFlowEdges> callFlowEdges = HashMapFactory.make();
+  private Map<T, CallFlowEdges> callFlowEdges = HashMapFactory.make();
 
   /** A map from Object (procedure) -&gt; LocalSummaryEdges. */
-  protected final Map<P, LocalSummaryEdges> summaryEdges = HashMapFactory.make();
+  protected Map<P, LocalSummaryEdges> summaryEdges = HashMapFactory.make();
 
   /**
    * the set of all {@link PathEdge}s that were used as seeds during the tabulation, grouped by
@@ -127,7 +141,7 @@ public class TabulationSolver<T, P, F> {
   private final Map<P, Set<PathEdge<T>>> seeds = HashMapFactory.make();
 
   /** All seeds, stored redundantly for quick access. */
-  private final Set<PathEdge<T>> allSeeds = HashSetFactory.make();
+  private Set<PathEdge<T>> allSeeds = HashSetFactory.make();
 
   /** The worklist */
   private ITabulationWorklist<T> worklist;
@@ -135,20 +149,20 @@ public class TabulationSolver<T, P, F> {
   /** A progress monitor. can be null. */
   protected final IProgressMonitor progressMonitor;
 
-  /**
-   * the path edge currently being processed in the main loop of {@link #forwardTabulateSLRPs()};
-   * {@code null} if {@link #forwardTabulateSLRPs()} is not currently running. Note that if we are
-   * applying a summary edge in {@link #processExit(PathEdge)}, curPathEdge is modified to be the
-   * path edge terminating at the call node in the caller, to match the behavior in {@link
-   * #processCall(PathEdge)}.
-   */
-  private PathEdge<T> curPathEdge;
+  /** number of threads processing path edges */
+  private int parallelism = 1;
 
-  /**
-   * the summary edge currently being applied in {@link #processCall(PathEdge)} or {@link
-   * #processExit(PathEdge)}, or {@code null} if summary edges are not currently being processed.
-   */
-  private PathEdge<T> curSummaryEdge;
+  /** each thread emits a {@link TabulationProgressEvent} once per this many path edges */
+  private static final int PROGRESS_INTERVAL = 10000;
+
+  /** path edges processed by all threads during the current call of {@link #solve()} */
+  private long pathEdgesProcessed;
+
+  /** the edges being processed by the main loop, when tabulating on a single thread */
+  private final Cursor<T> cursor = new Cursor<>();
+
+  /** the edges being processed by each thread, or null when tabulating on a single thread */
+  private ThreadLocal<Cursor<T>> workerCursors;
 
   /**
    * @param p a description of the dataflow problem to solve
@@ -184,6 +198,9 @@ public class TabulationSolver<T, P, F> {
    */
   public TabulationResult<T, P, F> solve() throws CancelException {
 
+    TabulationEvent event = new TabulationEvent();
+    event.begin();
+    pathEdgesProcessed = 0;
     try {
       initialize();
       forwardTabulateSLRPs();
@@ -193,9 +210,74 @@ public class TabulationSolver<T, P, F> {
       // store a partially-tabulated result in the thrown exception.
       Result r = new Result();
       throw new TabulationCancelException(e, r);
+    } finally {
+      if (event.shouldCommit()) {
+        event.problem = problem.getClass();
+        event.parallelism = parallelism;
+        event.pathEdgesProcessed = pathEdgesProcessed;
+        event.commit();
+      }
+    }
+  }
+
+  private void emitProgress(long processed) {
+    TabulationProgressEvent event = new TabulationProgressEvent();
+    if (event.shouldCommit()) {
+      event.pathEdgesProcessed = processed;
+      event.workListSize = worklist.size();
+      event.commit();
+    }
+  }
+
+  /**
+   * Process path edges on n threads. Must be called before {@link #solve()}.
+   *
+   * <p>With n &gt; 1, worker threads take path edges from a shared FIFO work list, so the priority
+   * order of {@link #makeWorklist()} is not used, and record path, call flow and summary edges in
+   * thread-safe tables. Since each path edge is recorded at most once, and both the application of
+   * summary edges at call sites and the propagation of new summary edges to callers first record
+   * their own edge and then look for the other, the solver reaches the same result as on a single
+   * thread.
+   *
+   * <p>The supergraph is fully constructed on the calling thread before tabulation starts. After
+   * that, the supergraph, the flow functions, the domain, and any methods overridden by subclasses,
+   * such as {@link #propagate(Object, int, Object, int)} or the hooks like {@link
+   * #newNormalExplodedEdge(PathEdge, Object, int)}, may be called concurrently. Problems with a
+   * merge function are always tabulated on a single thread, since merging depends on the order in
+   * which path edges are processed.
+   *
+   * @throws IllegalArgumentException if n &lt; 1
+   * @throws IllegalStateException if tabulation has already started
+   */
+  public void setParallelism(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + n);
+    }
+    if (!pathEdges.isEmpty()) {
+      throw new IllegalStateException("tabulation has already started");
+    }
+    parallelism = problem.getMergeFunction() == null ? n : 1;
+    if (parallelism > 1) {
+      pathEdges = new ConcurrentHashMap<>();
+      callFlowEdges = new ConcurrentHashMap<>();
+      summaryEdges = new ConcurrentHashMap<>();
+      allSeeds = ConcurrentHashMap.newKeySet();
+      workerCursors = ThreadLocal.withInitial(Cursor::new);
+      worklist = new ConcurrentWorklist<>();
+    } else {
+      pathEdges = HashMapFactory.make();
+      callFlowEdges = HashMapFactory.make();
+      summaryEdges = HashMapFactory.make();
+      allSeeds = HashSetFactory.make();
+      workerCursors = null;
+      worklist = null;
     }
   }
 
+  public int getParallelism() {
+    return parallelism;
+  }
+
   /** Start tabulation with the initial seeds. */
   protected void initialize() {
     for (PathEdge<T> seed : problem.initialSeeds()) {
@@ -205,8 +287,10 @@ public class TabulationSolver<T, P, F> {
 
   /** Restart tabulation from a particular path edge. Use with care. */
   public void addSeed(PathEdge<T> seed) {
-    Set<PathEdge<T>> s = MapUtil.findOrCreateSet(seeds, supergraph.getProcOf(seed.entry));
-    s.add(seed);
+    synchronized (seeds) {
+      Set<PathEdge<T>> s = MapUtil.findOrCreateSet(seeds, supergraph.getProcOf(seed.entry));
+      s.add(seed);
+    }
     allSeeds.add(seed);
     propagate(seed.entry, seed.d1, seed.target, seed.d2);
   }
@@ -214,7 +298,11 @@ public class TabulationSolver<T, P, F> {
   /** See POPL 95 paper for this algorithm, Figure 3 */
   @SuppressWarnings("unused")
   private void forwardTabulateSLRPs() throws CancelException {
-    assert curPathEdge == null : "curPathEdge should not be non-null here";
+    if (parallelism > 1) {
+      forwardTabulateInParallel();
+      return;
+    }
+    assert cursor.pathEdge == null : "curPathEdge should not be non-null here";
     if (worklist == null) {
       worklist = makeWorklist();
     }
@@ -228,38 +316,119 @@ public class TabulationSolver<T, P, F> {
       }
 
       final PathEdge<T> edge = popFromWorkList();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("TABULATE " + edge);
+      processPathEdge(edge);
+      if (++pathEdgesProcessed % PROGRESS_INTERVAL == 0) {
+        emitProgress(pathEdgesProcessed);
       }
-      curPathEdge = edge;
-      int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
-      if (j == -1 && DEBUG_LEVEL > 0) {
-        System.err.println("merge -1: DROPPING");
+    }
+    cursor.pathEdge = null;
+  }
+
+  /**
+   * Tabulate on {@link #parallelism} threads, each of which repeatedly takes a path edge from the
+   * shared work list and processes it, until no path edge is left in the work list or being
+   * processed. A thread that finds the list empty waits for more work rather than spinning.
+   */
+  private void forwardTabulateInParallel() throws CancelException {
+    // lazily-built supergraphs like ICFGSupergraph construct themselves here, so that the workers
+    // only read them
+    supergraph.getNumberOfNodes();
+
+    final ConcurrentWorklist<T> work = (ConcurrentWorklist<T>) worklist;
+    List<Callable<Long>> tasks = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      tasks.add(
+          () -> {
+            long processed = 0;
+            try {
+              PathEdge<T> edge;
+              while ((edge = work.await()) != null) {
+                try {
+                  MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+                  processPathEdge(edge);
+                } finally {
+                  work.done();
+                }
+                if (++processed % PROGRESS_INTERVAL == 0) {
+                  emitProgress(processed);
+                }
+              }
+            } catch (InterruptedException e) {
+              work.abort();
+              throw CancelException.make("interrupted during tabulation");
+            } catch (Throwable t) {
+              // wake up the other workers so they stop too
+              work.abort();
+              throw t;
+            } finally {
+              workerCursors.remove();
+            }
+            return processed;
+          });
+    }
+
+    ExecutorService pool = new ForkJoinPool(parallelism);
+    try {
+      for (Future<Long> f : pool.invokeAll(tasks)) {
+        pathEdgesProcessed += f.get();
       }
-      if (j != -1) {
-        if (j != edge.d2) {
-          // this means that we don't want to push the edge. instead,
-          // we'll push the merged fact. a little tricky, but i think should
-          // work.
-          if (DEBUG_LEVEL > 0) {
-            System.err.println("propagating merged fact " + j);
-          }
-          propagate(edge.entry, edge.d1, edge.target, j);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw CancelException.make("interrupted during tabulation");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CancelException) {
+        throw (CancelException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new RuntimeException(cause);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** Handle lines [10 - 37] of the algorithm for a path edge taken from the work list */
+  @SuppressWarnings("unused")
+  private void processPathEdge(final PathEdge<T> edge) {
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("TABULATE " + edge);
+    }
+    cursor().pathEdge = edge;
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1 && DEBUG_LEVEL > 0) {
+      System.err.println("merge -1: DROPPING");
+    }
+    if (j != -1) {
+      if (j != edge.d2) {
+        // this means that we don't want to push the edge. instead,
+        // we'll push the merged fact. a little tricky, but i think should
+        // work.
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("propagating merged fact " + j);
+        }
+        propagate(edge.entry, edge.d1, edge.target, j);
+      } else {
+        if (supergraph.isCall(edge.target)) {
+          // [13]
+          processCall(edge);
+        } else if (supergraph.isExit(edge.target)) {
+          // [21]
+          processExit(edge);
         } else {
-          if (supergraph.isCall(edge.target)) {
-            // [13]
-            processCall(edge);
-          } else if (supergraph.isExit(edge.target)) {
-            // [21]
-            processExit(edge);
-          } else {
-            // [33]
-            processNormal(edge);
-          }
+          // [33]
+          processNormal(edge);
         }
       }
     }
-    curPathEdge = null;
+  }
+
+  /** @return the edges being processed by the current thread */
+  private Cursor<T> cursor() {
+    return workerCursors == null ? cursor : workerCursors.get();
   }
 
   /**
@@ -335,8 +504,9 @@ public class TabulationSolver<T, P, F> {
     if (!summaries.contains(s_p_n, x, edge.d1, edge.d2)) {
       summaries.insertSummaryEdge(s_p_n, x, edge.d1, edge.d2);
     }
-    assert curSummaryEdge == null : "curSummaryEdge should be null here";
-    curSummaryEdge = edge;
+    final Cursor<T> cur = cursor();
+    assert cur.summaryEdge == null : "curSummaryEdge should be null here";
+    cur.summaryEdge = edge;
 
     final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge.entry);
 
@@ -352,7 +522,7 @@ public class TabulationSolver<T, P, F> {
         propagateToReturnSites(edge, supergraph.getNode(globalC), D4);
       }
     }
-    curSummaryEdge = null;
+    cur.summaryEdge = null;
   }
 
   /**
@@ -453,6 +623,7 @@ public class TabulationSolver<T, P, F> {
       final IntSet D5,
       final PathEdge<T> edge) {
     if (D5 != null) {
+      final Cursor<T> cur = cursor();
       D5.foreach(
           d5 -> {
             // [26 - 28]
@@ -476,8 +647,8 @@ public class TabulationSolver<T, P, F> {
                     d3 -> {
                       // set curPathEdge to be consistent with its setting in processCall() when
                       // applying a summary edge
-                      curPathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
-                      newSummaryEdge(curPathEdge, edge, retSite, d5);
+                      cur.pathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
+                      newSummaryEdge(cur.pathEdge, edge, retSite, d5);
                       propagate(s_p, d3, retSite, d5);
                     });
               }
@@ -615,9 +786,9 @@ public class TabulationSolver<T, P, F> {
       System.err.println(" reached: " + reached);
     }
     if (reached != null) {
-      final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
       final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
       final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
+      final Cursor<T> cur = cursor();
 
       reached.foreach(
           d1 -> {
@@ -629,7 +800,10 @@ public class TabulationSolver<T, P, F> {
             // call flow
             callFlow.addCallEdge(callNodeNum, edge.d2, d1);
             // handle summary edges now as well. this is different from the PoPL
-            // 95 paper.
+            // 95 paper. look them up only after recording the call flow, so that when tabulating
+            // in parallel, a summary edge added concurrently by processExit is either seen here, or
+            // is applied by processExit to this call flow.
+            final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
             if (summaries != null) {
               // for each exit from the callee
               P p = supergraph.getProcOf(calleeEntry);
@@ -651,15 +825,15 @@ public class TabulationSolver<T, P, F> {
                           flowFunctionMap.getReturnFlowFunction(edge.target, exit, returnSite);
                       reachedBySummary.foreach(
                           d2 -> {
-                            assert curSummaryEdge == null : "curSummaryEdge should be null here";
-                            curSummaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                            assert cur.summaryEdge == null : "curSummaryEdge should be null here";
+                            cur.summaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
                             if (retf instanceof IBinaryReturnFlowFunction) {
                               final IntSet D51 =
                                   computeBinaryFlow(edge.d2, d2, (IBinaryReturnFlowFunction) retf);
                               if (D51 != null) {
                                 D51.foreach(
                                     d5 -> {
-                                      newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                      newSummaryEdge(edge, cur.summaryEdge, returnSite, d5);
                                       propagate(edge.entry, edge.d1, returnSite, d5);
                                     });
                               }
@@ -668,12 +842,12 @@ public class TabulationSolver<T, P, F> {
                               if (D52 != null) {
                                 D52.foreach(
                                     d5 -> {
-                                      newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                      newSummaryEdge(edge, cur.summaryEdge, returnSite, d5);
                                       propagate(edge.entry, edge.d1, returnSite, d5);
                                     });
                               }
                             }
-                            curSummaryEdge = null;
+                            cur.summaryEdge = null;
                           });
                     }
                   }
@@ -764,11 +938,10 @@ public class TabulationSolver<T, P, F> {
 
     assert j >= 0;
 
-    if (!pLocal.contains(i, number, j)) {
+    if (pLocal.addPathEdgeIfAbsent(i, number, j)) {
       if (DEBUG_LEVEL > 0) {
         System.err.println("propagate " + s_p + "  " + i + ' ' + number + ' ' + j);
       }
-      pLocal.addPathEdge(i, number, j);
       addToWorkList(s_p, i, n, j);
       return true;
     }
@@ -823,36 +996,27 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected LocalPathEdges findOrCreateLocalPathEdges(T s_p) {
-    LocalPathEdges result = pathEdges.get(s_p);
-    if (result == null) {
-      result = makeLocalPathEdges();
-      pathEdges.put(s_p, result);
-    }
-    return result;
+    return pathEdges.computeIfAbsent(s_p, k -> makeLocalPathEdges());
   }
 
   private LocalPathEdges makeLocalPathEdges() {
+    if (parallelism > 1) {
+      // setParallelism() guarantees there is no merge function
+      return new ConcurrentLocalPathEdges(false);
+    }
     return problem.getMergeFunction() == null
         ? new LocalPathEdges(false)
         : new LocalPathEdges(true);
   }
 
   protected LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
-    LocalSummaryEdges result = summaryEdges.get(proc);
-    if (result == null) {
-      result = new LocalSummaryEdges();
-      summaryEdges.put(proc, result);
-    }
-    return result;
+    return summaryEdges.computeIfAbsent(
+        proc, k -> parallelism > 1 ? new ConcurrentLocalSummaryEdges() : new LocalSummaryEdges());
   }
 
   protected CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
-    CallFlowEdges result = callFlowEdges.get(s_p);
-    if (result == null) {
-      result = new CallFlowEdges();
-      callFlowEdges.put(s_p, result);
-    }
-    return result;
+    return callFlowEdges.computeIfAbsent(
+        s_p, k -> parallelism > 1 ? new ConcurrentCallFlowEdges() : new CallFlowEdges());
   }
 
   /**
@@ -867,10 +1031,12 @@ public class TabulationSolver<T, P, F> {
     MutableIntSet result = MutableSparseIntSet.makeEmpty();
 
     Set<T> allEntries = HashSetFactory.make(Arrays.asList(entries));
-    Set<PathEdge<T>> pSeeds = seeds.get(proc);
-    if (pSeeds != null) {
-      for (PathEdge<T> seed : pSeeds) {
-        allEntries.add(seed.entry);
+    synchronized (seeds) {
+      Set<PathEdge<T>> pSeeds = seeds.get(proc);
+      if (pSeeds != null) {
+        for (PathEdge<T> seed : pSeeds) {
+          allEntries.add(seed.entry);
+        }
       }
     }
 
@@ -986,6 +1152,108 @@ public class TabulationSolver<T, P, F> {
     }
   }
 
+  /**
+   * A FIFO work list shared by several threads. Its size counts the path edges that are still in
+   * the list, as well as those that have been taken but are not yet {@link #done() done}, so it is
+   * only 0 once tabulation has finished.
+   */
+  private static final class ConcurrentWorklist<T> implements ITabulationWorklist<T> {
+
+    private final Queue<PathEdge<T>> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** the number of threads blocked in {@link #await()}; only changed while holding this */
+    private volatile int waiting;
+
+    private volatile boolean aborted;
+
+    /**
+     * @return the next path edge, or null if the list is currently empty
+     */
+    @Override
+    public PathEdge<T> take() {
+      return queue.poll();
+    }
+
+    /**
+     * Wait until a path edge is available, or until tabulation has finished or been {@link
+     * #abort() aborted}.
+     *
+     * @return the next path edge, or null if there is no more work
+     */
+    PathEdge<T> await() throws InterruptedException {
+      PathEdge<T> result = queue.poll();
+      if (result != null || aborted || pending.get() == 0) {
+        return aborted ? null : result;
+      }
+      synchronized (this) {
+        waiting++;
+        try {
+          // an insert() that does not see this thread waiting put its edge in the queue first
+          while ((result = queue.poll()) == null && !aborted && pending.get() > 0) {
+            wait();
+          }
+        } finally {
+          waiting--;
+        }
+      }
+      return aborted ? null : result;
+    }
+
+    @Override
+    public void insert(PathEdge<T> elt) {
+      pending.incrementAndGet();
+      queue.add(elt);
+      if (waiting > 0) {
+        synchronized (this) {
+          notify();
+        }
+      }
+    }
+
+    @Override
+    public int size() {
+      return pending.get();
+    }
+
+    /** a path edge returned by {@link #take()} or {@link #await()} has been processed */
+    void done() {
+      if (pending.decrementAndGet() == 0) {
+        synchronized (this) {
+          notifyAll();
+        }
+      }
+    }
+
+    /** stop handing out path edges, and wake up the threads waiting for them */
+    synchronized void abort() {
+      aborted = true;
+      notifyAll();
+    }
+  }
+
+  /** The edges being processed by one thread. */
+  private static final class Cursor<T> {
+
+    /**
+     * the path edge currently being processed in the main loop of {@link
+     * TabulationSolver#forwardTabulateSLRPs()}; {@code null} if the main loop is not currently
+     * running. Note that if we are applying a summary edge in {@link
+     * TabulationSolver#processExit(PathEdge)}, pathEdge is modified to be the path edge terminating
+     * at the call node in the caller, to match the behavior in {@link
+     * TabulationSolver#processCall(PathEdge)}.
+     */
+    PathEdge<T> pathEdge;
+
+    /**
+     * the summary edge currently being applied in {@link TabulationSolver#processCall(PathEdge)} or
+     * {@link TabulationSolver#processExit(PathEdge)}, or {@code null} if summary edges are not
+     * currently being processed.
+     */
+    PathEdge<T> summaryEdge;
+  }
+
   /**
    * @return set of d1 s.t. (n1,d1) -&gt; (n2,d2) is recorded as a summary edge, or null if none
    *     found
@@ -1016,11 +1284,11 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected PathEdge<T> getCurPathEdge() {
-    return curPathEdge;
+    return cursor().pathEdge;
   }
 
   protected PathEdge<T> getCurSummaryEdge() {
-    return curSummaryEdge;
+    return cursor().summaryEdge;
   }
 
   /**
@@ -104,6 +104,7 @@ import com.ibm.wala.ssa.SSAArrayStoreInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSANewInstruction;
 import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.ArraySet;
 import com.ibm.wala.util.collections.ArraySetMultiMap;
 import com.ibm.wala.util.collections.HashMapFactory;
@@ -126,13 +127,24 @@ import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
 import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -158,6 +170,15 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   private RefinementPolicyFactory refinementPolicyFactory;
 
+  /**
+   * answers to earlier queries without a predicate, by queried pointer key, or {@code null} if
+   * answers are not cached
+   */
+  private Map<PointerKey, Pair<PointsToResult, Collection<InstanceKeyAndState>>> answers;
+
+  /** does {@link #g} hold the subgraphs of all nodes of the call graph? */
+  private boolean flowGraphComplete;
+
   public RefinementPolicy getRefinementPolicy() {
     return refinementPolicy;
   }
@@ -253,7 +274,11 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
    */
   public Pair<PointsToResult, Collection<InstanceKey>> getPointsTo(
       PointerKey pk, Predicate<InstanceKey> ikeyPred) throws IllegalArgumentException {
-    Pair<PointsToResult, Collection<InstanceKeyAndState>> p = getPointsToWithStates(pk, ikeyPred);
+    return withoutStates(getPointsToWithStates(pk, ikeyPred));
+  }
+
+  private static Pair<PointsToResult, Collection<InstanceKey>> withoutStates(
+      Pair<PointsToResult, Collection<InstanceKeyAndState>> p) {
     final Collection<InstanceKeyAndState> p2SetWithStates = p.snd;
     Collection<InstanceKey> finalP2Set =
         p2SetWithStates != null
@@ -518,7 +543,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
    */
   @Override
   public Collection<InstanceKey> getPointsTo(PointerKey pk) {
-    return getPointsTo(pk, k -> false).snd;
+    return withoutStates(answer(pk)).snd;
   }
 
   /**
@@ -527,7 +552,154 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
    *     budget
    */
   public Collection<InstanceKeyAndState> getPointsToWithStates(PointerKey pk) {
-    return getPointsToWithStates(pk, k -> false).snd;
+    return answer(pk).snd;
+  }
+
+  /** answer a query for pk without a predicate, from the cached answers if possible */
+  private Pair<PointsToResult, Collection<InstanceKeyAndState>> answer(PointerKey pk) {
+    if (answers == null) {
+      return getPointsToWithStates(pk, k -> false);
+    }
+    Pair<PointsToResult, Collection<InstanceKeyAndState>> result = answers.get(pk);
+    if (result == null) {
+      result = getPointsToWithStates(pk, k -> false);
+      answers.put(pk, result);
+    }
+    return result;
+  }
+
+  /**
+   * Add the subgraphs of all nodes of the call graph to the flow graph. Queries otherwise add
+   * subgraphs as they go, and unless the call graph is refined, a query only follows calls into
+   * nodes whose subgraphs are there already, so its answer can depend on the queries made before
+   * it. Once the flow graph is complete, it no longer changes, and each query gets the same answer
+   * whenever it is made.
+   */
+  public void completeFlowGraph() {
+    if (flowGraphComplete) {
+      return;
+    }
+    for (CGNode node : cg) {
+      g.addSubgraphForNode(node);
+    }
+    flowGraphComplete = true;
+  }
+
+  /**
+   * Should the answers to queries without a predicate, e.g. through {@link
+   * #getPointsTo(PointerKey)}, be remembered, so that asking again for the same pointer key does
+   * not traverse the flow graph again? Caching first completes the flow graph (see {@link
+   * #completeFlowGraph()}), so that a cached answer is the one the query would get again. Cached
+   * answers are forgotten when the refinement policy factory or state machine factory changes.
+   * While caching is on, the collections returned by {@link #getPointsToWithStates(PointerKey)}
+   * are shared and must not be modified.
+   */
+  public void setCacheAnswers(boolean cache) {
+    if (cache) {
+      completeFlowGraph();
+      answers = new ConcurrentHashMap<>();
+    } else {
+      answers = null;
+    }
+  }
+
+  /**
+   * Answer the points-to queries for several pointer keys at once, each as by {@link
+   * #getPointsTo(PointerKey, Predicate)} with a predicate that never holds. This first completes
+   * the flow graph (see {@link #completeFlowGraph()}), so the answers do not depend on the order
+   * of the queries. A key asked for more than once is queried once, and keys with cached answers
+   * (see {@link #setCacheAnswers(boolean)}) are not queried again.
+   *
+   * <p>With a parallelism above one, the queries run on that many threads. Each thread has its own
+   * copy of the state of a query, but they all share the completed flow graph, the heap model, the
+   * memory access map and the class hierarchy. Queries do not add to the flow graph, but some of
+   * this shared state is still filled in lazily, such as the callers of a node and the allocation
+   * sites that a {@link com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys} heap model
+   * smushes, so it must be safe to fill in from several threads. Every query still gets the budget
+   * its {@link RefinementPolicy} gives it, so the answers are the same as when the queries are made
+   * one at a time.
+   *
+   * @param pks the pointer keys to query
+   * @param parallelism the number of threads to use
+   * @return the result and points-to set of each distinct key in {@code pks}, in the order of
+   *     {@code pks}
+   * @throws IllegalArgumentException if one of {@code pks} is not a {@link LocalPointerKey}
+   * @throws CancelException if interrupted while waiting for the queries
+   */
+  public Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> getPointsTo(
+      Collection<? extends PointerKey> pks, int parallelism) throws CancelException {
+    if (pks == null) {
+      throw new IllegalArgumentException("pks is null");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    final List<PointerKey> todo = new ArrayList<>(new LinkedHashSet<>(pks));
+    for (PointerKey pk : todo) {
+      if (!(pk instanceof LocalPointerKey)) {
+        throw new IllegalArgumentException("only locals for now");
+      }
+    }
+    completeFlowGraph();
+    final List<Pair<PointsToResult, Collection<InstanceKeyAndState>>> results =
+        new ArrayList<>(Collections.nCopies(todo.size(), null));
+    if (parallelism == 1 || todo.size() < 2) {
+      for (int i = 0; i < todo.size(); i++) {
+        results.set(i, answer(todo.get(i)));
+      }
+    } else {
+      final AtomicInteger next = new AtomicInteger();
+      List<Callable<Object>> tasks = new ArrayList<>();
+      for (int t = 0; t < Math.min(parallelism, todo.size()); t++) {
+        final DemandRefinementPointsTo worker = copy();
+        tasks.add(
+            Executors.callable(
+                () -> {
+                  for (int i; (i = next.getAndIncrement()) < todo.size(); ) {
+                    results.set(i, worker.answer(todo.get(i)));
+                  }
+                }));
+      }
+      ExecutorService pool = new ForkJoinPool(tasks.size());
+      try {
+        for (Future<Object> f : pool.invokeAll(tasks)) {
+          f.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw CancelException.make("interrupted while answering points-to queries");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        } else {
+          throw new RuntimeException(cause);
+        }
+      } finally {
+        pool.shutdown();
+      }
+    }
+    Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> result = new LinkedHashMap<>();
+    for (int i = 0; i < todo.size(); i++) {
+      result.put(todo.get(i), withoutStates(results.get(i)));
+    }
+    return result;
+  }
+
+  /**
+   * @return an analysis with the same configuration, flow graph and cached answers as this one, but
+   *     its own query state
+   */
+  private DemandRefinementPointsTo copy() {
+    DemandRefinementPointsTo result =
+        new DemandRefinementPointsTo(
+            cg, (ThisFilteringHeapModel) heapModel, mam, cha, options, stateMachineFactory, g);
+    result.refinementPolicyFactory = refinementPolicyFactory;
+    result.answers = answers;
+    result.flowGraphComplete = flowGraphComplete;
+    return result;
   }
 
   /**
@@ -2063,6 +2235,9 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   public void setStateMachineFactory(StateMachineFactory<IFlowLabel> stateMachineFactory) {
     this.stateMachineFactory = stateMachineFactory;
+    if (answers != null) {
+      answers.clear();
+    }
   }
 
   public RefinementPolicyFactory getRefinementPolicyFactory() {
@@ -2071,6 +2246,9 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   public void setRefinementPolicyFactory(RefinementPolicyFactory refinementPolicyFactory) {
     this.refinementPolicyFactory = refinementPolicyFactory;
+    if (answers != null) {
+      answers.clear();
+    }
   }
 
   /** we are looking for an instance key flowing to pk that violates pred. */
@@ -56,7 +56,6 @@ import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAPhiInstruction;
 import com.ibm.wala.util.collections.EmptyIterator;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.intset.BitVectorIntSet;
@@ -65,6 +64,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** A graph representing program flow, constructed method-by-method on demand */
 public abstract class AbstractDemandFlowGraph extends AbstractFlowGraph {
@@ -342,7 +342,8 @@ public abstract class AbstractDemandFlowGraph extends AbstractFlowGraph {
     }
   }
 
-  final Map<CGNode, Set<CallerSiteContext>> callerCache = HashMapFactory.make();
+  /** filled in as queries ask; concurrent, since queries on a complete graph may share it */
+  final Map<CGNode, Set<CallerSiteContext>> callerCache = new ConcurrentHashMap<>();
 
   @Override
   public Set<CallerSiteContext> getPotentialCallers(PointerKey formalPk) {
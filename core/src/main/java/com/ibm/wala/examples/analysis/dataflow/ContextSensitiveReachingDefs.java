@@ -289,11 +289,21 @@ public class ContextSensitiveReachingDefs {
   /** perform the tabulation analysis and return the {@link TabulationResult} */
   public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
       analyze() {
+    return analyze(1);
+  }
+
+  /**
+   * perform the tabulation analysis on the given number of threads and return the {@link
+   * TabulationResult}
+   */
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+      analyze(int parallelism) {
     PartiallyBalancedTabulationSolver<
             BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
         solver =
             PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(
                 new ReachingDefsProblem(), null);
+    solver.setParallelism(parallelism);
     TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
         result = null;
     try {
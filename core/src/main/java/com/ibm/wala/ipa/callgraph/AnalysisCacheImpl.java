@@ -10,12 +10,31 @@
  */
 package com.ibm.wala.ipa.callgraph;
 
+import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.util.warnings.Warning;
+import com.ibm.wala.core.util.warnings.Warnings;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.AuxiliaryCache;
+import com.ibm.wala.ssa.BoundedAuxiliaryCache;
+import com.ibm.wala.ssa.CacheStatistics;
 import com.ibm.wala.ssa.DefaultIRFactory;
 import com.ibm.wala.ssa.IRFactory;
 import com.ibm.wala.ssa.SSACache;
 import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AnalysisCacheImpl extends AnalysisCache {
 
@@ -24,6 +43,21 @@ public class AnalysisCacheImpl extends AnalysisCache {
         irFactory, ssaOptions, new SSACache(irFactory, new AuxiliaryCache(), new AuxiliaryCache()));
   }
 
+  /**
+   * Create a cache that keeps IRs and {@link com.ibm.wala.ssa.DefUse}s strongly reachable, evicting
+   * the least recently used ones once there are more than maxCachedIRs of either. Unlike the
+   * default cache, this one lets several threads build IRs at the same time.
+   */
+  public AnalysisCacheImpl(IRFactory<IMethod> irFactory, SSAOptions ssaOptions, int maxCachedIRs) {
+    super(
+        irFactory,
+        ssaOptions,
+        new SSACache(
+            irFactory,
+            new BoundedAuxiliaryCache(maxCachedIRs),
+            new BoundedAuxiliaryCache(maxCachedIRs)));
+  }
+
   public AnalysisCacheImpl(SSAOptions ssaOptions) {
     this(new DefaultIRFactory(), ssaOptions);
   }
@@ -35,4 +69,128 @@ public class AnalysisCacheImpl extends AnalysisCache {
   public AnalysisCacheImpl() {
     this(new DefaultIRFactory());
   }
+
+  /**
+   * @return hit, miss and eviction counts of the IR cache
+   */
+  public CacheStatistics getIRStatistics() {
+    return getSSACache().getIRStatistics();
+  }
+
+  /**
+   * @return hit, miss and eviction counts of the {@link com.ibm.wala.ssa.DefUse} cache
+   */
+  public CacheStatistics getDefUseStatistics() {
+    return getSSACache().getDUStatistics();
+  }
+
+  /**
+   * Build the IRs and {@link com.ibm.wala.ssa.DefUse}s of methods on parallelism threads, ahead of
+   * an analysis that will ask for them, e.g. for all {@link #applicationMethods application
+   * methods}, or for the methods in a {@link com.ibm.wala.ipa.callgraph.cha.CHACallGraph}. Both
+   * kinds of cache are filled concurrently; note that the default one holds its IRs through soft
+   * references, so they may be collected again under memory pressure.
+   *
+   * <p>A method whose IR cannot be built is skipped and recorded in {@link Warnings}, so that the
+   * analysis reports the problem if it ever asks for that IR.
+   *
+   * @return the number of methods that now have a cached IR
+   * @throws IllegalArgumentException if methods is null, or parallelism is not positive
+   * @throws CancelException if interrupted while waiting for the threads
+   */
+  public int prebuild(Iterable<? extends IMethod> methods, int parallelism) throws CancelException {
+    if (methods == null) {
+      throw new IllegalArgumentException("methods is null");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    List<IMethod> todo = new ArrayList<>();
+    methods.forEach(todo::add);
+    AtomicInteger next = new AtomicInteger();
+    LongAdder built = new LongAdder();
+    Runnable work =
+        () -> {
+          for (int i; (i = next.getAndIncrement()) < todo.size(); ) {
+            try {
+              if (getSSACache().prebuild(todo.get(i), getSSAOptions())) {
+                built.increment();
+              }
+            } catch (RuntimeException e) {
+              // leave it to the analysis, which reports the problem if it asks for this IR
+              Warnings.add(PrebuildFailure.create(todo.get(i), e));
+            }
+          }
+        };
+    if (parallelism == 1) {
+      work.run();
+      return built.intValue();
+    }
+    ExecutorService pool = new ForkJoinPool(parallelism);
+    try {
+      List<Callable<Object>> tasks = Collections.nCopies(parallelism, Executors.callable(work));
+      for (Future<Object> f : pool.invokeAll(tasks)) {
+        f.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw CancelException.make("interrupted while building IRs");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new RuntimeException(cause);
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return built.intValue();
+  }
+
+  /**
+   * @return the concrete methods declared by the classes of the application loader of cha
+   */
+  public static List<IMethod> applicationMethods(IClassHierarchy cha) {
+    if (cha == null) {
+      throw new IllegalArgumentException("cha is null");
+    }
+    List<IMethod> result = new ArrayList<>();
+    for (IClass klass : cha) {
+      if (!klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        continue;
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative()) {
+          result.add(m);
+        }
+      }
+    }
+    return result;
+  }
+
+  /** A warning for a method whose IR could not be prebuilt */
+  private static class PrebuildFailure extends Warning {
+
+    final IMethod method;
+
+    final RuntimeException cause;
+
+    PrebuildFailure(IMethod method, RuntimeException cause) {
+      super(Warning.MODERATE);
+      this.method = method;
+      this.cause = cause;
+    }
+
+    @Override
+    public String getMsg() {
+      return getClass() + " : " + method + " : " + cause;
+    }
+
+    public static PrebuildFailure create(IMethod method, RuntimeException cause) {
+      return new PrebuildFailure(method, cause);
+    }
+  }
 }
@@ -15,6 +15,7 @@ import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
 import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 
 /**
  * Basic interface for options that control call graph generation.
@@ -54,6 +55,52 @@ public class AnalysisOptions {
    */
   private int maxEvalBetweenTopo = 1000000000;
 
+  /**
+   * How many worker threads may the pointer analysis solver use to evaluate simple propagation
+   * constraints? A value of 1 keeps the classic sequential solver.
+   *
+   * @see com.ibm.wala.ipa.callgraph.propagation.ParallelPropagationSystem
+   */
+  private int solverParallelism = 1;
+
+  /**
+   * Which factory creates the sets holding the values of points-to set variables? null means the
+   * default {@link com.ibm.wala.util.intset.IntSetUtil#getDefaultIntSetFactory()}.
+   *
+   * @see com.ibm.wala.util.intset.CompactMutableIntSetFactory
+   * @see com.ibm.wala.util.intset.RoaringMutableIntSetFactory
+   */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
+  /**
+   * Should equal points-to sets share one copy once the solver reaches a fixed point?
+   *
+   * @see com.ibm.wala.ipa.callgraph.propagation.PropagationSystem#setHashConsPointsToSets(boolean)
+   */
+  private boolean hashConsPointsToSets = false;
+
+  /**
+   * Should the solver collapse cycles of assignments as soon as it detects them?
+   *
+   * @see com.ibm.wala.ipa.callgraph.propagation.PropagationSystem#setOnlineCycleDetection(boolean)
+   */
+  private boolean onlineCycleDetection = false;
+
+  /**
+   * Should the solver propagate just the instance keys added to each points-to set since its uses
+   * last saw it?
+   *
+   * @see com.ibm.wala.ipa.callgraph.propagation.PropagationSystem#setDifferencePropagation(boolean)
+   */
+  private boolean differencePropagation = false;
+
+  /**
+   * Limits on the resources a propagation-based build may use; null means no limits.
+   *
+   * @see com.ibm.wala.ipa.callgraph.propagation.cfa.BudgetedContextSelector
+   */
+  private CallGraphBudget budget = null;
+
   /** options for handling reflection during call graph construction */
   public enum ReflectionOptions {
     FULL("full", Integer.MAX_VALUE, false, false, false),
@@ -301,6 +348,92 @@ public class AnalysisOptions {
     topologicalGrowthFactor = d;
   }
 
+  /**
+   * @return the number of worker threads the pointer analysis solver may use; 1 means sequential
+   */
+  public int getSolverParallelism() {
+    return solverParallelism;
+  }
+
+  /**
+   * @param solverParallelism the number of worker threads the pointer analysis solver may use; 1
+   *     means sequential
+   * @throws IllegalArgumentException if solverParallelism &lt; 1
+   */
+  public void setSolverParallelism(int solverParallelism) {
+    if (solverParallelism < 1) {
+      throw new IllegalArgumentException(
+          "solverParallelism must be positive: " + solverParallelism);
+    }
+    this.solverParallelism = solverParallelism;
+  }
+
+  /**
+   * @return the factory that creates the sets holding the values of points-to set variables, or
+   *     null for the default
+   */
+  public MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory;
+  }
+
+  /**
+   * @param pointsToSetFactory the factory that creates the sets holding the values of points-to set
+   *     variables, or null for the default
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> pointsToSetFactory) {
+    this.pointsToSetFactory = pointsToSetFactory;
+  }
+
+  public boolean getHashConsPointsToSets() {
+    return hashConsPointsToSets;
+  }
+
+  /**
+   * @param hashConsPointsToSets whether equal points-to sets should share one copy once the solver
+   *     reaches a fixed point
+   */
+  public void setHashConsPointsToSets(boolean hashConsPointsToSets) {
+    this.hashConsPointsToSets = hashConsPointsToSets;
+  }
+
+  public boolean getOnlineCycleDetection() {
+    return onlineCycleDetection;
+  }
+
+  /**
+   * @param onlineCycleDetection whether the solver should collapse cycles of assignments as soon as
+   *     it detects them
+   */
+  public void setOnlineCycleDetection(boolean onlineCycleDetection) {
+    this.onlineCycleDetection = onlineCycleDetection;
+  }
+
+  public boolean getDifferencePropagation() {
+    return differencePropagation;
+  }
+
+  /**
+   * @param differencePropagation whether the solver should propagate just the instance keys added
+   *     to each points-to set, rather than whole points-to sets
+   */
+  public void setDifferencePropagation(boolean differencePropagation) {
+    this.differencePropagation = differencePropagation;
+  }
+
+  /**
+   * @return limits on the resources a propagation-based build may use, or null for no limits
+   */
+  public CallGraphBudget getBudget() {
+    return budget;
+  }
+
+  /**
+   * @param budget limits on the resources a propagation-based build may use, or null for no limits
+   */
+  public void setBudget(CallGraphBudget budget) {
+    this.budget = budget;
+  }
+
   /**
    * @return options governing SSA construction
    */
@@ -18,6 +18,7 @@ import com.ibm.wala.classLoader.IClassLoader;
 import com.ibm.wala.classLoader.JarFileModule;
 import com.ibm.wala.classLoader.JarStreamModule;
 import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.MappedJarFileModule;
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.SourceDirectoryTreeModule;
 import com.ibm.wala.classLoader.SourceFileModule;
@@ -236,6 +237,24 @@ public class AnalysisScope {
     s.add(new JarFileModule(file));
   }
 
+  /**
+   * Read the jar files in this scope through memory mappings from now on, rather than caching
+   * copies of their contents; see {@link MappedJarFileModule}. Call this before the class hierarchy
+   * is built.
+   *
+   * @throws IOException if some jar file cannot be mapped
+   */
+  public void memoryMapJars() throws IOException {
+    for (List<Module> modules : moduleMap.values()) {
+      for (int i = 0; i < modules.size(); i++) {
+        Module m = modules.get(i);
+        if (m.getClass() == JarFileModule.class) {
+          modules.set(i, new MappedJarFileModule(((JarFileModule) m).getJarFile()));
+        }
+      }
+    }
+  }
+
   /** Add a module to the scope for a loader */
   @SuppressWarnings("unused")
   public void addToScope(ClassLoaderReference loader, Module m) {
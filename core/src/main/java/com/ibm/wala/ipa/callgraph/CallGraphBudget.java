@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph;
+
+import com.ibm.wala.ipa.callgraph.propagation.cfa.BudgetedContextSelector;
+
+/**
+ * Limits on the resources a propagation-based call graph build may use.
+ *
+ * <p>Each limit is either a positive number or -1 for no limit. Once usage of some resource reaches
+ * the soft limit, i.e. the given fraction of its limit, the builder downgrades the methods with the
+ * most contexts to context-insensitive treatment, if its context selector is a {@link
+ * BudgetedContextSelector}; it does so again each time usage has grown by half of the remaining
+ * headroom. If usage still exceeds a limit, the build is canceled as if by the progress monitor.
+ *
+ * @see AnalysisOptions#setBudget(CallGraphBudget)
+ */
+public class CallGraphBudget {
+
+  /** wall-clock time limit for solving, in milliseconds */
+  private final long maxMillis;
+
+  /** limit on used heap memory, in bytes */
+  private final long maxHeapBytes;
+
+  /** limit on the number of constraints in the pointer analysis system */
+  private final long maxStatements;
+
+  /** fraction of a limit at which methods start being downgraded */
+  private double softLimit = 0.5;
+
+  /**
+   * @param maxMillis wall-clock time limit for solving, in milliseconds, or -1
+   * @param maxHeapBytes limit on used heap memory, in bytes, or -1
+   * @param maxStatements limit on the number of constraints in the pointer analysis system, or -1
+   * @throws IllegalArgumentException if some limit is neither positive nor -1
+   */
+  public CallGraphBudget(long maxMillis, long maxHeapBytes, long maxStatements) {
+    checkLimit(maxMillis, "maxMillis");
+    checkLimit(maxHeapBytes, "maxHeapBytes");
+    checkLimit(maxStatements, "maxStatements");
+    this.maxMillis = maxMillis;
+    this.maxHeapBytes = maxHeapBytes;
+    this.maxStatements = maxStatements;
+  }
+
+  private static void checkLimit(long limit, String name) {
+    if (limit <= 0 && limit != -1) {
+      throw new IllegalArgumentException(name + " must be positive or -1: " + limit);
+    }
+  }
+
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  public long getMaxHeapBytes() {
+    return maxHeapBytes;
+  }
+
+  public long getMaxStatements() {
+    return maxStatements;
+  }
+
+  /**
+   * @return the fraction of a limit at which methods start being downgraded
+   */
+  public double getSoftLimit() {
+    return softLimit;
+  }
+
+  /**
+   * @param softLimit the fraction of a limit at which methods start being downgraded
+   * @throws IllegalArgumentException if softLimit is not in [0, 1]
+   */
+  public void setSoftLimit(double softLimit) {
+    if (!(softLimit >= 0 && softLimit <= 1)) {
+      throw new IllegalArgumentException("softLimit must be in [0, 1]: " + softLimit);
+    }
+    this.softLimit = softLimit;
+  }
+
+  @Override
+  public String toString() {
+    return "budget: "
+        + maxMillis
+        + "ms, "
+        + maxHeapBytes
+        + " heap bytes, "
+        + maxStatements
+        + " statements, soft limit "
+        + softLimit;
+  }
+}
@@ -28,8 +28,6 @@ import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.NonNullSingletonIterator;
-import com.ibm.wala.util.debug.Assertions;
-import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.graph.AbstractNumberedGraph;
 import com.ibm.wala.util.graph.NumberedNodeManager;
 import com.ibm.wala.util.graph.impl.DelegatingNumberedNodeManager;
@@ -238,9 +236,34 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
     return result.toString();
   }
 
+  /**
+   * Remove a node and all edges to and from it. The fake root and fake world clinit nodes cannot be
+   * removed.
+   *
+   * @throws IllegalArgumentException if N is not a removable node of this graph
+   */
   @Override
-  public void removeNodeAndEdges(CGNode N) throws UnimplementedError {
-    Assertions.UNREACHABLE();
+  public void removeNodeAndEdges(CGNode N) {
+    if (N == null) {
+      throw new IllegalArgumentException("N is null");
+    }
+    if (N == fakeRoot || N == fakeWorldClinit) {
+      throw new IllegalArgumentException("cannot remove " + N);
+    }
+    Key K = new Key(N.getMethod(), N.getContext());
+    if (nodes.get(K) != N) {
+      throw new IllegalArgumentException("not a node of this graph: " + N);
+    }
+    nodes.remove(K);
+    Set<CGNode> s = mr2Nodes.get(N.getMethod().getReference());
+    if (s != null) {
+      s.remove(N);
+      if (s.isEmpty()) {
+        mr2Nodes.remove(N.getMethod().getReference());
+      }
+    }
+    entrypointNodes.remove(N);
+    super.removeNodeAndEdges(N);
   }
 
   /**
@@ -30,10 +30,10 @@ import com.ibm.wala.util.collections.FilterIterator;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.IntMapIterator;
 import com.ibm.wala.util.collections.SparseVector;
-import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.NumberedEdgeManager;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
 import com.ibm.wala.util.intset.SparseIntSet;
@@ -252,6 +252,44 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
       }
     }
 
+    /**
+     * Remove the edge for one call site from this node to target. The edge between the two nodes
+     * remains as long as some other call site of this node still calls target.
+     *
+     * @return true if the call site had target as a target
+     */
+    public boolean removeTarget(CallSiteReference site, CGNode target) {
+      int pc = site.getProgramCounter();
+      int n = getCallGraph().getNumber(target);
+      Object S = targets.get(pc);
+      if (S == null) {
+        return false;
+      } else if (S instanceof CGNode) {
+        if (!S.equals(target)) {
+          return false;
+        }
+        targets.remove(pc);
+      } else {
+        MutableIntSet s = (MutableIntSet) S;
+        if (!s.contains(n)) {
+          return false;
+        }
+        s.remove(n);
+        if (s.size() == 1) {
+          targets.set(pc, getCallGraph().getNode(s.intIterator().next()));
+        }
+      }
+      for (IntIterator it = targets.iterateIndices(); it.hasNext(); ) {
+        Object value = targets.get(it.next());
+        if (value instanceof CGNode ? value.equals(target) : ((IntSet) value).contains(n)) {
+          return true;
+        }
+      }
+      allTargets.remove(n);
+      getCallGraph().removeEdge(this, target);
+      return true;
+    }
+
     @Override
     public boolean equals(Object obj) {
       // we can use object equality since these objects are canonical as created
@@ -378,17 +416,31 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
 
     @Override
     public void removeAllIncidentEdges(CGNode node) {
-      Assertions.UNREACHABLE();
+      removeIncomingEdges(node);
+      removeOutgoingEdges(node);
     }
 
     @Override
     public void removeIncomingEdges(CGNode node) {
-      Assertions.UNREACHABLE();
+      int y = getNumber(node);
+      IntSet preds = predecessors.getRelated(y);
+      if (preds != null) {
+        for (IntIterator it = IntSetUtil.makeMutableCopy(preds).intIterator(); it.hasNext(); ) {
+          ExplicitNode pred = (ExplicitNode) getNode(it.next());
+          pred.removeTarget(node);
+        }
+        predecessors.removeAll(y);
+      }
     }
 
     @Override
     public void removeOutgoingEdges(CGNode node) {
-      Assertions.UNREACHABLE();
+      ExplicitNode n = (ExplicitNode) node;
+      int x = getNumber(node);
+      for (IntIterator it = n.getAllTargetNumbers().intIterator(); it.hasNext(); ) {
+        predecessors.remove(it.next(), x);
+      }
+      n.clearAllTargets();
     }
 
     @Override
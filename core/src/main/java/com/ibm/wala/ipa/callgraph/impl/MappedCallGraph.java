@@ -0,0 +1,1121 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.impl;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.PhantomClass;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.core.util.strings.UTF8Convert;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NodeWithNumber;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A read-only {@link CallGraph} backed by a memory-mapped file written by {@link #write(CallGraph,
+ * PointerAnalysis, File)}.
+ *
+ * <p>The file holds, for each node, the identity of its method and context, its call sites with
+ * their targets, and its successor and predecessor numbers, and optionally the points-to sets of
+ * its local variables. Queries such as {@link #getSuccNodes(CGNode)} and {@link
+ * #getPossibleTargets(CGNode, CallSiteReference)} read the mapped file directly; a {@link CGNode}
+ * object is created only when a query returns it, and its method is resolved in the class
+ * hierarchy only when asked for.
+ *
+ * <p>Contexts are recorded by their string form. {@link Everywhere} is restored as such; any other
+ * context is restored as an opaque context that has no {@link ContextItem}s and is equal to
+ * another such context with the same string form. Methods that the class hierarchy cannot resolve,
+ * such as those of synthetic classes, are restored as {@link SyntheticMethod}s without an IR.
+ * Only Java call sites are supported.
+ *
+ * <p>The whole file is mapped as a single {@link java.nio.MappedByteBuffer}, and offsets within it
+ * are ints, so it may not exceed 2 GB. The graph may be queried from several threads at once.
+ */
+public class MappedCallGraph extends AbstractNumberedGraph<CGNode> implements CallGraph {
+
+  private static final int MAGIC = 0x57434347;
+
+  private static final int VERSION = 1;
+
+  /** number of ints in the fixed part of the header */
+  private static final int HEADER_INTS = 12;
+
+  /** context index of {@link Everywhere} */
+  private static final int EVERYWHERE = -1;
+
+  /** node flag for static methods */
+  private static final int STATIC = 1;
+
+  private final IClassHierarchy cha;
+
+  private final IAnalysisCacheView cache;
+
+  private final ByteBuffer buf;
+
+  private final int nNodes;
+
+  private final int fakeRoot;
+
+  private final int fakeWorldClinit;
+
+  private final int nEntrypoints;
+
+  private final int nStrings;
+
+  /** absolute offsets of the sections of the file */
+  private final int strings, nodeIndex, methodIndex, records, instanceKeys, pointsTo;
+
+  /** strings decoded so far */
+  private final String[] stringCache;
+
+  /**
+   * nodes created so far; nodes are compared by identity, so concurrent queries must agree on the
+   * one created for each number
+   */
+  private final AtomicReferenceArray<MappedNode> nodes;
+
+  private final NumberedNodeManager<CGNode> nodeManager = new NodeManager();
+
+  private final NumberedEdgeManager<CGNode> edgeManager = new EdgeManager();
+
+  private MappedCallGraph(IClassHierarchy cha, IAnalysisCacheView cache, ByteBuffer buf)
+      throws IOException {
+    this.cha = cha;
+    this.cache = cache;
+    this.buf = buf;
+    if (buf.capacity() < 4 * HEADER_INTS || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+      throw new IOException("not a call graph file");
+    }
+    nNodes = buf.getInt(8);
+    fakeRoot = buf.getInt(12);
+    fakeWorldClinit = buf.getInt(16);
+    nEntrypoints = buf.getInt(20);
+    strings = buf.getInt(24);
+    nodeIndex = buf.getInt(28);
+    methodIndex = buf.getInt(32);
+    records = buf.getInt(36);
+    instanceKeys = buf.getInt(40);
+    pointsTo = buf.getInt(44);
+    nStrings = buf.getInt(strings);
+    stringCache = new String[nStrings];
+    nodes = new AtomicReferenceArray<>(nNodes);
+  }
+
+  /**
+   * Map a call graph written by {@link #write(CallGraph, PointerAnalysis, File)}.
+   *
+   * @param cha the class hierarchy in which to resolve the methods of the nodes
+   * @param cache used to build the IRs of nodes on demand
+   * @throws IOException if the file cannot be read or is not a call graph of this version
+   */
+  public static MappedCallGraph load(File file, IClassHierarchy cha, IAnalysisCacheView cache)
+      throws IOException {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    ByteBuffer buf;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      return new MappedCallGraph(cha, cache, buf);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("corrupt call graph file: " + file, e);
+    }
+  }
+
+  /** Write cg into file, without points-to sets. */
+  public static void write(CallGraph cg, File file) throws IOException {
+    write(cg, null, file);
+  }
+
+  /**
+   * Write cg into file. The file is replaced atomically if the file system allows it.
+   *
+   * @param pa if not null, the points-to sets of the local variables of the nodes of cg are written
+   *     as well
+   * @throws IllegalArgumentException if some call site does not use Java dispatch
+   * @throws IOException if the file cannot be written, or would exceed the 2 GB that a single
+   *     {@link java.nio.MappedByteBuffer} can map
+   */
+  public static void write(CallGraph cg, PointerAnalysis<InstanceKey> pa, File file)
+      throws IOException {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    new Writer(cg, pa).write(file);
+  }
+
+  /**
+   * @return true iff points-to sets were written with this call graph
+   */
+  public boolean hasPointsTo() {
+    return pointsTo != -1;
+  }
+
+  /**
+   * @return the number of instance keys that occur in the recorded points-to sets
+   */
+  public int getNumberOfInstanceKeys() {
+    return hasPointsTo() ? buf.getInt(instanceKeys) : 0;
+  }
+
+  /**
+   * @return the string form of instance key i
+   */
+  public String getInstanceKeyDescription(int i) {
+    return string(buf.getInt(instanceKeys + 4 + 8 * checkInstanceKey(i) + 4));
+  }
+
+  /**
+   * @return the concrete type of instance key i
+   */
+  public TypeReference getInstanceKeyType(int i) {
+    return parseType(string(buf.getInt(instanceKeys + 4 + 8 * checkInstanceKey(i))));
+  }
+
+  private int checkInstanceKey(int i) {
+    if (i < 0 || i >= getNumberOfInstanceKeys()) {
+      throw new IllegalArgumentException("invalid instance key: " + i);
+    }
+    return i;
+  }
+
+  /**
+   * @return the numbers of the instance keys that value number vn of node may point to, or null if
+   *     no points-to set was recorded for it
+   */
+  public IntSet getPointsTo(CGNode node, int vn) {
+    if (!hasPointsTo()) {
+      return null;
+    }
+    int pos = buf.getInt(siteTableEnd(record(node)));
+    if (pos == -1) {
+      return null;
+    }
+    pos += pointsTo;
+    int nLocals = buf.getInt(pos);
+    pos += 4;
+    for (int i = 0; i < nLocals; i++) {
+      int size = buf.getInt(pos + 4);
+      if (buf.getInt(pos) == vn) {
+        return readIntSet(pos + 4);
+      }
+      pos += 8 + 4 * size;
+    }
+    return null;
+  }
+
+  @Override
+  protected NumberedNodeManager<CGNode> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<CGNode> getEdgeManager() {
+    return edgeManager;
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return fakeRoot == -1 ? null : node(fakeRoot);
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return fakeWorldClinit == -1 ? null : node(fakeWorldClinit);
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    List<CGNode> result = new ArrayList<>(nEntrypoints);
+    for (int i = 0; i < nEntrypoints; i++) {
+      result.add(node(buf.getInt(4 * (HEADER_INTS + i))));
+    }
+    return result;
+  }
+
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    if (method == null) {
+      throw new IllegalArgumentException("null method");
+    }
+    for (CGNode n : getNodes(method.getReference())) {
+      if (n.getContext().equals(C)) {
+        return n;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Set<CGNode> getNodes(MethodReference m) {
+    if (m == null) {
+      throw new IllegalArgumentException("null m");
+    }
+    int s = findString(methodKey(m));
+    if (s < 0) {
+      return Collections.emptySet();
+    }
+    // nodes in the method index are sorted by method; find the first one with method s
+    int lo = 0;
+    int hi = nNodes;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (methodOf(buf.getInt(methodIndex + 4 * mid)) < s) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    Set<CGNode> result = HashSetFactory.make();
+    for (int i = lo; i < nNodes; i++) {
+      int n = buf.getInt(methodIndex + 4 * i);
+      if (methodOf(n) != s) {
+        break;
+      }
+      result.add(node(n));
+    }
+    return result;
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    int pos = findSite(node, site);
+    if (pos == -1) {
+      return Collections.emptySet();
+    }
+    Set<CGNode> result = HashSetFactory.make();
+    for (IntIterator it = readIntSet(pos + 12).intIterator(); it.hasNext(); ) {
+      result.add(node(it.next()));
+    }
+    return result;
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    int pos = findSite(node, site);
+    return pos == -1 ? 0 : buf.getInt(pos + 12);
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    int t = nodeManager.getNumber(target);
+    List<CallSiteReference> result = new ArrayList<>();
+    int pos = record(src);
+    int nSites = buf.getInt(pos + 12);
+    pos += 16;
+    for (int i = 0; i < nSites; i++) {
+      int nTargets = buf.getInt(pos + 12);
+      for (int j = 0; j < nTargets; j++) {
+        if (buf.getInt(pos + 16 + 4 * j) == t) {
+          result.add(site(pos));
+          break;
+        }
+      }
+      pos += 16 + 4 * nTargets;
+    }
+    return result.iterator();
+  }
+
+  /**
+   * @return the absolute position of the record of site in node, or -1 if there is none
+   */
+  private int findSite(CGNode node, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("null site");
+    }
+    int pos = record(node);
+    int nSites = buf.getInt(pos + 12);
+    pos += 16;
+    String target = null;
+    for (int i = 0; i < nSites; i++) {
+      int nTargets = buf.getInt(pos + 12);
+      if (buf.getInt(pos) == site.getProgramCounter()) {
+        if (target == null) {
+          target = methodKey(site.getDeclaredTarget());
+        }
+        if (string(buf.getInt(pos + 4)).equals(target)) {
+          return pos;
+        }
+      }
+      pos += 16 + 4 * nTargets;
+    }
+    return -1;
+  }
+
+  private CallSiteReference site(int pos) {
+    return CallSiteReference.make(
+        buf.getInt(pos),
+        parseMethod(string(buf.getInt(pos + 4))),
+        IInvokeInstruction.Dispatch.values()[buf.getInt(pos + 8)]);
+  }
+
+  /**
+   * @return absolute position of the record of node
+   */
+  private int record(CGNode node) {
+    int n = nodeManager.getNumber(node);
+    if (n == -1) {
+      throw new IllegalArgumentException("not a node of this call graph: " + node);
+    }
+    return records + buf.getInt(nodeIndex + 4 * n);
+  }
+
+  private int methodOf(int n) {
+    return buf.getInt(records + buf.getInt(nodeIndex + 4 * n));
+  }
+
+  /**
+   * @return absolute position just past the call sites of the record at pos, i.e. of its successor
+   *     numbers
+   */
+  private int siteTableEnd(int pos) {
+    int nSites = buf.getInt(pos + 12);
+    pos += 16;
+    for (int i = 0; i < nSites; i++) {
+      pos += 16 + 4 * buf.getInt(pos + 12);
+    }
+    return pos;
+  }
+
+  /**
+   * @return the set of ints stored as a count followed by the sorted ints at pos
+   */
+  private IntSet readIntSet(int pos) {
+    int size = buf.getInt(pos);
+    MutableSparseIntSet result =
+        size == 0
+            ? MutableSparseIntSet.makeEmpty()
+            : MutableSparseIntSet.createMutableSparseIntSet(size);
+    for (int i = 0; i < size; i++) {
+      result.add(buf.getInt(pos + 4 + 4 * i));
+    }
+    return result;
+  }
+
+  private MappedNode node(int n) {
+    MappedNode result = nodes.get(n);
+    if (result == null) {
+      result = new MappedNode(n);
+      if (!nodes.compareAndSet(n, null, result)) {
+        result = nodes.get(n);
+      }
+    }
+    return result;
+  }
+
+  private String string(int s) {
+    String result = stringCache[s];
+    if (result == null) {
+      int start = buf.getInt(strings + 4 + 4 * s);
+      int end = buf.getInt(strings + 4 + 4 * (s + 1));
+      byte[] b = new byte[end - start];
+      ByteBuffer data = buf.duplicate();
+      data.position(strings + 4 + 4 * (nStrings + 1) + start);
+      data.get(b);
+      try {
+        result = UTF8Convert.fromUTF8(b);
+      } catch (UTFDataFormatException e) {
+        throw new IllegalStateException("corrupt call graph file", e);
+      }
+      // a thread racing to decode the same string stores an equal one
+      stringCache[s] = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return the index of s in the sorted string table, or -1 if it is not there
+   */
+  private int findString(String s) {
+    int lo = 0;
+    int hi = nStrings - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int c = string(mid).compareTo(s);
+      if (c < 0) {
+        lo = mid + 1;
+      } else if (c > 0) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private static String typeKey(TypeReference t) {
+    return t.getClassLoader().getName() + ";" + t.getName();
+  }
+
+  private static String methodKey(MethodReference m) {
+    return typeKey(m.getDeclaringClass()) + ';' + m.getSelector();
+  }
+
+  private TypeReference parseType(String key) {
+    int i = key.indexOf(';');
+    Atom loaderName = Atom.findOrCreateUnicodeAtom(key.substring(0, i));
+    ClassLoaderReference loader = cha.getScope().getLoader(loaderName);
+    if (loader == null) {
+      loader = new ClassLoaderReference(loaderName, ClassLoaderReference.Java, null);
+    }
+    return TypeReference.findOrCreate(loader, TypeName.string2TypeName(key.substring(i + 1)));
+  }
+
+  private MethodReference parseMethod(String key) {
+    int i = key.indexOf(';', key.indexOf(';') + 1);
+    return MethodReference.findOrCreate(
+        parseType(key.substring(0, i)), Selector.make(key.substring(i + 1)));
+  }
+
+  /** A node of a {@link MappedCallGraph}, whose method and context are decoded on demand. */
+  private final class MappedNode extends NodeWithNumber implements CGNode {
+
+    private IMethod method;
+
+    /** was {@link #method} found in the class hierarchy? */
+    private boolean resolved;
+
+    private Context context;
+
+    MappedNode(int number) {
+      setGraphNodeId(number);
+    }
+
+    private int pos() {
+      return records + buf.getInt(nodeIndex + 4 * getGraphNodeId());
+    }
+
+    @Override
+    public synchronized IMethod getMethod() {
+      if (method == null) {
+        MethodReference ref = parseMethod(string(buf.getInt(pos())));
+        method = cha.resolveMethod(ref);
+        resolved = method != null;
+        if (!resolved) {
+          IClass klass = cha.lookupClass(ref.getDeclaringClass());
+          if (klass == null) {
+            klass = new PhantomClass(ref.getDeclaringClass(), cha);
+          }
+          boolean isStatic = (buf.getInt(pos() + 8) & STATIC) != 0;
+          method = new SyntheticMethod(ref, klass, isStatic, false);
+        }
+      }
+      return method;
+    }
+
+    @Override
+    public synchronized Context getContext() {
+      if (context == null) {
+        int c = buf.getInt(pos() + 4);
+        context = c == EVERYWHERE ? Everywhere.EVERYWHERE : new RecordedContext(string(c));
+      }
+      return context;
+    }
+
+    @Override
+    public boolean addTarget(CallSiteReference site, CGNode target) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+
+    @Override
+    public IR getIR() {
+      getMethod();
+      if (!resolved || cache == null) {
+        return null;
+      }
+      return cache.getIR(method, Everywhere.EVERYWHERE);
+    }
+
+    @Override
+    public DefUse getDU() {
+      IR ir = getIR();
+      return ir == null ? null : cache.getDefUse(ir);
+    }
+
+    @Override
+    public Iterator<NewSiteReference> iterateNewSites() {
+      IR ir = getIR();
+      return ir == null ? EmptyIterator.instance() : ir.iterateNewSites();
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites() {
+      int pos = pos();
+      int nSites = buf.getInt(pos + 12);
+      List<CallSiteReference> result = new ArrayList<>(nSites);
+      pos += 16;
+      for (int i = 0; i < nSites; i++) {
+        result.add(site(pos));
+        pos += 16 + 4 * buf.getInt(pos + 12);
+      }
+      return result.iterator();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+
+    MappedCallGraph graph() {
+      return MappedCallGraph.this;
+    }
+
+    @Override
+    public int hashCode() {
+      return getGraphNodeId() * 8191;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return this == obj;
+    }
+
+    @Override
+    public String toString() {
+      return "Node: " + getMethod() + " Context: " + getContext();
+    }
+  }
+
+  /** A context other than {@link Everywhere}, known only by its string form. */
+  private static final class RecordedContext implements Context {
+
+    private final String description;
+
+    RecordedContext(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public ContextItem get(ContextKey name) {
+      return null;
+    }
+
+    @Override
+    public int hashCode() {
+      return description.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof RecordedContext
+          && description.equals(((RecordedContext) obj).description);
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  private final class NodeManager implements NumberedNodeManager<CGNode> {
+
+    @Override
+    public Stream<CGNode> stream() {
+      return IntStream.range(0, nNodes).mapToObj(MappedCallGraph.this::node);
+    }
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return new Iterator<CGNode>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < nNodes;
+        }
+
+        @Override
+        public CGNode next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return node(next++);
+        }
+      };
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return nNodes;
+    }
+
+    @Override
+    public void addNode(CGNode n) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+
+    @Override
+    public void removeNode(CGNode n) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+
+    @Override
+    public boolean containsNode(CGNode n) {
+      return n instanceof MappedNode && ((MappedNode) n).graph() == MappedCallGraph.this;
+    }
+
+    @Override
+    public int getNumber(CGNode N) {
+      return containsNode(N) ? N.getGraphNodeId() : -1;
+    }
+
+    @Override
+    public CGNode getNode(int number) {
+      return number >= 0 && number < nNodes ? node(number) : null;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nNodes - 1;
+    }
+
+    @Override
+    public Iterator<CGNode> iterateNodes(IntSet s) {
+      List<CGNode> result = new ArrayList<>(s.size());
+      for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+        result.add(getNode(it.next()));
+      }
+      return result.iterator();
+    }
+  }
+
+  private final class EdgeManager implements NumberedEdgeManager<CGNode> {
+
+    /** absolute position of the successor numbers of n */
+    private int succs(CGNode n) {
+      return siteTableEnd(record(n)) + (hasPointsTo() ? 4 : 0);
+    }
+
+    /** absolute position of the predecessor numbers of n */
+    private int preds(CGNode n) {
+      int pos = succs(n);
+      return pos + 4 + 4 * buf.getInt(pos);
+    }
+
+    @Override
+    public Iterator<CGNode> getPredNodes(CGNode n) {
+      return nodeManager.iterateNodes(readIntSet(preds(n)));
+    }
+
+    @Override
+    public int getPredNodeCount(CGNode n) {
+      return buf.getInt(preds(n));
+    }
+
+    @Override
+    public Iterator<CGNode> getSuccNodes(CGNode n) {
+      return nodeManager.iterateNodes(readIntSet(succs(n)));
+    }
+
+    @Override
+    public int getSuccNodeCount(CGNode N) {
+      return buf.getInt(succs(N));
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(CGNode node) {
+      return readIntSet(succs(node));
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(CGNode node) {
+      return readIntSet(preds(node));
+    }
+
+    @Override
+    public boolean hasEdge(CGNode src, CGNode dst) {
+      int d = nodeManager.getNumber(dst);
+      if (d == -1) {
+        return false;
+      }
+      int pos = succs(src);
+      return Arrays.binarySearch(readInts(pos), d) >= 0;
+    }
+
+    private int[] readInts(int pos) {
+      int[] result = new int[buf.getInt(pos)];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = buf.getInt(pos + 4 + 4 * i);
+      }
+      return result;
+    }
+
+    @Override
+    public void addEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+
+    @Override
+    public void removeEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+
+    @Override
+    public void removeAllIncidentEdges(CGNode node) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+
+    @Override
+    public void removeIncomingEdges(CGNode node) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+
+    @Override
+    public void removeOutgoingEdges(CGNode node) {
+      throw new UnsupportedOperationException("call graph is read-only");
+    }
+  }
+
+  /**
+   * Lays out a call graph in the file format.
+   *
+   * <p>Header: magic, version, number of nodes, fake root and fake world clinit numbers (-1 if
+   * absent), number of entrypoints, absolute offsets of the string table, the node index, the
+   * method index, the node records, the instance key table and the points-to records (the last two
+   * -1 if absent), then the entrypoint numbers.
+   *
+   * <p>The string table is a count, count + 1 offsets into the UTF-8 data, then the data; strings
+   * are sorted, so they can be looked up by binary search. The node index holds the offset of each
+   * node's record, relative to the records section, and the method index holds the node numbers
+   * sorted by method string. Each node record holds the method and context strings, flags, and the
+   * call sites, each with its program counter, declared target string, dispatch and sorted target
+   * numbers; then, with points-to sets, the offset of the node's points-to record or -1; then the
+   * sorted successor and predecessor numbers. The instance key table is a count followed by the
+   * type and description strings of each key, and a points-to record is a count followed by, for
+   * each local, its value number and sorted instance key numbers.
+   */
+  private static final class Writer {
+
+    private final CallGraph cg;
+
+    private final PointerAnalysis<InstanceKey> pa;
+
+    /** dense node numbers, in iteration order */
+    private final Map<CGNode, Integer> numbers = HashMapFactory.make();
+
+    private final List<CGNode> order = new ArrayList<>();
+
+    /** for each node with recorded points-to sets, value number -&gt; instance key numbers */
+    private final Map<CGNode, TreeMap<Integer, TreeSet<Integer>>> locals = HashMapFactory.make();
+
+    private final Map<InstanceKey, Integer> keys = HashMapFactory.make();
+
+    private final List<InstanceKey> keyOrder = new ArrayList<>();
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    Writer(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+      this.cg = cg;
+      this.pa = pa;
+    }
+
+    void write(File file) throws IOException {
+      for (CGNode n : cg) {
+        numbers.put(n, order.size());
+        order.add(n);
+      }
+      if (pa != null) {
+        collectPointsTo();
+      }
+      collectStrings();
+
+      ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+      DataOutputStream recordOut = new DataOutputStream(recordBytes);
+      ByteArrayOutputStream ptsBytes = new ByteArrayOutputStream();
+      DataOutputStream ptsOut = new DataOutputStream(ptsBytes);
+      int[] recordOffsets = new int[order.size()];
+      for (int i = 0; i < order.size(); i++) {
+        recordOffsets[i] = recordOut.size();
+        writeRecord(recordOut, ptsOut, order.get(i));
+      }
+
+      Integer[] byMethod = new Integer[order.size()];
+      for (int i = 0; i < byMethod.length; i++) {
+        byMethod[i] = i;
+      }
+      Arrays.sort(
+          byMethod,
+          (a, b) -> {
+            int c = Integer.compare(methodString(order.get(a)), methodString(order.get(b)));
+            return c != 0 ? c : Integer.compare(a, b);
+          });
+
+      ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+      DataOutputStream stringOut = new DataOutputStream(stringBytes);
+      String[] sorted = new String[strings.size()];
+      for (Map.Entry<String, Integer> e : strings.entrySet()) {
+        sorted[e.getValue()] = e.getKey();
+      }
+      List<byte[]> encoded = new ArrayList<>(sorted.length);
+      stringOut.writeInt(sorted.length);
+      int offset = 0;
+      for (String s : sorted) {
+        byte[] b = UTF8Convert.toUTF8(s);
+        encoded.add(b);
+        stringOut.writeInt(offset);
+        offset += b.length;
+      }
+      stringOut.writeInt(offset);
+      for (byte[] b : encoded) {
+        stringOut.write(b);
+      }
+
+      ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+      DataOutputStream keyOut = new DataOutputStream(keyBytes);
+      if (pa != null) {
+        keyOut.writeInt(keyOrder.size());
+        for (InstanceKey ik : keyOrder) {
+          keyOut.writeInt(strings.get(typeKey(ik.getConcreteType().getReference())));
+          keyOut.writeInt(strings.get(ik.toString()));
+        }
+      }
+
+      Collection<CGNode> entrypoints = cg.getEntrypointNodes();
+      long size =
+          4L * (HEADER_INTS + entrypoints.size())
+              + stringOut.size()
+              + 8L * order.size()
+              + recordOut.size()
+              + keyOut.size()
+              + ptsOut.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("call graph too large to map");
+      }
+      int stringsStart = 4 * (HEADER_INTS + entrypoints.size());
+      int nodeIndexStart = stringsStart + stringOut.size();
+      int methodIndexStart = nodeIndexStart + 4 * order.size();
+      int recordsStart = methodIndexStart + 4 * order.size();
+      int keysStart = recordsStart + recordOut.size();
+      int ptsStart = keysStart + keyOut.size();
+
+      Path target = file.toPath().toAbsolutePath();
+      Path tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+      try {
+        try (OutputStream os = Files.newOutputStream(tmp);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+          out.writeInt(MAGIC);
+          out.writeInt(VERSION);
+          out.writeInt(order.size());
+          out.writeInt(number(cg.getFakeRootNode()));
+          out.writeInt(number(cg.getFakeWorldClinitNode()));
+          out.writeInt(entrypoints.size());
+          out.writeInt(stringsStart);
+          out.writeInt(nodeIndexStart);
+          out.writeInt(methodIndexStart);
+          out.writeInt(recordsStart);
+          out.writeInt(pa == null ? -1 : keysStart);
+          out.writeInt(pa == null ? -1 : ptsStart);
+          for (CGNode n : entrypoints) {
+            out.writeInt(number(n));
+          }
+          stringBytes.writeTo(out);
+          for (int o : recordOffsets) {
+            out.writeInt(o);
+          }
+          for (Integer n : byMethod) {
+            out.writeInt(n);
+          }
+          recordBytes.writeTo(out);
+          keyBytes.writeTo(out);
+          ptsBytes.writeTo(out);
+        }
+        try {
+          Files.move(
+              tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+
+    private int number(CGNode n) {
+      if (n == null) {
+        return -1;
+      }
+      Integer result = numbers.get(n);
+      if (result == null) {
+        throw new IllegalArgumentException("not a node of the call graph: " + n);
+      }
+      return result;
+    }
+
+    private void collectPointsTo() {
+      for (PointerKey k : pa.getPointerKeys()) {
+        if (!(k instanceof LocalPointerKey)) {
+          continue;
+        }
+        LocalPointerKey local = (LocalPointerKey) k;
+        if (!numbers.containsKey(local.getNode()) || local.getValueNumber() <= 0) {
+          continue;
+        }
+        TreeSet<Integer> pts =
+            locals
+                .computeIfAbsent(local.getNode(), n -> new TreeMap<>())
+                .computeIfAbsent(local.getValueNumber(), vn -> new TreeSet<>());
+        for (InstanceKey ik : pa.getPointsToSet(k)) {
+          Integer i = keys.get(ik);
+          if (i == null) {
+            i = keyOrder.size();
+            keys.put(ik, i);
+            keyOrder.add(ik);
+          }
+          pts.add(i);
+        }
+      }
+    }
+
+    private void collectStrings() {
+      TreeSet<String> all = new TreeSet<>();
+      for (CGNode n : order) {
+        all.add(methodKey(n.getMethod().getReference()));
+        if (!(n.getContext() instanceof Everywhere)) {
+          all.add(n.getContext().toString());
+        }
+        for (CallSiteReference site : sites(n)) {
+          all.add(methodKey(site.getDeclaredTarget()));
+        }
+      }
+      for (InstanceKey ik : keyOrder) {
+        all.add(typeKey(ik.getConcreteType().getReference()));
+        all.add(ik.toString());
+      }
+      for (String s : all) {
+        strings.put(s, strings.size());
+      }
+    }
+
+    private int methodString(CGNode n) {
+      return strings.get(methodKey(n.getMethod().getReference()));
+    }
+
+    private static List<CallSiteReference> sites(CGNode n) {
+      List<CallSiteReference> result = new ArrayList<>();
+      n.iterateCallSites().forEachRemaining(result::add);
+      return result;
+    }
+
+    private void writeRecord(DataOutputStream out, DataOutputStream ptsOut, CGNode n)
+        throws IOException {
+      out.writeInt(methodString(n));
+      Context context = n.getContext();
+      out.writeInt(context instanceof Everywhere ? EVERYWHERE : strings.get(context.toString()));
+      List<CallSiteReference> sites = sites(n);
+      out.writeInt(n.getMethod().isStatic() ? STATIC : 0);
+      out.writeInt(sites.size());
+      for (CallSiteReference site : sites) {
+        if (!(site.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+          throw new IllegalArgumentException("unsupported call site: " + site);
+        }
+        out.writeInt(site.getProgramCounter());
+        out.writeInt(strings.get(methodKey(site.getDeclaredTarget())));
+        out.writeInt(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+        writeInts(out, numbers(cg.getPossibleTargets(n, site).iterator()));
+      }
+      if (pa != null) {
+        TreeMap<Integer, TreeSet<Integer>> pts = locals.get(n);
+        if (pts == null) {
+          out.writeInt(-1);
+        } else {
+          out.writeInt(ptsOut.size());
+          ptsOut.writeInt(pts.size());
+          for (Map.Entry<Integer, TreeSet<Integer>> e : pts.entrySet()) {
+            ptsOut.writeInt(e.getKey());
+            writeInts(ptsOut, e.getValue());
+          }
+        }
+      }
+      writeInts(out, numbers(cg.getSuccNodes(n)));
+      writeInts(out, numbers(cg.getPredNodes(n)));
+    }
+
+    private TreeSet<Integer> numbers(Iterator<? extends CGNode> nodes) {
+      TreeSet<Integer> result = new TreeSet<>();
+      while (nodes.hasNext()) {
+        result.add(number(nodes.next()));
+      }
+      return result;
+    }
+
+    private static void writeInts(DataOutputStream out, Collection<Integer> ints)
+        throws IOException {
+      out.writeInt(ints.size());
+      for (int i : ints) {
+        out.writeInt(i);
+      }
+    }
+  }
+}
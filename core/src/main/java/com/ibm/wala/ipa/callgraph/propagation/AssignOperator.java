@@ -65,4 +65,9 @@ class AssignOperator extends UnaryOperator<PointsToSetVariable> implements IPoin
   public boolean isComplex() {
     return false;
   }
+
+  @Override
+  public boolean isDistributive() {
+    return true;
+  }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.util.CancelRuntimeException;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraphBudget;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.BudgetedContextSelector;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A progress monitor that enforces a {@link CallGraphBudget} on a propagation call graph builder.
+ *
+ * <p>The propagation system reports each statement it adds, so the limit on statements is checked
+ * exactly. Time and heap are sampled when the solvers ask whether they have been canceled, which
+ * they do before evaluating each constraint. Once usage reaches the soft limit, the methods with
+ * the most contexts are downgraded in the builder's {@link BudgetedContextSelector}; once it
+ * exceeds the limit, the build is canceled.
+ */
+class BudgetMonitor implements IProgressMonitor {
+
+  private static final boolean DEBUG = false;
+
+  /** sample time and heap once every this many calls to {@link #isCanceled()} */
+  private static final int CHECK_INTERVAL = 64;
+
+  private final CallGraphBudget budget;
+
+  private final PropagationCallGraphBuilder builder;
+
+  /** the client's monitor, or null */
+  private final IProgressMonitor delegate;
+
+  private final long start = System.currentTimeMillis();
+
+  private int calls = 0;
+
+  /** usage, as a fraction of the budget, at which to downgrade methods next */
+  private double nextDowngrade;
+
+  /**
+   * the number of call graph nodes when no method was found to downgrade; a later attempt waits
+   * for new nodes
+   */
+  private int nodesWithoutDowngrade = -1;
+
+  /** why the budget canceled the build, or null */
+  private String exceeded = null;
+
+  BudgetMonitor(
+      CallGraphBudget budget, PropagationCallGraphBuilder builder, IProgressMonitor delegate) {
+    this.budget = budget;
+    this.builder = builder;
+    this.delegate = delegate;
+    this.nextDowngrade = budget.getSoftLimit();
+  }
+
+  @Override
+  public boolean isCanceled() {
+    if (delegate != null && delegate.isCanceled()) {
+      return true;
+    }
+    if (exceeded == null && calls++ % CHECK_INTERVAL == 0) {
+      double millis = fraction(System.currentTimeMillis() - start, budget.getMaxMillis());
+      Runtime r = Runtime.getRuntime();
+      double heap = fraction(r.totalMemory() - r.freeMemory(), budget.getMaxHeapBytes());
+      if (millis > 1 || heap > 1) {
+        exceeded = "call graph " + budget + " exceeded: " + (millis > 1 ? "time" : "heap");
+      } else {
+        downgradeIfDue(Math.max(millis, heap));
+      }
+    }
+    return exceeded != null;
+  }
+
+  /**
+   * Called by the propagation system each time it has added a statement.
+   *
+   * @throws CancelRuntimeException if the system now has more statements than the budget allows
+   */
+  void statementAdded() {
+    if (budget.getMaxStatements() == -1 || exceeded != null) {
+      return;
+    }
+    double statements =
+        fraction(builder.getPropagationSystem().getNumberOfStatements(), budget.getMaxStatements());
+    if (statements > 1) {
+      exceeded = "call graph " + budget + " exceeded: statements";
+      throw CancelRuntimeException.make(exceeded);
+    }
+    downgradeIfDue(statements);
+  }
+
+  private static double fraction(long used, long limit) {
+    return limit == -1 ? 0 : (double) used / limit;
+  }
+
+  /** Downgrade methods if usage, as a fraction of the budget, has grown enough since last time. */
+  private void downgradeIfDue(double usage) {
+    if (usage < nextDowngrade
+        || builder.getCallGraph().getNumberOfNodes() <= nodesWithoutDowngrade) {
+      return;
+    }
+    if (downgradeHotMethods(usage)) {
+      nextDowngrade = usage + (1 - usage) / 2;
+      nodesWithoutDowngrade = -1;
+    } else {
+      nodesWithoutDowngrade = builder.getCallGraph().getNumberOfNodes();
+    }
+  }
+
+  /**
+   * Downgrade the methods that have the most nodes in the call graph: the closer usage is to the
+   * budget, the larger the share of the methods with several nodes that is downgraded.
+   *
+   * @return true iff some method was downgraded
+   */
+  private boolean downgradeHotMethods(double usage) {
+    ContextSelector selector = builder.getContextSelector();
+    if (!(selector instanceof BudgetedContextSelector)) {
+      return false;
+    }
+    BudgetedContextSelector budgeted = (BudgetedContextSelector) selector;
+    Map<IMethod, Integer> contexts = HashMapFactory.make();
+    for (CGNode n : builder.getCallGraph()) {
+      if (!budgeted.isDowngraded(n.getMethod())) {
+        contexts.merge(n.getMethod(), 1, Integer::sum);
+      }
+    }
+    List<Map.Entry<IMethod, Integer>> hot = new ArrayList<>();
+    for (Map.Entry<IMethod, Integer> e : contexts.entrySet()) {
+      if (e.getValue() > 1) {
+        hot.add(e);
+      }
+    }
+    hot.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+    int n = (int) Math.ceil(hot.size() * usage);
+    for (Map.Entry<IMethod, Integer> e : hot.subList(0, n)) {
+      if (DEBUG) {
+        System.err.println("downgrade " + e.getKey() + " with " + e.getValue() + " contexts");
+      }
+      budgeted.downgrade(e.getKey());
+    }
+    return n > 0;
+  }
+
+  @Override
+  public void beginTask(String task, int totalWork) {
+    if (delegate != null) {
+      delegate.beginTask(task, totalWork);
+    }
+  }
+
+  @Override
+  public void subTask(String subTask) {
+    if (delegate != null) {
+      delegate.subTask(subTask);
+    }
+  }
+
+  @Override
+  public void cancel() {
+    if (delegate != null) {
+      delegate.cancel();
+    } else if (exceeded == null) {
+      exceeded = "cancelled";
+    }
+  }
+
+  @Override
+  public void done() {
+    if (delegate != null) {
+      delegate.done();
+    }
+  }
+
+  @Override
+  public void worked(int units) {
+    if (delegate != null) {
+      delegate.worked(units);
+    }
+  }
+
+  @Override
+  public String getCancelMessage() {
+    if (delegate != null && delegate.isCanceled()) {
+      return delegate.getCancelMessage();
+    }
+    return exceeded;
+  }
+}
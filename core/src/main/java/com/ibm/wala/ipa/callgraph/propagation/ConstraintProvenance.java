@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records which owners each fact of a {@link PropagationSystem} was generated on behalf of, so that
+ * the facts of an owner can be retracted later.
+ *
+ * <p>An owner is a {@link CGNode} whose constraints were added, or a {@link ClassInitializerOwner}
+ * standing for the processing of a class initializer. A fact is a statement of the system, a
+ * {@link DirectFact} added straight to a points-to set, or a {@link CallEdge} of the call graph.
+ * Facts generated while evaluating a statement belong to the owners of that statement.
+ */
+final class ConstraintProvenance {
+
+  /** the owners on whose behalf facts are being generated right now */
+  private Set<Object> current = Collections.emptySet();
+
+  /** fact -&gt; owners */
+  private final Map<Object, Set<Object>> factOwners = HashMapFactory.make();
+
+  /** owner -&gt; facts */
+  private final Map<Object, Set<Object>> ownerFacts = HashMapFactory.make();
+
+  /** class initializer owner -&gt; owners whose processing asked for the class initializer */
+  private final Map<ClassInitializerOwner, Set<Object>> triggers = HashMapFactory.make();
+
+  /**
+   * Generate facts on behalf of owners from now on.
+   *
+   * @return the previous owners, to pass to {@link #exit(Set)}
+   */
+  Set<Object> enter(Set<Object> owners) {
+    Set<Object> saved = current;
+    current = owners;
+    return saved;
+  }
+
+  Set<Object> enter(Object owner) {
+    return enter(Collections.singleton(owner));
+  }
+
+  void exit(Set<Object> saved) {
+    current = saved;
+  }
+
+  Set<Object> getCurrentOwners() {
+    return current;
+  }
+
+  /** record that the current owners generated a fact; facts generated by nobody are not tracked */
+  void record(Object fact) {
+    if (current.isEmpty()) {
+      return;
+    }
+    Set<Object> owners = factOwners.get(fact);
+    if (owners == null) {
+      owners = HashSetFactory.make(2);
+      factOwners.put(fact, owners);
+    } else if (owners == current) {
+      return;
+    }
+    for (Object o : current) {
+      if (owners.add(o)) {
+        Set<Object> facts = ownerFacts.get(o);
+        if (facts == null) {
+          facts = HashSetFactory.make();
+          ownerFacts.put(o, facts);
+        }
+        facts.add(fact);
+      }
+    }
+  }
+
+  /**
+   * @return the owners of a fact; empty if it is not tracked
+   */
+  Set<Object> getOwners(Object fact) {
+    Set<Object> result = factOwners.get(fact);
+    return result == null ? Collections.emptySet() : result;
+  }
+
+  /**
+   * record that the current owners asked for the class initializer of klass
+   *
+   * @return the owner that stands for the processing of the class initializer
+   */
+  ClassInitializerOwner recordTrigger(IClass klass) {
+    ClassInitializerOwner result = new ClassInitializerOwner(klass.getReference());
+    if (!current.isEmpty()) {
+      Set<Object> s = triggers.get(result);
+      if (s == null) {
+        s = HashSetFactory.make(2);
+        triggers.put(result, s);
+      }
+      s.addAll(current);
+    }
+    return result;
+  }
+
+  /**
+   * @return the owners that asked for the class initializer processed by owner
+   */
+  Set<Object> getTriggers(ClassInitializerOwner owner) {
+    Set<Object> result = triggers.get(owner);
+    return result == null ? Collections.emptySet() : result;
+  }
+
+  /**
+   * @return the class initializer owners that owner asked for
+   */
+  List<ClassInitializerOwner> getTriggered(Object owner) {
+    List<ClassInitializerOwner> result = new ArrayList<>();
+    for (Map.Entry<ClassInitializerOwner, Set<Object>> e : triggers.entrySet()) {
+      if (e.getValue().contains(owner)) {
+        result.add(e.getKey());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Forget an owner, including the class initializers it asked for.
+   *
+   * @return the facts that no longer have any owner
+   */
+  Collection<Object> removeOwner(Object owner) {
+    for (Set<Object> s : triggers.values()) {
+      s.remove(owner);
+    }
+    if (owner instanceof ClassInitializerOwner) {
+      triggers.remove(owner);
+    }
+    Set<Object> facts = ownerFacts.remove(owner);
+    if (facts == null) {
+      return Collections.emptySet();
+    }
+    List<Object> orphans = new ArrayList<>();
+    for (Object fact : facts) {
+      Set<Object> owners = factOwners.get(fact);
+      owners.remove(owner);
+      if (owners.isEmpty()) {
+        factOwners.remove(fact);
+        orphans.add(fact);
+      }
+    }
+    return orphans;
+  }
+
+  /** forget a fact that was retracted by other means */
+  void removeFact(Object fact) {
+    Set<Object> owners = factOwners.remove(fact);
+    if (owners != null) {
+      for (Object o : owners) {
+        Set<Object> facts = ownerFacts.get(o);
+        if (facts != null) {
+          facts.remove(fact);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the facts of all owners
+   */
+  Set<Object> getFacts() {
+    return factOwners.keySet();
+  }
+
+  /** The processing of the class initializer of a class, and of those of its superclasses. */
+  static final class ClassInitializerOwner {
+    private final TypeReference klass;
+
+    ClassInitializerOwner(TypeReference klass) {
+      this.klass = klass;
+    }
+
+    TypeReference getType() {
+      return klass;
+    }
+
+    @Override
+    public int hashCode() {
+      return klass.hashCode() * 6491;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof ClassInitializerOwner
+          && klass.equals(((ClassInitializerOwner) obj).klass);
+    }
+
+    @Override
+    public String toString() {
+      return "clinit of " + klass;
+    }
+  }
+
+  /** An instance key added straight to the points-to set of a pointer key. */
+  static final class DirectFact {
+    private final PointerKey key;
+
+    private final InstanceKey value;
+
+    DirectFact(PointerKey key, InstanceKey value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    PointerKey getKey() {
+      return key;
+    }
+
+    InstanceKey getValue() {
+      return value;
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() * 4513 + value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof DirectFact)) {
+        return false;
+      }
+      DirectFact other = (DirectFact) obj;
+      return key.equals(other.key) && value.equals(other.value);
+    }
+
+    @Override
+    public String toString() {
+      return key + " U= " + value;
+    }
+  }
+
+  /** A call graph edge for one call site. */
+  static final class CallEdge {
+    private final CGNode caller;
+
+    private final CallSiteReference site;
+
+    private final CGNode callee;
+
+    CallEdge(CGNode caller, CallSiteReference site, CGNode callee) {
+      this.caller = caller;
+      this.site = site;
+      this.callee = callee;
+    }
+
+    CGNode getCaller() {
+      return caller;
+    }
+
+    CallSiteReference getSite() {
+      return site;
+    }
+
+    CGNode getCallee() {
+      return callee;
+    }
+
+    @Override
+    public int hashCode() {
+      return (caller.hashCode() * 3011 + site.hashCode()) * 7919 + callee.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof CallEdge)) {
+        return false;
+      }
+      CallEdge other = (CallEdge) obj;
+      return caller.equals(other.caller) && site.equals(other.site) && callee.equals(other.callee);
+    }
+
+    @Override
+    public String toString() {
+      return caller + " @" + site.getProgramCounter() + " -> " + callee;
+    }
+  }
+}
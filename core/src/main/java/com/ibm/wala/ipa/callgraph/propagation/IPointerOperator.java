@@ -15,4 +15,13 @@ public interface IPointerOperator {
 
   /** Is the operator complex; i.e., might it give rise to new constraints? */
   boolean isComplex();
+
+  /**
+   * Does the operator treat each instance key of its rhs on its own, so that applying it to just
+   * the instance keys added to the rhs since it was last applied has the same effect as applying it
+   * to the whole points-to set?
+   */
+  default boolean isDistributive() {
+    return false;
+  }
 }
@@ -0,0 +1,633 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.analysis.reflection.InstanceKeyWithNode;
+import com.ibm.wala.analysis.typeInference.TypeAbstraction;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMember;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.ConstraintProvenance.CallEdge;
+import com.ibm.wala.ipa.callgraph.propagation.ConstraintProvenance.ClassInitializerOwner;
+import com.ibm.wala.ipa.callgraph.propagation.ConstraintProvenance.DirectFact;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyDelta;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IRView;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAInstanceofInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSALoadMetadataInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Updates the call graph and pointer analysis of an {@link SSAPropagationCallGraphBuilder} after
+ * classes change, using the provenance its {@link PropagationSystem} recorded.
+ *
+ * <p>The update deletes the nodes for methods of changed classes, and retracts the facts of the
+ * nodes whose code mentions a changed class or one of its subtypes, or that called a deleted node.
+ * Retracting a fact empties the points-to sets that it may have contributed to, which in turn
+ * retracts the facts of the nodes whose operators read those sets. The solver then re-adds the
+ * constraints of the retracted nodes and recomputes the emptied sets. Finally, nodes that are no
+ * longer reachable are deleted the same way.
+ */
+final class IncrementalCallGraphUpdater {
+
+  private final SSAPropagationCallGraphBuilder builder;
+
+  private final PropagationSystem system;
+
+  private final ConstraintProvenance provenance;
+
+  private final ExplicitCallGraph cg;
+
+  /** names of the classes added, removed or modified */
+  private Set<TypeName> changed;
+
+  /** names of the changed classes, and of their subtypes before the change */
+  private Set<TypeName> affected;
+
+  /** nodes to delete in the current round */
+  private final Set<CGNode> deleted = HashSetFactory.make();
+
+  /** instance keys to forget in the current round */
+  private final Set<InstanceKey> staleInstances = HashSetFactory.make();
+
+  /** pointer keys to forget in the current round */
+  private final Set<PointerKey> stalePointers = HashSetFactory.make();
+
+  /** pointer keys whose points-to sets must be recomputed */
+  private final Set<PointerKey> tainted = HashSetFactory.make();
+
+  /** owners whose facts were retracted in the current round */
+  private final Set<Object> retracted = HashSetFactory.make();
+
+  private final Deque<Object> toRetract = new ArrayDeque<>();
+
+  IncrementalCallGraphUpdater(SSAPropagationCallGraphBuilder builder) {
+    this.builder = builder;
+    this.system = builder.getPropagationSystem();
+    this.provenance = system.getProvenance();
+    this.cg = builder.getCallGraph();
+  }
+
+  boolean canUpdate(ClassHierarchyDelta delta) {
+    if (builder.getOptions().getReflectionOptions().getNumFlowToCastIterations() > 0) {
+      return false;
+    }
+    IClassHierarchy cha = builder.getClassHierarchy();
+    if (!(cha instanceof ClassHierarchy) || !((ClassHierarchy) cha).canUpdate(delta)) {
+      return false;
+    }
+    Set<TypeName> names = computeAffectedNames((ClassHierarchy) cha, delta);
+    // the fake root method allocates the arguments of the entrypoints once and for all
+    for (Entrypoint e : builder.getOptions().getEntrypoints()) {
+      if (names.contains(e.getMethod().getDeclaringClass().getName())) {
+        return false;
+      }
+      for (int i = 0; i < e.getNumberOfParameters(); i++) {
+        for (TypeReference t : e.getParameterTypes(i)) {
+          if (names.contains(t.getName().getInnermostElementType())) {
+            return false;
+          }
+        }
+      }
+    }
+    // so are the calls to finalizers
+    for (IClass klass : builder.getFinalizeVisited()) {
+      if (names.contains(klass.getName()) && hasFinalizer(klass)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasFinalizer(IClass klass) {
+    IMethod finalizer = klass.getMethod(MethodReference.finalizeSelector);
+    return finalizer != null
+        && !finalizer.getDeclaringClass().getReference().equals(TypeReference.JavaLangObject);
+  }
+
+  private static Set<TypeName> computeAffectedNames(ClassHierarchy cha, ClassHierarchyDelta delta) {
+    Set<TypeName> result = delta.getChangedNames();
+    List<IClass> replaced = new ArrayList<>(delta.getRemovedClasses());
+    replaced.addAll(delta.getModifiedClasses());
+    for (IClass klass : replaced) {
+      IClass old = cha.lookupClass(klass.getReference());
+      if (old == null) {
+        continue;
+      }
+      for (IClass sub : cha.computeSubClasses(old.getReference())) {
+        result.add(sub.getName());
+      }
+      if (old.isInterface()) {
+        for (IClass impl : cha.getImplementors(old.getReference())) {
+          result.add(impl.getName());
+        }
+      }
+    }
+    return result;
+  }
+
+  void update(ClassHierarchyDelta delta, IProgressMonitor monitor) throws CancelException {
+    ClassHierarchy cha = (ClassHierarchy) builder.getClassHierarchy();
+    changed = delta.getChangedNames();
+    affected = computeAffectedNames(cha, delta);
+    cha.update(delta);
+    // none of these has a finalizer, or canUpdate would have refused the delta
+    builder.getFinalizeVisited().removeIf(c -> affected.contains(c.getName()));
+
+    for (CGNode n : cg) {
+      if (isRemovable(n) && isChanged(n.getMethod())) {
+        deleted.add(n);
+      }
+    }
+    List<Object> seeds = new ArrayList<>();
+    for (CGNode n : cg) {
+      if (!deleted.contains(n) && builder.haveAlreadyVisited(n) && mentionsAffectedClass(n)) {
+        seeds.add(n);
+      }
+    }
+    for (Object o : new ArrayList<>(provenance.getFacts())) {
+      // facts are owned, so this also finds the owners processing a changed class initializer
+      for (Object owner : provenance.getOwners(o)) {
+        if (owner instanceof ClassInitializerOwner
+            && changed.contains(((ClassInitializerOwner) owner).getType().getName())) {
+          seeds.add(owner);
+        }
+      }
+    }
+
+    while (true) {
+      retract(seeds, monitor);
+      seeds.clear();
+      deleted.clear();
+      deleted.addAll(findUnreachableNodes());
+      if (deleted.isEmpty()) {
+        break;
+      }
+    }
+  }
+
+  /** Delete the nodes in {@link #deleted}, retract the facts of seeds, and solve again. */
+  private void retract(Collection<Object> seeds, IProgressMonitor monitor) throws CancelException {
+    retracted.clear();
+    tainted.clear();
+    staleInstances.clear();
+    stalePointers.clear();
+
+    // deleting a node makes the instance keys allocated in it stale, which may in turn make the
+    // nodes for contexts with those keys stale
+    int size;
+    do {
+      size = deleted.size();
+      for (InstanceKey ik : system.getInstanceKeys()) {
+        if (isStale(ik)) {
+          staleInstances.add(ik);
+        }
+      }
+      for (CGNode n : cg) {
+        if (isRemovable(n) && isStale(n.getContext())) {
+          deleted.add(n);
+        }
+      }
+    } while (deleted.size() > size);
+    for (PointerKey key : Iterator2Iterable.make(system.iteratePointerKeys())) {
+      if (isStale(key)) {
+        stalePointers.add(key);
+      }
+    }
+
+    for (CGNode n : deleted) {
+      enqueue(n);
+    }
+    for (Object o : seeds) {
+      enqueue(o);
+    }
+    for (Object fact : provenance.getFacts()) {
+      if (fact instanceof DirectFact) {
+        DirectFact f = (DirectFact) fact;
+        if (stalePointers.contains(f.getKey()) || staleInstances.contains(f.getValue())) {
+          enqueueOwners(fact);
+        }
+      } else if (fact instanceof CallEdge) {
+        CallEdge e = (CallEdge) fact;
+        if (deleted.contains(e.getCallee())) {
+          enqueueOwners(fact);
+        }
+      }
+    }
+    for (PointerKey key : stalePointers) {
+      PointsToSetVariable v = getVariable(key);
+      if (v != null) {
+        for (AbstractStatement<?, ?> s : uses(v)) {
+          enqueueOwners(s);
+        }
+        for (AbstractStatement<?, ?> s : defs(v)) {
+          enqueueOwners(s);
+        }
+      }
+    }
+    while (!toRetract.isEmpty()) {
+      retractOwner(toRetract.pop());
+    }
+
+    // statements that nobody owns, but that mention stale pointer keys, go away
+    for (PointerKey key : stalePointers) {
+      PointsToSetVariable v = getVariable(key);
+      if (v != null) {
+        for (AbstractStatement<?, ?> s : uses(v)) {
+          retractStatement(s);
+        }
+        for (AbstractStatement<?, ?> s : defs(v)) {
+          retractStatement(s);
+        }
+      }
+    }
+    for (PointerKey key : stalePointers) {
+      system.retractPointerKey(key);
+    }
+    for (InstanceKey ik : staleInstances) {
+      system.retractInstanceKey(ik);
+    }
+
+    for (CGNode n : deleted) {
+      builder.getAnalysisCache().invalidate(n.getMethod(), n.getContext());
+      builder.getAnalysisCache().invalidate(n.getMethod(), Everywhere.EVERYWHERE);
+      cg.removeNodeAndEdges(n);
+      builder.forgetNode(n);
+    }
+
+    // recompute the tainted points-to sets from the facts that survive
+    List<PointsToSetVariable> reset = new ArrayList<>();
+    for (PointerKey key : tainted) {
+      PointsToSetVariable v = getVariable(key);
+      if (v != null) {
+        v.removeAll();
+        reset.add(v);
+      }
+    }
+    List<DirectFact> surviving = new ArrayList<>();
+    for (Object fact : provenance.getFacts()) {
+      if (fact instanceof DirectFact && tainted.contains(((DirectFact) fact).getKey())) {
+        surviving.add((DirectFact) fact);
+      }
+    }
+    system.restoreDirectFacts(surviving);
+    for (PointsToSetVariable v : reset) {
+      for (AbstractStatement<?, ?> s : defs(v)) {
+        system.addToWorkList(s);
+      }
+    }
+    for (Object o : retracted) {
+      if (o instanceof CGNode && !deleted.contains(o)) {
+        builder.markChanged((CGNode) o);
+      }
+    }
+
+    builder.getSolver().solve(monitor);
+    system.hashConsPointsToSets();
+
+    // a build from scratch would not have created the pointer keys that nothing refers to any more
+    for (PointerKey key : tainted) {
+      PointsToSetVariable v = getVariable(key);
+      if (v != null && v.size() == 0 && uses(v).isEmpty() && defs(v).isEmpty()) {
+        system.retractPointerKey(key);
+      }
+    }
+  }
+
+  private void enqueue(Object owner) {
+    if (retracted.add(owner)) {
+      toRetract.push(owner);
+    }
+  }
+
+  private void enqueueOwners(Object fact) {
+    for (Object o : provenance.getOwners(fact)) {
+      enqueue(o);
+    }
+  }
+
+  /** Retract all facts of an owner, and taint the pointer keys they contributed to. */
+  private void retractOwner(Object owner) {
+    if (owner instanceof ClassInitializerOwner) {
+      TypeReference type = ((ClassInitializerOwner) owner).getType();
+      builder.getClinitVisited().removeIf(c -> c.getReference().equals(type));
+      // whoever asked for the class initializer must ask again
+      for (Object o : provenance.getTriggers((ClassInitializerOwner) owner)) {
+        enqueue(o);
+      }
+    }
+    List<ClassInitializerOwner> triggered = provenance.getTriggered(owner);
+    for (Object fact : provenance.removeOwner(owner)) {
+      if (fact instanceof AbstractStatement) {
+        retractStatement((AbstractStatement<?, ?>) fact);
+      } else if (fact instanceof DirectFact) {
+        taint(((DirectFact) fact).getKey());
+      } else {
+        CallEdge e = (CallEdge) fact;
+        if (!deleted.contains(e.getCaller()) && !deleted.contains(e.getCallee())) {
+          ((ExplicitCallGraph.ExplicitNode) e.getCaller()).removeTarget(e.getSite(), e.getCallee());
+        }
+      }
+    }
+    // a class initializer nobody asks for any more is no longer reachable through this owner
+    for (ClassInitializerOwner c : triggered) {
+      if (provenance.getTriggers(c).isEmpty()) {
+        enqueue(c);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void retractStatement(AbstractStatement<?, ?> s) {
+    provenance.removeFact(s);
+    if (system.retractStatement((AbstractStatement<PointsToSetVariable, ?>) s)
+        && s.getLHS() != null) {
+      taint(((PointsToSetVariable) s.getLHS()).getPointerKey());
+    }
+  }
+
+  /**
+   * Mark the points-to set of key for recomputation, and with it the sets it flows to. Operators
+   * other than assignments may have generated facts from the set, so their owners are retracted.
+   */
+  private void taint(PointerKey key) {
+    Deque<PointerKey> work = new ArrayDeque<>();
+    work.push(key);
+    while (!work.isEmpty()) {
+      PointerKey k = work.pop();
+      if (stalePointers.contains(k) || !tainted.add(k)) {
+        continue;
+      }
+      PointsToSetVariable v = getVariable(k);
+      if (v == null) {
+        continue;
+      }
+      for (AbstractStatement<?, ?> s : uses(v)) {
+        if (s.getLHS() != null
+            && (s.getOperator() instanceof AssignOperator
+                || s.getOperator() instanceof FilterOperator)) {
+          work.push(((PointsToSetVariable) s.getLHS()).getPointerKey());
+        } else {
+          enqueueOwners(s);
+        }
+      }
+    }
+  }
+
+  private PointsToSetVariable getVariable(PointerKey key) {
+    if (system.isImplicit(key)) {
+      return null;
+    }
+    return system.pointsToMap.getPointsToSet(key);
+  }
+
+  private List<AbstractStatement<?, ?>> uses(PointsToSetVariable v) {
+    List<AbstractStatement<?, ?>> result = new ArrayList<>();
+    if (v.getGraphNodeId() > -1) {
+      for (AbstractStatement<?, ?> s : Iterator2Iterable.make(system.getStatementsThatUse(v))) {
+        result.add(s);
+      }
+    }
+    return result;
+  }
+
+  private List<AbstractStatement<?, ?>> defs(PointsToSetVariable v) {
+    List<AbstractStatement<?, ?>> result = new ArrayList<>();
+    if (v.getGraphNodeId() > -1) {
+      for (AbstractStatement<?, ?> s : Iterator2Iterable.make(system.getStatementsThatDef(v))) {
+        result.add(s);
+      }
+    }
+    return result;
+  }
+
+  private List<CGNode> findUnreachableNodes() {
+    Set<CGNode> reached = HashSetFactory.make();
+    Deque<CGNode> work = new ArrayDeque<>();
+    work.push(cg.getFakeRootNode());
+    reached.add(cg.getFakeRootNode());
+    while (!work.isEmpty()) {
+      for (CGNode succ : Iterator2Iterable.make(cg.getSuccNodes(work.pop()))) {
+        if (reached.add(succ)) {
+          work.push(succ);
+        }
+      }
+    }
+    List<CGNode> result = new ArrayList<>();
+    for (CGNode n : cg) {
+      if (isRemovable(n) && !reached.contains(n)) {
+        result.add(n);
+      }
+    }
+    return result;
+  }
+
+  private boolean isRemovable(CGNode n) {
+    return !n.equals(cg.getFakeRootNode()) && !n.equals(cg.getFakeWorldClinitNode());
+  }
+
+  private boolean isChanged(IClass klass) {
+    return changed.contains(klass.getName().getInnermostElementType());
+  }
+
+  private boolean isChanged(IMember m) {
+    return isChanged(m.getDeclaringClass());
+  }
+
+  private boolean isAffected(TypeReference t) {
+    return t != null && affected.contains(t.getName().getInnermostElementType());
+  }
+
+  private boolean isStale(Context c) {
+    List<ContextKey> keys = new ArrayList<>();
+    keys.add(ContextKey.RECEIVER);
+    keys.add(CallStringContextSelector.CALL_STRING);
+    keys.addAll(Arrays.asList(ContextKey.PARAMETERS));
+    for (ContextKey key : keys) {
+      ContextItem item = c.get(key);
+      if (item instanceof InstanceKey && staleInstances.contains(item)) {
+        return true;
+      } else if (item instanceof IClass && isChanged((IClass) item)) {
+        return true;
+      } else if (item instanceof TypeAbstraction
+          && isAffected(((TypeAbstraction) item).getTypeReference())) {
+        return true;
+      } else if (item instanceof FilteredPointerKey.TypeFilter
+          && isStale((FilteredPointerKey.TypeFilter) item)) {
+        return true;
+      } else if (item instanceof CallString) {
+        for (IMethod m : ((CallString) item).getMethods()) {
+          if (isChanged(m)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean isStale(InstanceKey ik) {
+    if (ik.getConcreteType() != null && affected.contains(innermostName(ik.getConcreteType()))) {
+      return true;
+    }
+    if (ik instanceof InstanceKeyWithNode
+        && deleted.contains(((InstanceKeyWithNode) ik).getNode())) {
+      return true;
+    }
+    if (ik instanceof AllocationSite && isChanged(((AllocationSite) ik).getMethod())) {
+      return true;
+    }
+    if (ik instanceof ConstantKey) {
+      Object value = ((ConstantKey<?>) ik).getValue();
+      if (value instanceof IClass) {
+        return affected.contains(innermostName((IClass) value));
+      } else if (value instanceof IMember) {
+        return isChanged((IMember) value);
+      }
+    }
+    return false;
+  }
+
+  private static TypeName innermostName(IClass klass) {
+    return klass.getName().getInnermostElementType();
+  }
+
+  private boolean isStale(PointerKey key) {
+    if (key instanceof AbstractLocalPointerKey
+        && deleted.contains(((AbstractLocalPointerKey) key).getNode())) {
+      return true;
+    }
+    if (key instanceof AbstractFieldPointerKey
+        && staleInstances.contains(((AbstractFieldPointerKey) key).getInstanceKey())) {
+      return true;
+    }
+    if (key instanceof InstanceFieldKey && isChanged(((InstanceFieldKey) key).getField())) {
+      return true;
+    }
+    if (key instanceof StaticFieldKey && isChanged(((StaticFieldKey) key).getField())) {
+      return true;
+    }
+    return key instanceof FilteredPointerKey
+        && isStale(((FilteredPointerKey) key).getTypeFilter());
+  }
+
+  private boolean isStale(FilteredPointerKey.TypeFilter filter) {
+    if (filter instanceof FilteredPointerKey.SingleClassFilter) {
+      return isChanged(((FilteredPointerKey.SingleClassFilter) filter).getConcreteType());
+    } else if (filter instanceof FilteredPointerKey.MultipleClassesFilter) {
+      for (IClass klass : ((FilteredPointerKey.MultipleClassesFilter) filter).getConcreteTypes()) {
+        if (isChanged(klass)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (filter instanceof FilteredPointerKey.SingleInstanceFilter) {
+      return staleInstances.contains(
+          ((FilteredPointerKey.SingleInstanceFilter) filter).getInstance());
+    } else if (filter instanceof FilteredPointerKey.TargetMethodFilter) {
+      return isChanged(((FilteredPointerKey.TargetMethodFilter) filter).getMethod());
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the code of n mentions a class whose subtypes changed
+   */
+  private boolean mentionsAffectedClass(CGNode n) {
+    IMethod m = n.getMethod();
+    if (isAffected(m.getDeclaringClass().getReference()) || isAffected(m.getReturnType())) {
+      return true;
+    }
+    for (int i = 0; i < m.getNumberOfParameters(); i++) {
+      if (isAffected(m.getParameterType(i))) {
+        return true;
+      }
+    }
+    IRView ir = builder.getCFAContextInterpreter().getIRView(n);
+    if (ir == null) {
+      return false;
+    }
+    for (SSAInstruction s : ir.getInstructions()) {
+      if (s != null && mentionsAffectedClass(s)) {
+        return true;
+      }
+    }
+    for (ISSABasicBlock b : Iterator2Iterable.make(ir.getBlocks())) {
+      for (TypeReference t : Iterator2Iterable.make(b.getCaughtExceptionTypes())) {
+        if (isAffected(t)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean mentionsAffectedClass(SSAInstruction s) {
+    if (s instanceof SSANewInstruction) {
+      return isAffected(((SSANewInstruction) s).getConcreteType());
+    } else if (s instanceof SSAAbstractInvokeInstruction) {
+      return isAffected(((SSAAbstractInvokeInstruction) s).getDeclaredTarget().getDeclaringClass());
+    } else if (s instanceof SSAFieldAccessInstruction) {
+      SSAFieldAccessInstruction f = (SSAFieldAccessInstruction) s;
+      return isAffected(f.getDeclaredField().getDeclaringClass())
+          || isAffected(f.getDeclaredFieldType());
+    } else if (s instanceof SSACheckCastInstruction) {
+      for (TypeReference t : ((SSACheckCastInstruction) s).getDeclaredResultTypes()) {
+        if (isAffected(t)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (s instanceof SSAInstanceofInstruction) {
+      return isAffected(((SSAInstanceofInstruction) s).getCheckedType());
+    } else if (s instanceof SSALoadMetadataInstruction) {
+      Object token = ((SSALoadMetadataInstruction) s).getToken();
+      return token instanceof TypeReference && isAffected((TypeReference) token);
+    } else if (s instanceof SSAArrayReferenceInstruction) {
+      return isAffected(((SSAArrayReferenceInstruction) s).getElementType());
+    } else {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.fixpoint.AbstractOperator;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.perf.FixedPointSolveEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link PropagationSystem} that evaluates simple propagation constraints on several threads.
+ *
+ * <p>The solver repeatedly drains a batch of statements from the work list. A statement is eligible
+ * for parallel evaluation only if it is a {@link UnaryStatement} whose operator is an {@link
+ * IPointerOperator} that is not {@link IPointerOperator#isComplex() complex} (i.e. assignments and
+ * the class-based filters), since such statements touch nothing but their own lhs and rhs
+ * variables. Statements in a batch are grouped by lhs, and a batch is closed as soon as a statement
+ * would read a variable written by another group, or write a variable read by another group. Each
+ * group is then evaluated sequentially on one worker, so every {@link PointsToSetVariable} is
+ * mutated by at most one thread and never read while it is being mutated.
+ *
+ * <p>Complex statements (field and array accesses, dispatch, ...) add new constraints and call
+ * graph nodes, so they are still evaluated one at a time on the calling thread, as are all work
+ * list updates. Since each batch only reorders the evaluation of monotone constraints, the solver
+ * reaches the same fixed point as the sequential {@link PropagationSystem}.
+ */
+public class ParallelPropagationSystem extends PropagationSystem {
+
+  private static final boolean DEBUG = false;
+
+  /** batches smaller than this are cheaper to evaluate on the calling thread */
+  private static final int MIN_PARALLEL_BATCH = 64;
+
+  /** upper bound on the number of statements drained from the work list per batch */
+  private static final int MAX_BATCH = 1 << 14;
+
+  /** number of worker threads */
+  private final int parallelism;
+
+  /** number of statements that have been evaluated by worker threads */
+  private long nParallelEvaluations = 0;
+
+  /** number of batches that have been handed to worker threads */
+  private int nParallelBatches = 0;
+
+  public ParallelPropagationSystem(
+      CallGraph cg,
+      PointerKeyFactory pointerKeyFactory,
+      InstanceKeyFactory instanceKeyFactory,
+      int parallelism) {
+    super(cg, pointerKeyFactory, instanceKeyFactory);
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @return true iff s only reads its rhs and writes its lhs, so that it may be evaluated off the
+   *     solver thread
+   */
+  protected boolean isParallelizable(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (!(s instanceof UnaryStatement) || s.getLHS() == null) {
+      return false;
+    }
+    AbstractOperator<PointsToSetVariable> op = s.getOperator();
+    if (!(op instanceof IPointerOperator) || ((IPointerOperator) op).isComplex()) {
+      return false;
+    }
+    if (op instanceof PropagationCallGraphBuilder.FilterOperator) {
+      // other filters may consult lazily-populated class hierarchy state, or grow the instance key
+      // mapping
+      PointerKey pk = s.getLHS().getPointerKey();
+      if (!(pk instanceof FilteredPointerKey)) {
+        return false;
+      }
+      FilteredPointerKey.TypeFilter filter = ((FilteredPointerKey) pk).getTypeFilter();
+      return filter instanceof FilteredPointerKey.SingleClassFilter
+          || filter instanceof FilteredPointerKey.MultipleClassesFilter;
+    }
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    if (parallelism == 1) {
+      return super.solve(monitor);
+    }
+
+    if (isFirstSolve()) {
+      initForFirstSolve();
+    }
+
+    boolean globalChange = false;
+    ExecutorService pool = new ForkJoinPool(parallelism);
+    FixedPointSolveEvent event = beginSolveEvent();
+    try {
+      Batch batch = new Batch();
+      while (!workList.isEmpty()) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        orderStatements();
+
+        batch.clear();
+        AbstractStatement next = null;
+        while (!workList.isEmpty() && batch.size < MAX_BATCH) {
+          AbstractStatement s = workList.takeStatement();
+          if (!isParallelizable(s) || !batch.tryAdd((UnaryStatement<PointsToSetVariable>) s)) {
+            next = s;
+            break;
+          }
+        }
+
+        if (batch.size > 0) {
+          if (next != null) {
+            // put it back before the batch updates the work list, so that it stays scheduled the
+            // way it was, and the next round sees those updates first
+            workList.insertStatement(next);
+          }
+          if (evaluate(batch, pool)) {
+            globalChange = true;
+          }
+        } else if (next != null) {
+          byte code = evaluateStatement(next);
+          if (recordEvaluation(next, code)) {
+            globalChange = true;
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+      endSolveEvent(event, globalChange);
+    }
+    return globalChange;
+  }
+
+  /**
+   * Evaluate a batch of independent statements, on worker threads if it is big enough, then update
+   * the work list on the calling thread.
+   *
+   * @return true iff some lhs changed
+   */
+  private boolean evaluate(Batch batch, ExecutorService pool) throws CancelException {
+    List<List<UnaryStatement<PointsToSetVariable>>> groups = new ArrayList<>(batch.groups.values());
+    byte[][] codes = new byte[groups.size()][];
+    if (batch.size < MIN_PARALLEL_BATCH || groups.size() < 2) {
+      for (int i = 0; i < groups.size(); i++) {
+        codes[i] = evaluateGroup(groups.get(i));
+      }
+    } else {
+      // hand out contiguous slices of groups of roughly equal statement counts
+      List<Callable<Void>> tasks = new ArrayList<>(parallelism);
+      int target = (batch.size + parallelism - 1) / parallelism;
+      int start = 0;
+      while (start < groups.size()) {
+        int end = start;
+        int count = 0;
+        while (end < groups.size() && count < target) {
+          count += groups.get(end++).size();
+        }
+        final int from = start;
+        final int to = end;
+        tasks.add(
+            () -> {
+              for (int i = from; i < to; i++) {
+                codes[i] = evaluateGroup(groups.get(i));
+              }
+              return null;
+            });
+        start = end;
+      }
+      try {
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+          f.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw CancelException.make("interrupted while evaluating constraints");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        } else {
+          throw new RuntimeException(cause);
+        }
+      }
+      nParallelBatches++;
+      nParallelEvaluations += batch.size;
+    }
+
+    boolean changed = false;
+    beginBatch();
+    for (int i = 0; i < groups.size(); i++) {
+      List<UnaryStatement<PointsToSetVariable>> group = groups.get(i);
+      for (int j = 0; j < group.size(); j++) {
+        if (recordEvaluation(group.get(j), codes[i][j])) {
+          changed = true;
+        }
+      }
+    }
+    endBatch();
+    if (DEBUG) {
+      System.err.println("batch of " + batch.size + " in " + groups.size() + " groups");
+    }
+    return changed;
+  }
+
+  private byte[] evaluateGroup(List<UnaryStatement<PointsToSetVariable>> group) {
+    byte[] result = new byte[group.size()];
+    for (int j = 0; j < group.size(); j++) {
+      UnaryStatement<PointsToSetVariable> s = group.get(j);
+      // the work list is only updated between batches, so the retired statements stay put
+      result[j] = isRetired(s) ? NOT_CHANGED : evaluateDifference(s);
+    }
+    return result;
+  }
+
+  @Override
+  public void performVerboseAction() {
+    super.performVerboseAction();
+    System.err.println(
+        "Parallel batches " + nParallelBatches + ", evaluations " + nParallelEvaluations);
+  }
+
+  /** A set of simple statements, grouped by lhs, no two groups of which share a variable. */
+  private static final class Batch {
+    private final Map<PointsToSetVariable, List<UnaryStatement<PointsToSetVariable>>> groups =
+        HashMapFactory.make();
+
+    /** for each variable read in this batch, the lhs of the group that reads it */
+    private final Map<PointsToSetVariable, PointsToSetVariable> readers = HashMapFactory.make();
+
+    private final Set<PointsToSetVariable> conflicted = HashSetFactory.make();
+
+    private int size = 0;
+
+    void clear() {
+      groups.clear();
+      readers.clear();
+      conflicted.clear();
+      size = 0;
+    }
+
+    /**
+     * @return true iff s was added, i.e. it does not race with any statement already in the batch
+     */
+    boolean tryAdd(UnaryStatement<PointsToSetVariable> s) {
+      PointsToSetVariable lhs = s.getLHS();
+      PointsToSetVariable rhs = s.getRightHandSide();
+      assert lhs != null;
+      if (conflicted.contains(lhs)) {
+        return false;
+      }
+      // writing a variable that another group reads?
+      PointsToSetVariable lhsReader = readers.get(lhs);
+      if (lhsReader != null && lhsReader != lhs) {
+        return false;
+      }
+      // reading a variable that another group writes?
+      if (rhs != lhs && groups.containsKey(rhs)) {
+        return false;
+      }
+      PointsToSetVariable rhsReader = readers.get(rhs);
+      if (rhsReader != null && rhsReader != lhs) {
+        // rhs is now read by several groups; it must not become the lhs of a later group
+        conflicted.add(rhs);
+      } else {
+        readers.put(rhs, lhs);
+      }
+      groups.computeIfAbsent(lhs, k -> new ArrayList<>()).add(s);
+      size++;
+      return true;
+    }
+  }
+}
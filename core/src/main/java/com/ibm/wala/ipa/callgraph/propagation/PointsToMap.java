@@ -128,6 +128,22 @@ public class PointsToMap {
     return result;
   }
 
+  /**
+   * forget a pointer key and its points-to-set; the key must not be unified with another key
+   */
+  public void remove(PointerKey key) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    int i = pointerKeys.getMappedIndex(key);
+    if (i != -1) {
+      assert pointsToSets.get(i) != UNIFIED : key;
+      pointerKeys.deleteMappedObject(key);
+      pointsToSets.set(i, null);
+      transitiveRoots.clear(i);
+    }
+  }
+
   /** record that a particular points-to-set has been unioned with another */
   public void recordUnified(PointerKey key) {
     if (key == null) {
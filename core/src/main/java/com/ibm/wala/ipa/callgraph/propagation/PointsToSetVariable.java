@@ -19,6 +19,9 @@ import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -46,18 +49,117 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /** creates the sets holding the value of this variable; null means the default factory */
+  private final MutableIntSetFactory<?> intSetFactory;
+
+  /**
+   * the instance keys added to this variable when its uses were last scheduled; null unless some
+   * statement on the work list reads just the differences of this variable
+   */
+  private Delta lastDelta;
+
+  /** number of statements on the work list that read just the differences of this variable */
+  private int deltaReaders;
+
   public PointsToSetVariable(PointerKey key) {
+    this(key, null);
+  }
+
+  /**
+   * @param intSetFactory creates the sets holding the value of this variable, or null to use the
+   *     default factory
+   */
+  public PointsToSetVariable(PointerKey key, MutableIntSetFactory<?> intSetFactory) {
     super();
     if (key == null) {
       throw new IllegalArgumentException("null key");
     }
     this.pointerKey = key;
+    this.intSetFactory = intSetFactory;
+  }
+
+  @Override
+  protected MutableIntSetFactory<?> getIntSetFactory() {
+    return intSetFactory == null ? super.getIntSetFactory() : intSetFactory;
   }
 
   public PointerKey getPointerKey() {
     return pointerKey;
   }
 
+  /**
+   * Close the set of instance keys added since the last call, for the statements that read just
+   * the differences of this variable.
+   *
+   * @return the instance keys added since the last call, or null if there are none
+   */
+  Delta scheduleAdditions() {
+    MutableIntSet added = takeAdditions();
+    if (added == null) {
+      return null;
+    }
+    Delta d = new Delta(this, added);
+    if (lastDelta != null) {
+      lastDelta.next = d;
+    }
+    lastDelta = d;
+    return d;
+  }
+
+  /** Record that a statement on the work list will read just some differences of this variable. */
+  void addDeltaReader() {
+    deltaReaders++;
+  }
+
+  /** Record that a statement no longer reads the differences of this variable. */
+  void removeDeltaReader() {
+    assert deltaReaders > 0;
+    if (--deltaReaders == 0) {
+      lastDelta = null;
+    }
+  }
+
+  /** Forget the differences of this variable if no statement on the work list reads them. */
+  void dropUnreadDeltas() {
+    if (deltaReaders == 0) {
+      lastDelta = null;
+    }
+  }
+
+  /**
+   * The instance keys added to a variable between two times its uses were scheduled. A statement
+   * that reads just the differences of the variable holds on to the first one it has not seen; the
+   * later ones are reachable from there, and the earlier ones may be collected.
+   */
+  static final class Delta {
+    /** the variable the instance keys were added to */
+    final PointsToSetVariable variable;
+
+    final MutableIntSet added;
+
+    /** the instance keys added after these, if scheduled yet */
+    Delta next;
+
+    Delta(PointsToSetVariable variable, MutableIntSet added) {
+      this.variable = variable;
+      this.added = added;
+    }
+
+    /**
+     * @return the instance keys in this and all later differences
+     */
+    IntSet collect() {
+      if (next == null) {
+        return added;
+      }
+      MutableIntSet result = IntSetUtil.makeMutableCopy(added);
+      for (Delta d = next; d != null; d = d.next) {
+        result.addAll(d.added);
+      }
+      return result;
+    }
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof PointsToSetVariable) {
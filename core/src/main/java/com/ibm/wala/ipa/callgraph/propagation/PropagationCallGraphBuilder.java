@@ -212,6 +212,10 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setPointsToSetFactory(options.getPointsToSetFactory());
+    system.setHashConsPointsToSets(options.getHashConsPointsToSets());
+    system.setOnlineCycleDetection(options.getOnlineCycleDetection());
+    system.setDifferencePropagation(options.getDifferencePropagation());
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
@@ -246,19 +250,32 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     customInit();
 
     solver = makeSolver();
+    if (options.getBudget() != null) {
+      BudgetMonitor budgetMonitor = new BudgetMonitor(options.getBudget(), this, monitor);
+      system.setBudgetMonitor(budgetMonitor);
+      monitor = budgetMonitor;
+    }
     try {
       solver.solve(monitor);
+      system.hashConsPointsToSets();
     } catch (CancelException | CancelRuntimeException e) {
       CallGraphBuilderCancelException c =
           CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
               e, callGraph, system.extractPointerAnalysis(this));
       throw c;
+    } finally {
+      // the budget is for this build, not for later updates of its result
+      system.setBudgetMonitor(null);
     }
 
     return callGraph;
   }
 
-  protected PropagationSystem makeSystem(@SuppressWarnings("unused") AnalysisOptions options) {
+  protected PropagationSystem makeSystem(AnalysisOptions options) {
+    if (options.getSolverParallelism() > 1) {
+      return new ParallelPropagationSystem(
+          callGraph, pointerKeyFactory, instanceKeyFactory, options.getSolverParallelism());
+    }
     return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
   }
 
@@ -606,6 +623,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return false;
     }
 
+    @Override
+    public boolean isDistributive() {
+      return true;
+    }
+
     @Override
     public String toString() {
       return "Filter ";
@@ -765,6 +787,12 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     return discoveredNodes.contains(node) && !alreadyVisited.contains(node);
   }
 
+  /** Forget a node that was removed from the call graph. */
+  protected void forgetNode(CGNode node) {
+    alreadyVisited.remove(node);
+    discoveredNodes.remove(node);
+  }
+
   /** Binary op: &lt;dummy&gt;:= ArrayLoad( &lt;arrayref&gt;) Side effect: Creates new equations. */
   public final class ArrayLoadOperator extends UnarySideEffect implements IPointerOperator {
     private final MutableIntSet priorInstances = rememberGetPutHistory ? IntSetUtil.make() : null;
@@ -849,6 +877,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     public boolean isComplex() {
       return true;
     }
+
+    @Override
+    public boolean isDistributive() {
+      return true;
+    }
   }
 
   /**
@@ -924,6 +957,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return true;
     }
 
+    @Override
+    public boolean isDistributive() {
+      return true;
+    }
+
     @Override
     public boolean equals(Object o) {
       return super.equals(o);
@@ -1042,6 +1080,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     public boolean isComplex() {
       return true;
     }
+
+    @Override
+    public boolean isDistributive() {
+      return true;
+    }
   }
 
   /** Operator that represents a putfield */
@@ -1066,6 +1109,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return true;
     }
 
+    @Override
+    public boolean isDistributive() {
+      return true;
+    }
+
     @Override
     public byte evaluate(PointsToSetVariable rhs) {
       if (DEBUG_PUT) {
@@ -1231,6 +1279,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     public boolean isComplex() {
       return true;
     }
+
+    @Override
+    public boolean isDistributive() {
+      return true;
+    }
   }
 
   /** Update the points-to-set for an array contents to include a particular instance key. */
@@ -1315,6 +1368,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     public boolean isComplex() {
       return true;
     }
+
+    @Override
+    public boolean isDistributive() {
+      return true;
+    }
   }
 
   protected MutableIntSet getMutableInstanceKeysForClass(IClass klass) {
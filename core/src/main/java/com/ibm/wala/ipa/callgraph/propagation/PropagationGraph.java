@@ -695,6 +695,13 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     return list.iterator();
   }
 
+  /**
+   * @return the number of equations in the graph, including the implicitly represented ones
+   */
+  public int getNumberOfStatements() {
+    return delegateStatements.size() + implicitUnaryCount;
+  }
+
   /**
    * Note that this implementation consults the implicit relation for each and every operator
    * cached. This will be inefficient if there are many implicit operators.
@@ -825,6 +832,32 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     }
   }
 
+  /**
+   * @return the graph node numbers of the variables assigned from the variable with graph node
+   *     number v, or null if there are none. This is a cheap view of the successors in {@link
+   *     #getAssignmentGraph()}, for searches over many nodes.
+   */
+  IntSet getAssignmentSuccessors(int v) {
+    IBinaryNaturalRelation R = invImplicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    return R == null ? null : R.getRelated(v);
+  }
+
+  /**
+   * @return the graph node numbers of the variables assigned to the variable with graph node number
+   *     v, or null if there are none
+   */
+  IntSet getAssignmentPredecessors(int v) {
+    IBinaryNaturalRelation R = implicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    return R == null ? null : R.getRelated(v);
+  }
+
+  /**
+   * @return the variable with graph node number v
+   */
+  PointsToSetVariable getVariable(int v) {
+    return (PointsToSetVariable) delegateGraph.getNode(v);
+  }
+
   /**
    * A graph of just the variables in the system. v1 -&gt; v2 iff there exists an assignment
    * equation e s.t. e uses v1 and e defs v2.
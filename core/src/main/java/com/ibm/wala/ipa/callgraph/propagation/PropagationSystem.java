@@ -12,6 +12,7 @@ package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.util.perf.UnificationEvent;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
 import com.ibm.wala.fixedpoint.impl.Worklist;
@@ -26,17 +27,25 @@ import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.Filter
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntStack;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.heapTrace.HeapTracer;
+import com.ibm.wala.util.intset.BasicNaturalRelation;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetInterner;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -47,6 +56,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /** System of constraints that define propagation for call graph construction */
 public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariable> {
@@ -98,6 +108,49 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
+  /** creates the sets holding the values of points-to set variables; null means the default */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
+  /** shares equal points-to sets between variables; null unless hash-consing is enabled */
+  private IntSetInterner pointsToSetInterner = null;
+
+  /** records which owners generated each fact; null unless facts may be retracted later */
+  private ConstraintProvenance provenance = null;
+
+  /** is told about each new statement; null unless the build has a budget */
+  private BudgetMonitor budgetMonitor = null;
+
+  /**
+   * assignment edges, as pairs of (rhs, lhs) graph node numbers, that have already triggered a
+   * search for a cycle; null unless cycles are detected online
+   */
+  private IBinaryNaturalRelation checkedAssignments = null;
+
+  /**
+   * assignments evaluated in the current batch, whose searches for a cycle wait until the whole
+   * batch is recorded; null outside a batch
+   */
+  private List<AssignEquation> pendingCycleChecks = null;
+
+  /** statements that unification replaced while they may still be on the work list */
+  private final Set<AbstractStatement<?, ?>> retiredStatements = HashSetFactory.make();
+
+  /**
+   * statements on the work list that read just the instance keys added to their rhs since they last
+   * saw it, with the first difference of the rhs that they have not seen; null unless differences
+   * are propagated
+   */
+  private Map<AbstractStatement<?, ?>, PointsToSetVariable.Delta> deltaStatements = null;
+
+  /** number of evaluations that read just the difference of their rhs */
+  private final LongAdder deltaEvaluations = new LongAdder();
+
+  private int cycleSearches = 0;
+
+  private int collapsedCycles = 0;
+
+  private int collapsedVariables = 0;
+
   @SuppressWarnings("unused")
   public PropagationSystem(
       CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
@@ -254,7 +307,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable result = pointsToMap.getPointsToSet(key);
     if (result == null) {
-      result = new PointsToSetVariable(key);
+      result = new PointsToSetVariable(key, pointsToSetFactory);
       pointsToMap.put(key, result);
     } else {
       // check that the filter for this variable remains unique
@@ -355,8 +408,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R = findOrCreatePointsToSet(rhs);
     return newStatement(L, op, new PointsToSetVariable[] {R}, true, true);
@@ -379,9 +430,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs1 + ", " + rhs2);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs1);
-    assert !pointsToMap.isUnified(rhs2);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R1 = findOrCreatePointsToSet(rhs1);
     PointsToSetVariable R2 = findOrCreatePointsToSet(rhs2);
@@ -416,6 +464,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     // we don't actually add a constraint.
     // instead, we immediately add the value to the points-to set.
     // This works since the solver is monotonic with TOP = {}
+    if (provenance != null) {
+      provenance.record(new ConstraintProvenance.DirectFact(lhs, value));
+    }
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     int index = findOrCreateIndexForInstanceKey(value);
     if (!L.add(index)) {
@@ -548,7 +599,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     newStatement(null, op, v1, true, true);
   }
@@ -562,7 +612,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable[] vs = new PointsToSetVariable[arg0.length];
     for (int i = 0; i < arg0.length; i++) {
-      assert !pointsToMap.isUnified(arg0[i]);
       vs[i] = findOrCreatePointsToSet(arg0[i]);
     }
     newStatement(null, op, vs, true, true);
@@ -573,8 +622,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
-    assert !pointsToMap.isUnified(arg1);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     PointsToSetVariable v2 = findOrCreatePointsToSet(arg1);
     newStatement(null, op, v1, v2, true, true);
@@ -585,6 +632,302 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     addAllStatementsToWorkList();
   }
 
+  /**
+   * Start recording which owners generate each fact of this system, so that the facts of an owner
+   * can be retracted. This must be called before any constraint is added.
+   */
+  void recordProvenance() {
+    provenance = new ConstraintProvenance();
+  }
+
+  /**
+   * @return the provenance of the facts of this system, or null if it is not recorded
+   */
+  ConstraintProvenance getProvenance() {
+    return provenance;
+  }
+
+  @Override
+  protected void statementRequested(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (provenance != null) {
+      provenance.record(s);
+    }
+  }
+
+  /** Tell m about each statement added from now on, so that it can enforce its budget. */
+  void setBudgetMonitor(BudgetMonitor m) {
+    budgetMonitor = m;
+  }
+
+  @Override
+  protected void statementAdded(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (budgetMonitor != null) {
+      budgetMonitor.statementAdded();
+    }
+  }
+
+  /**
+   * @return true iff unification replaced s while it was on the work list, so that evaluating it
+   *     must not change anything
+   */
+  protected boolean isRetired(AbstractStatement<PointsToSetVariable, ?> s) {
+    return !retiredStatements.isEmpty() && retiredStatements.contains(s);
+  }
+
+  @Override
+  protected byte evaluateStatement(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (isRetired(s)) {
+      return NOT_CHANGED;
+    }
+    if (provenance == null) {
+      return evaluateDifference(s);
+    }
+    Set<Object> saved = provenance.enter(provenance.getOwners(s));
+    try {
+      return super.evaluateStatement(s);
+    } finally {
+      provenance.exit(saved);
+    }
+  }
+
+  @Override
+  protected boolean recordEvaluation(AbstractStatement<PointsToSetVariable, ?> s, byte code) {
+    PointsToSetVariable.Delta readDelta =
+        deltaStatements == null || deltaStatements.isEmpty() ? null : deltaStatements.remove(s);
+    boolean result = false;
+    if (!retiredStatements.isEmpty() && retiredStatements.remove(s)) {
+      // a statement over variables that have since been unified; its replacement does the work
+    } else {
+      result = super.recordEvaluation(s, code);
+      if (checkedAssignments != null && s instanceof AssignEquation) {
+        if (pendingCycleChecks != null) {
+          pendingCycleChecks.add((AssignEquation) s);
+        } else {
+          checkForCycle((AssignEquation) s);
+        }
+      }
+    }
+    if (readDelta != null) {
+      // only now, since the evaluation may have scheduled s again
+      readDelta.variable.removeDeltaReader();
+    }
+    if (workList.isEmpty()) {
+      retiredStatements.clear();
+    }
+    return result;
+  }
+
+  /**
+   * Evaluate s. If it is on the work list to read just the instance keys added to its rhs since it
+   * last saw it, apply its operator to just those. This reads, but does not change, the state of
+   * the system, so that a {@link ParallelPropagationSystem} may call it on several threads.
+   *
+   * @return the result of evaluating s
+   */
+  protected byte evaluateDifference(AbstractStatement<PointsToSetVariable, ?> s) {
+    PointsToSetVariable.Delta delta =
+        deltaStatements == null || deltaStatements.isEmpty() ? null : deltaStatements.get(s);
+    if (delta == null) {
+      return s.evaluate();
+    }
+    PointsToSetVariable difference =
+        new PointsToSetVariable(delta.variable.getPointerKey(), pointsToSetFactory);
+    difference.addAll(delta.collect());
+    deltaEvaluations.increment();
+    // only unary statements are scheduled to read differences
+    return ((UnaryOperator<PointsToSetVariable>) s.getOperator()).evaluate(s.getLHS(), difference);
+  }
+
+  /**
+   * Choose whether to propagate just the differences of points-to sets. Each variable then collects
+   * the instance keys added to it, and when it changes, the assignments, filters and field and
+   * array accesses that read it are scheduled to process just the instance keys that they have not
+   * seen yet, rather than its whole points-to set. Systems that record provenance always propagate
+   * whole sets, since retracted facts shrink them.
+   */
+  public void setDifferencePropagation(boolean propagate) {
+    deltaStatements = propagate ? HashMapFactory.make() : null;
+  }
+
+  /**
+   * @return the number of evaluations that processed just the difference of a points-to set
+   */
+  public long getNumberOfDifferenceEvaluations() {
+    return deltaEvaluations.sum();
+  }
+
+  /**
+   * Schedule the statements that use v. When differences are propagated, a statement that is not
+   * on the work list has seen all of v but the instance keys added since v last changed, so it may
+   * read just those, if its operator is {@link IPointerOperator#isDistributive() distributive}.
+   */
+  @Override
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void changedVariable(PointsToSetVariable v) {
+    if (deltaStatements == null || provenance != null) {
+      super.changedVariable(v);
+      return;
+    }
+    if (!v.isTrackingAdditions()) {
+      // nobody has been told what they saw of v yet; they must read all of it once
+      v.trackAdditions();
+      super.changedVariable(v);
+      return;
+    }
+    PointsToSetVariable.Delta delta = v.scheduleAdditions();
+    for (AbstractStatement s : Iterator2Iterable.make(getStatementsThatUse(v))) {
+      if (!readsDifference(s)) {
+        workList.insertStatement(s);
+      } else if (delta != null && workList.tryInsertStatement(s)) {
+        // if nothing was added, there is nothing new for s to read
+        deltaStatements.put(s, delta);
+        v.addDeltaReader();
+      }
+    }
+    v.dropUnreadDeltas();
+  }
+
+  /**
+   * Schedule s to read the whole of its rhs, even if it is already on the work list to read just a
+   * difference.
+   */
+  @Override
+  @SuppressWarnings("rawtypes")
+  public void addToWorkList(AbstractStatement s) {
+    PointsToSetVariable.Delta read = deltaStatements == null ? null : deltaStatements.remove(s);
+    if (read != null) {
+      read.variable.removeDeltaReader();
+    }
+    super.addToWorkList(s);
+  }
+
+  /**
+   * @return true iff s may process just the instance keys added to its rhs, rather than all of them
+   */
+  private static boolean readsDifference(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (!(s instanceof UnaryStatement)) {
+      return false;
+    }
+    AbstractOperator<PointsToSetVariable> op = s.getOperator();
+    return op instanceof IPointerOperator && ((IPointerOperator) op).isDistributive();
+  }
+
+  /**
+   * Remove a statement from the system, given the statement or one equal to it.
+   *
+   * @return true iff the system contained the statement
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  boolean retractStatement(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (!getFixedPointSystem().containsStatement(s)) {
+      return false;
+    }
+    // the system may hold a different, but equal, statement object
+    Iterator<? extends AbstractStatement> candidates;
+    if (s.getLHS() != null) {
+      candidates = getStatementsThatDef(s.getLHS());
+    } else if (s instanceof UnaryStatement) {
+      UnaryStatement<PointsToSetVariable> u = (UnaryStatement<PointsToSetVariable>) s;
+      candidates = getStatementsThatUse(u.getRightHandSide());
+    } else {
+      candidates = getStatementsThatUse(s.getRHS()[0]);
+    }
+    for (AbstractStatement<?, ?> t : Iterator2Iterable.make(candidates)) {
+      if (t.equals(s)) {
+        removeStatement((AbstractStatement<PointsToSetVariable, ?>) t);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Forget a pointer key and its points-to set. The caller must already have removed all
+   * statements that use or define it.
+   */
+  void retractPointerKey(PointerKey key) {
+    if (!pointsToMap.isImplicit(key)) {
+      PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+      if (v != null && v.getGraphNodeId() > -1) {
+        flowGraph.removeVariable(v);
+      }
+    }
+    pointsToMap.remove(key);
+  }
+
+  /**
+   * Forget pointer keys together with all statements that use or define them, unless one of them
+   * shares its points-to set with other keys. The statements may still be on the work list, so they
+   * are retired: evaluating them changes nothing.
+   *
+   * @return true iff the keys were removed
+   */
+  @SuppressWarnings("unchecked")
+  boolean retractPointerKeysAndStatements(Collection<PointerKey> keys) {
+    List<PointsToSetVariable> variables = new ArrayList<>();
+    for (PointerKey key : keys) {
+      if (pointsToMap.getIndex(key) == -1 || pointsToMap.isImplicit(key)) {
+        continue;
+      }
+      PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+      if (!v.getPointerKey().equals(key)) {
+        return false;
+      }
+      variables.add(v);
+    }
+    for (PointsToSetVariable v : variables) {
+      if (v.getGraphNodeId() > -1) {
+        List<AbstractStatement<?, ?>> statements = new ArrayList<>();
+        getStatementsThatUse(v).forEachRemaining(statements::add);
+        getStatementsThatDef(v).forEachRemaining(statements::add);
+        for (AbstractStatement<?, ?> s : statements) {
+          retiredStatements.add(s);
+          removeStatement((AbstractStatement<PointsToSetVariable, ?>) s);
+        }
+      }
+    }
+    for (PointerKey key : keys) {
+      retractPointerKey(key);
+    }
+    return true;
+  }
+
+  /**
+   * Forget an instance key; it must no longer be in any points-to set. A key equal to it that is
+   * created later gets a fresh index.
+   */
+  void retractInstanceKey(InstanceKey ik) {
+    int index = instanceKeys.getMappedIndex(ik);
+    if (index != -1) {
+      instanceKeys.deleteMappedObject(ik);
+      for (MutableIntSet s : class2InstanceKey.values()) {
+        s.remove(index);
+      }
+    }
+  }
+
+  /**
+   * @return the instance keys of this system
+   */
+  Collection<InstanceKey> getInstanceKeys() {
+    return instanceKeys.getObjects();
+  }
+
+  /**
+   * Add the instance keys of direct facts to the points-to set of their pointer key, without
+   * recording new provenance for them.
+   */
+  void restoreDirectFacts(Collection<ConstraintProvenance.DirectFact> facts) {
+    Set<Object> saved = provenance.enter(Collections.emptySet());
+    try {
+      for (ConstraintProvenance.DirectFact f : facts) {
+        newConstraint(f.getKey(), f.getValue());
+      }
+    } finally {
+      provenance.exit(saved);
+    }
+  }
+
   /**
    * @return an object that encapsulates the pointer analysis results
    */
@@ -614,6 +957,19 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (getFixedPointSystem() instanceof VerboseAction) {
       ((VerboseAction) getFixedPointSystem()).performVerboseAction();
     }
+    if (checkedAssignments != null) {
+      System.err.println(
+          "Cycle searches "
+              + cycleSearches
+              + ", collapsed "
+              + collapsedCycles
+              + " cycles of "
+              + collapsedVariables
+              + " variables");
+    }
+    if (deltaStatements != null) {
+      System.err.println("Difference evaluations " + deltaEvaluations.sum());
+    }
     if (!workList.isEmpty()) {
       AbstractStatement s = workList.takeStatement();
       System.err.println(printRHSInstances(s));
@@ -665,6 +1021,13 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     return pointsToMap.getNumberOfPointerKeys();
   }
 
+  /**
+   * @return the number of constraints in the system
+   */
+  public int getNumberOfStatements() {
+    return flowGraph.getNumberOfStatements();
+  }
+
   /** Use with care. */
   Worklist getWorklist() {
     return workList;
@@ -735,6 +1098,217 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     this.periodicMaintainInterval = periodicMaintainInteval;
   }
 
+  /**
+   * @return the factory that creates the sets holding the values of points-to set variables, or
+   *     null if they use the default factory
+   */
+  public MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory;
+  }
+
+  /**
+   * Choose the representation of points-to sets created from now on. On large analyses, most
+   * points-to sets hold only a handful of instance keys, and a {@link
+   * com.ibm.wala.util.intset.CompactMutableIntSetFactory} cuts their footprint considerably. Where
+   * many sets are large and their instance keys cluster, a {@link
+   * com.ibm.wala.util.intset.RoaringMutableIntSetFactory} keeps them small and their unions fast.
+   *
+   * @param pointsToSetFactory creates the sets holding the values of points-to set variables, or
+   *     null to use the default factory
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> pointsToSetFactory) {
+    this.pointsToSetFactory = pointsToSetFactory;
+  }
+
+  /**
+   * Choose whether to detect cycles of assignments while solving, and collapse each into a single
+   * points-to set variable as soon as it is found. Along a cycle of assignments all points-to sets
+   * are equal at the fixed point, yet the solver would otherwise push every new instance key around
+   * the whole cycle.
+   *
+   * <p>Detection is lazy: evaluating an assignment whose two sides end up with equal points-to sets
+   * hints that the assignment may close a cycle, and only then, once per assignment, does the
+   * system search the assignment graph for one. Variables that may later acquire a type filter, and
+   * the fixed sets of side effects, are kept out of the collapsed cycles. Systems that record
+   * provenance never collapse cycles, since unified facts could not be retracted.
+   */
+  public void setOnlineCycleDetection(boolean detect) {
+    checkedAssignments = detect ? new BasicNaturalRelation() : null;
+  }
+
+  /**
+   * Start recording the evaluations of a batch of statements evaluated together. Until {@link
+   * #endBatch()}, no cycle is collapsed, since a collapse would retire statements of the batch that
+   * were already evaluated, and the changes to their lhs would never be propagated.
+   */
+  void beginBatch() {
+    if (checkedAssignments != null) {
+      pendingCycleChecks = new ArrayList<>();
+    }
+  }
+
+  /** Search for the cycles through the assignments recorded since {@link #beginBatch()}. */
+  void endBatch() {
+    List<AssignEquation> pending = pendingCycleChecks;
+    pendingCycleChecks = null;
+    if (pending != null) {
+      for (AssignEquation s : pending) {
+        // a collapse found for an earlier assignment may have replaced s
+        if (!pointsToMap.isUnified(s.getLHS().getPointerKey())
+            && !pointsToMap.isUnified(s.getRightHandSide().getPointerKey())) {
+          checkForCycle(s);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of cycles of assignments collapsed while solving
+   */
+  public int getNumberOfCollapsedCycles() {
+    return collapsedCycles;
+  }
+
+  /**
+   * @return the number of points-to set variables merged into the representative of a cycle
+   */
+  public int getNumberOfCollapsedVariables() {
+    return collapsedVariables;
+  }
+
+  /**
+   * Called after an assignment has been evaluated: if both sides now hold equal sets for the first
+   * time, look for a cycle through it and collapse the cycle.
+   */
+  private void checkForCycle(AssignEquation s) {
+    if (provenance != null) {
+      return;
+    }
+    PointsToSetVariable lhs = s.getLHS();
+    PointsToSetVariable rhs = s.getRightHandSide();
+    // after the assignment lhs contains rhs, so equal sizes mean equal sets
+    if (lhs == rhs || lhs.size() == 0 || lhs.size() != rhs.size()) {
+      return;
+    }
+    int l = lhs.getGraphNodeId();
+    int r = rhs.getGraphNodeId();
+    if (l < 0 || r < 0 || !checkedAssignments.add(r, l)) {
+      return;
+    }
+    cycleSearches++;
+    BitVector reached = reach(l, true, null);
+    if (!reached.get(r)) {
+      return;
+    }
+    // the strongly connected component of lhs: the nodes it reaches that reach it back
+    BitVector cycle = reach(l, false, reached);
+    MutableIntSet members = IntSetUtil.make();
+    for (IntIterator it = new BitVectorIntSet(cycle).intIterator(); it.hasNext(); ) {
+      PointsToSetVariable v = flowGraph.getVariable(it.next());
+      // the points-to sets of a cycle are equal at the fixed point, so any of them may merge
+      if (isCollapsible(v)) {
+        members.add(pointsToMap.getIndex(v.getPointerKey()));
+      }
+    }
+    if (members.size() > 1) {
+      collapsedCycles++;
+      collapsedVariables += members.size() - 1;
+      unify(members);
+      // the replacements of retired statements are not on the work list, and have seen none of the
+      // points-to sets; schedule every statement that might have been pending, to read all of it
+      PointsToSetVariable rep = pointsToMap.getPointsToSet(members.intIterator().next());
+      getStatementsThatUse(rep).forEachRemaining(this::addToWorkList);
+      getStatementsThatDef(rep).forEachRemaining(this::addToWorkList);
+    }
+  }
+
+  /**
+   * Search the assignment graph from the variable with graph node number start.
+   *
+   * @param forward follow assignments forward, or backward
+   * @param within if not null, visit only these nodes
+   * @return the graph node numbers of the variables visited
+   */
+  private BitVector reach(int start, boolean forward, BitVector within) {
+    BitVector visited = new BitVector();
+    visited.set(start);
+    IntStack stack = new IntStack();
+    stack.push(start);
+    while (!stack.isEmpty()) {
+      IntSet next =
+          forward
+              ? flowGraph.getAssignmentSuccessors(stack.pop())
+              : flowGraph.getAssignmentPredecessors(stack.pop());
+      if (next != null) {
+        for (IntIterator it = next.intIterator(); it.hasNext(); ) {
+          int n = it.next();
+          if (!visited.get(n) && (within == null || within.get(n))) {
+            visited.set(n);
+            stack.push(n);
+          }
+        }
+      }
+    }
+    return visited;
+  }
+
+  /**
+   * May v be merged into another variable? Not if the type filter of its pointer key might change
+   * later, and not if a side effect holds on to it.
+   */
+  private boolean isCollapsible(PointsToSetVariable v) {
+    PointerKey key = v.getPointerKey();
+    if (key instanceof FilteredPointerKey || fixedSetMap.containsKey(v)) {
+      return false;
+    }
+    if (key instanceof LocalPointerKey && ((LocalPointerKey) key).isParameter()) {
+      // dispatch may add a filter for the receiver or another formal at any time
+      return false;
+    }
+    return pointsToMap.getIndex(key) != -1;
+  }
+
+  /**
+   * Choose whether {@link #hashConsPointsToSets()} shares equal points-to sets between variables.
+   * Once the solver reaches a fixed point, many variables hold sets with the same contents, e.g.
+   * along chains of assignments; sharing one copy of each shrinks the heap held by the solved
+   * system. A variable copies its set again before its value next changes.
+   */
+  public void setHashConsPointsToSets(boolean hashCons) {
+    pointsToSetInterner = hashCons ? new IntSetInterner() : null;
+  }
+
+  /**
+   * @return the store of shared points-to sets, or null if hash-consing is disabled
+   */
+  public IntSetInterner getPointsToSetInterner() {
+    return pointsToSetInterner;
+  }
+
+  /**
+   * If hash-consing is enabled, replace the value of every points-to set variable with a shared set
+   * of equal contents. Call this when the solver reaches a fixed point.
+   */
+  public void hashConsPointsToSets() {
+    if (pointsToSetInterner == null) {
+      return;
+    }
+    // sets interned before may have been copied and changed since; start afresh
+    pointsToSetInterner.clear();
+    for (PointerKey key : Iterator2Iterable.make(pointsToMap.iterateKeys())) {
+      if (pointsToMap.isImplicit(key)) {
+        continue;
+      }
+      PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+      if (v != null) {
+        v.hashCons(pointsToSetInterner);
+      }
+    }
+    if (verbose) {
+      System.err.println("hash-consed points-to sets: " + pointsToSetInterner);
+    }
+  }
+
   /**
    * Unify the points-to-sets for the variables identified by the set s
    *
@@ -745,6 +1319,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (s == null) {
       throw new IllegalArgumentException("s is null");
     }
+    UnificationEvent event = new UnificationEvent();
+    event.begin();
     // cache the variables represented
     HashSet<PointsToSetVariable> cache = HashSetFactory.make(s.size());
     for (IntIterator it = s.intIterator(); it.hasNext(); ) {
@@ -756,11 +1332,27 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     pointsToMap.unify(s);
     int rep = pointsToMap.getRepresentative(s.intIterator().next());
 
+    if (!workList.isEmpty()) {
+      // the statements of the other variables are about to be replaced
+      PointsToSetVariable pRef = pointsToMap.getPointsToSet(rep);
+      for (PointsToSetVariable p : cache) {
+        if (p != pRef) {
+          getStatementsThatDef(p).forEachRemaining(retiredStatements::add);
+          getStatementsThatUse(p).forEachRemaining(retiredStatements::add);
+        }
+      }
+    }
+
     // clean up the equations
     updateEquationsForUnification(cache, rep);
 
     // special logic to clean up side effects
     updateSideEffectsForUnification(cache, rep);
+
+    if (event.shouldCommit()) {
+      event.variables = s.size();
+      event.commit();
+    }
   }
 
   /**
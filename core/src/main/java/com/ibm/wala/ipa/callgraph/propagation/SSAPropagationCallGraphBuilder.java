@@ -11,6 +11,7 @@
 package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.analysis.reflection.CloneInterpreter;
+import com.ibm.wala.analysis.reflection.IllegalArgumentExceptionContext;
 import com.ibm.wala.cfg.ControlFlowGraph;
 import com.ibm.wala.cfg.IBasicBlock;
 import com.ibm.wala.classLoader.ArrayClass;
@@ -27,6 +28,7 @@ import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
@@ -34,6 +36,8 @@ import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.BudgetedContextSelector;
+import com.ibm.wala.ipa.cha.ClassHierarchyDelta;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrike.shrikeBT.ConditionalBranchInstruction;
 import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
@@ -69,8 +73,10 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.intset.IntIterator;
@@ -85,6 +91,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -147,6 +154,9 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
 
   private final Set<IClass> finalizeVisited = HashSetFactory.make();
 
+  /** record where constraints come from, so that the call graph can be updated after changes? */
+  private boolean incremental = false;
+
   public IProgressMonitor monitor;
 
   protected SSAPropagationCallGraphBuilder(
@@ -158,6 +168,68 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     // this.usePreTransitiveSolver = options.usePreTransitiveSolver();
   }
 
+  /**
+   * Record where each constraint comes from, so that {@link #updateCallGraph(ClassHierarchyDelta,
+   * IProgressMonitor)} can update the call graph after classes change. Call this before {@link
+   * #makeCallGraph(AnalysisOptions, IProgressMonitor)}. The recording costs memory, and forces the
+   * sequential solver.
+   */
+  public void setIncremental(boolean incremental) {
+    if (system != null) {
+      throw new IllegalStateException("call graph already built");
+    }
+    this.incremental = incremental;
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  @Override
+  protected PropagationSystem makeSystem(AnalysisOptions options) {
+    if (!incremental) {
+      return super.makeSystem(options);
+    }
+    PropagationSystem result =
+        new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
+    result.recordProvenance();
+    return result;
+  }
+
+  /**
+   * @return true if {@link #updateCallGraph(ClassHierarchyDelta, IProgressMonitor)} can handle the
+   *     delta; otherwise, the call graph must be rebuilt from scratch
+   */
+  public boolean canUpdate(ClassHierarchyDelta delta) {
+    return system != null
+        && system.getProvenance() != null
+        && new IncrementalCallGraphUpdater(this).canUpdate(delta);
+  }
+
+  /**
+   * Apply a set of class changes to the class hierarchy, and update the call graph and pointer
+   * analysis built by this builder to match, as if they had been built from scratch with the new
+   * hierarchy. Only the constraints that depend on the changed classes are retracted and
+   * recomputed.
+   *
+   * @throws IllegalArgumentException if {@link #canUpdate(ClassHierarchyDelta)} does not hold
+   */
+  public void updateCallGraph(ClassHierarchyDelta delta, IProgressMonitor monitor)
+      throws CancelException {
+    if (!canUpdate(delta)) {
+      throw new IllegalArgumentException("cannot update the call graph for " + delta);
+    }
+    new IncrementalCallGraphUpdater(this).update(delta, monitor);
+  }
+
+  Set<IClass> getClinitVisited() {
+    return clinitVisited;
+  }
+
+  Set<IClass> getFinalizeVisited() {
+    return finalizeVisited;
+  }
+
   public SSAContextInterpreter getCFAContextInterpreter() {
     return (SSAContextInterpreter) getContextInterpreter();
   }
@@ -185,10 +257,80 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     this.monitor = monitor;
     if (haveAlreadyVisited(node)) {
       return false;
+    } else if (mergeDowngradedNode(node)) {
+      return true;
     } else {
       markAlreadyVisited(node);
     }
-    return unconditionallyAddConstraintsFromNode(node, monitor);
+    ConstraintProvenance provenance = system.getProvenance();
+    if (provenance == null) {
+      return unconditionallyAddConstraintsFromNode(node, monitor);
+    }
+    Set<Object> saved = provenance.enter(node);
+    try {
+      return unconditionallyAddConstraintsFromNode(node, monitor);
+    } finally {
+      provenance.exit(saved);
+    }
+  }
+
+  /**
+   * If the budget has downgraded the method of a node that has not been expanded yet, move each
+   * call to it over to the node the base policy selects for the call, and delete it, so that the
+   * downgrade also applies to calls resolved before it.
+   *
+   * @return true iff node was deleted
+   */
+  private boolean mergeDowngradedNode(CGNode node) throws CancelException {
+    if (!(contextSelector instanceof BudgetedContextSelector) || system.getProvenance() != null) {
+      return false;
+    }
+    BudgetedContextSelector selector = (BudgetedContextSelector) contextSelector;
+    IMethod m = node.getMethod();
+    if (!selector.isDowngraded(m)
+        || node.equals(callGraph.getFakeRootNode())
+        || node.equals(callGraph.getFakeWorldClinitNode())) {
+      return false;
+    }
+    Map<Pair<CGNode, CallSiteReference>, Context> targets = HashMapFactory.make();
+    for (CGNode caller : Iterator2Iterable.make(callGraph.getPredNodes(node))) {
+      if (caller.equals(callGraph.getFakeRootNode())) {
+        // entrypoints keep their nodes
+        return false;
+      }
+      for (CallSiteReference site :
+          Iterator2Iterable.make(callGraph.getPossibleSites(caller, node))) {
+        Context c = selector.getDowngradedTarget(caller, site, m);
+        if (c == null
+            || c.equals(node.getContext())
+            || c.isA(IllegalArgumentExceptionContext.class)) {
+          return false;
+        }
+        targets.put(Pair.make(caller, site), c);
+      }
+    }
+
+    // nothing but the calls to node mentions its formals and return values yet
+    List<PointerKey> keys = new ArrayList<>();
+    for (int i = 0; i < m.getNumberOfParameters(); i++) {
+      if (m.getParameterType(i).isReferenceType()) {
+        keys.add(getTargetPointerKey(node, i));
+      }
+    }
+    keys.add(getPointerKeyForReturnValue(node));
+    keys.add(getPointerKeyForExceptionalReturnValue(node));
+    if (!system.retractPointerKeysAndStatements(keys)) {
+      return false;
+    }
+    for (Map.Entry<Pair<CGNode, CallSiteReference>, Context> e : targets.entrySet()) {
+      CGNode caller = e.getKey().fst;
+      CallSiteReference site = e.getKey().snd;
+      makeVisitor(caller).addCallTarget(site, callGraph.findOrCreateNode(m, e.getValue()));
+      ((ExplicitCallGraph.ExplicitNode) caller).removeTarget(site, node);
+    }
+    callGraph.removeNodeAndEdges(node);
+    forgetNode(node);
+    return true;
   }
 
   @Override
@@ -750,8 +892,6 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
             }
           }
         } else {
-          assert !system.isUnified(result);
-          assert !system.isUnified(arrayRefPtrKey);
           system.newSideEffect(
               getBuilder().new ArrayLoadOperator(system.findOrCreatePointsToSet(result)),
               arrayRefPtrKey);
@@ -808,7 +948,6 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           InstanceKey[] ik = getInvariantContents(value);
           for (InstanceKey element : ik) {
             system.findOrCreateIndexForInstanceKey(element);
-            assert !system.isUnified(arrayRefPtrKey);
             system.newSideEffect(
                 getBuilder().new InstanceArrayStoreOperator(element), arrayRefPtrKey);
           }
@@ -1210,6 +1349,23 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       }
     }
 
+    /** Add target to the callees of the calls at site, with their edges and constraints. */
+    protected void addCallTarget(CallSiteReference site, CGNode target) {
+      for (SSAInstruction s : ir.getInstructions()) {
+        if (s instanceof SSAAbstractInvokeInstruction
+            && ((SSAAbstractInvokeInstruction) s).getCallSite().equals(site)) {
+          SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+          PointerKey uniqueCatch = null;
+          if (hasUniqueCatchBlock(call, ir)) {
+            uniqueCatch = getBuilder().getUniqueCatchKey(call, ir, node);
+          }
+          InstanceKey[][] invariantParameters =
+              new DefaultInvariantComputer().computeInvariantParameters(call);
+          getBuilder().processResolvedCall(node, call, target, invariantParameters, uniqueCatch);
+        }
+      }
+    }
+
     @Override
     public void visitNew(SSANewInstruction instruction) {
       InstanceKey iKey = getInstanceKeyForAllocation(instruction.getNewSite());
@@ -1560,6 +1716,21 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         return;
       }
 
+      ConstraintProvenance provenance = system.getProvenance();
+      if (provenance == null) {
+        visitClassInitializer(klass);
+      } else {
+        // the facts for the class initializer live as long as some owner asks for it
+        Set<Object> saved = provenance.enter(provenance.recordTrigger(klass));
+        try {
+          visitClassInitializer(klass);
+        } finally {
+          provenance.exit(saved);
+        }
+      }
+    }
+
+    private void visitClassInitializer(IClass klass) {
       if (getBuilder().clinitVisited.contains(klass)) {
         return;
       }
@@ -1582,7 +1753,14 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           if (target != null && callGraph.getPredNodeCount(target) == 0) {
             AbstractRootMethod fakeWorldClinitMethod =
                 (AbstractRootMethod) callGraph.getFakeWorldClinitNode().getMethod();
-            SSAAbstractInvokeInstruction s = fakeWorldClinitMethod.addInvocation(new int[0], site);
+            SSAAbstractInvokeInstruction s = null;
+            if (system.getProvenance() != null) {
+              // an incremental update may process the class initializer again; reuse the call
+              s = findInvocation(fakeWorldClinitMethod, m);
+            }
+            if (s == null) {
+              s = fakeWorldClinitMethod.addInvocation(new int[0], site);
+            }
             PointerKey uniqueCatch =
                 getBuilder().getPointerKeyForExceptionalReturnValue(callGraph.getFakeRootNode());
             getBuilder()
@@ -1597,6 +1775,17 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         processClassInitializer(sc);
       }
     }
+
+    private SSAAbstractInvokeInstruction findInvocation(
+        AbstractRootMethod method, MethodReference m) {
+      for (SSAInstruction s : method.statements) {
+        if (s instanceof SSAAbstractInvokeInstruction
+            && ((SSAAbstractInvokeInstruction) s).getDeclaredTarget().equals(m)) {
+          return (SSAAbstractInvokeInstruction) s;
+        }
+      }
+      return null;
+    }
   }
 
   /**
@@ -1624,6 +1813,11 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       System.err.println("addTarget: " + caller + " ," + instruction + " , " + target);
     }
     caller.addTarget(instruction.getCallSite(), target);
+    if (system.getProvenance() != null) {
+      system
+          .getProvenance()
+          .record(new ConstraintProvenance.CallEdge(caller, instruction.getCallSite(), target));
+    }
 
     if (callGraph.getFakeRootNode().equals(caller)) {
       if (entrypointCallSites.contains(instruction.getCallSite())) {
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation.cfa;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraphBudget;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.util.intset.IntSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A context selector that uses a context-sensitive policy, except for methods that have been
+ * downgraded, for which it uses a cheaper base policy.
+ *
+ * <p>Methods are downgraded while the call graph is being built, typically when it runs short of
+ * its {@link CallGraphBudget}. New calls to a downgraded method are given the context of the base
+ * policy, and nodes for it that the builder has not expanded yet are merged into the nodes of the
+ * base policy; nodes already expanded stay in the call graph, so the result remains sound. With an
+ * object-sensitive policy, allocations in the new nodes get the base context as well.
+ */
+public class BudgetedContextSelector implements ContextSelector {
+
+  private final ContextSelector sensitive;
+
+  private final ContextSelector base;
+
+  private final Set<IMethod> downgraded = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param sensitive the policy for methods that have not been downgraded
+   * @param base the policy for downgraded methods
+   */
+  public BudgetedContextSelector(ContextSelector sensitive, ContextSelector base) {
+    if (sensitive == null) {
+      throw new IllegalArgumentException("null sensitive");
+    }
+    if (base == null) {
+      throw new IllegalArgumentException("null base");
+    }
+    this.sensitive = sensitive;
+    this.base = base;
+  }
+
+  @Override
+  public Context getCalleeTarget(
+      CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
+    ContextSelector selector = downgraded.contains(callee) ? base : sensitive;
+    return selector.getCalleeTarget(caller, site, callee, actualParameters);
+  }
+
+  /** The relevant parameters do not depend on the callee, so both policies get theirs. */
+  @Override
+  public IntSet getRelevantParameters(CGNode caller, CallSiteReference site) {
+    return sensitive
+        .getRelevantParameters(caller, site)
+        .union(base.getRelevantParameters(caller, site));
+  }
+
+  /**
+   * The context the base policy gives a call to a downgraded method, for calls whose context does
+   * not depend on the actual parameters.
+   *
+   * @return the context, or null if the base policy needs the actual parameters at site
+   */
+  public Context getDowngradedTarget(CGNode caller, CallSiteReference site, IMethod callee) {
+    if (!base.getRelevantParameters(caller, site).isEmpty()) {
+      return null;
+    }
+    return base.getCalleeTarget(caller, site, callee, null);
+  }
+
+  /**
+   * Treat future calls to m with the base policy.
+   *
+   * @return true iff m had not been downgraded yet
+   */
+  public boolean downgrade(IMethod m) {
+    if (m == null) {
+      throw new IllegalArgumentException("null m");
+    }
+    return downgraded.add(m);
+  }
+
+  public boolean isDowngraded(IMethod m) {
+    return downgraded.contains(m);
+  }
+
+  /**
+   * @return the methods that have been downgraded so far
+   */
+  public Set<IMethod> getDowngradedMethods() {
+    return Collections.unmodifiableSet(downgraded);
+  }
+
+  @Override
+  public String toString() {
+    return "budgeted " + sensitive + ", " + downgraded.size() + " downgraded";
+  }
+}
@@ -34,6 +34,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Flexible class to create {@link InstanceKey}s depending on various policies ranging from
@@ -120,8 +121,11 @@ public class ZeroXInstanceKeys implements InstanceKeyFactory {
   /** An object which interprets nodes in context. */
   private final RTAContextInterpreter contextInterpreter;
 
-  /** a Map from CGNode-&gt;Set&lt;IClass&gt; that should be smushed. */
-  protected final Map<CGNode, Set<IClass>> smushMap = HashMapFactory.make();
+  /**
+   * a Map from CGNode-&gt;Set&lt;IClass&gt; that should be smushed. It is filled in lazily, possibly
+   * by several threads answering queries at once.
+   */
+  protected final Map<CGNode, Set<IClass>> smushMap = new ConcurrentHashMap<>();
 
   public ZeroXInstanceKeys(
       AnalysisOptions options,
@@ -210,7 +214,8 @@ public class ZeroXInstanceKeys implements InstanceKeyFactory {
         }
       }
       s = smushees.isEmpty() ? Collections.<IClass>emptySet() : smushees;
-      smushMap.put(node, s);
+      // a thread racing to fill in the same node computes an equal set
+      smushMap.putIfAbsent(node, s);
     }
     return s.contains(c);
   }
@@ -46,8 +46,11 @@ public class nCFABuilder extends SSAPropagationCallGraphBuilder {
     ContextSelector def = new DefaultContextSelector(options, cha);
     ContextSelector contextSelector =
         appContextSelector == null ? def : new DelegatingContextSelector(appContextSelector, def);
-    contextSelector = new nCFAContextSelector(n, contextSelector);
-    setContextSelector(contextSelector);
+    ContextSelector sensitive = new nCFAContextSelector(n, contextSelector);
+    if (options.getBudget() != null) {
+      sensitive = new BudgetedContextSelector(sensitive, contextSelector);
+    }
+    setContextSelector(sensitive);
 
     SSAContextInterpreter defI = new DefaultSSAInterpreter(options, cache);
     defI =
@@ -47,6 +47,9 @@ public class nObjBuilder extends ZeroXCFABuilder {
 
     ContextSelector nObjContextSelector = new nObjContextSelector(n, contextSelector);
 
+    if (options.getBudget() != null) {
+      nObjContextSelector = new BudgetedContextSelector(nObjContextSelector, contextSelector);
+    }
     setContextSelector(nObjContextSelector);
   }
 }
@@ -21,6 +21,7 @@ import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.classLoader.NoSuperclassFoundException;
 import com.ibm.wala.classLoader.PhantomClass;
 import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.util.perf.ClassHierarchyEvent;
 import com.ibm.wala.core.util.ref.CacheReference;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.core.util.strings.Atom;
@@ -251,6 +252,8 @@ public class ClassHierarchy implements IClassHierarchy {
         }
       }
     }
+    ClassHierarchyEvent event = new ClassHierarchyEvent();
+    event.begin();
     try {
       int numLoaders = 0;
       for (ClassLoaderReference ref : scope.getLoaders()) {
@@ -309,6 +312,12 @@ public class ClassHierarchy implements IClassHierarchy {
     // perform numbering for subclass tests.
     numberTree();
     ReferenceCleanser.registerClassHierarchy(this);
+
+    if (event.shouldCommit()) {
+      event.loaders = loaders.length;
+      event.classes = getNumberOfClasses();
+      event.commit();
+    }
   }
 
   /** Add all classes in a class loader to the hierarchy. */
@@ -461,6 +470,172 @@ public class ClassHierarchy implements IClassHierarchy {
     impls.add(klass);
   }
 
+  /**
+   * @return true if {@link #update(ClassHierarchyDelta)} accepts delta
+   */
+  public boolean canUpdate(ClassHierarchyDelta delta) {
+    if (delta == null) {
+      throw new IllegalArgumentException("delta is null");
+    }
+    try {
+      checkDelta(delta);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Apply a set of class changes to this hierarchy and to the loaders of the changed classes,
+   * without rebuilding the hierarchy.
+   *
+   * <p>Removed classes must not have subclasses or implementors that stay in the hierarchy, and
+   * modified classes must keep their superclass and interfaces. Classes that inherit from a
+   * modified class forget their cached supertypes and inherited members, so that they see the new
+   * version.
+   *
+   * @throws IllegalArgumentException if the delta is inconsistent with this hierarchy
+   */
+  public void update(ClassHierarchyDelta delta) {
+    if (delta == null) {
+      throw new IllegalArgumentException("delta is null");
+    }
+    checkDelta(delta);
+
+    Set<TypeName> changed = delta.getChangedNames();
+    for (IClass klass : delta.getRemovedClasses()) {
+      Node node = map.remove(klass.getReference());
+      Node parent = findParentNode(node);
+      if (parent != null) {
+        parent.children.remove(node);
+      }
+      implementors.remove(node.klass);
+      for (Set<IClass> impls : implementors.values()) {
+        impls.remove(node.klass);
+      }
+      node.klass.getClassLoader().removeAll(Collections.singleton(node.klass));
+    }
+
+    Set<IClass> stale = HashSetFactory.make();
+    for (IClass klass : delta.getModifiedClasses()) {
+      Node old = map.get(klass.getReference());
+      old.klass.getClassLoader().removeAll(Collections.singleton(old.klass));
+      klass.getClassLoader().addAll(Collections.singleton(klass));
+      Node node = new Node(klass);
+      node.children.addAll(old.children);
+      Node parent = findParentNode(old);
+      if (parent != null) {
+        parent.children.remove(old);
+        parent.children.add(node);
+      }
+      if (root == old) {
+        root = node;
+      }
+      map.put(klass.getReference(), node);
+      // IClasses of the same name may be equal, so remove the old ones before adding the new
+      Set<IClass> impls = implementors.remove(old.klass);
+      if (impls != null) {
+        implementors.put(klass, impls);
+        stale.addAll(impls);
+      }
+      for (Set<IClass> s : implementors.values()) {
+        if (s.remove(old.klass)) {
+          s.add(klass);
+        }
+      }
+    }
+    for (IClass klass : delta.getModifiedClasses()) {
+      stale.addAll(computeSubClassesInternal(klass));
+    }
+    for (IClass klass : stale) {
+      if (klass instanceof BytecodeClass) {
+        ((BytecodeClass<?>) klass).clearSupertypeCaches();
+      }
+    }
+
+    for (IClass klass : delta.getAddedClasses()) {
+      klass.getClassLoader().addAll(Collections.singleton(klass));
+    }
+    for (IClass klass : delta.getAddedClasses()) {
+      unresolved.remove(klass.getReference());
+      if (!addClass(klass)) {
+        klass.getClassLoader().removeAll(Collections.singleton(klass));
+      }
+    }
+
+    for (IClass klass : stale) {
+      changed.add(klass.getName());
+    }
+    scope.getArrayClassLoader().removeArrayClassesOf(changed);
+    clearCaches();
+    subclassesOfError = null;
+    subTypeRefsOfError = null;
+    runtimeExceptionClasses = null;
+    runtimeExceptionTypeRefs = null;
+    nextNumber = 1;
+    numberTree();
+  }
+
+  private void checkDelta(ClassHierarchyDelta delta) {
+    for (IClass klass : delta.getAddedClasses()) {
+      if (map.containsKey(klass.getReference())) {
+        throw new IllegalArgumentException("class already in hierarchy: " + klass);
+      }
+    }
+    Set<IClass> removed = HashSetFactory.make();
+    for (IClass klass : delta.getRemovedClasses()) {
+      Node node = map.get(klass.getReference());
+      if (node == null || node == root) {
+        throw new IllegalArgumentException("cannot remove class " + klass);
+      }
+      removed.add(node.klass);
+    }
+    for (IClass klass : removed) {
+      for (IClass sub : computeSubClassesInternal(klass)) {
+        if (!removed.contains(sub)) {
+          throw new IllegalArgumentException("cannot remove " + klass + ": subclass " + sub);
+        }
+      }
+      Set<IClass> impls = implementors.get(klass);
+      if (impls != null && !removed.containsAll(impls)) {
+        throw new IllegalArgumentException("cannot remove " + klass + ": it has implementors");
+      }
+    }
+    for (IClass klass : delta.getModifiedClasses()) {
+      Node node = map.get(klass.getReference());
+      if (node == null) {
+        throw new IllegalArgumentException("class not in hierarchy: " + klass);
+      }
+      if (!supertypeNames(node.klass).equals(supertypeNames(klass))) {
+        throw new IllegalArgumentException("modified class changes its supertypes: " + klass);
+      }
+    }
+  }
+
+  /**
+   * @return the names of the superclass and of the direct interfaces of klass
+   */
+  private static Set<TypeName> supertypeNames(IClass klass) {
+    Set<TypeName> result = HashSetFactory.make();
+    IClass superclass = klass.getSuperclass();
+    if (superclass != null) {
+      result.add(superclass.getName());
+    }
+    for (IClass iface : klass.getDirectInterfaces()) {
+      result.add(iface.getName());
+    }
+    return result;
+  }
+
+  private Node findParentNode(Node node) {
+    for (Node n : map.values()) {
+      if (n.children.contains(node)) {
+        return n;
+      }
+    }
+    return null;
+  }
+
   /**
    * Find the possible targets of a call to a method reference. Note that if the reference is to an
    * instance initialization method, we assume the method was called with invokespecial rather than
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.cha;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A set of changes to apply to a {@link ClassHierarchy}: classes to add, classes to remove, and
+ * classes whose new version replaces the class of the same name.
+ *
+ * @see ClassHierarchy#update(ClassHierarchyDelta)
+ */
+public class ClassHierarchyDelta {
+
+  private final Collection<IClass> added;
+
+  private final Collection<IClass> removed;
+
+  private final Collection<IClass> modified;
+
+  /**
+   * @param added new classes, not yet in the hierarchy
+   * @param removed classes currently in the hierarchy
+   * @param modified new versions of classes currently in the hierarchy, which must have the same
+   *     superclass and interfaces as the classes they replace
+   */
+  public ClassHierarchyDelta(
+      Collection<IClass> added, Collection<IClass> removed, Collection<IClass> modified) {
+    if (added == null || removed == null || modified == null) {
+      throw new IllegalArgumentException("null collection of classes");
+    }
+    this.added = Collections.unmodifiableCollection(added);
+    this.removed = Collections.unmodifiableCollection(removed);
+    this.modified = Collections.unmodifiableCollection(modified);
+  }
+
+  public static ClassHierarchyDelta added(Collection<IClass> classes) {
+    return new ClassHierarchyDelta(classes, Collections.emptySet(), Collections.emptySet());
+  }
+
+  public static ClassHierarchyDelta removed(Collection<IClass> classes) {
+    return new ClassHierarchyDelta(Collections.emptySet(), classes, Collections.emptySet());
+  }
+
+  public static ClassHierarchyDelta modified(Collection<IClass> classes) {
+    return new ClassHierarchyDelta(Collections.emptySet(), Collections.emptySet(), classes);
+  }
+
+  public Collection<IClass> getAddedClasses() {
+    return added;
+  }
+
+  public Collection<IClass> getRemovedClasses() {
+    return removed;
+  }
+
+  public Collection<IClass> getModifiedClasses() {
+    return modified;
+  }
+
+  /**
+   * @return the names of all classes added, removed or modified by this delta
+   */
+  public Set<TypeName> getChangedNames() {
+    Set<TypeName> result = HashSetFactory.make();
+    for (IClass c : added) {
+      result.add(c.getName());
+    }
+    for (IClass c : removed) {
+      result.add(c.getName());
+    }
+    for (IClass c : modified) {
+      result.add(c.getName());
+    }
+    return result;
+  }
+
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && modified.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "added: " + added + ", removed: " + removed + ", modified: " + modified;
+  }
+}
@@ -10,11 +10,14 @@
  */
 package com.ibm.wala.ipa.cha;
 
+import com.ibm.wala.classLoader.ClassHierarchySnapshot;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
 import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
 import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import java.io.File;
+import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -30,6 +33,53 @@ public class ClassHierarchyFactory {
     return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
   }
 
+  /**
+   * Like {@link #make(AnalysisScope)}, but each class loader parses the class files of its modules
+   * on {@code parallelism} threads. The resulting class hierarchy is the same.
+   *
+   * @return a ClassHierarchy object representing the analysis scope
+   */
+  public static ClassHierarchy makeParallel(AnalysisScope scope, int parallelism)
+      throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions(), parallelism));
+  }
+
+  /**
+   * Like {@link #make(AnalysisScope)}, but create the classes of jar files that have not changed
+   * since snapshotFile was written from the headers recorded there instead of parsing them. If some
+   * jar file is new or has changed, snapshotFile is rewritten afterwards. A missing or unreadable
+   * snapshot is treated as empty.
+   *
+   * @return a ClassHierarchy object representing the analysis scope
+   * @throws IOException if the snapshot needs to be rewritten and cannot be
+   */
+  public static ClassHierarchy makeWithSnapshot(AnalysisScope scope, File snapshotFile)
+      throws ClassHierarchyException, IOException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (snapshotFile == null) {
+      throw new IllegalArgumentException("null snapshotFile");
+    }
+    ClassHierarchySnapshot snapshot = ClassHierarchySnapshot.empty();
+    if (snapshotFile.exists()) {
+      try {
+        snapshot = ClassHierarchySnapshot.load(snapshotFile);
+      } catch (IOException e) {
+        // start over
+      }
+    }
+    ClassHierarchy cha =
+        make(scope, new ClassLoaderFactoryImpl(scope.getExclusions(), 1, snapshot));
+    if (snapshot.isStale()) {
+      snapshot.write(cha, snapshotFile);
+    }
+    return cha;
+  }
+
   /**
    * NOTE: phantom classes are a work-in-progress and this functionality has <a
    * href="https://github.com/wala/WALA/pull/335">known bugs</a>. At this point, we recommend using
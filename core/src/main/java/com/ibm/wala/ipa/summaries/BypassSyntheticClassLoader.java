@@ -173,6 +173,19 @@ public class BypassSyntheticClassLoader implements IClassLoader {
     ;
   }
 
+  @Override
+  public void addAll(Collection<IClass> toAdd) {
+    if (toAdd == null) {
+      throw new IllegalArgumentException("toAdd is null");
+    }
+    for (IClass c : toAdd) {
+      if (c.getClassLoader() != this) {
+        throw new IllegalArgumentException(c + " is not defined by " + this);
+      }
+      syntheticClasses.put(c.getName(), c);
+    }
+  }
+
   @Override
   public Reader getSource(IClass klass) {
     return null;
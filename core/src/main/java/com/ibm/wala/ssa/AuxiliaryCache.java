@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
 
 /**
  * A cache for auxiliary information based on an SSA representation
@@ -45,6 +46,13 @@ public class AuxiliaryCache implements IAuxiliaryCache {
   /** number of items cached here. */
   private int nItems = 0;
 
+  private long hits = 0;
+
+  private long misses = 0;
+
+  /** number of items found to be collected by the garbage collector */
+  private long evictions = 0;
+
   @Override
   public synchronized void wipe() {
     dictionary = HashMapFactory.make();
@@ -65,6 +73,7 @@ public class AuxiliaryCache implements IAuxiliaryCache {
         Object val = e2.getValue();
         if (CacheReference.get(val) == null) {
           toRemove.add(key);
+          evictions++;
         }
       }
       for (Object object : toRemove) {
@@ -82,11 +91,45 @@ public class AuxiliaryCache implements IAuxiliaryCache {
     Pair<IMethod, Context> p = Pair.make(m, c);
     Map<SSAOptions, Object> methodMap = MapUtil.findOrCreateMap(dictionary, p);
     Object ref = methodMap.get(options);
-    if (ref == null || CacheReference.get(ref) == null) {
-      return null;
+    Object result = CacheReference.get(ref);
+    if (result == null) {
+      misses++;
     } else {
-      return CacheReference.get(ref);
+      hits++;
+    }
+    return result;
+  }
+
+  /** This cache computes the object while holding its lock, so callers are serialized. */
+  @Override
+  public synchronized Object findOrCreate(
+      IMethod m, Context c, SSAOptions options, Supplier<Object> creator) {
+    Object result = find(m, c, options);
+    if (result == null) {
+      result = creator.get();
+      cache(m, c, options, result);
+    }
+    return result;
+  }
+
+  /** This cache computes the object outside its lock, then keeps the first one cached. */
+  @Override
+  public Object findOrCreateConcurrently(
+      IMethod m, Context c, SSAOptions options, Supplier<Object> creator) {
+    Object result = find(m, c, options);
+    if (result != null) {
+      return result;
+    }
+    Object created = creator.get();
+    synchronized (this) {
+      Map<SSAOptions, Object> methodMap = dictionary.get(Pair.make(m, c));
+      result = methodMap == null ? null : CacheReference.get(methodMap.get(options));
+      if (result == null) {
+        cache(m, c, options, created);
+        result = created;
+      }
     }
+    return result;
   }
 
   @Override
@@ -104,7 +147,12 @@ public class AuxiliaryCache implements IAuxiliaryCache {
   }
 
   @Override
-  public void invalidate(IMethod method, Context c) {
+  public synchronized void invalidate(IMethod method, Context c) {
     dictionary.remove(Pair.make(method, c));
   }
+
+  @Override
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(hits, misses, evictions);
+  }
 }
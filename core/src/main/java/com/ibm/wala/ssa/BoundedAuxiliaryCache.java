@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread-safe cache for auxiliary information based on an SSA representation, holding strong
+ * references to at most a fixed total weight of objects.
+ *
+ * <p>Unlike {@link AuxiliaryCache}, this cache never blocks callers on a global lock: lookups go to
+ * a {@link ConcurrentHashMap}, and {@link #findOrCreate(IMethod, Context, SSAOptions, Supplier)}
+ * computes the object for a key at most once, while other threads asking for the same key wait
+ * for it and threads asking for other keys proceed.
+ *
+ * <p>When the total weight exceeds the bound, the least recently used objects are evicted in a
+ * batch, down to a little below the bound, so that the cost of finding them is amortized over many
+ * insertions.
+ */
+public class BoundedAuxiliaryCache implements IAuxiliaryCache {
+
+  /** weigh each object as 1, so that the bound is on the number of objects */
+  public static final ToIntFunction<Object> UNIT_WEIGHER = o -> 1;
+
+  /** weigh {@link IR}s and {@link DefUse}s by the number of instructions of their method */
+  public static final ToIntFunction<Object> INSTRUCTION_WEIGHER =
+      o -> {
+        if (o instanceof IR) {
+          return Math.max(1, ((IR) o).getInstructions().length);
+        } else if (o instanceof DefUse) {
+          return Math.max(1, ((DefUse) o).allInstructions.size());
+        } else {
+          return 1;
+        }
+      };
+
+  /** the result of a computation that threw an exception */
+  private static final Object FAILED = new Object();
+
+  private final ConcurrentHashMap<Key, Node> map = new ConcurrentHashMap<>();
+
+  private final long maximumWeight;
+
+  private final ToIntFunction<Object> weigher;
+
+  /** total weight of the completed objects in map */
+  private final AtomicLong totalWeight = new AtomicLong();
+
+  /** logical clock used to order accesses */
+  private final AtomicLong clock = new AtomicLong();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maximumSize the maximum number of objects to keep
+   */
+  public BoundedAuxiliaryCache(int maximumSize) {
+    this(maximumSize, UNIT_WEIGHER);
+  }
+
+  /**
+   * @param maximumWeight the maximum total weight of the objects to keep
+   * @param weigher computes the (non-negative) weight of an object
+   */
+  public BoundedAuxiliaryCache(long maximumWeight, ToIntFunction<Object> weigher) {
+    if (maximumWeight < 1) {
+      throw new IllegalArgumentException("maximumWeight must be positive: " + maximumWeight);
+    }
+    if (weigher == null) {
+      throw new IllegalArgumentException("null weigher");
+    }
+    this.maximumWeight = maximumWeight;
+    this.weigher = weigher;
+  }
+
+  @Override
+  public void wipe() {
+    for (Node n : map.values()) {
+      remove(n);
+    }
+  }
+
+  @Override
+  public Object find(IMethod m, Context c, SSAOptions options) {
+    Node n = map.get(new Key(m, c, options));
+    if (n != null) {
+      Object result = n.await();
+      if (result != FAILED && result != null) {
+        hits.increment();
+        n.lastAccess = clock.incrementAndGet();
+        return result;
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  @Override
+  public void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    Key k = new Key(m, c, options);
+    Node n = new Node(k);
+    Node old = map.put(k, n);
+    if (old != null) {
+      old.removed();
+    }
+    complete(n, aux);
+  }
+
+  @Override
+  public Object findOrCreate(IMethod m, Context c, SSAOptions options, Supplier<Object> creator) {
+    Key k = new Key(m, c, options);
+    while (true) {
+      Node n = map.get(k);
+      if (n == null) {
+        Node fresh = new Node(k);
+        n = map.putIfAbsent(k, fresh);
+        if (n == null) {
+          misses.increment();
+          Object result;
+          try {
+            result = creator.get();
+          } catch (RuntimeException | Error e) {
+            remove(fresh);
+            fresh.complete(FAILED, 0);
+            throw e;
+          }
+          complete(fresh, result);
+          return result;
+        }
+      }
+      Object result = n.await();
+      if (result != FAILED) {
+        hits.increment();
+        n.lastAccess = clock.incrementAndGet();
+        return result;
+      }
+      // the thread computing the object failed; try again
+    }
+  }
+
+  @Override
+  public void invalidate(IMethod method, Context c) {
+    for (Node n : map.values()) {
+      if (n.key.m.equals(method) && n.key.c.equals(c)) {
+        remove(n);
+      }
+    }
+  }
+
+  @Override
+  public CacheStatistics getStatistics() {
+    return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  /**
+   * @return the number of objects currently cached
+   */
+  public int size() {
+    return map.size();
+  }
+
+  /** publish the object computed for n, and make room for it */
+  private void complete(Node n, Object value) {
+    if (value == null) {
+      // nothing worth caching
+      remove(n);
+    }
+    n.lastAccess = clock.incrementAndGet();
+    n.complete(value, value == null ? 0 : weigher.applyAsInt(value));
+    if (totalWeight.get() > maximumWeight) {
+      evict();
+    }
+  }
+
+  private void remove(Node n) {
+    if (map.remove(n.key, n)) {
+      n.removed();
+    }
+  }
+
+  /** evict the least recently used objects until the total weight is a little below the bound */
+  private void evict() {
+    if (!evictionLock.tryLock()) {
+      // some other thread is evicting already
+      return;
+    }
+    try {
+      long target = maximumWeight - maximumWeight / 16;
+      if (totalWeight.get() <= maximumWeight) {
+        return;
+      }
+      // order by a snapshot of the access times, since they keep changing while we sort
+      List<Map.Entry<Long, Node>> candidates = new ArrayList<>(map.size());
+      for (Node n : map.values()) {
+        if (n.isDone()) {
+          candidates.add(new AbstractMap.SimpleImmutableEntry<>(n.lastAccess, n));
+        }
+      }
+      candidates.sort(Map.Entry.comparingByKey());
+      for (Map.Entry<Long, Node> e : candidates) {
+        if (totalWeight.get() <= target) {
+          break;
+        }
+        Node n = e.getValue();
+        if (map.remove(n.key, n)) {
+          n.removed();
+          evictions.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private static final class Key {
+    private final IMethod m;
+
+    private final Context c;
+
+    private final SSAOptions options;
+
+    private final int hashCode;
+
+    Key(IMethod m, Context c, SSAOptions options) {
+      this.m = m;
+      this.c = c;
+      this.options = options;
+      this.hashCode = 31 * (31 * m.hashCode() + c.hashCode()) + options.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return m.equals(other.m) && c.equals(other.c) && options.equals(other.options);
+    }
+  }
+
+  /**
+   * A cached object, or a placeholder for one that is being computed. The weight of a node counts
+   * towards the total from the time it is completed until it is removed from the map, whichever
+   * order the two happen in.
+   */
+  private final class Node {
+    final Key key;
+
+    volatile long lastAccess;
+
+    private boolean done = false;
+
+    private boolean removed = false;
+
+    private Object value;
+
+    private int weight;
+
+    Node(Key key) {
+      this.key = key;
+    }
+
+    synchronized boolean isDone() {
+      return done;
+    }
+
+    synchronized void complete(Object value, int weight) {
+      this.value = value;
+      this.weight = weight;
+      this.done = true;
+      if (!removed) {
+        totalWeight.addAndGet(weight);
+      }
+      notifyAll();
+    }
+
+    synchronized void removed() {
+      if (!removed) {
+        removed = true;
+        if (done) {
+          totalWeight.addAndGet(-weight);
+        }
+      }
+    }
+
+    synchronized Object await() {
+      boolean interrupted = false;
+      while (!done) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+/** A snapshot of the hit, miss and eviction counts of an auxiliary cache. */
+public final class CacheStatistics {
+
+  private final long hits;
+
+  private final long misses;
+
+  private final long evictions;
+
+  public CacheStatistics(long hits, long misses, long evictions) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+  }
+
+  /**
+   * @return the number of lookups that found a cached object
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups that had to create, or failed to find, an object
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of cached objects dropped to bound the cache, or reclaimed by the garbage
+   *     collector
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the fraction of lookups that were hits, or 1 if there were no lookups
+   */
+  public double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 1.0 : (double) hits / lookups;
+  }
+
+  @Override
+  public String toString() {
+    return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions;
+  }
+}
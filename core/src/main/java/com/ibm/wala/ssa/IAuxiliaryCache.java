@@ -12,6 +12,7 @@ package com.ibm.wala.ssa;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
+import java.util.function.Supplier;
 
 interface IAuxiliaryCache {
 
@@ -33,6 +34,33 @@ interface IAuxiliaryCache {
    */
   void cache(IMethod m, Context c, SSAOptions options, Object aux);
 
+  /**
+   * Find the object cached for an &lt;m,options&gt; pair, or create and cache one if none is found.
+   * Implementations call creator at most once per pair at a time, so concurrent callers get the
+   * same object.
+   *
+   * @param m a method
+   * @param options options governing ssa construction
+   * @param creator computes the object if it is not cached
+   */
+  Object findOrCreate(IMethod m, Context c, SSAOptions options, Supplier<Object> creator);
+
+  /**
+   * Like {@link #findOrCreate(IMethod, Context, SSAOptions, Supplier)}, but never holds a lock
+   * shared by all pairs while creator runs, so that several threads may create objects for
+   * different pairs at once. A cache that would otherwise compute under such a lock may instead
+   * call creator more than once for a pair; all callers still get the same object.
+   */
+  default Object findOrCreateConcurrently(
+      IMethod m, Context c, SSAOptions options, Supplier<Object> creator) {
+    return findOrCreate(m, c, options, creator);
+  }
+
   /** invalidate all cached information about a method */
   void invalidate(IMethod method, Context c);
+
+  /**
+   * @return the hit, miss and eviction counts of this cache so far
+   */
+  CacheStatistics getStatistics();
 }
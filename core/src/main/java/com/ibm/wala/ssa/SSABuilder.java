@@ -19,6 +19,7 @@ import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IBytecodeMethod;
 import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.core.util.perf.IRBuildEvent;
 import com.ibm.wala.core.util.shrike.ShrikeUtil;
 import com.ibm.wala.shrike.shrikeBT.ArrayLengthInstruction;
 import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
@@ -89,6 +90,9 @@ public class SSABuilder extends AbstractIntStackMachine {
   /** A wrapper around the method being analyzed. */
   private final IBytecodeMethod<?> method;
 
+  /** The control-flow graph of the bytecode */
+  private final ShrikeCFG shrikeCFG;
+
   /** Governing symbol table */
   private final SymbolTable symbolTable;
 
@@ -120,6 +124,7 @@ public class SSABuilder extends AbstractIntStackMachine {
         new SymbolTableMeeter(symbolTable, cfg, scfg),
         new SymbolicPropagator(scfg, instructions, symbolTable, localMap, cfg, piNodePolicy));
     this.method = method;
+    this.shrikeCFG = scfg;
     this.symbolTable = symbolTable;
     this.insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
     this.bytecodeIndirections = method.getIndirectionData();
@@ -993,10 +998,18 @@ public class SSABuilder extends AbstractIntStackMachine {
 
   /** Build the IR */
   public void build() {
+    IRBuildEvent event = new IRBuildEvent();
+    event.begin();
     solve();
     if (localMap != null) {
       localMap.finishLocalMap(this);
     }
+    if (event.shouldCommit()) {
+      event.method = method.getSignature();
+      event.bytecodeInstructions = shrikeCFG.getInstructions().length;
+      event.basicBlocks = shrikeCFG.getNumberOfNodes();
+      event.commit();
+    }
   }
 
   public SSA2LocalMap getLocalMap() {
@@ -19,6 +19,10 @@ import com.ibm.wala.ipa.callgraph.impl.Everywhere;
  *
  * <p>This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp
  * it.
+ *
+ * <p>This class does no locking of its own; it is as thread-safe as the {@link IAuxiliaryCache}s
+ * it is built with. With a {@link BoundedAuxiliaryCache}, IRs of different methods can be built
+ * concurrently, and each IR is still built only once.
  */
 public class SSACache {
 
@@ -49,7 +53,7 @@ public class SSACache {
    * @return an IR for m, built according to the specified options. null if m is abstract or native.
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -66,12 +70,8 @@ public class SSACache {
       return factory.makeIR(m, c, options);
     }
 
-    IR ir = (IR) irCache.find(m, c, options);
-    if (ir == null) {
-      ir = factory.makeIR(m, c, options);
-      irCache.cache(m, c, options, ir);
-    }
-    return ir;
+    final Context context = c;
+    return (IR) irCache.findOrCreate(m, c, options, () -> factory.makeIR(m, context, options));
   }
 
   /**
@@ -80,7 +80,7 @@ public class SSACache {
    * @return DefUse information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+  public DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
     if (m == null) {
       throw new IllegalArgumentException("m is null");
     }
@@ -91,13 +91,10 @@ public class SSACache {
       c = Everywhere.EVERYWHERE;
     }
 
-    DefUse du = (DefUse) duCache.find(m, c, options);
-    if (du == null) {
-      IR ir = findOrCreateIR(m, c, options);
-      du = new DefUse(ir);
-      duCache.cache(m, c, options, du);
-    }
-    return du;
+    final Context context = c;
+    return (DefUse)
+        duCache.findOrCreate(
+            m, c, options, () -> new DefUse(findOrCreateIR(m, context, options)));
   }
 
   /**
@@ -105,16 +102,40 @@ public class SSACache {
    *     unavailable
    * @throws IllegalArgumentException if ir is null
    */
-  public synchronized DefUse findOrCreateDU(IR ir, Context C) {
+  public DefUse findOrCreateDU(IR ir, Context C) {
     if (ir == null) {
       throw new IllegalArgumentException("ir is null");
     }
-    DefUse du = (DefUse) duCache.find(ir.getMethod(), C, ir.getOptions());
-    if (du == null) {
-      du = new DefUse(ir);
-      duCache.cache(ir.getMethod(), C, ir.getOptions(), du);
+    return (DefUse) duCache.findOrCreate(ir.getMethod(), C, ir.getOptions(), () -> new DefUse(ir));
+  }
+
+  /**
+   * Build and cache the IR and {@link DefUse} of m, unless they are cached already, so that later
+   * calls to {@link #findOrCreateIR} and {@link #findOrCreateDU} find them. Unlike those, this
+   * never builds while holding a lock shared by all methods, so several threads may prebuild into
+   * either kind of cache at once. Only methods whose IR does not depend on the context are
+   * prebuilt.
+   *
+   * @param m a method
+   * @param options options governing ssa construction
+   * @return true iff m now has a cached IR
+   * @throws IllegalArgumentException if m is null
+   */
+  public boolean prebuild(IMethod m, SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative() || !factory.contextIsIrrelevant(m)) {
+      return false;
+    }
+    Context c = Everywhere.EVERYWHERE;
+    IR ir =
+        (IR) irCache.findOrCreateConcurrently(m, c, options, () -> factory.makeIR(m, c, options));
+    if (ir == null) {
+      return false;
     }
-    return du;
+    duCache.findOrCreateConcurrently(m, c, options, () -> new DefUse(ir));
+    return true;
   }
 
   /** The existence of this is unfortunate. */
@@ -138,4 +159,18 @@ public class SSACache {
     invalidateIR(method, c);
     invalidateDU(method, c);
   }
+
+  /**
+   * @return hit, miss and eviction counts of the IR cache
+   */
+  public CacheStatistics getIRStatistics() {
+    return irCache.getStatistics();
+  }
+
+  /**
+   * @return hit, miss and eviction counts of the {@link DefUse} cache
+   */
+  public CacheStatistics getDUStatistics() {
+    return duCache.getStatistics();
+  }
 }
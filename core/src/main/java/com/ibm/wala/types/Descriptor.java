@@ -14,8 +14,8 @@ import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.core.util.strings.StringStuff;
 import com.ibm.wala.core.util.strings.UTF8Convert;
-import com.ibm.wala.util.collections.HashMapFactory;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A method descriptor; something like: (Ljava/langString;)Ljava/lang/Class;
@@ -25,7 +25,7 @@ import java.util.Map;
 public final class Descriptor {
 
   /** A mapping from Key -&gt; Descriptor */
-  private static final Map<Key, Descriptor> map = HashMapFactory.make();
+  private static final Map<Key, Descriptor> map = new ConcurrentHashMap<>();
 
   /** key holds the logical value of this descriptor */
   private final Key key;
@@ -45,8 +45,7 @@ public final class Descriptor {
     Key k = new Key(returnType, parameters);
     Descriptor result = map.get(k);
     if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
+      result = map.computeIfAbsent(k, Descriptor::new);
     }
     return result;
   }
@@ -62,8 +61,7 @@ public final class Descriptor {
     Key k = new Key(returnType, parameters);
     Descriptor result = map.get(k);
     if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
+      result = map.computeIfAbsent(k, Descriptor::new);
     }
     return result;
   }
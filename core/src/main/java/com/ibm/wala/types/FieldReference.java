@@ -12,17 +12,17 @@ package com.ibm.wala.types;
 
 import com.ibm.wala.core.util.shrike.ShrikeUtil;
 import com.ibm.wala.core.util.strings.Atom;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** A class to represent the reference in a class file to a field. */
 public final class FieldReference extends MemberReference {
   private static final boolean DEBUG = false;
 
   /** Used to canonicalize MemberReferences a mapping from Key -&gt; MemberReference */
-  private static final HashMap<Key, FieldReference> dictionary = HashMapFactory.make();
+  private static final ConcurrentHashMap<Key, FieldReference> dictionary =
+      new ConcurrentHashMap<>();
 
   private final TypeReference fieldType;
 
@@ -36,7 +36,7 @@ public final class FieldReference extends MemberReference {
    *
    * @param mn the name of the member
    */
-  public static synchronized FieldReference findOrCreate(
+  public static FieldReference findOrCreate(
       TypeReference tref, Atom mn, TypeReference fieldType) {
     if (tref == null) {
       throw new IllegalArgumentException("null tref");
@@ -48,10 +48,7 @@ public final class FieldReference extends MemberReference {
       return val;
     }
 
-    val = new FieldReference(key, fieldType);
-
-    dictionary.put(key, val);
-    return val;
+    return dictionary.computeIfAbsent(key, k -> new FieldReference(k, fieldType));
   }
 
   /** Find or create the canonical MemberReference instance for the given tuple. */
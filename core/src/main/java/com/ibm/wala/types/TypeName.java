@@ -13,11 +13,11 @@ package com.ibm.wala.types;
 import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.core.util.strings.StringStuff;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.Serializable;
 import java.io.UTFDataFormatException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * We've introduced this class to canonicalize Atoms that represent package names.
@@ -38,13 +38,12 @@ public final class TypeName implements Serializable {
   private static final long serialVersionUID = -3256390509887654326L;
 
   /** canonical mapping from TypeNameKey -&gt; TypeName */
-  private static final Map<TypeNameKey, TypeName> map = HashMapFactory.make();
+  private static final Map<TypeNameKey, TypeName> map = new ConcurrentHashMap<>();
 
-  private static synchronized TypeName findOrCreate(TypeNameKey t) {
+  private static TypeName findOrCreate(TypeNameKey t) {
     TypeName result = map.get(t);
     if (result == null) {
-      result = new TypeName(t);
-      map.put(t, result);
+      result = map.computeIfAbsent(t, TypeName::new);
     }
     return result;
   }
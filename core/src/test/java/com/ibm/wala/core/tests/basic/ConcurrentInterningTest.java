@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+
+package com.ibm.wala.core.tests.basic;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/** Check that the interning factories hand out canonical objects when called concurrently. */
+public class ConcurrentInterningTest {
+
+  private static final int THREADS = 8;
+
+  private static final int NAMES = 2000;
+
+  /** the canonical objects created by one thread for names 0 .. NAMES-1 */
+  private static Object[][] intern(String prefix) {
+    Object[][] result = new Object[NAMES][];
+    for (int i = 0; i < NAMES; i++) {
+      String cls = "L" + prefix + "/C" + i;
+      Atom name = Atom.findOrCreateUnicodeAtom("m" + i);
+      TypeName tn = TypeName.string2TypeName(cls);
+      TypeReference tr = TypeReference.findOrCreate(ClassLoaderReference.Application, tn);
+      Descriptor d = Descriptor.findOrCreateUTF8("(" + cls + ";)V");
+      MethodReference mr = MethodReference.findOrCreate(tr, name, d);
+      FieldReference fr = FieldReference.findOrCreate(tr, name, tr);
+      result[i] = new Object[] {name, tn, tr, d, mr, fr};
+    }
+    return result;
+  }
+
+  @Test
+  public void testConcurrentFindOrCreate() throws InterruptedException, ExecutionException {
+    String prefix = "concurrentInterning" + System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Object[][]>> results = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        results.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return intern(prefix);
+                }));
+      }
+      start.countDown();
+      Object[][] expected = results.get(0).get();
+      for (Future<Object[][]> f : results) {
+        Object[][] actual = f.get();
+        for (int i = 0; i < NAMES; i++) {
+          for (int j = 0; j < expected[i].length; j++) {
+            assertSame(expected[i][j], actual[i][j]);
+          }
+        }
+      }
+      // and a sequential lookup afterwards finds the same objects
+      Object[][] after = intern(prefix);
+      for (int i = 0; i < NAMES; i++) {
+        for (int j = 0; j < expected[i].length; j++) {
+          assertSame(expected[i][j], after[i][j]);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
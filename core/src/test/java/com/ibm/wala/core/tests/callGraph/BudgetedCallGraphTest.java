@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBudget;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.BudgetedContextSelector;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/** Check that call graph construction downgrades context sensitivity to stay within a budget. */
+public class BudgetedCallGraphTest extends WalaTestCase {
+
+  private static final String MAIN = "Ldemandpa/TestHashSet";
+
+  public static void main(String[] args) {
+    justThisTest(BudgetedCallGraphTest.class);
+  }
+
+  @Test
+  public void testDowngradeNCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = makeClassHierarchy();
+    SSAPropagationCallGraphBuilder full = makeNCFABuilder(cha, null);
+    assertFalse(full.getContextSelector() instanceof BudgetedContextSelector);
+    CallGraph expected = full.makeCallGraph(full.getOptions(), null);
+    int statements = full.getPropagationSystem().getNumberOfStatements();
+
+    // less than the full analysis needs, so it only finishes if downgrading shrinks the graph
+    CallGraphBudget budget = new CallGraphBudget(-1, -1, statements - 1);
+    budget.setSoftLimit(0.05);
+    SSAPropagationCallGraphBuilder budgeted = makeNCFABuilder(cha, budget);
+    CallGraph cg = budgeted.makeCallGraph(budgeted.getOptions(), null);
+
+    BudgetedContextSelector selector = (BudgetedContextSelector) budgeted.getContextSelector();
+    assertFalse(selector.getDowngradedMethods().isEmpty());
+    assertTrue(budgeted.getPropagationSystem().getNumberOfStatements() < statements);
+    assertTrue(cg.getNumberOfNodes() < expected.getNumberOfNodes());
+    // a sound result has every call of the full result, at the level of methods
+    assertTrue(methodEdges(cg).containsAll(methodEdges(expected)));
+  }
+
+  @Test
+  public void testExceeded() throws ClassHierarchyException, IllegalArgumentException, IOException {
+    IClassHierarchy cha = makeClassHierarchy();
+    SSAPropagationCallGraphBuilder builder = makeNCFABuilder(cha, new CallGraphBudget(-1, -1, 50));
+    assertThrows(
+        CallGraphBuilderCancelException.class,
+        () -> builder.makeCallGraph(builder.getOptions(), null));
+    // the build stops at the statement that exceeds the limit
+    assertEquals(51, builder.getPropagationSystem().getNumberOfStatements());
+  }
+
+  private static IClassHierarchy makeClassHierarchy() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    return ClassHierarchyFactory.make(scope);
+  }
+
+  private static SSAPropagationCallGraphBuilder makeNCFABuilder(
+      IClassHierarchy cha, CallGraphBudget budget) {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(cha.getScope(), entrypoints);
+    options.setBudget(budget);
+    return Util.makeNCFABuilder(2, options, new AnalysisCacheImpl(), cha);
+  }
+
+  private static Set<String> methodEdges(CallGraph cg) {
+    Set<String> result = new TreeSet<>();
+    for (CGNode n : cg) {
+      for (CGNode s : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+        result.add(n.getMethod().getSignature() + " -> " + s.getMethod().getSignature());
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.CompactMutableIntSet;
+import com.ibm.wala.util.intset.CompactMutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.RoaringMutableIntSet;
+import com.ibm.wala.util.intset.RoaringMutableIntSetFactory;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that a pointer analysis with compact or compressed bitmap points-to sets agrees with the
+ * default one.
+ */
+public class CompactPointsToSetTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(CompactPointsToSetTest.class);
+  }
+
+  @Test
+  public void testJLexZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstDefault(new CompactMutableIntSetFactory(), CompactMutableIntSet.class);
+  }
+
+  @Test
+  public void testJLexZeroOneCFARoaring()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstDefault(new RoaringMutableIntSetFactory(), RoaringMutableIntSet.class);
+  }
+
+  private static void checkAgainstDefault(
+      MutableIntSetFactory<?> factory, Class<? extends MutableIntSet> setClass)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder cb =
+        CallGraphComparison.checkZeroOneCFA(
+            TestConstants.JLEX,
+            CallGraphTestUtil.REGRESSION_EXCLUSIONS,
+            TestConstants.JLEX_MAIN,
+            options -> options.setPointsToSetFactory(factory));
+
+    PropagationSystem system = cb.getPropagationSystem();
+    for (PointerKey k : cb.getPointerAnalysis().getPointerKeys()) {
+      if (!system.isImplicit(k)) {
+        PointsToSetVariable v = system.findOrCreatePointsToSet(k);
+        if (v.getValue() != null) {
+          assertInstanceOf(setClass, v.getValue());
+        }
+      }
+    }
+  }
+}
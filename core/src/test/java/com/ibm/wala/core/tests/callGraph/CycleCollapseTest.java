@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/** Check that collapsing cycles of assignments while solving keeps the pointer analysis result. */
+public class CycleCollapseTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(CycleCollapseTest.class);
+  }
+
+  @Test
+  public void testZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstSequential("Lslice/TestRecursion", CallGraphTestUtil.REGRESSION_EXCLUSIONS, 1);
+  }
+
+  @Test
+  public void testZeroOneCFAParallel()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstSequential("Lslice/TestRecursion", CallGraphTestUtil.REGRESSION_EXCLUSIONS, 4);
+  }
+
+  /**
+   * A program whose library code has enough cycles to be collapsed while other threads evaluate
+   * them; most of the library is excluded to keep it small.
+   */
+  @Test
+  public void testZeroOneCFAParallelLibrary()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstSequential("Ldemandpa/TestException", "CycleCollapseTestExclusions.txt", 4);
+  }
+
+  /**
+   * Compare the result of solving with online cycle detection on the given number of threads with
+   * that of the default sequential solver.
+   */
+  private static void checkAgainstSequential(String main, String exclusions, int parallelism)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder ob =
+        CallGraphComparison.checkZeroOneCFA(
+            TestConstants.WALA_TESTDATA,
+            exclusions,
+            main,
+            options -> {
+              options.setSolverParallelism(parallelism);
+              options.setOnlineCycleDetection(true);
+            });
+
+    PropagationSystem system = ob.getPropagationSystem();
+    assertTrue(system.getNumberOfCollapsedCycles() > 0);
+    assertTrue(system.getNumberOfCollapsedVariables() >= system.getNumberOfCollapsedCycles());
+  }
+}
@@ -15,6 +15,7 @@ import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
+import com.ibm.wala.util.intset.CompactMutableIntSetFactory;
 import com.ibm.wala.util.intset.DebuggingMutableIntSetFactory;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
@@ -79,4 +80,10 @@ public class DebuggingBitsetCallGraphTest extends WalaTestCase {
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
     runBitsetTest(new SemiSparseMutableIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
   }
+
+  @Test
+  public void testCompactShared()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    runBitsetTest(new CompactMutableIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
+  }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/** Check that propagating just the differences of points-to sets keeps the analysis result. */
+public class DifferencePropagationTest extends WalaTestCase {
+
+  private static final String MAIN = "Ldemandpa/TestHashSet";
+
+  public static void main(String[] args) {
+    justThisTest(DifferencePropagationTest.class);
+  }
+
+  @Test
+  public void testZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstDefault(1, false);
+  }
+
+  @Test
+  public void testZeroOneCFAParallel()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstDefault(4, false);
+  }
+
+  @Test
+  public void testZeroOneCFAWithCycleDetection()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstDefault(1, true);
+  }
+
+  private static void checkAgainstDefault(int parallelism, boolean detectCycles)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder xb =
+        CallGraphComparison.checkZeroOneCFA(
+            TestConstants.WALA_TESTDATA,
+            CallGraphTestUtil.REGRESSION_EXCLUSIONS,
+            MAIN,
+            options -> options.setSolverParallelism(parallelism),
+            options -> {
+              options.setSolverParallelism(parallelism);
+              options.setOnlineCycleDetection(detectCycles);
+              options.setDifferencePropagation(true);
+            });
+    assertTrue(xb.getPropagationSystem().getNumberOfDifferenceEvaluations() > 0);
+  }
+}
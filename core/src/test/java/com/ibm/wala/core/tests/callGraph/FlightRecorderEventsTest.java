@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Check that the analysis phases emit Java Flight Recorder events. */
+public class FlightRecorderEventsTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(FlightRecorderEventsTest.class);
+  }
+
+  @Test
+  public void testEvents(@TempDir File tmpDir)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    Path dump = new File(tmpDir, "wala.jfr").toPath();
+    IClassHierarchy cha;
+    try (Recording recording = new Recording()) {
+      for (String name :
+          new String[] {"ClassHierarchy", "IRBuild", "FixedPointSolve", "PeriodicMaintenance"}) {
+        recording.enable("com.ibm.wala." + name).withoutThreshold();
+      }
+      recording.start();
+      AnalysisScope scope =
+          CallGraphTestUtil.makeJ2SEAnalysisScope(
+              TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+      cha = ClassHierarchyFactory.make(scope);
+      Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.RECURSE_MAIN);
+      AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      CallGraphTestUtil.buildZeroCFA(options, new AnalysisCacheImpl(), cha, false);
+      recording.stop();
+      recording.dump(dump);
+    }
+
+    Map<String, Integer> counts = new TreeMap<>();
+    RecordedEvent hierarchy = null;
+    List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+    for (RecordedEvent e : events) {
+      String name = e.getEventType().getName();
+      counts.merge(name, 1, Integer::sum);
+      if (name.equals("com.ibm.wala.ClassHierarchy")) {
+        hierarchy = e;
+      } else if (name.equals("com.ibm.wala.IRBuild")) {
+        assertNotNull(e.getString("method"));
+        assertTrue(e.getInt("bytecodeInstructions") > 0);
+      }
+    }
+    assertNotNull(hierarchy, counts.toString());
+    assertEquals(cha.getNumberOfClasses(), hierarchy.getInt("classes"));
+    assertTrue(counts.getOrDefault("com.ibm.wala.IRBuild", 0) > 0, counts.toString());
+    assertTrue(counts.getOrDefault("com.ibm.wala.FixedPointSolve", 0) > 0, counts.toString());
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.CompactMutableIntSet;
+import com.ibm.wala.util.intset.IntSetInterner;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Check that sharing equal points-to sets keeps the results of a pointer analysis. */
+public class HashConsedPointsToSetTest extends WalaTestCase {
+
+  private static final String MAIN = "Ldemandpa/TestHashSet";
+
+  public static void main(String[] args) {
+    justThisTest(HashConsedPointsToSetTest.class);
+  }
+
+  @Test
+  public void testInterner() {
+    IntSetInterner interner = new IntSetInterner();
+    MutableIntSet a = MutableSparseIntSet.makeEmpty();
+    a.add(3);
+    a.add(70);
+    MutableIntSet b = MutableSparseIntSet.makeEmpty();
+    b.add(70);
+    b.add(3);
+    MutableIntSet c = MutableSparseIntSet.makeEmpty();
+    c.add(3);
+    assertSame(a, interner.intern(a));
+    assertSame(a, interner.intern(b));
+    assertSame(c, interner.intern(c));
+    assertSame(a, interner.intern(a));
+    assertEquals(2, interner.size());
+    assertEquals(4, interner.getNumberOfLookups());
+    assertEquals(1, interner.getNumberOfReplacedSets());
+    assertEquals(2, interner.getNumberOfReplacedElements());
+    assertEquals(IntSetInterner.estimateBytes(b), interner.getEstimatedBytesSaved());
+    // a sparse set object and its two-element array
+    assertEquals(48, IntSetInterner.estimateBytes(SparseIntSet.pair(3, 70)));
+    assertEquals(24, IntSetInterner.estimateBytes(CompactMutableIntSet.make(new int[] {3})));
+  }
+
+  @Test
+  public void testZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder sb =
+        CallGraphComparison.checkZeroOneCFA(
+            TestConstants.WALA_TESTDATA,
+            CallGraphTestUtil.REGRESSION_EXCLUSIONS,
+            MAIN,
+            options -> options.setHashConsPointsToSets(true));
+
+    PropagationSystem system = sb.getPropagationSystem();
+    IntSetInterner interner = system.getPointsToSetInterner();
+    assertNotNull(interner);
+    assertTrue(interner.getNumberOfReplacedSets() > 0, interner.toString());
+    assertTrue(interner.getEstimatedBytesSaved() > 0, interner.toString());
+
+    // find two distinct variables that share a set
+    Map<MutableIntSet, PointsToSetVariable> holders = new IdentityHashMap<>();
+    PointsToSetVariable v = null;
+    PointsToSetVariable w = null;
+    for (PointerKey k : sb.getPointerAnalysis().getPointerKeys()) {
+      if (system.isImplicit(k)) {
+        continue;
+      }
+      PointsToSetVariable x = system.findOrCreatePointsToSet(k);
+      if (x.getValue() == null) {
+        continue;
+      }
+      assertTrue(x.isShared());
+      PointsToSetVariable y = holders.putIfAbsent(x.getValue(), x);
+      if (y != null && y != x) {
+        v = x;
+        w = y;
+        break;
+      }
+    }
+    assertNotNull(v);
+
+    // changing one of them must leave the other alone
+    int fresh = v.getValue().max() + 1;
+    int size = w.size();
+    assertTrue(v.add(fresh));
+    assertFalse(v.isShared());
+    assertTrue(v.contains(fresh));
+    assertFalse(w.contains(fresh));
+    assertEquals(size, w.size());
+    assertTrue(w.isShared());
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions.ReflectionOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyDelta;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrike.shrikeBT.InvokeInstruction;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTUtils;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.io.FileUtil;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Check that updating a call graph after class changes gives the same result as building it from
+ * scratch.
+ */
+public class IncrementalCallGraphTest extends WalaTestCase {
+
+  private static final String MAIN = "LdynamicCG/MainClass";
+
+  private static final TypeReference EXTRA =
+      TypeReference.findOrCreate(ClassLoaderReference.Application, "LdynamicCG/ExtraClass");
+
+  private static final String EXTRA_CLASS = "dynamicCG/ExtraClass.class";
+
+  public static void main(String[] args) {
+    justThisTest(IncrementalCallGraphTest.class);
+  }
+
+  @Test
+  public void testModifiedClass(@TempDir final Path tmpDir)
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InvalidClassFileException {
+    AnalysisScope scope = makeScope();
+    ClassHierarchy cha = (ClassHierarchy) ClassHierarchyFactory.make(scope);
+    SSAPropagationCallGraphBuilder builder = build(scope, cha, true);
+    Map<String, Set<String>> before = CallGraphComparison.edges(builder.getCallGraph());
+    assertFalse(toStringCallsPrintObject(before));
+
+    IClass old = cha.lookupClass(EXTRA);
+    IClass fresh = modify(scope, cha, tmpDir);
+    ClassHierarchyDelta delta = ClassHierarchyDelta.modified(Collections.singleton(fresh));
+    assertTrue(builder.canUpdate(delta));
+    builder.updateCallGraph(delta, null);
+
+    // compare against a build with the updated hierarchy, which shares the synthetic classes
+    SSAPropagationCallGraphBuilder expected = build(scope, cha, false);
+
+    assertNotSame(old, cha.lookupClass(EXTRA));
+    Map<String, Set<String>> after = CallGraphComparison.edges(builder.getCallGraph());
+    assertTrue(toStringCallsPrintObject(after));
+    assertNotEquals(before, after);
+    CallGraphComparison.assertSameResult(expected, builder);
+  }
+
+  @Test
+  public void testRemovedClass()
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InvalidClassFileException {
+    AnalysisScope scope = makeScope();
+    ClassHierarchy cha = (ClassHierarchy) ClassHierarchyFactory.make(scope);
+    SSAPropagationCallGraphBuilder builder = build(scope, cha, true);
+    ClassHierarchyDelta delta =
+        ClassHierarchyDelta.removed(Collections.singleton(cha.lookupClass(EXTRA)));
+    assertTrue(builder.canUpdate(delta));
+    builder.updateCallGraph(delta, null);
+
+    // compare against a build with the updated hierarchy, which shares the synthetic classes
+    SSAPropagationCallGraphBuilder expected = build(scope, cha, false);
+
+    assertEquals(null, cha.lookupClass(EXTRA));
+    CallGraphComparison.assertSameResult(expected, builder);
+  }
+
+  @Test
+  public void testAddedClass()
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InvalidClassFileException {
+    AnalysisScope scope = makeScope();
+    ClassHierarchy cha = (ClassHierarchy) ClassHierarchyFactory.make(scope);
+    cha.update(ClassHierarchyDelta.removed(Collections.singleton(cha.lookupClass(EXTRA))));
+    SSAPropagationCallGraphBuilder builder = build(scope, cha, true);
+    ClassHierarchyDelta delta =
+        ClassHierarchyDelta.added(Collections.singleton(reload(scope, cha)));
+    assertTrue(builder.canUpdate(delta));
+    builder.updateCallGraph(delta, null);
+
+    SSAPropagationCallGraphBuilder expected = build(scope, cha, false);
+
+    assertNotNull(cha.lookupClass(EXTRA));
+    CallGraphComparison.assertSameResult(expected, builder);
+  }
+
+  @Test
+  public void testEntrypointClassNeedsRebuild()
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InvalidClassFileException {
+    AnalysisScope scope = makeScope();
+    ClassHierarchy cha = (ClassHierarchy) ClassHierarchyFactory.make(scope);
+    SSAPropagationCallGraphBuilder builder = build(scope, cha, true);
+    ClassHierarchyDelta delta =
+        ClassHierarchyDelta.removed(
+            Collections.singleton(
+                cha.lookupClass(
+                    TypeReference.findOrCreate(ClassLoaderReference.Application, MAIN))));
+    assertFalse(builder.canUpdate(delta));
+  }
+
+  private static AnalysisScope makeScope() throws IOException {
+    return CallGraphTestUtil.makeJ2SEAnalysisScope(
+        TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+  }
+
+  private static SSAPropagationCallGraphBuilder build(
+      AnalysisScope scope, ClassHierarchy cha, boolean incremental)
+      throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setReflectionOptions(ReflectionOptions.NO_FLOW_TO_CASTS);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    builder.setIncremental(incremental);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    assertNotNull(cg);
+    return builder;
+  }
+
+  /** read a new copy of ExtraClass from the application jar */
+  private static IClass reload(AnalysisScope scope, ClassHierarchy cha)
+      throws InvalidClassFileException {
+    return new ShrikeClass(
+        new ShrikeClassReaderHandle(findExtraClass(scope)),
+        cha.getLoader(scope.getApplicationLoader()),
+        cha);
+  }
+
+  /**
+   * make a copy of ExtraClass whose toString() also calls printObject() directly, write it to a jar
+   * in tmpDir, and read it back from there
+   */
+  private static IClass modify(AnalysisScope scope, ClassHierarchy cha, Path tmpDir)
+      throws IOException, InvalidClassFileException {
+    byte[] bytes;
+    try (InputStream s = findExtraClass(scope).getInputStream()) {
+      bytes = FileUtil.readBytes(s);
+    }
+    ClassHierarchyStore store = new ClassHierarchyStore();
+    ClassInstrumenter ci = new ClassInstrumenter(EXTRA_CLASS, bytes, store);
+    CTUtils.addClassToHierarchy(store, ci.getReader());
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      if (ci.getReader().getMethodName(m).equals("toString")) {
+        MethodEditor me = new MethodEditor(ci.visitMethod(m));
+        me.beginPass();
+        me.insertAtStart(
+            new MethodEditor.Patch() {
+              @Override
+              public void emitTo(MethodEditor.Output w) {
+                w.emit(
+                    InvokeInstruction.make(
+                        "()Ljava/lang/String;",
+                        "LdynamicCG/ExtraClass;",
+                        "printObject",
+                        IInvokeInstruction.Dispatch.STATIC));
+                w.emit(PopInstruction.make(1));
+              }
+            });
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+
+    File jar = tmpDir.resolve("modified.jar").toFile();
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new JarEntry(EXTRA_CLASS));
+      out.write(ci.emitClass().makeBytes());
+      out.closeEntry();
+    }
+    Module m = new JarFileModule(new JarFile(jar));
+    return new ShrikeClass(
+        new ShrikeClassReaderHandle(m.getEntries().next()),
+        cha.getLoader(scope.getApplicationLoader()),
+        cha);
+  }
+
+  private static ModuleEntry findExtraClass(AnalysisScope scope) {
+    for (Module m : scope.getModules(scope.getApplicationLoader())) {
+      for (ModuleEntry e : Iterator2Iterable.make(m.getEntries())) {
+        if (e.getName().equals(EXTRA_CLASS)) {
+          return e;
+        }
+      }
+    }
+    throw new AssertionError("no ExtraClass in " + scope);
+  }
+
+  /** does some ExtraClass.toString() node have an edge straight to printObject()? */
+  private static boolean toStringCallsPrintObject(Map<String, Set<String>> edges) {
+    for (Map.Entry<String, Set<String>> e : edges.entrySet()) {
+      if (e.getKey().contains("ExtraClass, toString()")) {
+        for (String succ : e.getValue()) {
+          if (succ.contains("ExtraClass, printObject()")) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.MappedCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Check that a call graph read back from a {@link MappedCallGraph} file matches the original. */
+public class MappedCallGraphTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(MappedCallGraphTest.class);
+  }
+
+  @Test
+  public void testRoundTrip(@TempDir File tmpDir)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    AnalysisCacheImpl cache = new AnalysisCacheImpl();
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, cache, cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    File file = new File(tmpDir, "cg.bin");
+    MappedCallGraph.write(cg, pa, file);
+    MappedCallGraph mapped = MappedCallGraph.load(file, cha, cache);
+
+    assertEquals(cg.getNumberOfNodes(), mapped.getNumberOfNodes());
+    assertEquals(CallGraphComparison.edges(cg), CallGraphComparison.edges(mapped));
+    assertEquals(preds(cg), preds(mapped));
+    assertEquals(cg.getFakeRootNode().toString(), mapped.getFakeRootNode().toString());
+    assertEquals(cg.getEntrypointNodes().size(), mapped.getEntrypointNodes().size());
+
+    for (CGNode n : cg) {
+      Set<CGNode> copies = mapped.getNodes(n.getMethod().getReference());
+      CGNode copy = null;
+      for (CGNode c : copies) {
+        if (c.toString().equals(n.toString())) {
+          copy = c;
+        }
+      }
+      assertNotNull(copy, n.toString());
+      assertEquals(cg.getNodes(n.getMethod().getReference()).size(), copies.size());
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        assertEquals(
+            strings(cg.getPossibleTargets(n, site)),
+            strings(mapped.getPossibleTargets(copy, site)),
+            site.toString());
+        assertEquals(cg.getNumberOfTargets(n, site), mapped.getNumberOfTargets(copy, site));
+      }
+    }
+
+    assertTrue(mapped.hasPointsTo());
+    int checked = 0;
+    for (PointerKey k : pa.getPointerKeys()) {
+      if (!(k instanceof LocalPointerKey)) {
+        continue;
+      }
+      LocalPointerKey local = (LocalPointerKey) k;
+      CGNode copy = null;
+      for (CGNode c : mapped.getNodes(local.getNode().getMethod().getReference())) {
+        if (c.toString().equals(local.getNode().toString())) {
+          copy = c;
+        }
+      }
+      IntSet pts = mapped.getPointsTo(copy, local.getValueNumber());
+      assertNotNull(pts, k.toString());
+      Set<String> actual = new TreeSet<>();
+      for (IntIterator it = pts.intIterator(); it.hasNext(); ) {
+        actual.add(mapped.getInstanceKeyDescription(it.next()));
+      }
+      Set<String> expected = new TreeSet<>();
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        expected.add(ik.toString());
+      }
+      assertEquals(expected, actual, k.toString());
+      checked++;
+    }
+    assertTrue(checked > 0);
+  }
+
+  @Test
+  public void testWithoutPointsTo(@TempDir File tmpDir)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph cg = CallGraphTestUtil.buildZeroCFA(options, new AnalysisCacheImpl(), cha, false);
+
+    File file = new File(tmpDir, "cg.bin");
+    MappedCallGraph.write(cg, file);
+    MappedCallGraph mapped = MappedCallGraph.load(file, cha, null);
+
+    assertFalse(mapped.hasPointsTo());
+    assertEquals(CallGraphComparison.edges(cg), CallGraphComparison.edges(mapped));
+  }
+
+  @Test
+  public void testConcurrentQueries(@TempDir File tmpDir)
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InterruptedException,
+          ExecutionException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph cg = CallGraphTestUtil.buildZeroCFA(options, new AnalysisCacheImpl(), cha, false);
+
+    File file = new File(tmpDir, "cg.bin");
+    MappedCallGraph.write(cg, file);
+    MappedCallGraph mapped = MappedCallGraph.load(file, cha, null);
+
+    // each thread walks the nodes from a different start, so they race to create them
+    int threads = 4;
+    int n = mapped.getNumberOfNodes();
+    List<Callable<CGNode[]>> tasks = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int start = t * n / threads;
+      tasks.add(
+          () -> {
+            CGNode[] result = new CGNode[n];
+            for (int i = 0; i < n; i++) {
+              int number = (start + i) % n;
+              result[number] = mapped.getNode(number);
+              result[number].getMethod();
+            }
+            return result;
+          });
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<CGNode[]>> results = pool.invokeAll(tasks);
+      CGNode[] first = results.get(0).get();
+      for (Future<CGNode[]> f : results) {
+        CGNode[] nodes = f.get();
+        for (int i = 0; i < n; i++) {
+          assertSame(first[i], nodes[i]);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testCorruptFile(@TempDir File tmpDir)
+      throws ClassHierarchyException, IllegalArgumentException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    File file = new File(tmpDir, "cg.bin");
+    Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    assertThrows(IOException.class, () -> MappedCallGraph.load(file, cha, null));
+  }
+
+  private static Map<String, Set<String>> preds(CallGraph cg) {
+    Map<String, Set<String>> result = new TreeMap<>();
+    for (CGNode n : cg) {
+      result.put(n.toString(), strings(Iterator2Iterable.make(cg.getPredNodes(n))));
+    }
+    return result;
+  }
+
+  private static Set<String> strings(Iterable<CGNode> nodes) {
+    Set<String> result = new TreeSet<>();
+    for (CGNode n : nodes) {
+      result.add(n.toString());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.propagation.ParallelPropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/** Check that the parallel pointer analysis solver agrees with the sequential one. */
+public class ParallelSolverTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(ParallelSolverTest.class);
+  }
+
+  @Test
+  public void testJLexZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder pb =
+        CallGraphComparison.checkZeroOneCFA(
+            TestConstants.JLEX,
+            CallGraphTestUtil.REGRESSION_EXCLUSIONS,
+            TestConstants.JLEX_MAIN,
+            options -> options.setSolverParallelism(4));
+    assertInstanceOf(ParallelPropagationSystem.class, pb.getPropagationSystem());
+  }
+}
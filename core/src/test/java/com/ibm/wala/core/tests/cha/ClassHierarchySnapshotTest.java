@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.classLoader.ClassHierarchySnapshot;
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Check that a class hierarchy created from a snapshot equals one created from class files. */
+public class ClassHierarchySnapshotTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER =
+      ClassHierarchySnapshotTest.class.getClassLoader();
+
+  public static void main(String[] args) {
+    justThisTest(ClassHierarchySnapshotTest.class);
+  }
+
+  private static AnalysisScope makeScope() throws IOException {
+    return AnalysisScopeReader.instance.readJavaScope(
+        TestConstants.WALA_TESTDATA,
+        new FileProvider().getFile("J2SEClassHierarchyExclusions.txt"),
+        MY_CLASSLOADER);
+  }
+
+  @Test
+  public void testRoundTrip(@TempDir File tmpDir) throws ClassHierarchyException, IOException {
+    AnalysisScope scope = makeScope();
+    File file = new File(tmpDir, "cha.snapshot");
+    Map<String, String> expected = describe(ClassHierarchyFactory.make(scope));
+
+    IClassHierarchy written = ClassHierarchyFactory.makeWithSnapshot(scope, file);
+    assertTrue(file.exists());
+    assertEquals(expected, describe(written));
+
+    ClassHierarchySnapshot snapshot = ClassHierarchySnapshot.load(file);
+    IClassHierarchy read =
+        ClassHierarchyFactory.make(
+            scope, new ClassLoaderFactoryImpl(scope.getExclusions(), 1, snapshot));
+    assertFalse(snapshot.isStale());
+    assertEquals(expected, describe(read));
+    assertSectionsMatch(scope, snapshot);
+  }
+
+  @Test
+  public void testChangedJar(@TempDir File tmpDir) throws ClassHierarchyException, IOException {
+    File a = new File(tmpDir, "a.jar");
+    File b = new File(tmpDir, "b.jar");
+    List<JarEntry> classes = new ArrayList<>();
+    JarFile testJar = findTestJar(makeScope());
+    for (JarEntry e : Collections.list(testJar.entries())) {
+      if (e.getName().endsWith(".class") && classes.size() < 2) {
+        classes.add(e);
+      }
+    }
+    copy(testJar, classes.get(0), a, null);
+    copy(testJar, classes.get(1), b, null);
+    File file = new File(tmpDir, "cha.snapshot");
+    ClassHierarchyFactory.makeWithSnapshot(makeScope(a, b), file);
+
+    // add an entry to b only; jar files are read when they are opened, so make a new scope
+    copy(testJar, classes.get(1), b, "extra.txt");
+    AnalysisScope scope = makeScope(a, b);
+    ClassHierarchySnapshot snapshot = ClassHierarchySnapshot.load(file);
+    List<Module> extensions = scope.getModules(ClassLoaderReference.Extension);
+    assertTrue(snapshot.isUpToDate(ClassLoaderReference.Extension, extensions.get(0)));
+    assertFalse(snapshot.isUpToDate(ClassLoaderReference.Extension, extensions.get(1)));
+    for (Module m : scope.getModules(ClassLoaderReference.Application)) {
+      assertTrue(snapshot.isUpToDate(ClassLoaderReference.Application, m), m.toString());
+    }
+
+    ClassHierarchyFactory.make(
+        scope, new ClassLoaderFactoryImpl(scope.getExclusions(), 1, snapshot));
+    assertTrue(snapshot.isStale());
+    // rewriting the snapshot brings the section of b up to date again
+    ClassHierarchyFactory.makeWithSnapshot(scope, file);
+    assertSectionsMatch(scope, ClassHierarchySnapshot.load(file));
+  }
+
+  @Test
+  public void testDirectoryModule(@TempDir File tmpDir)
+      throws ClassHierarchyException, IOException {
+    File a = new File(tmpDir, "a.jar");
+    File dir = new File(tmpDir, "classes");
+    JarFile testJar = findTestJar(makeScope());
+    List<JarEntry> classes = new ArrayList<>();
+    for (JarEntry e : Collections.list(testJar.entries())) {
+      if (e.getName().endsWith(".class") && classes.size() < 2) {
+        classes.add(e);
+      }
+    }
+    copy(testJar, classes.get(0), a, null);
+    File classFile = new File(dir, classes.get(1).getName());
+    assertTrue(classFile.getParentFile().mkdirs());
+    try (InputStream in = testJar.getInputStream(classes.get(1))) {
+      Files.copy(in, classFile.toPath());
+    }
+
+    File file = new File(tmpDir, "cha.snapshot");
+    AnalysisScope scope = makeScope(a);
+    scope.addToScope(ClassLoaderReference.Extension, new BinaryDirectoryTreeModule(dir));
+    ClassHierarchyFactory.makeWithSnapshot(scope, file);
+    assertSectionsMatch(scope, ClassHierarchySnapshot.load(file));
+
+    // the directory has no section, but that does not make the snapshot stale
+    ClassHierarchySnapshot snapshot = ClassHierarchySnapshot.load(file);
+    ClassHierarchyFactory.make(
+        scope, new ClassLoaderFactoryImpl(scope.getExclusions(), 1, snapshot));
+    assertFalse(snapshot.isStale());
+
+    // so a second run leaves the file alone
+    FileTime written = FileTime.fromMillis(1000000000000L);
+    Files.setLastModifiedTime(file.toPath(), written);
+    ClassHierarchyFactory.makeWithSnapshot(scope, file);
+    assertEquals(written, Files.getLastModifiedTime(file.toPath()));
+  }
+
+  @Test
+  public void testCorruptSnapshot(@TempDir File tmpDir)
+      throws ClassHierarchyException, IOException {
+    AnalysisScope scope = makeScope();
+    File file = new File(tmpDir, "cha.snapshot");
+    Files.write(file.toPath(), new byte[] {1, 2, 3});
+    Map<String, String> expected = describe(ClassHierarchyFactory.make(scope));
+    assertEquals(expected, describe(ClassHierarchyFactory.makeWithSnapshot(scope, file)));
+    // the unreadable snapshot has been replaced by a readable one
+    assertSectionsMatch(scope, ClassHierarchySnapshot.load(file));
+  }
+
+  /** the scope of the tests, with each of extensions added to the extension loader */
+  private static AnalysisScope makeScope(File... extensions) throws IOException {
+    AnalysisScope scope = makeScope();
+    for (File f : extensions) {
+      scope.addToScope(ClassLoaderReference.Extension, new JarFile(f));
+    }
+    return scope;
+  }
+
+  private static JarFile findTestJar(AnalysisScope scope) {
+    for (Module m : scope.getModules(ClassLoaderReference.Application)) {
+      if (m instanceof JarFileModule) {
+        return ((JarFileModule) m).getJarFile();
+      }
+    }
+    throw new IllegalStateException("no test jar in " + scope);
+  }
+
+  /** write a jar file holding just entry of from, and an empty entry named extra if not null */
+  private static void copy(JarFile from, JarEntry entry, File to, String extra) throws IOException {
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(to.toPath()))) {
+      out.putNextEntry(new JarEntry(entry.getName()));
+      try (InputStream in = from.getInputStream(entry)) {
+        in.transferTo(out);
+      }
+      out.closeEntry();
+      if (extra != null) {
+        out.putNextEntry(new JarEntry(extra));
+        out.closeEntry();
+      }
+    }
+  }
+
+  /** check that snapshot has an up-to-date section for each jar file of scope, and no others */
+  private static void assertSectionsMatch(AnalysisScope scope, ClassHierarchySnapshot snapshot) {
+    int jars = 0;
+    for (ClassLoaderReference loader : scope.getLoaders()) {
+      for (Module m : scope.getModules(loader)) {
+        if (m instanceof JarFileModule) {
+          assertTrue(snapshot.isUpToDate(loader, m), m.toString());
+          jars++;
+        }
+      }
+    }
+    assertTrue(jars > 0);
+    assertEquals(jars, snapshot.getNumberOfSections());
+  }
+
+  /** map each class to its loader, modifiers, supertypes, fields and number of methods */
+  private static Map<String, String> describe(IClassHierarchy cha) {
+    Map<String, String> result = new TreeMap<>();
+    for (IClass klass : cha) {
+      Set<String> interfaces = new TreeSet<>();
+      for (IClass i : klass.getDirectInterfaces()) {
+        interfaces.add(i.getName().toString());
+      }
+      Set<String> fields = new TreeSet<>();
+      for (IField f : klass.getAllFields()) {
+        fields.add(f.getReference() + " " + f.isStatic() + ' ' + f.isFinal() + ' ' + f.isPrivate());
+      }
+      IClass superclass = klass.getSuperclass();
+      result.put(
+          klass.getReference().toString(),
+          klass.getClassLoader()
+              + " "
+              + klass.getModifiers()
+              + " "
+              + (superclass == null ? null : superclass.getName())
+              + " "
+              + interfaces
+              + " "
+              + fields
+              + " "
+              + klass.getDeclaredMethods().size());
+    }
+    return result;
+  }
+}
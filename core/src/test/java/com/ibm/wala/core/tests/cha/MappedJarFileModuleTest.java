@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.io.FileUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.jupiter.api.Test;
+
+/** Check that jar files read through memory mappings give the same classes. */
+public class MappedJarFileModuleTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = MappedJarFileModuleTest.class.getClassLoader();
+
+  public static void main(String[] args) {
+    justThisTest(MappedJarFileModuleTest.class);
+  }
+
+  private static AnalysisScope makeScope() throws IOException {
+    return AnalysisScopeReader.instance.readJavaScope(
+        TestConstants.WALA_TESTDATA,
+        new FileProvider().getFile("J2SEClassHierarchyExclusions.txt"),
+        MY_CLASSLOADER);
+  }
+
+  @Test
+  public void testSameContents() throws IOException {
+    AnalysisScope scope = makeScope();
+    int jars = 0;
+    for (Module m : scope.getModules(scope.getApplicationLoader())) {
+      if (!(m instanceof JarFileModule)) {
+        continue;
+      }
+      jars++;
+      JarFile file = ((JarFileModule) m).getJarFile();
+      MappedJarFileModule mapped = new MappedJarFileModule(file);
+      for (Enumeration<JarEntry> e = file.entries(); e.hasMoreElements(); ) {
+        JarEntry entry = e.nextElement();
+        assertTrue(mapped.isMapped(entry.getName()), entry.getName());
+        byte[] expected;
+        try (InputStream s = file.getInputStream(entry)) {
+          expected = FileUtil.readBytes(s);
+        }
+        byte[] actual = mapped.getContents(entry);
+        assertArrayEquals(expected, actual, entry.getName());
+        // nothing is cached
+        assertNotSame(actual, mapped.getContents(entry));
+      }
+    }
+    assertTrue(jars > 0);
+  }
+
+  @Test
+  public void testSameHierarchy() throws ClassHierarchyException, IOException {
+    IClassHierarchy plain = ClassHierarchyFactory.make(makeScope());
+    AnalysisScope scope = makeScope();
+    scope.memoryMapJars();
+    boolean sawMapped = false;
+    for (Module m : scope.getModules(scope.getApplicationLoader())) {
+      sawMapped |= m instanceof MappedJarFileModule;
+    }
+    assertTrue(sawMapped);
+    IClassHierarchy mapped = ClassHierarchyFactory.makeParallel(scope, 4);
+    assertEquals(plain.getNumberOfClasses(), mapped.getNumberOfClasses());
+    assertEquals(describe(plain), describe(mapped));
+  }
+
+  /** the classes of cha with their declared methods */
+  private static Set<String> describe(IClassHierarchy cha) {
+    Set<String> result = new TreeSet<>();
+    for (IClass klass : cha) {
+      result.add(klass.getReference() + " " + klass.getDeclaredMethods().size());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/** Check that a class hierarchy built with parallel class loading equals the sequential one. */
+public class ParallelClassHierarchyTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER =
+      ParallelClassHierarchyTest.class.getClassLoader();
+
+  public static void main(String[] args) {
+    justThisTest(ParallelClassHierarchyTest.class);
+  }
+
+  @Test
+  public void testSameHierarchy() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            TestConstants.WALA_TESTDATA,
+            new FileProvider().getFile("J2SEClassHierarchyExclusions.txt"),
+            MY_CLASSLOADER);
+    IClassHierarchy sequential = ClassHierarchyFactory.make(scope);
+    IClassHierarchy parallel = ClassHierarchyFactory.makeParallel(scope, 4);
+    assertEquals(sequential.getNumberOfClasses(), parallel.getNumberOfClasses());
+    assertEquals(describe(sequential), describe(parallel));
+  }
+
+  /** map each class to its loader, superclass and direct interfaces */
+  private static Map<String, String> describe(IClassHierarchy cha) {
+    Map<String, String> result = new TreeMap<>();
+    for (IClass klass : cha) {
+      Set<String> interfaces = new TreeSet<>();
+      for (IClass i : klass.getDirectInterfaces()) {
+        interfaces.add(i.getName().toString());
+      }
+      IClass superclass = klass.getSuperclass();
+      result.put(
+          klass.getReference().toString(),
+          klass.getClassLoader()
+              + " "
+              + (superclass == null ? null : superclass.getName())
+              + " "
+              + interfaces);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import com.ibm.wala.util.intset.CompactMutableIntSet;
+import com.ibm.wala.util.intset.CompactMutableIntSetFactory;
+
+/** Tests {@link CompactMutableIntSet} against {@link java.util.TreeSet}. */
+public final class CompactMutableIntSetTest extends MutableIntSetTest {
+
+  public static void main(final String[] args) {
+    justThisTest(CompactMutableIntSetTest.class);
+  }
+
+  public CompactMutableIntSetTest() {
+    super(new CompactMutableIntSetFactory());
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/** Tests the sets made by a {@link MutableIntSetFactory} against {@link TreeSet}. */
+public abstract class MutableIntSetTest extends WalaTestCase {
+
+  private final MutableIntSetFactory<?> factory;
+
+  protected MutableIntSetTest(MutableIntSetFactory<?> factory) {
+    this.factory = factory;
+  }
+
+  private static void assertSame(TreeSet<Integer> expected, IntSet actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.isEmpty() ? -1 : expected.last(), actual.max());
+    List<Integer> elements = new ArrayList<>();
+    for (IntIterator it = actual.intIterator(); it.hasNext(); ) {
+      elements.add(it.next());
+    }
+    assertEquals(new ArrayList<>(expected), elements);
+    List<Integer> visited = new ArrayList<>();
+    actual.foreach(visited::add);
+    assertEquals(elements, visited);
+    for (int i : expected) {
+      assertTrue(actual.contains(i));
+    }
+  }
+
+  /** a random element: near zero, in a few wide-apart chunks, in a few clusters, or anywhere */
+  private static int randomElement(Random r, int shape) {
+    switch (shape) {
+      case 0:
+        return r.nextInt(200);
+      case 1:
+        return (r.nextInt(4) << 18) + r.nextInt(70000);
+      case 2:
+        int start = r.nextInt(8) * 20000;
+        return start + r.nextInt(3000);
+      default:
+        return r.nextInt(1 << 24);
+    }
+  }
+
+  private static int[] toArray(TreeSet<Integer> s) {
+    return s.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  @Test
+  public void testSmallSets() {
+    MutableIntSet s = factory.make();
+    assertTrue(s.isEmpty());
+    assertEquals(-1, s.max());
+    assertTrue(s.add(7));
+    assertFalse(s.add(7));
+    assertTrue(s.add(3));
+    assertTrue(s.add(1 << 20));
+    assertEquals("{ 3 7 1048576 }", s.toString());
+    assertTrue(s.remove(1 << 20));
+    assertFalse(s.remove(1 << 20));
+    assertEquals(7, s.max());
+    assertTrue(s.remove(7));
+    assertFalse(s.remove(7));
+    assertTrue(s.contains(3));
+    assertFalse(s.contains(-3));
+    assertEquals(1, s.size());
+    assertTrue(s.remove(3));
+    assertTrue(s.isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> s.add(-1));
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random r = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      int shape = round % 4;
+      TreeSet<Integer> expected = new TreeSet<>();
+      MutableIntSet actual = factory.make();
+      for (int op = 0; op < 6000; op++) {
+        int i = randomElement(r, shape);
+        if (r.nextInt(4) == 0) {
+          assertEquals(expected.remove(i), actual.remove(i));
+        } else {
+          assertEquals(expected.add(i), actual.add(i));
+        }
+        assertEquals(expected.contains(i + 1), actual.contains(i + 1));
+      }
+      assertSame(expected, actual);
+    }
+  }
+
+  @Test
+  public void testBulkOperations() {
+    Random r = new Random(17);
+    for (int round = 0; round < 120; round++) {
+      TreeSet<Integer> a = new TreeSet<>();
+      TreeSet<Integer> b = new TreeSet<>();
+      MutableIntSet sa = factory.make();
+      MutableIntSet sb = factory.make();
+      int n = r.nextInt(round < 60 ? 100 : 20000);
+      for (int j = 0; j < n; j++) {
+        int i = randomElement(r, round % 4);
+        a.add(i);
+        sa.add(i);
+      }
+      n = r.nextInt(round < 60 ? 100 : 20000);
+      for (int j = 0; j < n; j++) {
+        int i = randomElement(r, (round / 4) % 4);
+        b.add(i);
+        sb.add(i);
+      }
+      if (round % 3 == 0) {
+        // bulk copies may choose other representations than adding one element at a time
+        sa = factory.makeCopy(factory.make(toArray(a)));
+      }
+      MutableIntSet other =
+          round % 2 == 0 ? new MutableSharedBitVectorIntSet() : new BitVectorIntSet();
+      other.addAll(MutableSparseIntSet.make(sb));
+
+      TreeSet<Integer> union = new TreeSet<>(a);
+      union.addAll(b);
+      TreeSet<Integer> intersection = new TreeSet<>(a);
+      intersection.retainAll(b);
+      for (IntSet that : new IntSet[] {sb, other}) {
+        assertSame(union, sa.union(that));
+        assertSame(intersection, sa.intersection(that));
+        assertEquals(!intersection.isEmpty(), sa.containsAny(that));
+        assertEquals(b.containsAll(a), sa.isSubset(that));
+        assertEquals(a.equals(b), sa.sameValue(that));
+      }
+      assertTrue(sb.sameValue(other));
+      assertTrue(other.sameValue(sb));
+      assertTrue(MutableSparseIntSet.make(sb).sameValue(sb));
+
+      MutableIntSet copy = factory.makeCopy(other);
+      assertSame(b, copy);
+      assertTrue(copy.sameValue(sb));
+
+      MutableIntSet filtered = factory.makeCopy(sa);
+      TreeSet<Integer> expected = new TreeSet<>(a);
+      TreeSet<Integer> filter = new TreeSet<>(b);
+      filter.removeIf(i -> i % 3 == 0);
+      expected.addAll(filter);
+      MutableIntSet sfilter = factory.make(toArray(filter));
+      MutableIntSet all = factory.makeCopy(sa);
+      all.addAll(sb);
+      assertEquals(!a.containsAll(filter), filtered.addAllInIntersection(all, sfilter));
+      assertSame(expected, filtered);
+      assertFalse(filtered.addAllInIntersection(all, sfilter));
+      filtered.clear();
+      assertEquals(
+          !b.isEmpty(), filtered.addAllInIntersection(other, MutableSparseIntSet.make(all)));
+      assertSame(b, filtered);
+
+      MutableIntSet both = factory.makeCopy(sa);
+      assertEquals(!a.containsAll(b), both.addAll(sb));
+      assertSame(union, both);
+      assertFalse(both.addAll(sb));
+      assertFalse(both.addAll(sa));
+
+      assertEquals(!a.containsAll(b), sa.addAll(other));
+      assertSame(union, sa);
+      assertFalse(sa.addAll(other));
+
+      MutableIntSet narrowed = factory.makeCopy(sa);
+      narrowed.intersectWith(sb);
+      assertSame(b, narrowed);
+      sa.intersectWith(other);
+      assertSame(b, sa);
+    }
+  }
+}
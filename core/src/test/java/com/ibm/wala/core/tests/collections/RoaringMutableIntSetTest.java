@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.util.intset.RoaringMutableIntSet;
+import com.ibm.wala.util.intset.RoaringMutableIntSetFactory;
+import org.junit.jupiter.api.Test;
+
+/** Tests {@link RoaringMutableIntSet} against {@link java.util.TreeSet}. */
+public final class RoaringMutableIntSetTest extends MutableIntSetTest {
+
+  public static void main(final String[] args) {
+    justThisTest(RoaringMutableIntSetTest.class);
+  }
+
+  public RoaringMutableIntSetTest() {
+    super(new RoaringMutableIntSetFactory());
+  }
+
+  @Test
+  public void testContainerForms() {
+    int[] range = new int[10000];
+    for (int i = 0; i < range.length; i++) {
+      range[i] = 100 + i;
+    }
+    RoaringMutableIntSet runs = RoaringMutableIntSet.make(range);
+    assertArrayEquals(new int[] {0, 0, 1}, runs.getContainerCounts());
+    assertEquals(10099, runs.max());
+
+    // punching holes in the run eventually makes a bitmap the smallest form
+    for (int i = 0; i < range.length; i += 2) {
+      assertTrue(runs.remove(range[i]));
+    }
+    assertArrayEquals(new int[] {0, 1, 0}, runs.getContainerCounts());
+    assertEquals(5000, runs.size());
+
+    RoaringMutableIntSet scattered = new RoaringMutableIntSet();
+    for (int i = 0; i < 5000; i++) {
+      scattered.add(13 * i);
+    }
+    for (int i = 0; i < 100; i++) {
+      scattered.add((1 << 16) + 13 * i);
+    }
+    assertArrayEquals(new int[] {1, 1, 0}, scattered.getContainerCounts());
+  }
+}
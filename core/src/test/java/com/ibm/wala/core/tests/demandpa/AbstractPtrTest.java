@@ -221,6 +221,15 @@ public abstract class AbstractPtrTest {
 
   protected DemandRefinementPointsTo makeDemandPointerAnalysis(String mainClass)
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    return makeDemandPointerAnalysis(mainClass, false);
+  }
+
+  /**
+   * @param smush should the heap models of the call graph and of the demand analysis merge
+   *     allocation sites, e.g. of types allocated at many sites of one method?
+   */
+  protected DemandRefinementPointsTo makeDemandPointerAnalysis(String mainClass, boolean smush)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
     AnalysisScope scope = findOrCreateAnalysisScope();
     // build a type hierarchy
     IClassHierarchy cha = findOrCreateCHA(scope);
@@ -233,7 +242,9 @@ public abstract class AbstractPtrTest {
 
     final IAnalysisCacheView analysisCache = new AnalysisCacheImpl();
     CallGraphBuilder<InstanceKey> cgBuilder =
-        Util.makeZeroCFABuilder(Language.JAVA, options, analysisCache, cha);
+        smush
+            ? Util.makeZeroOneCFABuilder(Language.JAVA, options, analysisCache, cha)
+            : Util.makeZeroCFABuilder(Language.JAVA, options, analysisCache, cha);
     final CallGraph cg = cgBuilder.makeCallGraph(options, null);
     // System.err.println(cg.toString());
 
@@ -241,7 +252,9 @@ public abstract class AbstractPtrTest {
     // cgBuilder.getPointerAnalysis().getHeapModel(), false);
     MemoryAccessMap mam = new PABasedMemoryAccessMap(cg, cgBuilder.getPointerAnalysis());
     SSAPropagationCallGraphBuilder builder =
-        Util.makeVanillaZeroOneCFABuilder(Language.JAVA, options, analysisCache, cha);
+        smush
+            ? Util.makeZeroOneCFABuilder(Language.JAVA, options, analysisCache, cha)
+            : Util.makeVanillaZeroOneCFABuilder(Language.JAVA, options, analysisCache, cha);
     DemandRefinementPointsTo fullDemandPointsTo =
         DemandRefinementPointsTo.makeWithDefaultFlowGraph(
             cg, builder, mam, cha, options, getStateMachineFactory());
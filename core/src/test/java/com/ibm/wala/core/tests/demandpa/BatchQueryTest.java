@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.demandpa;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo;
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo.PointsToResult;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Check that batched, cached and parallel queries give the answers of single queries. */
+public class BatchQueryTest extends AbstractPtrTest {
+
+  public BatchQueryTest() {
+    super(TestInfo.SCOPE_FILE);
+  }
+
+  @Test
+  public void testSequentialBatch()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstSingleQueries(makeDemandPointerAnalysis(TestInfo.TEST_HASH_SET), 1);
+  }
+
+  @Test
+  public void testParallelBatch()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    checkAgainstSingleQueries(makeDemandPointerAnalysis(TestInfo.TEST_HASH_SET), 4);
+  }
+
+  @Test
+  public void testParallelBatchSmushed()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    // the heap model decides lazily, per node, which allocation sites to smush
+    checkAgainstSingleQueries(makeDemandPointerAnalysis(TestInfo.TEST_HASH_SET, true), 4);
+  }
+
+  @Test
+  public void testCachedAnswers()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(TestInfo.TEST_LINKED_LIST);
+    dmp.setCacheAnswers(true);
+    PointerKey pk = receivers(dmp).get(0);
+    Collection<?> first = dmp.getPointsToWithStates(pk);
+    assertSame(first, dmp.getPointsToWithStates(pk));
+    assertEquals(dmp.getPointsTo(pk), dmp.getPointsTo(List.of(pk, pk), 2).get(pk).snd);
+  }
+
+  private static void checkAgainstSingleQueries(DemandRefinementPointsTo dmp, int parallelism)
+      throws CancelException {
+    dmp.completeFlowGraph();
+    List<PointerKey> pks = receivers(dmp);
+    assertTrue(pks.size() > 10);
+    List<PointerKey> twice = new ArrayList<>(pks);
+    twice.addAll(pks);
+    // batch first, so that the batch is the first to fill in what the queries fill in lazily
+    Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> batched =
+        dmp.getPointsTo(twice, parallelism);
+
+    Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> expected = new HashMap<>();
+    for (PointerKey pk : pks) {
+      expected.put(pk, dmp.getPointsTo(pk, k -> false));
+    }
+    assertEquals(expected, batched);
+
+    dmp.setCacheAnswers(true);
+    assertEquals(expected, dmp.getPointsTo(twice, parallelism));
+    for (PointerKey pk : pks) {
+      assertEquals(expected.get(pk).snd, dmp.getPointsTo(pk), pk.toString());
+    }
+  }
+
+  /** the distinct receivers of calls in application code */
+  private static List<PointerKey> receivers(DemandRefinementPointsTo dmp) {
+    List<PointerKey> result = new ArrayList<>();
+    for (CGNode n : dmp.getBaseCallGraph()) {
+      if (!n.getMethod()
+          .getDeclaringClass()
+          .getClassLoader()
+          .getReference()
+          .equals(ClassLoaderReference.Application)) {
+        continue;
+      }
+      IR ir = n.getIR();
+      if (ir == null) {
+        continue;
+      }
+      for (SSAInstruction s : Iterator2Iterable.make(ir.iterateNormalInstructions())) {
+        if (s instanceof SSAAbstractInvokeInstruction
+            && !((SSAAbstractInvokeInstruction) s).isStatic()) {
+          int receiver = ((SSAAbstractInvokeInstruction) s).getReceiver();
+          PointerKey pk = dmp.getHeapModel().getPointerKeyForLocal(n, receiver);
+          if (!result.contains(pk)) {
+            result.add(pk);
+          }
+        }
+      }
+    }
+    return result;
+  }
+}
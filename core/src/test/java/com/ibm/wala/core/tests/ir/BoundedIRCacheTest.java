@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ssa.CacheStatistics;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link AnalysisCacheImpl}s backed by a bounded IR cache. */
+public class BoundedIRCacheTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = BoundedIRCacheTest.class.getClassLoader();
+
+  private static final int METHODS = 100;
+
+  private static final List<IMethod> methods = new ArrayList<>();
+
+  @BeforeAll
+  public static void beforeClass() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            TestConstants.WALA_TESTDATA,
+            new FileProvider().getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS),
+            MY_CLASSLOADER);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    for (IClass klass : cha) {
+      if (!klass.getClassLoader().getReference().equals(scope.getApplicationLoader())) {
+        continue;
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative() && methods.size() < METHODS) {
+          methods.add(m);
+        }
+      }
+    }
+    assertEquals(METHODS, methods.size());
+  }
+
+  private static AnalysisCacheImpl makeCache(int maxCachedIRs) {
+    return new AnalysisCacheImpl(
+        new DefaultIRFactory(), new AnalysisOptions().getSSAOptions(), maxCachedIRs);
+  }
+
+  @Test
+  public void testEviction() {
+    AnalysisCacheImpl cache = makeCache(10);
+    for (IMethod m : methods) {
+      assertNotNull(cache.getIR(m));
+    }
+    CacheStatistics stats = cache.getIRStatistics();
+    assertEquals(0, stats.getHits());
+    assertEquals(METHODS, stats.getMisses());
+    assertTrue(stats.getEvictions() >= METHODS - 10, stats.toString());
+
+    // the most recently built IR is still there
+    IMethod last = methods.get(METHODS - 1);
+    IR ir = cache.getIR(last);
+    assertSame(ir, cache.getIR(last));
+    assertEquals(2, cache.getIRStatistics().getHits());
+
+    // the DefUse cache reuses the cached IR
+    assertSame(cache.getDefUse(ir), cache.getDefUse(ir));
+    assertEquals(1, cache.getDefUseStatistics().getMisses());
+    assertEquals(2, cache.getIRStatistics().getHits());
+  }
+
+  @Test
+  public void testConcurrentComputeOnce() throws InterruptedException, ExecutionException {
+    AnalysisCacheImpl cache = makeCache(2 * METHODS);
+    int threads = 8;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<List<IR>>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  List<IR> irs = new ArrayList<>();
+                  for (IMethod m : methods) {
+                    irs.add(cache.getIR(m));
+                  }
+                  return irs;
+                }));
+      }
+      start.countDown();
+      List<IR> expected = results.get(0).get();
+      for (Future<List<IR>> f : results) {
+        List<IR> actual = f.get();
+        for (int i = 0; i < METHODS; i++) {
+          assertSame(expected.get(i), actual.get(i));
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    CacheStatistics stats = cache.getIRStatistics();
+    assertEquals(METHODS, stats.getMisses());
+    assertEquals((threads - 1) * METHODS, stats.getHits());
+    assertEquals(0, stats.getEvictions());
+  }
+}
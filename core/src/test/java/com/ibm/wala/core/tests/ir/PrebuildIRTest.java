@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.core.util.warnings.Warnings;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Tests for building IRs ahead of time with {@link AnalysisCacheImpl#prebuild}. */
+public class PrebuildIRTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = PrebuildIRTest.class.getClassLoader();
+
+  private static List<IMethod> methods;
+
+  @BeforeAll
+  public static void beforeClass() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            TestConstants.WALA_TESTDATA,
+            new FileProvider().getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS),
+            MY_CLASSLOADER);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    methods = AnalysisCacheImpl.applicationMethods(cha);
+    assertTrue(methods.size() > 100);
+  }
+
+  @Test
+  public void testDefaultCache() throws CancelException {
+    checkPrebuild(new AnalysisCacheImpl());
+  }
+
+  @Test
+  public void testBoundedCache() throws CancelException {
+    checkPrebuild(
+        new AnalysisCacheImpl(
+            new DefaultIRFactory(), new AnalysisOptions().getSSAOptions(), 2 * methods.size()));
+  }
+
+  @Test
+  public void testFailureRecorded() throws CancelException {
+    IMethod broken = methods.get(0);
+    AnalysisCacheImpl cache =
+        new AnalysisCacheImpl(
+            new DefaultIRFactory() {
+              @Override
+              public IR makeIR(IMethod method, Context c, SSAOptions options) {
+                if (method.equals(broken)) {
+                  throw new IllegalStateException("cannot build");
+                }
+                return super.makeIR(method, c, options);
+              }
+            });
+    Warnings.clear();
+    assertEquals(methods.size() - 1, cache.prebuild(methods, 4));
+    assertTrue(Warnings.asString().contains(broken.toString()), Warnings.asString());
+  }
+
+  /** check that the prebuilt IRs are found later, and equal the ones built one at a time */
+  private static void checkPrebuild(AnalysisCacheImpl cache) throws CancelException {
+    assertEquals(methods.size(), cache.prebuild(methods, 4));
+    long irMisses = cache.getIRStatistics().getMisses();
+    long duMisses = cache.getDefUseStatistics().getMisses();
+
+    AnalysisCacheImpl sequential = new AnalysisCacheImpl();
+    for (IMethod m : methods) {
+      IR ir = cache.getIR(m);
+      cache.getDefUse(ir);
+      assertEquals(sequential.getIR(m).toString(), ir.toString());
+    }
+    assertEquals(irMisses, cache.getIRStatistics().getMisses());
+    assertEquals(duMisses, cache.getDefUseStatistics().getMisses());
+    assertEquals(methods.size(), cache.getIRStatistics().getHits());
+    assertEquals(methods.size(), cache.getDefUseStatistics().getHits());
+
+    // a second time, everything is cached already
+    assertEquals(methods.size(), cache.prebuild(methods, 4));
+    assertEquals(irMisses, cache.getIRStatistics().getMisses());
+  }
+}
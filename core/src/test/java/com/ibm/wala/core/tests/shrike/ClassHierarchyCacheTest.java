@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyCache;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTUtils;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that a {@link ClassHierarchyCache} answers like the provider it wraps, and that computing
+ * stack maps with it in parallel writes the same classes as doing so one method at a time.
+ */
+public class ClassHierarchyCacheTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = ClassHierarchyCacheTest.class.getClassLoader();
+
+  private static final List<ClassReader> classes = new ArrayList<>();
+
+  private static final ClassHierarchyStore store = new ClassHierarchyStore();
+
+  @BeforeAll
+  public static void readClasses() throws IOException, InvalidClassFileException {
+    OfflineInstrumenter instrumenter = new OfflineInstrumenter();
+    instrumenter.addInputJar(findTestJar());
+    instrumenter.beginTraversal();
+    ClassInstrumenter ci;
+    while ((ci = instrumenter.nextClass()) != null) {
+      classes.add(ci.getReader());
+      CTUtils.addClassToHierarchy(store, ci.getReader());
+    }
+    instrumenter.close();
+  }
+
+  @Test
+  public void testSameAnswers() throws InvalidClassFileException {
+    List<String> types = new ArrayList<>();
+    for (ClassReader cr : classes.subList(0, Math.min(80, classes.size()))) {
+      types.add('L' + cr.getName() + ';');
+    }
+    types.add("Ljava/lang/Object;");
+    types.add("[Ljava/lang/Object;");
+
+    ClassHierarchyCache cache = new ClassHierarchyCache(store);
+    // ask twice so the second round comes from the cache
+    for (int round = 0; round < 2; round++) {
+      for (String t1 : types) {
+        for (String t2 : types) {
+          assertEquals(
+              ClassHierarchy.isSubtypeOf(store, t1, t2),
+              ClassHierarchy.isSubtypeOf(cache, t1, t2),
+              t1 + " <: " + t2);
+          assertEquals(
+              ClassHierarchy.findCommonSupertype(store, t1, t2),
+              ClassHierarchy.findCommonSupertype(cache, t1, t2),
+              t1 + " | " + t2);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSameStackMaps() throws InvalidClassFileException {
+    ClassHierarchyCache cache = new ClassHierarchyCache(store);
+    int count = 0;
+    for (ClassReader cr : classes) {
+      byte[] sequential = transform(new ClassInstrumenter(cr.getName(), cr, store), false);
+      byte[] parallel = transform(new ClassInstrumenter(cr.getName(), cr, cache), true);
+      assertArrayEquals(sequential, parallel, cr.getName());
+      count++;
+    }
+    assertTrue(count > 10);
+  }
+
+  private static File findTestJar() throws IOException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            TestConstants.WALA_TESTDATA,
+            new FileProvider().getFile("J2SEClassHierarchyExclusions.txt"),
+            MY_CLASSLOADER);
+    for (Module m : scope.getModules(scope.getApplicationLoader())) {
+      if (m instanceof JarFileModule) {
+        return new File(((JarFileModule) m).getJarFile().getName());
+      }
+    }
+    throw new IllegalStateException("no test jar in " + scope);
+  }
+
+  /** push and pop a constant at the start of every other method, and leave the rest as they are */
+  private static byte[] transform(ClassInstrumenter ci, boolean parallel)
+      throws InvalidClassFileException {
+    if (parallel) {
+      ci.enableParallelStackMaps();
+    }
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      MethodData d = ci.visitMethod(m);
+      if (d != null) {
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        if (m % 2 == 0) {
+          me.insertAtStart(
+              new MethodEditor.Patch() {
+                @Override
+                public void emitTo(MethodEditor.Output w) {
+                  w.emit(ConstantInstruction.make(0));
+                  w.emit(PopInstruction.make(1));
+                }
+              });
+        }
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.emitClass().makeBytes();
+  }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Run the {@link DynamicCallGraphTest} tests on the core test data jar. */
+public class CoreDynamicCallGraphTest extends DynamicCallGraphTest {
+
+  @TempDir private Path temporaryDirectory;
+
+  @Override
+  protected Path getTemporaryDirectory() {
+    return temporaryDirectory;
+  }
+}
@@ -11,6 +11,9 @@
 
 package com.ibm.wala.core.tests.shrike;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
@@ -25,6 +28,8 @@ import com.ibm.wala.shrike.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.util.CancelException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 public abstract class DynamicCallGraphTest extends DynamicCallGraphTestBase {
@@ -86,6 +91,104 @@ public abstract class DynamicCallGraphTest extends DynamicCallGraphTestBase {
     checkEdges(staticCG);
   }
 
+  @Test
+  public void testBinaryGraph()
+      throws IOException,
+          ClassNotFoundException,
+          InvalidClassFileException,
+          FailureException,
+          SecurityException,
+          IllegalArgumentException,
+          ClassHierarchyException,
+          CancelException,
+          InterruptedException {
+    testRuntime = "com.ibm.wala.shrike.cg.BinaryRuntime";
+    instrument(testJarLocation);
+    run("dynamicCG.MainClass", null);
+    CallGraph staticCG = staticCG("LdynamicCG/MainClass", null);
+    checkEdges(staticCG);
+  }
+
+  @Test
+  public void testSampledGraph()
+      throws IOException,
+          ClassNotFoundException,
+          InvalidClassFileException,
+          FailureException,
+          SecurityException,
+          IllegalArgumentException,
+          ClassHierarchyException,
+          CancelException,
+          InterruptedException {
+    testRuntime = "com.ibm.wala.shrike.cg.BinaryRuntime";
+    testSampleFirst = 1;
+    instrument(testJarLocation);
+    run("dynamicCG.MainClass", null);
+    CallGraph staticCG = staticCG("LdynamicCG/MainClass", null);
+    checkEdges(staticCG);
+  }
+
+  @Test
+  public void testSampledRate()
+      throws IOException,
+          ClassNotFoundException,
+          InvalidClassFileException,
+          FailureException,
+          SecurityException,
+          IllegalArgumentException,
+          ClassHierarchyException,
+          CancelException,
+          InterruptedException {
+    testRuntime = "com.ibm.wala.shrike.cg.BinaryRuntime";
+    checkSampled();
+  }
+
+  @Test
+  public void testSampledTextGraph()
+      throws IOException,
+          ClassNotFoundException,
+          InvalidClassFileException,
+          FailureException,
+          SecurityException,
+          IllegalArgumentException,
+          ClassHierarchyException,
+          CancelException,
+          InterruptedException {
+    checkSampled();
+  }
+
+  /**
+   * Trace SampledMainClass in full and then sampling every other call, and check that the sampled
+   * trace has a subset of the calls, missing the ones only made on odd calls at their sites.
+   */
+  private void checkSampled()
+      throws IOException,
+          ClassNotFoundException,
+          InvalidClassFileException,
+          FailureException,
+          SecurityException,
+          IllegalArgumentException,
+          ClassHierarchyException,
+          CancelException,
+          InterruptedException {
+    instrument(testJarLocation);
+    run("dynamicCG.SampledMainClass", null);
+    List<String> full = readEdges();
+
+    testSampleRate = 2;
+    instrument(testJarLocation);
+    run("dynamicCG.SampledMainClass", null);
+    List<String> sampled = readEdges();
+
+    assertTrue(sampled.size() < full.size(), "expected fewer than " + full + ": " + sampled);
+    assertTrue(full.containsAll(sampled), "expected a subset of " + full + ": " + sampled);
+    for (String callee : Arrays.asList("Circle\tarea()I", "Triangle\tarea()I")) {
+      assertTrue(full.stream().anyMatch(e -> e.endsWith(callee)), callee + " in " + full);
+      assertFalse(sampled.stream().anyMatch(e -> e.endsWith(callee)), callee + " in " + sampled);
+    }
+    checkEdges(staticCG("LdynamicCG/SampledMainClass", null));
+  }
+
   @Test
   public void testExclusions()
       throws IOException,
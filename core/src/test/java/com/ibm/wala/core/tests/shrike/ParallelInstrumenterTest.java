@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.ClassWriter;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.FileUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Check that instrumenting classes in parallel writes the same JAR as doing so one at a time. */
+public class ParallelInstrumenterTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = ParallelInstrumenterTest.class.getClassLoader();
+
+  @Test
+  public void testSameOutput(@TempDir final Path tmpDir)
+      throws IOException, InvalidClassFileException {
+    File input = findTestJar();
+    File sequential = tmpDir.resolve("sequential.jar").toFile();
+    File parallel = tmpDir.resolve("parallel.jar").toFile();
+
+    OfflineInstrumenter instrumenter = makeInstrumenter(input, sequential);
+    ClassInstrumenter ci;
+    while ((ci = instrumenter.nextClass()) != null) {
+      ClassWriter cw = transform(ci);
+      if (cw != null) {
+        instrumenter.outputModifiedClass(ci, cw);
+      }
+    }
+    instrumenter.close();
+
+    instrumenter = makeInstrumenter(input, parallel);
+    instrumenter.instrumentAll(ParallelInstrumenterTest::transform, 4);
+    instrumenter.close();
+
+    List<String> names = entryNames(sequential);
+    assertTrue(names.size() > 10);
+    assertEquals(names, entryNames(parallel));
+    try (JarFile s = new JarFile(sequential);
+        JarFile p = new JarFile(parallel)) {
+      for (String name : names) {
+        assertArrayEquals(contents(s, name), contents(p, name), name);
+      }
+    }
+  }
+
+  private static File findTestJar() throws IOException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            TestConstants.WALA_TESTDATA,
+            new FileProvider().getFile("J2SEClassHierarchyExclusions.txt"),
+            MY_CLASSLOADER);
+    for (Module m : scope.getModules(scope.getApplicationLoader())) {
+      if (m instanceof JarFileModule) {
+        return new File(((JarFileModule) m).getJarFile().getName());
+      }
+    }
+    throw new IllegalStateException("no test jar in " + scope);
+  }
+
+  private static OfflineInstrumenter makeInstrumenter(File input, File output)
+      throws IOException {
+    OfflineInstrumenter instrumenter = new OfflineInstrumenter();
+    instrumenter.addInputJar(input);
+    instrumenter.setPassUnmodifiedClasses(true);
+    instrumenter.setOutputJar(output);
+    instrumenter.beginTraversal();
+    return instrumenter;
+  }
+
+  /** push and pop a constant at the start of every method of every other class */
+  private static ClassWriter transform(ClassInstrumenter ci) throws InvalidClassFileException {
+    if (ci.getReader().getName().hashCode() % 2 == 0) {
+      return null;
+    }
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      MethodData d = ci.visitMethod(m);
+      if (d != null) {
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        me.insertAtStart(
+            new MethodEditor.Patch() {
+              @Override
+              public void emitTo(MethodEditor.Output w) {
+                w.emit(ConstantInstruction.make(0));
+                w.emit(PopInstruction.make(1));
+              }
+            });
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.emitClass();
+  }
+
+  private static List<String> entryNames(File jar) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (JarFile f = new JarFile(jar)) {
+      for (Enumeration<JarEntry> e = f.entries(); e.hasMoreElements(); ) {
+        result.add(e.nextElement().getName());
+      }
+    }
+    return result;
+  }
+
+  private static byte[] contents(JarFile f, String name) throws IOException {
+    try (InputStream s = f.getInputStream(f.getEntry(name))) {
+      return FileUtil.readBytes(s);
+    }
+  }
+}
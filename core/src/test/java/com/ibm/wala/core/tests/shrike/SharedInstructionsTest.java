@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrike.shrikeBT.ConditionalBranchInstruction;
+import com.ibm.wala.shrike.shrikeBT.Constants;
+import com.ibm.wala.shrike.shrikeBT.Decoder.InvalidBytecodeException;
+import com.ibm.wala.shrike.shrikeBT.GetInstruction;
+import com.ibm.wala.shrike.shrikeBT.IInstruction;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.CodeReader;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.FileUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Check that decoded instructions with the same operands are shared. */
+public class SharedInstructionsTest extends WalaTestCase {
+
+  @Test
+  public void testBranchesShared() {
+    ConditionalBranchInstruction b = ConditionalBranchInstruction.make(Constants.OP_ifeq, 17);
+    assertSame(b, ConditionalBranchInstruction.make(Constants.OP_ifeq, 17));
+    assertNotSame(b, ConditionalBranchInstruction.make(Constants.OP_ifne, 17));
+    assertEquals(
+        ConditionalBranchInstruction.make(Constants.OP_ifeq, 1000),
+        ConditionalBranchInstruction.make(Constants.OP_ifeq, 1000));
+  }
+
+  @Test
+  public void testConstantPoolInstructionsShared()
+      throws IOException, InvalidClassFileException, InvalidBytecodeException {
+    ClassReader cr = new ClassReader(classFile("java/util/HashMap"));
+    int shared = 0;
+    ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+    for (int m = 0; m < cr.getMethodCount(); m++) {
+      for (cr.initMethodAttributeIterator(m, iter); iter.isValid(); iter.advance()) {
+        if (!iter.getName().equals("Code")) {
+          continue;
+        }
+        CTDecoder d = new CTDecoder(new CodeReader(iter));
+        d.decode();
+        Map<String, IInstruction> seen = new HashMap<>();
+        for (IInstruction i : d.getInstructions()) {
+          if (i instanceof GetInstruction || i instanceof IInvokeInstruction) {
+            IInstruction first = seen.putIfAbsent(i.getClass() + " " + i, i);
+            if (first != null) {
+              assertSame(first, i);
+              shared++;
+            }
+          }
+        }
+      }
+    }
+    assertTrue(shared > 0);
+  }
+
+  private static byte[] classFile(String name) throws IOException {
+    try (InputStream s = ClassLoader.getSystemResourceAsStream(name + ".class")) {
+      if (s != null) {
+        return FileUtil.readBytes(s);
+      }
+    }
+    try (InputStream s = Object.class.getModule().getResourceAsStream(name + ".class")) {
+      return FileUtil.readBytes(s);
+    }
+  }
+}
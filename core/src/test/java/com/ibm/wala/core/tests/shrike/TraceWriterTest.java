@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrike.cg.TraceReader;
+import com.ibm.wala.shrike.cg.TraceWriter;
+import com.ibm.wala.shrike.cg.TraceWriter.MethodId;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Check that the edges written by a {@link TraceWriter} are read back by a {@link TraceReader}. */
+public class TraceWriterTest extends WalaTestCase {
+
+  @Test
+  public void testRoundTrip(@TempDir final Path tmpDir) throws IOException, InterruptedException {
+    File trace = tmpDir.resolve("cg.bin").toFile();
+    TraceWriter writer = new TraceWriter(trace.getPath());
+    Set<String> expected = ConcurrentHashMap.newKeySet();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int thread = t;
+      threads.add(
+          new Thread(
+              () -> {
+                MethodId root = writer.pseudoCaller(TraceWriter.ROOT);
+                // enough edges to fill several buffers, and each one twice
+                for (int round = 0; round < 2; round++) {
+                  for (int i = 0; i < 20000; i++) {
+                    MethodId caller = writer.intern("p/C" + (i % 100), "m" + i + "()V");
+                    MethodId callee = writer.intern("p/D" + thread, "né" + (i % 300) + "(I)V");
+                    writer.edge(caller, callee);
+                    writer.edge(root, caller);
+                    expected.add(caller.getLabel() + '\t' + callee.getLabel());
+                    expected.add("root\t" + caller.getLabel());
+                  }
+                }
+                writer.edge(
+                    writer.pseudoCaller(TraceWriter.CALLBACKS), writer.intern("p/E", "run()V"));
+                expected.add("callbacks\tp/E\trun()V");
+              }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    writer.close();
+
+    assertTrue(TraceReader.isTrace(trace));
+    Set<String> actual = new HashSet<>();
+    for (TraceReader.Edge e : TraceReader.readEdges(trace)) {
+      actual.add(e.toString());
+    }
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testCloseWhileRecording(@TempDir final Path tmpDir)
+      throws IOException, InterruptedException {
+    File trace = tmpDir.resolve("cg.bin").toFile();
+    TraceWriter writer = new TraceWriter(trace.getPath());
+    AtomicBoolean stop = new AtomicBoolean();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int thread = t;
+      threads.add(
+          new Thread(
+              () -> {
+                MethodId root = writer.pseudoCaller(TraceWriter.ROOT);
+                for (int i = 0; !stop.get(); i++) {
+                  // new methods all along, so that definitions race with close() too
+                  MethodId callee = writer.intern("p/D" + thread, "m" + i + "()V");
+                  writer.edge(root, callee);
+                }
+              }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    Thread.sleep(100);
+    writer.close();
+    stop.set(true);
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    // every edge written uses ids whose definitions were written too
+    assertFalse(TraceReader.readEdges(trace).isEmpty());
+  }
+
+  @Test
+  public void testTextIsNotTrace(@TempDir final Path tmpDir) throws IOException {
+    File text = tmpDir.resolve("cg.txt").toFile();
+    Files.writeString(text.toPath(), "root\tp/C\tmain([Ljava/lang/String;)V\n");
+    assertFalse(TraceReader.isTrace(text));
+  }
+}
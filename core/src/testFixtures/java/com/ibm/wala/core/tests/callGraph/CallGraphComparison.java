@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractLocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Check that two configurations of the pointer analysis solver compute the same call graph and
+ * points-to sets.
+ */
+public class CallGraphComparison {
+
+  /**
+   * Build 0-1-CFA call graphs for a program with the default options and with the options set up
+   * by {@code actual}, and check that they agree.
+   *
+   * @return the builder of the second call graph, for checks specific to its configuration
+   */
+  public static SSAPropagationCallGraphBuilder checkZeroOneCFA(
+      String scopeFile, String exclusionsFile, String mainClass, Consumer<AnalysisOptions> actual)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    return checkZeroOneCFA(scopeFile, exclusionsFile, mainClass, options -> {}, actual);
+  }
+
+  /**
+   * Build 0-1-CFA call graphs for a program with the options set up by {@code expected} and by
+   * {@code actual}, and check that they agree.
+   *
+   * @return the builder of the second call graph, for checks specific to its configuration
+   */
+  public static SSAPropagationCallGraphBuilder checkZeroOneCFA(
+      String scopeFile,
+      String exclusionsFile,
+      String mainClass,
+      Consumer<AnalysisOptions> expected,
+      Consumer<AnalysisOptions> actual)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(scopeFile, exclusionsFile);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, mainClass);
+
+    SSAPropagationCallGraphBuilder eb = makeZeroOneCFA(scope, cha, entrypoints, expected);
+    SSAPropagationCallGraphBuilder ab = makeZeroOneCFA(scope, cha, entrypoints, actual);
+    assertSameResult(eb, ab);
+    return ab;
+  }
+
+  private static SSAPropagationCallGraphBuilder makeZeroOneCFA(
+      AnalysisScope scope,
+      IClassHierarchy cha,
+      Iterable<Entrypoint> entrypoints,
+      Consumer<AnalysisOptions> configure)
+      throws IllegalArgumentException, CancelException {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    configure.accept(options);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+
+  /** Check that two builders have computed the same call graph and points-to sets. */
+  public static void assertSameResult(
+      SSAPropagationCallGraphBuilder expected, SSAPropagationCallGraphBuilder actual) {
+    assertEquals(edges(expected.getCallGraph()), edges(actual.getCallGraph()));
+    assertEquals(pointsTo(expected.getPointerAnalysis()), pointsTo(actual.getPointerAnalysis()));
+  }
+
+  /** The successors of each node of a call graph, by name. */
+  public static Map<String, Set<String>> edges(CallGraph cg) {
+    Map<String, Set<String>> result = new TreeMap<>();
+    for (CGNode n : cg) {
+      Set<String> succs = new TreeSet<>();
+      for (CGNode s : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+        succs.add(s.toString());
+      }
+      result.put(n.toString(), succs);
+    }
+    return result;
+  }
+
+  /**
+   * The points-to set of each pointer key, by name. The value numbers of locals in the fake root
+   * methods depend on the order in which the solver discovers classes, so those locals are only
+   * compared as a multiset of points-to sets.
+   */
+  public static Map<String, Set<String>> pointsTo(PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = new TreeMap<>();
+    List<String> rootLocals = new ArrayList<>();
+    for (PointerKey k : pa.getPointerKeys()) {
+      Set<String> pts = new TreeSet<>();
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        pts.add(ik.toString());
+      }
+      if (k instanceof AbstractLocalPointerKey
+          && ((AbstractLocalPointerKey) k).getNode().getMethod() instanceof AbstractRootMethod) {
+        rootLocals.add(pts.toString());
+      } else {
+        result.computeIfAbsent(k.toString(), x -> new TreeSet<>()).addAll(pts);
+      }
+    }
+    Collections.sort(rootLocals);
+    result.put("root locals", new TreeSet<>(Collections.singleton(rootLocals.toString())));
+    return result;
+  }
+}
@@ -19,6 +19,7 @@ import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.properties.WalaProperties;
 import com.ibm.wala.shrike.cg.OfflineDynamicCallGraph;
+import com.ibm.wala.shrike.cg.TraceReader;
 import com.ibm.wala.shrike.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.types.ClassLoaderReference;
@@ -32,6 +33,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,7 +51,17 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
 
   protected boolean testPatchCalls = false;
 
-  private boolean instrumentedJarBuilt = false;
+  /** the runtime class the instrumented code calls, or null for the default */
+  protected String testRuntime = null;
+
+  /** how many calls at each site to record, or 0 to record all calls */
+  protected int testSampleFirst = 0;
+
+  /** record every n-th call at each site, or 0 to record all calls */
+  protected int testSampleRate = 0;
+
+  /** the arguments the instrumented jar was built with, or null if it has not been built */
+  private List<String> instrumentedWith = null;
 
   private java.nio.file.Path instrumentedJarLocation;
 
@@ -66,31 +78,40 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
 
   protected void instrument(String testJarLocation)
       throws IOException, ClassNotFoundException, InvalidClassFileException, FailureException {
-    if (!instrumentedJarBuilt) {
-      System.err.println("core data jar to instrument: " + testJarLocation);
+    String rtJar = null;
+    for (String jar : WalaProperties.getJ2SEJarFiles()) {
+      if (jar.endsWith(File.separator + "rt.jar") || jar.endsWith(File.separator + "classes.jar")) {
+        rtJar = jar;
+      }
+    }
 
-      Files.deleteIfExists(instrumentedJarLocation);
+    List<String> args =
+        new ArrayList<>(Arrays.asList(testJarLocation, "-o", instrumentedJarLocation.toString()));
+    if (rtJar != null) {
+      args.addAll(Arrays.asList("--rt-jar", rtJar));
+    }
+    if (testPatchCalls) {
+      args.add("--patch-calls");
+    }
+    if (testRuntime != null) {
+      args.addAll(Arrays.asList("--runtime", testRuntime));
+    }
+    if (testSampleFirst > 0) {
+      args.addAll(Arrays.asList("--sample-first", String.valueOf(testSampleFirst)));
+    }
+    if (testSampleRate > 0) {
+      args.addAll(Arrays.asList("--sample-rate", String.valueOf(testSampleRate)));
+    }
 
-      String rtJar = null;
-      for (String jar : WalaProperties.getJ2SEJarFiles()) {
-        if (jar.endsWith(File.separator + "rt.jar")
-            || jar.endsWith(File.separator + "classes.jar")) {
-          rtJar = jar;
-        }
-      }
+    // instrument again if the options changed since the last time
+    if (!args.equals(instrumentedWith)) {
+      System.err.println("core data jar to instrument: " + testJarLocation);
 
-      List<String> args =
-          new ArrayList<>(Arrays.asList(testJarLocation, "-o", instrumentedJarLocation.toString()));
-      if (rtJar != null) {
-        args.addAll(Arrays.asList("--rt-jar", rtJar));
-      }
-      if (testPatchCalls) {
-        args.add("--patch-calls");
-      }
+      Files.deleteIfExists(instrumentedJarLocation);
       OfflineDynamicCallGraph.main(args.toArray(new String[0]));
       assertTrue(
           Files.exists(instrumentedJarLocation), "expected to create " + instrumentedJarLocation);
-      instrumentedJarBuilt = true;
+      instrumentedWith = args;
     }
   }
 
@@ -199,9 +220,7 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
   protected void check(CallGraph staticCG, EdgesTest test, Predicate<MethodReference> filter)
       throws IOException {
     int lines = 0;
-    try (final BufferedReader dynamicEdgesFile =
-        new BufferedReader(
-            new InputStreamReader(new GZIPInputStream(Files.newInputStream(cgLocation))))) {
+    try (final BufferedReader dynamicEdgesFile = openTrace()) {
       String line;
       loop:
       while ((line = dynamicEdgesFile.readLine()) != null) {
@@ -249,4 +268,34 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
 
     assertTrue(lines > 0, "more than one edge");
   }
+
+  /**
+   * @return the edges in the trace of the last run, one for each call with the text runtime, and
+   *     one for each distinct edge with the binary one
+   */
+  protected List<String> readEdges() throws IOException {
+    List<String> result = new ArrayList<>();
+    try (final BufferedReader trace = openTrace()) {
+      String line;
+      while ((line = trace.readLine()) != null) {
+        if (!line.startsWith("call to") && !line.startsWith("return from")) {
+          result.add(line);
+        }
+      }
+    }
+    return result;
+  }
+
+  /** the trace as text, converting binary traces to the form of the text ones */
+  private BufferedReader openTrace() throws IOException {
+    if (TraceReader.isTrace(cgLocation.toFile())) {
+      StringBuilder text = new StringBuilder();
+      for (TraceReader.Edge e : TraceReader.readEdges(cgLocation.toFile())) {
+        text.append(e).append('\n');
+      }
+      return new BufferedReader(new StringReader(text.toString()));
+    }
+    return new BufferedReader(
+        new InputStreamReader(new GZIPInputStream(Files.newInputStream(cgLocation))));
+  }
 }
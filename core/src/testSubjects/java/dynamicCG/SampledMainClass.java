@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+
+package dynamicCG;
+
+/**
+ * Calls that a trace sampling every other call at each site should miss: Circle.area() is reached
+ * only on odd calls to area(), and so is Triangle.area(), right after a picked call to
+ * Math.max(), which is not instrumented.
+ */
+public class SampledMainClass {
+
+  interface Shape {
+    int area();
+  }
+
+  static class Square implements Shape {
+    @Override
+    public int area() {
+      return 4;
+    }
+  }
+
+  static class Circle implements Shape {
+    @Override
+    public int area() {
+      return 3;
+    }
+  }
+
+  static class Triangle implements Shape {
+    @Override
+    public int area() {
+      return 2;
+    }
+  }
+
+  private static int measure(Shape s, boolean scaled) {
+    int scale = scaled ? Math.max(2, 1) : 1;
+    return scale * s.area();
+  }
+
+  public static void main(String[] args) {
+    Shape[] shapes = {new Square(), new Circle()};
+    int total = 0;
+    for (int i = 0; i < 10; i++) {
+      total += shapes[i % 2].area();
+    }
+    total += measure(shapes[0], false);
+    total += measure(new Triangle(), true);
+    System.err.println(total);
+  }
+}
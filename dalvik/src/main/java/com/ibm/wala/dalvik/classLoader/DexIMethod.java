@@ -107,6 +107,7 @@ import com.ibm.wala.types.Selector;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.types.annotations.Annotation;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -118,6 +119,7 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.jf.dexlib2.DebugItemType;
 import org.jf.dexlib2.Opcode;
 import org.jf.dexlib2.analysis.ClassPath;
@@ -182,9 +184,17 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 
   private ExceptionHandler[][] handlers;
 
+  /** the instructions while {@link #parseBytecode()} decodes them; null otherwise */
   protected InstructionArray instructions;
 
-  private static int totalInsts = 0;
+  /**
+   * the decoded instructions, held softly: they are decoded only when first asked for, e.g. to
+   * build an IR, and decoded again if the garbage collector has dropped them since
+   */
+  private SoftReference<InstructionArray> decoded;
+
+  /** number of instructions decoded so far, counting each method once */
+  private static final AtomicInteger totalInsts = new AtomicInteger();
 
   public DexIMethod(Method encodedMethod, DexIClass klass) {
     eMethod = encodedMethod;
@@ -192,7 +202,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
   }
 
   public static int getTotalInsts() {
-    return totalInsts;
+    return totalInsts.get();
   }
 
   // ------------------------------------------
@@ -646,7 +656,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
   }
 
   @Override
-  public ExceptionHandler[][] getHandlers() {
+  public synchronized ExceptionHandler[][] getHandlers() {
 
     if (handlers != null) return handlers;
 
@@ -742,9 +752,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 
   @Override
   public Instruction[] getInstructions() {
-    if (instructions == null) parseBytecode();
-
-    return instructions.toArray(new Instruction[0]);
+    return instructions().toArray(new Instruction[0]);
   }
 
   private boolean odexMethod() {
@@ -910,7 +918,6 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
     // int pc = 0;
     int currentCodeAddress = 0;
     for (org.jf.dexlib2.iface.instruction.Instruction inst : instrucs) {
-      totalInsts++;
       instCounter++;
       //          instLoc = pc - instCounter;
       instLoc = currentCodeAddress;
@@ -4550,9 +4557,29 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
     return instructions().toArray(new Instruction[0]);
   }
 
-  protected InstructionArray instructions() {
-    if (instructions == null) parseBytecode();
-    return instructions;
+  /**
+   * @return the instructions of this method, decoding them if they are not held yet. Several
+   *     threads may ask at once; each method is decoded by one of them at a time.
+   */
+  protected synchronized InstructionArray instructions() {
+    if (instructions != null) {
+      // being decoded by this thread
+      return instructions;
+    }
+    InstructionArray result = decoded == null ? null : decoded.get();
+    if (result == null) {
+      try {
+        parseBytecode();
+        result = instructions;
+      } finally {
+        instructions = null;
+      }
+      if (decoded == null) {
+        totalInsts.addAndGet(result.size());
+      }
+      decoded = new SoftReference<>(result);
+    }
+    return result;
   }
 
   public int getAddressFromIndex(int index) {
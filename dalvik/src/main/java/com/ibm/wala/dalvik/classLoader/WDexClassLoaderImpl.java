@@ -61,10 +61,17 @@ import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.config.SetOfClasses;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /** ClassLoader for Java &amp; Dalvik. */
 public class WDexClassLoaderImpl extends ClassLoaderImpl {
@@ -100,14 +107,24 @@ public class WDexClassLoaderImpl extends ClassLoaderImpl {
     super.init(modules);
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
+    ExecutorService pool = getParallelism() > 1 ? new ForkJoinPool(getParallelism()) : null;
+    try {
+      for (Module archive : modules) {
+        Set<ModuleEntry> classFiles = getDexFiles(archive);
 
-    for (Module archive : modules) {
-      Set<ModuleEntry> classFiles = getDexFiles(archive);
-
-      removeClassFiles(classFiles, classModuleEntries);
-      loadAllDexClasses(classFiles);
+        removeClassFiles(classFiles, classModuleEntries);
+        if (pool == null) {
+          loadAllDexClasses(classFiles);
+        } else {
+          loadAllDexClasses(classFiles, pool);
+        }
 
-      classModuleEntries.addAll(classFiles);
+        classModuleEntries.addAll(classFiles);
+      }
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
+      }
     }
   }
 
@@ -175,6 +192,65 @@ public class WDexClassLoaderImpl extends ClassLoaderImpl {
     }
   }
 
+  /**
+   * Set up the dex classes of moduleEntries, building the {@link DexIClass}es on the threads of
+   * pool. The classes are entered in the same order, and with the same warnings, as by {@link
+   * #loadAllDexClasses(Collection)}. Method bodies are not decoded here; each {@link DexIMethod}
+   * decodes its own on first use.
+   */
+  private void loadAllDexClasses(Collection<ModuleEntry> moduleEntries, ExecutorService pool)
+      throws IOException {
+    List<DexModuleEntry> dexEntries = new ArrayList<>();
+    List<Callable<IClass>> tasks = new ArrayList<>();
+    for (ModuleEntry entry : moduleEntries) {
+      if (entry instanceof DexModuleEntry) {
+        DexModuleEntry dexEntry = (DexModuleEntry) entry;
+        TypeName tName = TypeName.string2TypeName(dexEntry.getClassName());
+        if (lParent != null && lParent.lookupClass(tName) != null) {
+          Warnings.add(MultipleDexImplementationsWarning.create(dexEntry.getClassName()));
+          continue;
+        }
+        dexEntries.add(dexEntry);
+        tasks.add(() -> new DexIClass(this, cha, dexEntry));
+      }
+    }
+
+    try {
+      List<Future<IClass>> results = pool.invokeAll(tasks);
+      for (int i = 0; i < dexEntries.size(); i++) {
+        String className = dexEntries.get(i).getClassName();
+        TypeName tName = TypeName.string2TypeName(className);
+        IClass iClass = results.get(i).get();
+        if (loadedClasses.get(tName) != null) {
+          Warnings.add(MultipleDexImplementationsWarning.create(className));
+        } else if (iClass.getReference().getName().equals(tName)) {
+          // className is a descriptor, so strip the 'L'
+          if (exclusions != null && exclusions.contains(className.substring(1))) {
+            if (DEBUG_LEVEL > 0) {
+              System.err.println("Excluding " + className);
+            }
+            continue;
+          }
+          loadedClasses.put(tName, iClass);
+        } else {
+          Warnings.add(InvalidDexFile.create(className));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while loading dex classes");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException(cause);
+      }
+    }
+  }
+
   /**
    * @return the IClassHierarchy of this classLoader.
    */
@@ -14,6 +14,7 @@ rootProject.name = "wala"
 includeBuild("build-logic")
 
 include(
+    "benchmarks",
     "cast",
     "cast:smoke_main",
     "cast:xlator_test",
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.cg;
+
+import com.ibm.wala.shrike.cg.TraceWriter.MethodId;
+import com.ibm.wala.util.config.FileOfClasses;
+import com.ibm.wala.util.config.SetOfClasses;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A replacement for {@link Runtime} that records call graph edges in the binary form of {@link
+ * TraceWriter}, to be passed to {@link OfflineDynamicCallGraph} with {@code --runtime
+ * com.ibm.wala.shrike.cg.BinaryRuntime}. It reads the same {@code dynamicCGFile} and {@code
+ * dynamicCGFilter} properties, and finds the same edges, but threads do not contend for the output,
+ * each edge is written once per thread, and callbacks are found by looking at the top three frames
+ * of the stack only. Call and return sites are not recorded, and the {@code policyClass} property
+ * is ignored.
+ *
+ * <p>With code instrumented for sampling, calls that are not picked cost only a counter at the call
+ * site and a push and pop of the call stack.
+ */
+public class BinaryRuntime {
+
+  private static final TraceWriter writer = makeWriter(System.getProperty("dynamicCGFile"));
+
+  private static final SetOfClasses filter = makeFilter(System.getProperty("dynamicCGFilter"));
+
+  private static final StackWalker walker = StackWalker.getInstance();
+
+  private static final CallSiteSampler sampler = new CallSiteSampler();
+
+  private static TraceWriter makeWriter(String fileName) {
+    if (fileName == null) {
+      return null;
+    }
+    try {
+      TraceWriter result = new TraceWriter(fileName);
+      java.lang.Runtime.getRuntime().addShutdownHook(new Thread(BinaryRuntime::endTrace));
+      return result;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private static SetOfClasses makeFilter(String fileName) {
+    if (fileName == null) {
+      return null;
+    }
+    try (final FileInputStream in = new FileInputStream(fileName)) {
+      return new FileOfClasses(in);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /** The methods executing in one thread, the innermost last. */
+  private static final class CallStack {
+    String[] classes = new String[64];
+
+    String[] methods = new String[64];
+
+    /** the ids of the methods, interned only when needed */
+    MethodId[] ids = new MethodId[64];
+
+    int size;
+
+    /** the size of the stack at the last picked call site, if it has not been entered yet */
+    int sampledDepth = -1;
+
+    CallStack() {
+      push(null, null, writer.pseudoCaller(TraceWriter.ROOT));
+    }
+
+    void push(String klass, String method, MethodId id) {
+      if (size == ids.length) {
+        classes = Arrays.copyOf(classes, size * 2);
+        methods = Arrays.copyOf(methods, size * 2);
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      classes[size] = klass;
+      methods[size] = method;
+      ids[size] = id;
+      size++;
+    }
+
+    MethodId peek() {
+      MethodId result = ids[size - 1];
+      if (result == null) {
+        result = writer.intern(Runtime.bashToDescriptor(classes[size - 1]), methods[size - 1]);
+        ids[size - 1] = result;
+      }
+      return result;
+    }
+
+    void pop() {
+      size--;
+      classes[size] = null;
+      methods[size] = null;
+      ids[size] = null;
+    }
+  }
+
+  private static final ThreadLocal<CallStack> callStacks = ThreadLocal.withInitial(CallStack::new);
+
+  public static void endTrace() {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  public static Object NULL_TAG = Runtime.NULL_TAG;
+
+  /**
+   * Called before call sites instrumented with sampling; once any is reached, only calls made at
+   * picked sites are recorded.
+   *
+   * @return true iff the call is picked
+   */
+  public static boolean sample(int site, int first, int rate) {
+    if (writer != null && sampler.sample(site, first, rate)) {
+      CallStack stack = callStacks.get();
+      stack.sampledDepth = stack.size;
+      return true;
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unused")
+  public static void execution(String klass, String method, Object receiver) {
+    if (writer == null) {
+      return;
+    }
+    CallStack stack = callStacks.get();
+    boolean sampled = !sampler.isSampling() || stack.sampledDepth == stack.size;
+    stack.sampledDepth = -1;
+    if (!sampled) {
+      stack.push(klass, method, null);
+      return;
+    }
+    String className = Runtime.bashToDescriptor(klass);
+    MethodId callee = writer.intern(className, method);
+    if (filter == null || !filter.contains(className)) {
+      MethodId caller = stack.peek();
+      List<StackWalker.StackFrame> frames =
+          walker.walk(s -> s.limit(3).collect(Collectors.toList()));
+      // frames: BinaryRuntime.execution(0), callee(1), caller(2)
+      MethodId from = null;
+      if (frames.size() > 2) {
+        StackWalker.StackFrame callerFrame = frames.get(2);
+        if (!callerFrame.getMethodName().startsWith("$")
+            && (!caller.label.contains(callerFrame.getMethodName())
+                || !caller.label.contains(Runtime.bashToDescriptor(callerFrame.getClassName())))) {
+          String calleeName = frames.get(1).getMethodName();
+          from =
+              writer.pseudoCaller(
+                  "<clinit>".equals(calleeName)
+                      ? TraceWriter.CLINIT
+                      : "finalize".equals(calleeName) ? TraceWriter.ROOT : TraceWriter.CALLBACKS);
+        }
+      }
+      if (from == null) {
+        from = method.contains("<clinit>") ? writer.pseudoCaller(TraceWriter.CLINIT) : caller;
+      }
+      writer.edge(from, callee);
+    }
+    stack.push(klass, method, callee);
+  }
+
+  @SuppressWarnings("unused")
+  public static void termination(String klass, String method, Object receiver, boolean exception) {
+    if (writer != null) {
+      callStacks.get().pop();
+    }
+  }
+
+  /**
+   * Called after each call returns. Call sites are not recorded, but a pick made for the call is
+   * dropped, since a callee that is not instrumented never enters to take it.
+   */
+  public static void pop() {
+    if (writer != null && sampler.isSampling()) {
+      callStacks.get().sampledDepth = -1;
+    }
+  }
+
+  /** Call sites are not recorded. */
+  @SuppressWarnings("unused")
+  public static void addToCallStack(String klass, String method, Object receiver) {}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.cg;
+
+import java.util.Arrays;
+
+/**
+ * Counts the calls made at each call site of code instrumented by {@link OfflineDynamicCallGraph}
+ * with sampling, and picks the ones to record. The counts are not synchronized: threads may lose
+ * each other's updates, which only changes which calls are picked.
+ */
+final class CallSiteSampler {
+
+  private volatile int[] counts = new int[1024];
+
+  private volatile boolean sampling;
+
+  /**
+   * @return true iff sampled call sites have been reached, so that only picked calls are to be
+   *     recorded
+   */
+  boolean isSampling() {
+    return sampling;
+  }
+
+  /**
+   * Count a call at a site.
+   *
+   * @param first how many calls at each site to pick first
+   * @param rate after those, pick every rate-th call at each site; 0 for none
+   * @return true iff the call is picked
+   */
+  boolean sample(int site, int first, int rate) {
+    if (!sampling) {
+      sampling = true;
+    }
+    int[] c = counts;
+    if (site >= c.length) {
+      c = grow(site);
+    }
+    int n = c[site]++;
+    return (n >= 0 && n < first) || (rate > 0 && n % rate == 0);
+  }
+
+  private synchronized int[] grow(int site) {
+    int[] c = counts;
+    if (site >= c.length) {
+      c = Arrays.copyOf(c, Math.max(site + 1, 2 * c.length));
+      counts = c;
+    }
+    return c;
+  }
+}
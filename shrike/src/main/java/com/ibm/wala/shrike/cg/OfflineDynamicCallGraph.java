@@ -10,6 +10,7 @@
  */
 package com.ibm.wala.shrike.cg;
 
+import com.ibm.wala.shrike.shrikeBT.ConditionalBranchInstruction;
 import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
 import com.ibm.wala.shrike.shrikeBT.Constants;
 import com.ibm.wala.shrike.shrikeBT.Disassembler;
@@ -25,6 +26,7 @@ import com.ibm.wala.shrike.shrikeBT.ReturnInstruction;
 import com.ibm.wala.shrike.shrikeBT.ThrowInstruction;
 import com.ibm.wala.shrike.shrikeBT.Util;
 import com.ibm.wala.shrike.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyCache;
 import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyStore;
 import com.ibm.wala.shrike.shrikeBT.analysis.Verifier;
 import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTUtils;
@@ -54,6 +56,10 @@ import java.util.Map;
  * <p>The instrumented classes are placed in the directory "output" under the current directory.
  * Disassembled code is written to the file "report" under the current directory.
  *
+ * <p>With {@code --sample-first n} or {@code --sample-rate n}, each call site gets a counter, and
+ * only the first n calls, or every n-th call, made there are recorded. When calls are extracted
+ * into trampolines, the sites are those of the trampolines, one per called method in each class.
+ *
  * @author CHammer
  * @author Julian Dolby (dolby@us.ibm.com)
  * @since 10/18
@@ -73,10 +79,26 @@ public class OfflineDynamicCallGraph {
               w.emit(ThrowInstruction.make(true));
             }
           });
+      final int site = sampling ? nextSite++ : -1;
+      final int notSampled = sampling ? allocateLabel() : -1;
       insertBefore(
           new MethodEditor.Patch() {
             @Override
             public void emitTo(MethodEditor.Output w) {
+              if (sampling) {
+                w.emit(ConstantInstruction.make(site));
+                w.emit(ConstantInstruction.make(sampleFirst));
+                w.emit(ConstantInstruction.make(sampleRate));
+                w.emit(
+                    Util.makeInvoke(
+                        runtime, "sample", new Class[] {int.class, int.class, int.class}));
+                w.emit(ConstantInstruction.make(0));
+                w.emit(
+                    ConditionalBranchInstruction.make(
+                        Constants.TYPE_int,
+                        ConditionalBranchInstruction.Operator.EQ,
+                        notSampled));
+              }
               w.emit(ConstantInstruction.makeString(calleeClass));
               w.emit(ConstantInstruction.makeString(calleeMethod));
               // target unknown
@@ -87,6 +109,9 @@ public class OfflineDynamicCallGraph {
                       runtime,
                       "addToCallStack",
                       new Class[] {String.class, String.class, Object.class}));
+              if (sampling) {
+                w.emitLabel(notSampled);
+              }
             }
           });
       insertAfter(
@@ -108,6 +133,21 @@ public class OfflineDynamicCallGraph {
   private static boolean extractDynamicCalls = false;
   private static boolean extractConstructors = true;
 
+  /**
+   * whether to guard call sites with counters, so that only the calls they pick are recorded; see
+   * {@link #sampleFirst} and {@link #sampleRate}
+   */
+  private static boolean sampling = false;
+
+  /** how many calls at each site are picked first */
+  private static int sampleFirst = 0;
+
+  /** after the first ones, every this many calls at each site are picked; 0 for none */
+  private static int sampleRate = 0;
+
+  /** the id of the next call site guarded for sampling */
+  private static int nextSite = 0;
+
   private static Class<?> runtime = Runtime.class;
 
   private static SetOfClasses filter;
@@ -120,9 +160,18 @@ public class OfflineDynamicCallGraph {
     ClassInstrumenter ci;
     try (final Writer w = new BufferedWriter(new FileWriter("build/report", false))) {
 
+      // options and site ids left by earlier runs in this VM
+      runtime = Runtime.class;
+      sampling = false;
+      sampleFirst = 0;
+      sampleRate = 0;
+      nextSite = 0;
+
       for (int i = 0; i < args.length; i++) {
         if ("--runtime".equals(args[i])) {
-          runtime = Class.forName(args[i + 1]);
+          // only its methods are needed here; initializing it would start a trace
+          runtime =
+              Class.forName(args[i + 1], false, OfflineDynamicCallGraph.class.getClassLoader());
         } else if ("--exclusions".equals(args[i])) {
           try (FileInputStream input = new FileInputStream(args[i + 1])) {
             filter = new FileOfClasses(input);
@@ -135,6 +184,12 @@ public class OfflineDynamicCallGraph {
           extractDynamicCalls = true;
         } else if ("--extract-constructors".equals(args[i])) {
           extractConstructors = true;
+        } else if ("--sample-first".equals(args[i])) {
+          sampling = true;
+          sampleFirst = Integer.parseInt(args[i + 1]);
+        } else if ("--sample-rate".equals(args[i])) {
+          sampling = true;
+          sampleRate = Integer.parseInt(args[i + 1]);
         } else if ("--rt-jar".equals(args[i])) {
           System.err.println("using " + args[i + 1] + " as stdlib");
           OfflineInstrumenter libReader = new OfflineInstrumenter();
@@ -155,7 +210,7 @@ public class OfflineDynamicCallGraph {
         CTUtils.addClassToHierarchy(cha, ci.getReader());
       }
 
-      instrumenter.setClassHierarchyProvider(cha);
+      instrumenter.setClassHierarchyProvider(new ClassHierarchyCache(cha));
 
       instrumenter.beginTraversal();
       while ((ci = instrumenter.nextClass()) != null) {
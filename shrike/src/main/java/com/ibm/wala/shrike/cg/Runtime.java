@@ -55,6 +55,10 @@ public class Runtime {
   private SetOfClasses filter;
   private Policy handleCallback;
   private final ThreadLocal<String> currentSite = new ThreadLocal<>();
+  private final CallSiteSampler sampler = new CallSiteSampler();
+
+  /** the depth of the call stack at the last picked call site, if it has not been entered yet */
+  private final ThreadLocal<Integer> sampledDepth = new ThreadLocal<>();
 
   private final ThreadLocal<ArrayDeque<String>> callStacks =
       ThreadLocal.withInitial(
@@ -123,9 +127,40 @@ public class Runtime {
     return className;
   }
 
+  /**
+   * Called before call sites instrumented with sampling; once any is reached, only calls made at
+   * picked sites are recorded.
+   *
+   * @return true iff the call is picked
+   */
+  public static boolean sample(int site, int first, int rate) {
+    if (runtime.sampler.sample(site, first, rate)) {
+      runtime.sampledDepth.set(runtime.callStacks.get().size());
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return true iff the method being entered is to be recorded
+   */
+  private boolean takeSample() {
+    if (!sampler.isSampling()) {
+      return true;
+    }
+    Integer depth = sampledDepth.get();
+    if (depth == null) {
+      return false;
+    }
+    sampledDepth.remove();
+    return depth == callStacks.get().size();
+  }
+
   public static void execution(String klass, String method, Object receiver) {
     runtime.currentSite.remove();
-    if (runtime.filter == null || !runtime.filter.contains(bashToDescriptor(klass))) {
+    boolean sampled = runtime.takeSample();
+    if (sampled
+        && (runtime.filter == null || !runtime.filter.contains(bashToDescriptor(klass)))) {
       if (runtime.output != null) {
         String caller = runtime.callStacks.get().peek();
 
@@ -175,6 +210,10 @@ public class Runtime {
   }
 
   public static void pop() {
+    if (runtime.sampler.isSampling()) {
+      // drop a pick for a callee that is not instrumented, and so never took it
+      runtime.sampledDepth.remove();
+    }
     if (runtime.currentSite.get() != null) {
       synchronized (runtime) {
         if (runtime.output != null) {
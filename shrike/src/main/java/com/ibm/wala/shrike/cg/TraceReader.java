@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Reads the call graph edges written by a {@link TraceWriter}. */
+public class TraceReader {
+
+  /** An edge of a dynamic call graph. */
+  public static final class Edge {
+    private final String caller;
+
+    private final String calleeClass;
+
+    private final String calleeMethod;
+
+    Edge(String caller, String calleeClass, String calleeMethod) {
+      this.caller = caller;
+      this.calleeClass = calleeClass;
+      this.calleeMethod = calleeMethod;
+    }
+
+    /**
+     * @return the class and method of the caller, separated by a tab, or one of "root", "clinit"
+     *     and "callbacks"
+     */
+    public String getCaller() {
+      return caller;
+    }
+
+    public String getCalleeClass() {
+      return calleeClass;
+    }
+
+    public String getCalleeMethod() {
+      return calleeMethod;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Edge)) {
+        return false;
+      }
+      Edge other = (Edge) o;
+      return caller.equals(other.caller)
+          && calleeClass.equals(other.calleeClass)
+          && calleeMethod.equals(other.calleeMethod);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * caller.hashCode() + calleeClass.hashCode()) + calleeMethod.hashCode();
+    }
+
+    /** The edge as a line of the text traces of {@link Runtime}, without the line break. */
+    @Override
+    public String toString() {
+      return caller + '\t' + calleeClass + '\t' + calleeMethod;
+    }
+  }
+
+  /**
+   * @return true iff the file starts like a trace written by a {@link TraceWriter}
+   */
+  public static boolean isTrace(File f) throws IOException {
+    try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+      return in.readInt() == TraceWriter.MAGIC;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the distinct edges of the trace in the file
+   */
+  public static Set<Edge> readEdges(File f) throws IOException {
+    try (InputStream in = new FileInputStream(f)) {
+      return readEdges(in);
+    }
+  }
+
+  /**
+   * @return the distinct edges of the trace read from s, in the order first seen
+   */
+  public static Set<Edge> readEdges(InputStream s) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(s));
+    if (in.readInt() != TraceWriter.MAGIC) {
+      throw new IOException("not a call graph trace");
+    }
+    List<String[]> names = new ArrayList<>();
+    for (String p : TraceWriter.PSEUDO_CALLERS) {
+      names.add(new String[] {p, null});
+    }
+    // ids may be used before they are defined, so resolve them at the end
+    List<long[]> edges = new ArrayList<>();
+    for (int tag; (tag = in.read()) != -1; ) {
+      if (tag == TraceWriter.DEFINE) {
+        int id = readVarint(in);
+        String klass = readString(in);
+        String method = readString(in);
+        while (names.size() <= id) {
+          names.add(null);
+        }
+        names.set(id, new String[] {klass, method});
+      } else if (tag == TraceWriter.EDGE) {
+        edges.add(new long[] {readVarint(in), readVarint(in)});
+      } else {
+        throw new IOException("bad record tag " + tag);
+      }
+    }
+    Set<Edge> result = new LinkedHashSet<>();
+    for (long[] e : edges) {
+      String[] caller = lookup(names, (int) e[0]);
+      String[] callee = lookup(names, (int) e[1]);
+      if (callee[1] == null) {
+        throw new IOException("pseudo-method " + callee[0] + " called");
+      }
+      result.add(
+          new Edge(
+              caller[1] == null ? caller[0] : caller[0] + '\t' + caller[1], callee[0], callee[1]));
+    }
+    return result;
+  }
+
+  private static String[] lookup(List<String[]> names, int id) throws IOException {
+    String[] result = id < names.size() ? names.get(id) : null;
+    if (result == null) {
+      throw new IOException("undefined method id " + id);
+    }
+    return result;
+  }
+
+  private static int readVarint(DataInputStream in) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = in.readUnsignedByte();
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("bad varint");
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readVarint(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Print the edges of the trace in the file named by args[0] as text, like {@link Runtime}. */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("usage: TraceReader <trace file>");
+      System.exit(1);
+    }
+    PrintWriter out = new PrintWriter(System.out);
+    for (Edge e : readEdges(new File(args[0]))) {
+      out.println(e);
+    }
+    out.flush();
+  }
+}
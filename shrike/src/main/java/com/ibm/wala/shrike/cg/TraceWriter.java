@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the edges of a dynamic call graph to a file in a compact binary form, to be read back by
+ * {@link TraceReader}.
+ *
+ * <p>Methods are interned: each gets an integer id the first time it is seen, and a record defining
+ * the id is written then. An edge is written as a pair of ids, and only the first time the thread
+ * that takes it does so. Each thread appends its records to a buffer of its own, under a lock of
+ * its own that only the background thread and {@link #close()} ever contend for. Full buffers, and
+ * those of threads that have finished, are written to the file by the background thread, and the
+ * rest by {@link #close()}. Since threads write their buffers independently, a record may use an
+ * id whose definition comes later in the file.
+ */
+public class TraceWriter implements Closeable {
+
+  /** first four bytes of a trace file */
+  static final int MAGIC = 0x57434731;
+
+  /** tag of a record defining a method id: id, class and method */
+  static final int DEFINE = 1;
+
+  /** tag of a record for a call graph edge: caller id and callee id */
+  static final int EDGE = 2;
+
+  /** id of the caller of methods called by the virtual machine */
+  public static final int ROOT = 0;
+
+  /** id of the caller of class initializers */
+  public static final int CLINIT = 1;
+
+  /** id of the caller of methods called back from code that is not traced */
+  public static final int CALLBACKS = 2;
+
+  static final String[] PSEUDO_CALLERS = {"root", "clinit", "callbacks"};
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** how long the background thread sleeps when there is nothing to write */
+  private static final long FLUSH_INTERVAL_NANOS = 10_000_000;
+
+  /** A method with its id. */
+  public static final class MethodId {
+    final int id;
+
+    final String klass;
+
+    final String method;
+
+    /** class and method, separated by a tab, as in the text traces of {@link Runtime} */
+    final String label;
+
+    MethodId(int id, String klass, String method) {
+      this.id = id;
+      this.klass = klass;
+      this.method = method;
+      this.label = method == null ? klass : klass + '\t' + method;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  /** A full or partly filled buffer of records. */
+  private static final class Block {
+    final byte[] bytes;
+
+    /** end of the last complete record */
+    int position;
+
+    Block(int size) {
+      bytes = new byte[size];
+    }
+  }
+
+  /**
+   * The records of one thread. Its fields are guarded by the sink itself, so that {@link #close()}
+   * can tell when the thread is done with it.
+   */
+  private final class Sink {
+    final Thread owner = Thread.currentThread();
+
+    /** the block records are appended to; null once the block has been taken for writing */
+    Block current = new Block(BUFFER_SIZE);
+
+    /** edges this thread has written already, as caller id and callee id in one long */
+    long[] seen = new long[64];
+
+    int seenCount;
+
+    /** Make room for a record of at most size bytes, handing off the current block if needed. */
+    Block reserve(int size) {
+      Block b = current;
+      if (b.position + size <= b.bytes.length) {
+        return b;
+      }
+      full.add(b);
+      LockSupport.unpark(flusher);
+      b = new Block(Math.max(BUFFER_SIZE, size));
+      current = b;
+      return b;
+    }
+
+    /**
+     * @return true iff the edge had not been seen by this thread before
+     */
+    boolean firstTime(long edge) {
+      // open addressing; 0 is never an edge, since callees are never pseudo-callers
+      int mask = seen.length - 1;
+      int i = (int) (edge ^ (edge >>> 29)) * 0x9E3779B9 & mask;
+      while (seen[i] != 0) {
+        if (seen[i] == edge) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      seen[i] = edge;
+      if (++seenCount * 2 > seen.length) {
+        long[] old = seen;
+        seen = new long[old.length * 2];
+        seenCount = 0;
+        for (long e : old) {
+          if (e != 0) {
+            firstTime(e);
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  private final DataOutputStream out;
+
+  private final Map<String, Map<String, MethodId>> ids = new ConcurrentHashMap<>();
+
+  private final AtomicInteger nextId = new AtomicInteger(PSEUDO_CALLERS.length);
+
+  private final MethodId[] pseudoCallers = new MethodId[PSEUDO_CALLERS.length];
+
+  /** the sinks of all live threads, so that close() can write what they hold */
+  private final ConcurrentLinkedQueue<Sink> sinks = new ConcurrentLinkedQueue<>();
+
+  private final ThreadLocal<Sink> sink =
+      ThreadLocal.withInitial(
+          () -> {
+            Sink s = new Sink();
+            sinks.add(s);
+            return s;
+          });
+
+  /** blocks waiting to be written */
+  private final ConcurrentLinkedQueue<Block> full = new ConcurrentLinkedQueue<>();
+
+  private final Thread flusher;
+
+  private volatile boolean closed;
+
+  /** the first error writing the file, reported by close() */
+  private IOException error;
+
+  public TraceWriter(String fileName) throws IOException {
+    this(new FileOutputStream(fileName));
+  }
+
+  public TraceWriter(OutputStream s) throws IOException {
+    if (s == null) {
+      throw new IllegalArgumentException("s is null");
+    }
+    out = new DataOutputStream(new BufferedOutputStream(s, BUFFER_SIZE));
+    out.writeInt(MAGIC);
+    for (int i = 0; i < PSEUDO_CALLERS.length; i++) {
+      pseudoCallers[i] = new MethodId(i, PSEUDO_CALLERS[i], null);
+    }
+    flusher = new Thread(this::flushFullBlocks, "call graph trace writer");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * @param id one of {@link #ROOT}, {@link #CLINIT} and {@link #CALLBACKS}
+   */
+  public MethodId pseudoCaller(int id) {
+    return pseudoCallers[id];
+  }
+
+  /**
+   * @return the id of the given method, defining it in the trace if it is new
+   */
+  public MethodId intern(String klass, String method) {
+    Map<String, MethodId> methods = ids.get(klass);
+    if (methods == null) {
+      methods = ids.computeIfAbsent(klass, k -> new ConcurrentHashMap<>());
+    }
+    MethodId result = methods.get(method);
+    if (result == null) {
+      result =
+          methods.computeIfAbsent(
+              method,
+              m -> {
+                MethodId id = new MethodId(nextId.getAndIncrement(), klass, m);
+                define(id);
+                return id;
+              });
+    }
+    return result;
+  }
+
+  private void define(MethodId m) {
+    if (closed) {
+      return;
+    }
+    byte[] klass = m.klass.getBytes(StandardCharsets.UTF_8);
+    byte[] method = m.method.getBytes(StandardCharsets.UTF_8);
+    Sink s = sink.get();
+    synchronized (s) {
+      // checked again under the lock, so that close() sees every record made before it
+      if (closed) {
+        return;
+      }
+      Block b = s.reserve(1 + 3 * 5 + klass.length + method.length);
+      int p = b.position;
+      b.bytes[p++] = DEFINE;
+      p = writeVarint(b.bytes, p, m.id);
+      p = writeString(b.bytes, p, klass);
+      p = writeString(b.bytes, p, method);
+      b.position = p;
+    }
+  }
+
+  /** Record an edge from caller to callee, unless this thread has done so already. */
+  public void edge(MethodId caller, MethodId callee) {
+    if (closed) {
+      return;
+    }
+    Sink s = sink.get();
+    synchronized (s) {
+      if (closed || !s.firstTime(((long) caller.id << 32) | callee.id)) {
+        return;
+      }
+      Block b = s.reserve(1 + 2 * 5);
+      int p = b.position;
+      b.bytes[p++] = EDGE;
+      p = writeVarint(b.bytes, p, caller.id);
+      p = writeVarint(b.bytes, p, callee.id);
+      b.position = p;
+    }
+  }
+
+  private static int writeVarint(byte[] bytes, int p, int v) {
+    while ((v & ~0x7F) != 0) {
+      bytes[p++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    bytes[p++] = (byte) v;
+    return p;
+  }
+
+  private static int writeString(byte[] bytes, int p, byte[] s) {
+    p = writeVarint(bytes, p, s.length);
+    System.arraycopy(s, 0, bytes, p, s.length);
+    return p + s.length;
+  }
+
+  private void flushFullBlocks() {
+    while (!closed) {
+      handOffFinishedThreads();
+      if (!writeFullBlocks()) {
+        LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+      }
+    }
+  }
+
+  /** Queue the blocks of threads that have finished for writing, and forget their sinks. */
+  private void handOffFinishedThreads() {
+    for (Iterator<Sink> it = sinks.iterator(); it.hasNext(); ) {
+      Sink s = it.next();
+      if (!s.owner.isAlive()) {
+        it.remove();
+        takeCurrent(s);
+      }
+    }
+  }
+
+  /** Queue the current block of s for writing; s must not be used for records afterwards. */
+  private void takeCurrent(Sink s) {
+    synchronized (s) {
+      if (s.current != null) {
+        if (s.current.position > 0) {
+          full.add(s.current);
+        }
+        s.current = null;
+      }
+    }
+  }
+
+  /**
+   * @return true iff some block was written
+   */
+  private synchronized boolean writeFullBlocks() {
+    boolean wrote = false;
+    for (Block b; (b = full.poll()) != null; ) {
+      write(b);
+      wrote = true;
+    }
+    return wrote;
+  }
+
+  private synchronized void write(Block b) {
+    if (error == null) {
+      try {
+        out.write(b.bytes, 0, b.position);
+      } catch (IOException e) {
+        error = e;
+      }
+    }
+  }
+
+  /**
+   * Write out what all threads have recorded, and close the file. Records made afterwards are
+   * dropped.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    LockSupport.unpark(flusher);
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      // once closed, a thread adds nothing to its sink, so after this nothing is handed off
+      for (Sink s : sinks) {
+        takeCurrent(s);
+      }
+      sinks.clear();
+      writeFullBlocks();
+      try {
+        out.close();
+      } catch (IOException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+}
@@ -24,6 +24,13 @@ public final class ConditionalBranchInstruction extends Instruction
     this.label = label;
   }
 
+  /**
+   * Shared instances for the labels below 256, which almost all branches have, created as needed.
+   * Since the fields are final, threads racing to create an entry do no harm.
+   */
+  private static final ConditionalBranchInstruction[] preallocated =
+      new ConditionalBranchInstruction[(OP_if_acmpne - OP_ifeq + 1) * 256];
+
   public static ConditionalBranchInstruction make(String type, Operator operator, int label)
       throws IllegalArgumentException {
     int t = Util.getTypeIndex(type);
@@ -54,6 +61,15 @@ public final class ConditionalBranchInstruction extends Instruction
     if (opcode < OP_ifeq || opcode > OP_if_acmpne) {
       throw new IllegalArgumentException("Illegal opcode: " + opcode);
     }
+    if (0 <= label && label < 256) {
+      int k = (opcode - OP_ifeq) * 256 + label;
+      ConditionalBranchInstruction r = preallocated[k];
+      if (r == null) {
+        r = new ConditionalBranchInstruction(opcode, label);
+        preallocated[k] = r;
+      }
+      return r;
+    }
     return new ConditionalBranchInstruction(opcode, label);
   }
 
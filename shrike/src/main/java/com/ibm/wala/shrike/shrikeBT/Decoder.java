@@ -171,6 +171,9 @@ public abstract class Decoder implements Constants {
 
   private RetInfo[] retInfo;
 
+  /** instructions shared by makeShared, keyed by opcode and constant pool index */
+  private SharedInstructions shared;
+
   /**
    * This constructor is only supposed to be used by subclasses.
    *
@@ -203,6 +206,119 @@ public abstract class Decoder implements Constants {
         | (code[index + 3] & 0xFF);
   }
 
+  /**
+   * Get the instruction for an opcode that refers to a constant pool item, sharing one instance
+   * among all the uses of the item by the same opcode in this method. Many methods call the same
+   * methods and read the same fields repeatedly, so this saves allocating an object, and often
+   * resolving strings, for each of them.
+   */
+  private Instruction makeShared(int opcode, int cpIndex) throws InvalidBytecodeException {
+    // opcodes are at least OP_ldc, so 0 is never a key
+    int key = (opcode << 16) | cpIndex;
+    Instruction i = shared.get(key);
+    if (i == null) {
+      i = makeFromConstantPool(opcode, cpIndex);
+      shared.put(key, i);
+    }
+    return i;
+  }
+
+  /**
+   * A map from int keys to instructions, kept by each thread and emptied after each decode, so that
+   * decoding allocates no tables.
+   */
+  private static final class SharedInstructions {
+    private int[] keys = new int[64];
+
+    private Instruction[] instructions = new Instruction[64];
+
+    /** the slots in use, so that clearing costs no more than filling */
+    private int[] used = new int[32];
+
+    private int count;
+
+    private int slot(int key) {
+      int mask = keys.length - 1;
+      int h = (key * 0x9E3779B9) >>> 16 & mask;
+      while (keys[h] != 0 && keys[h] != key) {
+        h = (h + 1) & mask;
+      }
+      return h;
+    }
+
+    Instruction get(int key) {
+      int h = slot(key);
+      return keys[h] == key ? instructions[h] : null;
+    }
+
+    void put(int key, Instruction i) {
+      if ((count + 1) * 2 > keys.length) {
+        grow();
+      }
+      int h = slot(key);
+      keys[h] = key;
+      instructions[h] = i;
+      used[count++] = h;
+    }
+
+    private void grow() {
+      int[] oldKeys = keys;
+      Instruction[] oldInstructions = instructions;
+      int[] oldUsed = used;
+      keys = new int[oldKeys.length * 2];
+      instructions = new Instruction[oldKeys.length * 2];
+      used = new int[oldKeys.length];
+      int n = count;
+      count = 0;
+      for (int j = 0; j < n; j++) {
+        put(oldKeys[oldUsed[j]], oldInstructions[oldUsed[j]]);
+      }
+    }
+
+    void clear() {
+      for (int j = 0; j < count; j++) {
+        keys[used[j]] = 0;
+        instructions[used[j]] = null;
+      }
+      count = 0;
+    }
+  }
+
+  private static final ThreadLocal<SharedInstructions> sharedInstructions =
+      ThreadLocal.withInitial(SharedInstructions::new);
+
+  private Instruction makeFromConstantPool(int opcode, int cpIndex)
+      throws InvalidBytecodeException {
+    switch (opcode) {
+      case OP_ldc:
+        return makeConstantPoolLoad(cpIndex);
+      case OP_getstatic:
+      case OP_getfield:
+        return GetInstruction.make(constantPool, cpIndex, opcode == OP_getstatic);
+      case OP_putstatic:
+      case OP_putfield:
+        return PutInstruction.make(constantPool, cpIndex, opcode == OP_putstatic);
+      case OP_invokevirtual:
+      case OP_invokespecial:
+      case OP_invokestatic:
+      case OP_invokeinterface:
+        return InvokeInstruction.make(constantPool, cpIndex, opcode);
+      case OP_invokedynamic:
+        return InvokeDynamicInstruction.make(constantPool, cpIndex, opcode);
+      case OP_new:
+        return NewInstruction.make(constantPool.getConstantPoolClassType(cpIndex), 0);
+      case OP_anewarray:
+        return NewInstruction.make(
+            Util.makeArray(constantPool.getConstantPoolClassType(cpIndex)), 1);
+      case OP_checkcast:
+        return CheckCastInstruction.make(constantPool.getConstantPoolClassType(cpIndex));
+      case OP_instanceof:
+        return InstanceofInstruction.make(constantPool.getConstantPoolClassType(cpIndex));
+      default:
+        throw new InvalidBytecodeException("Unknown constant pool opcode " + opcode);
+    }
+  }
+
   private Instruction makeConstantPoolLoad(int index) throws InvalidBytecodeException {
     ConstantInstruction ci = ConstantInstruction.make(constantPool, index);
     if (ci == null) {
@@ -498,15 +614,12 @@ public abstract class Decoder implements Constants {
           index += 2;
           break;
         case OP_ldc:
-          i = makeConstantPoolLoad(code[index] & 0xFF);
+          i = makeShared(OP_ldc, code[index] & 0xFF);
           index++;
           break;
         case OP_ldc_w:
-          i = makeConstantPoolLoad(decodeUShort(index));
-          index += 2;
-          break;
         case OP_ldc2_w:
-          i = makeConstantPoolLoad(decodeUShort(index));
+          i = makeShared(OP_ldc, decodeUShort(index));
           index += 2;
           break;
         case OP_iload:
@@ -658,16 +771,14 @@ public abstract class Decoder implements Constants {
         case OP_getstatic:
         case OP_getfield:
           {
-            int f = decodeUShort(index);
-            i = GetInstruction.make(constantPool, f, opcode == OP_getstatic);
+            i = makeShared(opcode, decodeUShort(index));
             index += 2;
             break;
           }
         case OP_putstatic:
         case OP_putfield:
           {
-            int f = decodeUShort(index);
-            i = PutInstruction.make(constantPool, f, opcode == OP_putstatic);
+            i = makeShared(opcode, decodeUShort(index));
             index += 2;
             break;
           }
@@ -675,27 +786,24 @@ public abstract class Decoder implements Constants {
         case OP_invokespecial:
         case OP_invokestatic:
           {
-            int m = decodeUShort(index);
-            i = InvokeInstruction.make(constantPool, m, opcode);
+            i = makeShared(opcode, decodeUShort(index));
             index += 2;
             break;
           }
         case OP_invokeinterface:
           {
-            int m = decodeUShort(index);
-            i = InvokeInstruction.make(constantPool, m, opcode);
+            i = makeShared(opcode, decodeUShort(index));
             index += 4;
             break;
           }
         case OP_invokedynamic:
           {
-            int m = decodeUShort(index);
-            i = InvokeDynamicInstruction.make(constantPool, m, opcode);
+            i = makeShared(opcode, decodeUShort(index));
             index += 4;
             break;
           }
         case OP_new:
-          i = NewInstruction.make(constantPool.getConstantPoolClassType(decodeUShort(index)), 0);
+          i = makeShared(opcode, decodeUShort(index));
           index += 2;
           break;
         case OP_newarray:
@@ -703,19 +811,15 @@ public abstract class Decoder implements Constants {
           index++;
           break;
         case OP_anewarray:
-          i =
-              NewInstruction.make(
-                  Util.makeArray(constantPool.getConstantPoolClassType(decodeUShort(index))), 1);
+          i = makeShared(opcode, decodeUShort(index));
           index += 2;
           break;
         case OP_checkcast:
-          i = CheckCastInstruction.make(constantPool.getConstantPoolClassType(decodeUShort(index)));
+          i = makeShared(opcode, decodeUShort(index));
           index += 2;
           break;
         case OP_instanceof:
-          i =
-              InstanceofInstruction.make(
-                  constantPool.getConstantPoolClassType(decodeUShort(index)));
+          i = makeShared(opcode, decodeUShort(index));
           index += 2;
           break;
         case OP_wide:
@@ -1013,11 +1117,17 @@ public abstract class Decoder implements Constants {
     Arrays.fill(decodedOffset, UNSEEN);
     decodedSize = new byte[code.length];
 
-    decodeAt(0, 0, stackWords);
-    // Decode code that's only reachable through exception handlers
-    for (int i = 0; i < rawHandlers.length; i += 4) {
-      stackWords[0] = 1;
-      decodeAt(rawHandlers[i + 2], 1, stackWords);
+    shared = sharedInstructions.get();
+    try {
+      decodeAt(0, 0, stackWords);
+      // Decode code that's only reachable through exception handlers
+      for (int i = 0; i < rawHandlers.length; i += 4) {
+        stackWords[0] = 1;
+        decodeAt(rawHandlers[i + 2], 1, stackWords);
+      }
+    } finally {
+      shared.clear();
+      shared = null;
     }
 
     if (retInfo != null) {
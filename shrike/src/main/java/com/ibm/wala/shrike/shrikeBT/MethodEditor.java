@@ -723,5 +723,10 @@ public final class MethodEditor {
     public final void addInstructionExceptionHandler(String catchClass, Patch p) {
       editor.addInstructionExceptionHandler(index, catchClass, p);
     }
+
+    /** Allocate a fresh label for use in the patches of the current instruction. */
+    public final int allocateLabel() {
+      return editor.allocateLabel();
+    }
   }
 }
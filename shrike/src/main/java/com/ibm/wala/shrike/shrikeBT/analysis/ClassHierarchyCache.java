@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.shrikeBT.analysis;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This ClassHierarchyProvider remembers the answers of another one, along with the subtype checks
+ * and common supertypes that {@link ClassHierarchy} computes from them. Share one cache across all
+ * the methods and classes being verified or instrumented so each type merge is only computed once.
+ *
+ * <p>It is safe to use from several threads at once, as long as the underlying provider is. Call
+ * {@link #clear()} after the underlying hierarchy changes.
+ */
+public final class ClassHierarchyCache implements ClassHierarchyProvider {
+  private static final class ClassInfo {
+    final String superClass;
+
+    final String[] superInterfaces;
+
+    final String[] subClasses;
+
+    final int isInterface;
+
+    ClassInfo(ClassHierarchyProvider hierarchy, String cl) {
+      superClass = hierarchy.getSuperClass(cl);
+      superInterfaces = hierarchy.getSuperInterfaces(cl);
+      subClasses = hierarchy.getSubClasses(cl);
+      isInterface = hierarchy.isInterface(cl);
+    }
+  }
+
+  private final ClassHierarchyProvider hierarchy;
+
+  private final ConcurrentHashMap<String, ClassInfo> classes = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> subtypes =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> supertypes =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param hierarchy the provider whose answers are cached
+   * @throws IllegalArgumentException if hierarchy is null
+   */
+  public ClassHierarchyCache(ClassHierarchyProvider hierarchy) {
+    if (hierarchy == null) {
+      throw new IllegalArgumentException("hierarchy is null");
+    }
+    this.hierarchy = hierarchy;
+  }
+
+  /** Forget everything cached so far. */
+  public void clear() {
+    classes.clear();
+    subtypes.clear();
+    supertypes.clear();
+  }
+
+  private ClassInfo getClassInfo(String cl) {
+    return classes.computeIfAbsent(cl, c -> new ClassInfo(hierarchy, c));
+  }
+
+  @Override
+  public String getSuperClass(String cl) {
+    return getClassInfo(cl).superClass;
+  }
+
+  @Override
+  public String[] getSuperInterfaces(String cl) {
+    return getClassInfo(cl).superInterfaces;
+  }
+
+  @Override
+  public String[] getSubClasses(String cl) {
+    return getClassInfo(cl).subClasses;
+  }
+
+  @Override
+  public int isInterface(String cl) {
+    return getClassInfo(cl).isInterface;
+  }
+
+  /** Called by {@link ClassHierarchy} to check whether class type t1 is a subtype of t2. */
+  int isSubtypeOf(String t1, String t2) {
+    ConcurrentHashMap<String, Integer> m =
+        subtypes.computeIfAbsent(t1, t -> new ConcurrentHashMap<>());
+    Integer result = m.get(t2);
+    if (result == null) {
+      result = ClassHierarchy.computeSubtypeOfHierarchy(this, t1, t2);
+      m.putIfAbsent(t2, result);
+    }
+    return result;
+  }
+
+  /** Called by {@link ClassHierarchy} to find the common supertype of class types t1 and t2. */
+  String findCommonSupertype(String t1, String t2) {
+    ConcurrentHashMap<String, String> m =
+        supertypes.computeIfAbsent(t1, t -> new ConcurrentHashMap<>());
+    String result = m.get(t2);
+    if (result == null) {
+      result = ClassHierarchy.computeCommonSupertypeHierarchy(this, t1, t2);
+      m.putIfAbsent(t2, result);
+    }
+    return result;
+  }
+}
@@ -19,6 +19,7 @@ import com.ibm.wala.shrike.shrikeBT.MethodData;
 import com.ibm.wala.shrike.shrikeBT.ReturnInstruction;
 import com.ibm.wala.shrike.shrikeBT.Util;
 import com.ibm.wala.shrike.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyCache;
 import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyProvider;
 import com.ibm.wala.shrike.shrikeCT.ClassConstants;
 import com.ibm.wala.shrike.shrikeCT.ClassReader;
@@ -34,6 +35,7 @@ import com.ibm.wala.shrike.shrikeCT.StackMapConstants.StackMapFrame;
 import com.ibm.wala.shrike.shrikeCT.StackMapTableReader;
 import com.ibm.wala.shrike.shrikeCT.StackMapTableWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -61,6 +63,8 @@ public final class ClassInstrumenter {
 
   private final ClassHierarchyProvider cha;
 
+  private boolean parallelStackMaps = false;
+
   /** Create a class instrumenter from raw bytes. */
   public ClassInstrumenter(String inputName, byte[] bytes, ClassHierarchyProvider cha)
       throws InvalidClassFileException {
@@ -83,6 +87,15 @@ public final class ClassInstrumenter {
     fakeLineOffset = offset;
   }
 
+  /**
+   * Calling this means that the StackMapTables of changed methods are computed in parallel, one
+   * method per task. Give the instrumenter a {@link ClassHierarchyCache} to share type merges
+   * between them.
+   */
+  public void enableParallelStackMaps() {
+    parallelStackMaps = true;
+  }
+
   /**
    * Create a class instrumenter from a preinitialized class reader.
    *
@@ -291,24 +304,39 @@ public final class ClassInstrumenter {
               cr.getBytes(), cr.getFieldRawOffset(i), cr.getFieldRawSize(i)));
     }
 
+    // compile the changed methods, with each one's auxiliary methods after it
+    Compiler.Output[][] outputs = new Compiler.Output[methods.length][];
     for (int i = 0; i < methods.length; i++) {
       MethodData md = methods[i];
+      if (!deletedMethods[i] && md != null && md.getHasChanged()) {
+        CTCompiler comp = CTCompiler.make(w, md);
+        comp.setPresetConstants(cpr);
+
+        try {
+          comp.compile();
+        } catch (Error | Exception ex) {
+          ex.printStackTrace();
+          throw new Error("Error compiling method " + md + ": " + ex.getMessage());
+        }
+
+        Compiler.Output[] aux = comp.getAuxiliaryMethods();
+        outputs[i] = new Compiler.Output[1 + (aux == null ? 0 : aux.length)];
+        outputs[i][0] = comp.getOutput();
+        if (aux != null) {
+          System.arraycopy(aux, 0, outputs[i], 1, aux.length);
+        }
+      }
+    }
+
+    List<StackMapFrame>[][] frames = computeStackMaps(outputs);
+
+    for (int i = 0; i < methods.length; i++) {
       if (!deletedMethods[i]) {
-        if (md == null || !md.getHasChanged()) {
+        if (outputs[i] == null) {
           w.addRawMethod(
               new ClassWriter.RawElement(
                   cr.getBytes(), cr.getMethodRawOffset(i), cr.getMethodRawSize(i)));
         } else {
-          CTCompiler comp = CTCompiler.make(w, md);
-          comp.setPresetConstants(cpr);
-
-          try {
-            comp.compile();
-          } catch (Error | Exception ex) {
-            ex.printStackTrace();
-            throw new Error("Error compiling method " + md + ": " + ex.getMessage());
-          }
-
           CodeReader oc = oldCode[i];
           int flags = cr.getMethodAccessFlags(i);
           // we're not installing a native method here
@@ -317,16 +345,14 @@ public final class ClassInstrumenter {
               flags,
               cr.getMethodNameIndex(i),
               cr.getMethodTypeIndex(i),
-              makeMethodAttributes(i, w, oc, comp.getOutput(), md));
-          Compiler.Output[] aux = comp.getAuxiliaryMethods();
-          if (aux != null) {
-            for (Compiler.Output a : aux) {
-              w.addMethod(
-                  a.getAccessFlags(),
-                  a.getMethodName(),
-                  a.getMethodSignature(),
-                  makeMethodAttributes(i, w, oc, a, md));
-            }
+              makeMethodAttributes(i, w, oc, outputs[i][0], frames[i][0]));
+          for (int j = 1; j < outputs[i].length; j++) {
+            Compiler.Output a = outputs[i][j];
+            w.addMethod(
+                a.getAccessFlags(),
+                a.getMethodName(),
+                a.getMethodSignature(),
+                makeMethodAttributes(i, w, oc, a, frames[i][j]));
           }
         }
       }
@@ -412,8 +438,95 @@ public final class ClassInstrumenter {
     }
   }
 
+  /**
+   * Compute the StackMapTable frames of each compiled method, in parallel if {@link
+   * #enableParallelStackMaps()} was called.
+   *
+   * @return the frames for each element of outputs, or null where there is no StackMapTable
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private List<StackMapFrame>[][] computeStackMaps(Compiler.Output[][] outputs)
+      throws InvalidClassFileException {
+    List<StackMapFrame>[][] frames = new List[outputs.length][];
+    List<int[]> work = new ArrayList<>();
+    for (int i = 0; i < outputs.length; i++) {
+      if (outputs[i] != null) {
+        frames[i] = new List[outputs[i].length];
+        if (oldCode[i] != null && cr.getMajorVersion() > 50) {
+          for (int j = 0; j < outputs[i].length; j++) {
+            work.add(new int[] {i, j});
+          }
+        }
+      }
+    }
+
+    if (parallelStackMaps && work.size() > 1) {
+      InvalidClassFileException[] failure = new InvalidClassFileException[1];
+      work.parallelStream()
+          .forEach(
+              ij -> {
+                try {
+                  frames[ij[0]][ij[1]] =
+                      computeStackMap(oldCode[ij[0]], outputs[ij[0]][ij[1]], methods[ij[0]]);
+                } catch (InvalidClassFileException e) {
+                  synchronized (failure) {
+                    if (failure[0] == null) {
+                      failure[0] = e;
+                    }
+                  }
+                }
+              });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+    } else {
+      for (int[] ij : work) {
+        frames[ij[0]][ij[1]] =
+            computeStackMap(oldCode[ij[0]], outputs[ij[0]][ij[1]], methods[ij[0]]);
+      }
+    }
+    return frames;
+  }
+
+  private List<StackMapFrame> computeStackMap(
+      CodeReader oldCode, Compiler.Output output, MethodData md) throws InvalidClassFileException {
+    try {
+      List<StackMapFrame> sm = StackMapTableReader.readStackMap(oldCode);
+
+      if (Arrays.equals(output.getCode(), oldCode.getBytecode())
+          && Arrays.equals(output.getRawHandlers(), oldCode.getRawHandlers())) {
+        // the method came out unchanged, so its old frames still hold
+        return sm;
+      }
+
+      String[][] varTypes = null;
+      int[] newToOld = output.getNewBytecodesToOldBytecodes();
+      int[][] vars = LocalVariableTableReader.makeVarMap(oldCode);
+      if (vars != null) {
+        varTypes = new String[newToOld.length][];
+        for (int i = 0; i < newToOld.length; i++) {
+          int idx = newToOld[i];
+          if (idx != -1 && vars[idx] != null) {
+            varTypes[i] = new String[vars[idx].length / 2];
+            for (int j = 1; j < vars[idx].length; j += 2) {
+              int type = vars[idx][j];
+              varTypes[i][j / 2] =
+                  type == 0 ? null : oldCode.getClassReader().getCP().getCPUtf8(type);
+            }
+          }
+        }
+      }
+
+      return StackMapTableWriter.stackMapTable(md, output, cha, varTypes, sm);
+    } catch (FailureException e) {
+      // TODO Auto-generated catch block
+      e.printStackTrace();
+      return null;
+    }
+  }
+
   private ClassWriter.Element[] makeMethodAttributes(
-      int m, ClassWriter w, CodeReader oldCode, Compiler.Output output, MethodData md)
+      int m, ClassWriter w, CodeReader oldCode, Compiler.Output output, List<StackMapFrame> frames)
       throws InvalidClassFileException {
     CodeWriter code = makeNewCode(w, output);
 
@@ -430,31 +543,11 @@ public final class ClassInstrumenter {
       if (locals != null) {
         codeAttrCount++;
       }
-      if (oldCode.getClassReader().getMajorVersion() > 50) {
+      if (frames != null) {
         try {
-          List<StackMapFrame> sm = StackMapTableReader.readStackMap(oldCode);
-
-          String[][] varTypes = null;
-          int[] newToOld = output.getNewBytecodesToOldBytecodes();
-          int[][] vars = LocalVariableTableReader.makeVarMap(oldCode);
-          if (vars != null) {
-            varTypes = new String[newToOld.length][];
-            for (int i = 0; i < newToOld.length; i++) {
-              int idx = newToOld[i];
-              if (idx != -1 && vars[idx] != null) {
-                varTypes[i] = new String[vars[idx].length / 2];
-                for (int j = 1; j < vars[idx].length; j += 2) {
-                  int type = vars[idx][j];
-                  varTypes[i][j / 2] =
-                      type == 0 ? null : oldCode.getClassReader().getCP().getCPUtf8(type);
-                }
-              }
-            }
-          }
-
-          stacks = new StackMapTableWriter(w, md, output, cha, varTypes, sm);
+          stacks = new StackMapTableWriter(w, frames);
           codeAttrCount++;
-        } catch (IOException | FailureException e) {
+        } catch (IOException e) {
           // TODO Auto-generated catch block
           e.printStackTrace();
         }
@@ -61,6 +61,50 @@ public final class OfflineInstrumenter extends OfflineInstrumenterBase {
     return (ClassInstrumenter) internalNextClass();
   }
 
+  /** Instruments one class for {@link #instrumentAll(ClassTransformer, int)}. */
+  @FunctionalInterface
+  public interface ClassTransformer {
+    /**
+     * This may be called from several threads at once, for different classes, so it must not
+     * update unsynchronized shared state.
+     *
+     * @return the modified class, e.g. the result of {@link ClassInstrumenter#emitClass()}, or
+     *     null to leave ci unmodified
+     */
+    ClassWriter transform(ClassInstrumenter ci) throws InvalidClassFileException, IOException;
+  }
+
+  /**
+   * Instrument all remaining classes of the traversal on parallelism threads, writing each class
+   * that transformer modifies to the output JAR. The output is the same as from the loop
+   *
+   * <pre>
+   * while ((ci = nextClass()) != null) {
+   *   ClassWriter cw = transformer.transform(ci);
+   *   if (cw != null) {
+   *     outputModifiedClass(ci, cw);
+   *   }
+   * }
+   * </pre>
+   *
+   * with the entries in the same order; class files are read and the output written as the
+   * classes are done, so only a few classes per thread are held in memory.
+   */
+  public void instrumentAll(ClassTransformer transformer, int parallelism) throws IOException {
+    if (transformer == null) {
+      throw new IllegalArgumentException("transformer is null");
+    }
+    internalInstrumentAll(
+        cl -> {
+          try {
+            return transformer.transform((ClassInstrumenter) cl);
+          } catch (InvalidClassFileException e) {
+            throw new IOException("Class is invalid: " + e.getMessage(), e);
+          }
+        },
+        parallelism);
+  }
+
   /**
    * Update the original class with some method changes. 'code' should be the result of
    * out.emitClass(). You can add new fields and methods to 'code' (or make other changes) before
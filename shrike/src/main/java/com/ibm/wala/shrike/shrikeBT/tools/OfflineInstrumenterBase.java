@@ -13,17 +13,26 @@ package com.ibm.wala.shrike.shrikeBT.tools;
 import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyProvider;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -368,6 +377,139 @@ public abstract class OfflineInstrumenterBase {
     }
   }
 
+  /**
+   * Edits one class on behalf of {@link #internalInstrumentAll(ClassEditor, int)}. It may be called
+   * from several threads at once, for different classes.
+   */
+  @FunctionalInterface
+  protected interface ClassEditor {
+    /**
+     * @param cl a class, as made by {@link #makeClassFromStream(String, BufferedInputStream)}
+     * @return the modifications to pass to {@link #writeClassTo(Object, Object, OutputStream)}, or
+     *     null to leave the class unmodified
+     */
+    Object edit(Object cl) throws IOException;
+  }
+
+  /** A class whose edited contents are being computed by a worker. */
+  private static final class PendingClass {
+    final Input in;
+
+    final Future<Object[]> result;
+
+    PendingClass(Input in, Future<Object[]> result) {
+      this.in = in;
+      this.result = result;
+    }
+  }
+
+  /** number of classes each worker may have read ahead of the one being written */
+  private static final int READ_AHEAD = 4;
+
+  /**
+   * Edit every class still in the traversal and write the modified ones to the output JAR, as if
+   * by a loop over {@link #internalNextClass()} calling {@link #internalOutputModifiedClass(Object,
+   * String, Object)} for each class that editor modifies, but with the classes parsed, edited and
+   * serialized on parallelism threads. The calling thread reads the class files, in order, and
+   * writes the results, in the same order, so the output JAR has the same entries as with the loop.
+   * Only a few classes per thread are in memory at a time.
+   *
+   * @throws IllegalArgumentException if parallelism is not positive
+   */
+  protected final void internalInstrumentAll(ClassEditor editor, int parallelism)
+      throws IOException {
+    if (editor == null) {
+      throw new IllegalArgumentException("editor is null");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    makeOutputJar();
+    ExecutorService pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    ArrayDeque<PendingClass> pending = new ArrayDeque<>();
+    try {
+      for (; inputIndex < inputs.size(); inputIndex++) {
+        Input in = inputs.get(inputIndex);
+        if (ignoringInputs.get(inputIndex) || !in.isClass()) {
+          continue;
+        }
+        byte[] bytes;
+        try (InputStream s = in.open()) {
+          bytes = s.readAllBytes();
+        }
+        Callable<Object[]> task = () -> editClass(in.getInputName(), bytes, editor);
+        if (pool == null) {
+          writeEditedClass(in, task.call());
+        } else {
+          pending.add(new PendingClass(in, pool.submit(task)));
+          if (pending.size() > READ_AHEAD * parallelism) {
+            writeEditedClass(pending.remove());
+          }
+        }
+      }
+      while (!pending.isEmpty()) {
+        writeEditedClass(pending.remove());
+      }
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * @return the name of the class in bytes, and its edited contents, or null if editor leaves it
+   *     unmodified
+   */
+  private Object[] editClass(String inputName, byte[] bytes, ClassEditor editor)
+      throws IOException {
+    Object cl =
+        makeClassFromStream(inputName, new BufferedInputStream(new ByteArrayInputStream(bytes)));
+    String name = getClassName(cl);
+    Object mods = editor.edit(cl);
+    if (mods == null) {
+      return new Object[] {name, null};
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + bytes.length / 4);
+    writeClassTo(cl, mods, out);
+    return new Object[] {name, out.toByteArray()};
+  }
+
+  private void writeEditedClass(PendingClass p) throws IOException {
+    try {
+      writeEditedClass(p.in, p.result.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while instrumenting " + p.in);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException(cause);
+      }
+    }
+  }
+
+  private void writeEditedClass(Input in, Object[] edited) throws IOException {
+    in.setClassName((String) edited[0]);
+    byte[] bytes = (byte[]) edited[1];
+    String name = in.getInputName();
+    if (bytes != null && !entryNames.contains(name)) {
+      putNextEntry(new ZipEntry(name));
+      outputJar.write(bytes);
+      outputJar.closeEntry();
+    }
+  }
+
   private static String toEntryName(String className) {
     return className.replace('.', '/') + ".class";
   }
@@ -24,6 +24,8 @@ import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.INodeWithNumber;
+import com.ibm.wala.util.perf.FixedPointSolveEvent;
+import com.ibm.wala.util.perf.PeriodicMaintenanceEvent;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -104,6 +106,13 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     firstSolve = false;
   }
 
+  /**
+   * @return true iff {@link #initForFirstSolve()} has not run yet
+   */
+  protected boolean isFirstSolve() {
+    return firstSolve;
+  }
+
   /**
    * @return true iff work list is empty
    */
@@ -128,38 +137,109 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
       initForFirstSolve();
     }
 
-    while (!workList.isEmpty()) {
-      MonitorUtil.throwExceptionIfCanceled(monitor);
-      orderStatements();
+    FixedPointSolveEvent event = beginSolveEvent();
+    try {
+      while (!workList.isEmpty()) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        orderStatements();
 
-      // duplicate insertion detection
-      AbstractStatement s = workList.takeStatement();
+        // duplicate insertion detection
+        AbstractStatement s = workList.takeStatement();
 
-      if (DEBUG) {
-        System.err.println(("Before evaluation " + s));
-      }
-      byte code = s.evaluate();
-      nEvaluated++;
-      if (verbose) {
-        if (nEvaluated % getVerboseInterval() == 0) {
-          performVerboseAction();
+        if (DEBUG) {
+          System.err.println(("Before evaluation " + s));
         }
-        if (nEvaluated % getPeriodicMaintainInterval() == 0) {
-          periodicMaintenance();
+        byte code = evaluateStatement(s);
+        if (recordEvaluation(s, code)) {
+          globalChange = true;
         }
       }
-      if (DEBUG) {
-        System.err.println(("After evaluation  " + s + ' ' + isChanged(code)));
-      }
-      if (isChanged(code)) {
-        globalChange = true;
-        updateWorkList(s);
+    } finally {
+      endSolveEvent(event, globalChange);
+    }
+    return globalChange;
+  }
+
+  /**
+   * Start a flight recorder event for a call of {@link #solve(IProgressMonitor)}. Subclasses that
+   * override solve should bracket their work list loop with this and {@link
+   * #endSolveEvent(FixedPointSolveEvent, boolean)}.
+   */
+  protected FixedPointSolveEvent beginSolveEvent() {
+    FixedPointSolveEvent event = new FixedPointSolveEvent();
+    if (event.isEnabled()) {
+      event.initialWorkListSize = workList.size();
+      // counters at the start; endSolveEvent turns these into deltas
+      event.evaluations = nEvaluated;
+      event.statementsCreated = nCreated;
+      event.begin();
+    }
+    return event;
+  }
+
+  protected void endSolveEvent(FixedPointSolveEvent event, boolean changed) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.solver = getClass();
+      event.evaluations = nEvaluated - event.evaluations;
+      event.statementsCreated = nCreated - event.statementsCreated;
+      event.changed = changed;
+      event.commit();
+    }
+  }
+
+  /**
+   * Evaluate a statement on behalf of the solver. Subclasses may override this to observe the
+   * side effects of each evaluation.
+   *
+   * @return the result of {@code s.evaluate()}
+   */
+  protected byte evaluateStatement(AbstractStatement<T, ?> s) {
+    return s.evaluate();
+  }
+
+  /**
+   * Called by each newStatement method with the statement it was asked to add, before checking
+   * whether the system already contains an equal statement. Subclasses may override this to track
+   * who asks for each statement.
+   */
+  protected void statementRequested(AbstractStatement<T, ?> s) {}
+
+  /**
+   * Called by each newStatement method right after it has added a new statement to the system.
+   * Subclasses may override this to watch the size of the system as it grows.
+   */
+  protected void statementAdded(AbstractStatement<T, ?> s) {}
+
+  /**
+   * Account for the evaluation of a statement taken from the work list: bump the evaluation
+   * counters, schedule the statements that use its lhs if it changed, and drop it from the system
+   * if it reached a fixed point.
+   *
+   * @param s the statement that has been evaluated
+   * @param code the result of {@code s.evaluate()}
+   * @return true iff the evaluation changed the value of the lhs
+   */
+  protected boolean recordEvaluation(AbstractStatement<T, ?> s, byte code) {
+    nEvaluated++;
+    if (verbose) {
+      if (nEvaluated % getVerboseInterval() == 0) {
+        performVerboseAction();
       }
-      if (isFixed(code)) {
-        removeStatement(s);
+      if (nEvaluated % getPeriodicMaintainInterval() == 0) {
+        maintain();
       }
     }
-    return globalChange;
+    if (DEBUG) {
+      System.err.println(("After evaluation  " + s + ' ' + isChanged(code)));
+    }
+    if (isChanged(code)) {
+      updateWorkList(s);
+    }
+    if (isFixed(code)) {
+      removeStatement(s);
+    }
+    return isChanged(code);
   }
 
   @Override
@@ -267,11 +347,13 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     // add to the list of graph
     lhs.setOrderNumber(nextOrderNumber++);
     final NullaryStatement<T> s = new BasicNullaryStatement<>(lhs, operator);
+    statementRequested(s);
     if (getFixedPointSystem().containsStatement(s)) {
       return false;
     }
     nCreated++;
     getFixedPointSystem().addStatement(s);
+    statementAdded(s);
     incorporateNewStatement(toWorkList, eager, s);
     topologicalCounter++;
     return true;
@@ -280,14 +362,14 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   @SuppressWarnings("unchecked")
   private void incorporateNewStatement(boolean toWorkList, boolean eager, AbstractStatement s) {
     if (eager) {
-      byte code = s.evaluate();
+      byte code = evaluateStatement(s);
       if (verbose) {
         nEvaluated++;
         if (nEvaluated % getVerboseInterval() == 0) {
           performVerboseAction();
         }
         if (nEvaluated % getPeriodicMaintainInterval() == 0) {
-          periodicMaintenance();
+          maintain();
         }
       }
       if (isChanged(code)) {
@@ -317,6 +399,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     }
     // add to the list of graph
     UnaryStatement<T> s = operator.makeEquation(lhs, rhs);
+    statementRequested(s);
     if (getFixedPointSystem().containsStatement(s)) {
       return false;
     }
@@ -325,6 +408,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     }
     nCreated++;
     getFixedPointSystem().addStatement(s);
+    statementAdded(s);
     incorporateNewStatement(toWorkList, eager, s);
     topologicalCounter++;
     return true;
@@ -367,6 +451,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     // add to the list of graph
 
     GeneralStatement<T> s = new Statement(lhs, operator, op1, op2);
+    statementRequested(s);
     if (getFixedPointSystem().containsStatement(s)) {
       return false;
     }
@@ -375,6 +460,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     }
     nCreated++;
     getFixedPointSystem().addStatement(s);
+    statementAdded(s);
     incorporateNewStatement(toWorkList, eager, s);
     topologicalCounter++;
     return true;
@@ -398,12 +484,14 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     // add to the list of graph
     lhs.setOrderNumber(nextOrderNumber++);
     GeneralStatement<T> s = new Statement(lhs, operator, op1, op2, op3);
+    statementRequested(s);
     if (getFixedPointSystem().containsStatement(s)) {
       nextOrderNumber--;
       return false;
     }
     nCreated++;
     getFixedPointSystem().addStatement(s);
+    statementAdded(s);
 
     incorporateNewStatement(toWorkList, eager, s);
     topologicalCounter++;
@@ -422,12 +510,14 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     // add to the list of graph
     if (lhs != null) lhs.setOrderNumber(nextOrderNumber++);
     GeneralStatement<T> s = new Statement(lhs, operator, rhs);
+    statementRequested(s);
     if (getFixedPointSystem().containsStatement(s)) {
       nextOrderNumber--;
       return false;
     }
     nCreated++;
     getFixedPointSystem().addStatement(s);
+    statementAdded(s);
     incorporateNewStatement(toWorkList, eager, s);
     topologicalCounter++;
     return true;
@@ -553,6 +643,19 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   /** a method that will be called every N evaluations. subclasses should override as desired. */
   protected void periodicMaintenance() {}
 
+  /** call {@link #periodicMaintenance()}, recording it as a flight recorder event */
+  private void maintain() {
+    PeriodicMaintenanceEvent event = new PeriodicMaintenanceEvent();
+    event.begin();
+    periodicMaintenance();
+    if (event.shouldCommit()) {
+      event.solver = getClass();
+      event.evaluations = nEvaluated;
+      event.workListSize = workList.size();
+      event.commit();
+    }
+  }
+
   /** subclasses should override as desired. */
   protected int getVerboseInterval() {
     return DEFAULT_VERBOSE_INTERVAL;
@@ -38,8 +38,19 @@ public class Worklist extends Heap<AbstractStatement> {
   }
 
   public void insertStatement(AbstractStatement eq) {
+    tryInsertStatement(eq);
+  }
+
+  /**
+   * Insert eq, unless the work list already holds an equal statement.
+   *
+   * @return true iff eq was inserted
+   */
+  public boolean tryInsertStatement(AbstractStatement eq) {
     if (contents.add(eq)) {
       super.insert(eq);
+      return true;
     }
+    return false;
   }
 }
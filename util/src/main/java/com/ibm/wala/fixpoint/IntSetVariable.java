@@ -10,9 +10,14 @@
  */
 package com.ibm.wala.fixpoint;
 
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.IntSetInterner;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import org.jspecify.annotations.NullUnmarked;
 import org.jspecify.annotations.Nullable;
 
@@ -26,11 +31,34 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   @Nullable MutableIntSet V;
 
+  /**
+   * is V the canonical set of an {@link IntSetInterner}, possibly shared with other variables? If
+   * so, V must be copied before it changes.
+   */
+  private boolean shared;
+
+  /** does this variable collect the elements added to it? */
+  private boolean trackAdditions;
+
+  /** the elements added to V since the last call to {@link #takeAdditions()}, if any */
+  private @Nullable MutableIntSet added;
+
+  /**
+   * @return the factory that creates the sets holding the value of this variable
+   */
+  protected MutableIntSetFactory<?> getIntSetFactory() {
+    return IntSetUtil.getDefaultIntSetFactory();
+  }
+
   @Override
   public void copyState(T other) {
-    if (V == null) {
+    if (trackAdditions && other.V != null) {
+      recordAdditions(other.V);
+    }
+    if (V == null || shared) {
       if (other.V != null) {
-        V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other.V);
+        V = getIntSetFactory().makeCopy(other.V);
+        shared = false;
       }
       return;
     } else {
@@ -40,16 +68,103 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
     }
   }
 
+  /**
+   * Replace the value of this variable with the canonical set of equal contents in the given
+   * interner, so that it may be shared with other variables. The value is copied again before it
+   * next changes.
+   */
+  public void hashCons(IntSetInterner interner) {
+    if (interner == null) {
+      throw new IllegalArgumentException("null interner");
+    }
+    if (V != null) {
+      V = interner.intern(V);
+      shared = true;
+    }
+  }
+
+  /**
+   * @return true iff the value of this variable may be shared with other variables
+   */
+  public boolean isShared() {
+    return shared;
+  }
+
+  /**
+   * Start collecting the elements added to this variable, so that clients may propagate just the
+   * difference since they last looked at it.
+   */
+  public void trackAdditions() {
+    trackAdditions = true;
+  }
+
+  /**
+   * @return true iff this variable collects the elements added to it
+   */
+  public boolean isTrackingAdditions() {
+    return trackAdditions;
+  }
+
+  /**
+   * @return the elements added to this variable since the last call, or null if none were added or
+   *     additions are not tracked
+   */
+  public @Nullable MutableIntSet takeAdditions() {
+    MutableIntSet result = added;
+    added = null;
+    return result;
+  }
+
+  /** remember that b was added to V */
+  private void recordAddition(int b) {
+    if (added == null) {
+      // usually few, and mostly added in ascending order
+      added = MutableSparseIntSet.makeEmpty();
+    }
+    added.add(b);
+  }
+
+  /** remember the elements of B that are missing from V */
+  private void recordAdditions(IntSet B) {
+    recordAdditions(B, this::recordAddition);
+  }
+
+  /** apply action to the elements of B that are missing from V */
+  private void recordAdditions(IntSet B, IntSetAction action) {
+    if (V == null) {
+      B.foreach(action);
+    } else {
+      B.foreachExcluding(V, action);
+    }
+  }
+
+  /** make sure this variable owns its value, so that it may change it */
+  private void unshare() {
+    if (shared) {
+      V = getIntSetFactory().makeCopy(V);
+      shared = false;
+    }
+  }
+
   /**
    * Add all integers from the set B
    *
    * @return true iff the value of this changes
    */
   public boolean addAll(IntSet B) {
+    if (trackAdditions) {
+      recordAdditions(B);
+    }
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
+      V = getIntSetFactory().makeCopy(B);
       return !B.isEmpty();
     } else {
+      if (shared) {
+        if (B.isSubset(V)) {
+          return false;
+        }
+        unshare();
+      }
       boolean result = V.addAll(B);
       return result;
     }
@@ -101,9 +216,18 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    */
   public boolean add(int b) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().make();
+      V = getIntSetFactory().make();
+    } else if (shared) {
+      if (V.contains(b)) {
+        return false;
+      }
+      unshare();
+    }
+    boolean result = V.add(b);
+    if (result && trackAdditions) {
+      recordAddition(b);
     }
-    return V.add(b);
+    return result;
   }
 
   /**
@@ -120,7 +244,8 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   /**
-   * @return the value of this variable as a MutableSparseIntSet ... null if the set is empty.
+   * @return the value of this variable as a MutableSparseIntSet ... null if the set is empty. The
+   *     set must not be changed; if {@link #isShared()}, other variables hold it as well.
    */
   @NullUnmarked
   public MutableIntSet getValue() {
@@ -129,7 +254,16 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   public void remove(int i) {
     if (V != null) {
+      if (shared) {
+        if (!V.contains(i)) {
+          return;
+        }
+        unshare();
+      }
       V.remove(i);
+      if (added != null) {
+        added.remove(i);
+      }
     }
   }
 
@@ -146,14 +280,10 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   public boolean addAllInIntersection(T other, IntSet filter) {
     if (V == null) {
-      copyState(other);
-      if (V != null) {
-        V.intersectWith(filter);
-        if (V.isEmpty()) {
-          V = null;
-        }
+      if (other.V == null) {
+        return false;
       }
-      return (V != null);
+      return addAllInIntersection(other.V, filter);
     } else {
       if (other.V != null) {
         boolean result = addAllInIntersection(other.V, filter);
@@ -165,20 +295,50 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (trackAdditions) {
+      recordAdditions(
+          other,
+          i -> {
+            if (filter.contains(i)) {
+              recordAddition(i);
+            }
+          });
+    }
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
+      V = getIntSetFactory().makeCopy(other);
       V.intersectWith(filter);
       if (V.isEmpty()) {
         V = null;
       }
       return (V != null);
     } else {
+      if (shared) {
+        if (!addsAny(other, filter)) {
+          return false;
+        }
+        unshare();
+      }
       boolean result = V.addAllInIntersection(other, filter);
       return result;
     }
   }
 
+  /**
+   * @return true iff some element of other that is also in filter is missing from the value
+   */
+  private boolean addsAny(IntSet other, IntSet filter) {
+    for (IntIterator it = other.intIterator(); it.hasNext(); ) {
+      int i = it.next();
+      if (!V.contains(i) && filter.contains(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void removeAll() {
     V = null;
+    shared = false;
+    added = null;
   }
 }
@@ -37,6 +37,8 @@ public class BimodalMutableIntSet implements MutableIntSet {
     } else if (set instanceof BitVectorIntSet || set instanceof SparseIntSet) {
       // other.V has a different representation. make a new copy
       impl = IntSetUtil.makeMutableCopy(set);
+    } else if (set instanceof CompactMutableIntSet || set instanceof RoaringMutableIntSet) {
+      impl = MutableSparseIntSet.make(set);
     } else if (set instanceof MutableSharedBitVectorIntSet) {
       impl = IntSetUtil.makeMutableCopy(((MutableSharedBitVectorIntSet) set).makeSparseCopy());
     } else {
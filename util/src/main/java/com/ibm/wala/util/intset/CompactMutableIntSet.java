@@ -0,0 +1,800 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import com.ibm.wala.util.collections.EmptyIntIterator;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A mutable set of non-negative integers with a small per-set footprint, for clients that keep
+ * millions of mostly tiny sets alive at once, such as the points-to sets of a pointer analysis.
+ *
+ * <p>Each set is a single object with two int fields and at most one int array:
+ *
+ * <ul>
+ *   <li>an empty set or a singleton has no array; the element is held in a field
+ *   <li>a small or sparse set holds its elements, sorted, in the array
+ *   <li>a large and dense set holds a bit vector in the array, starting at a word-aligned offset
+ * </ul>
+ *
+ * <p>So a singleton costs one 24-byte object, where a {@link MutableSharedBitVectorIntSet} costs
+ * three objects and about 72 bytes. Unlike {@link MutableSharedBitVectorIntSet}, dense sets do not
+ * share bits with each other.
+ */
+public class CompactMutableIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = -2861307146217845932L;
+
+  /** value of {@link #word} while {@link #data} holds sorted elements */
+  private static final int SPARSE = -1;
+
+  /** a sparse set is only considered for the dense representation once it has this many elements */
+  private static final int MIN_DENSE_SIZE = 16;
+
+  private static final int[] NO_ELEMENTS = new int[0];
+
+  private int size;
+
+  /**
+   * the element of a singleton, the value of the first bit of a dense set, or {@link #SPARSE} for a
+   * sparse set
+   */
+  private int word;
+
+  /**
+   * null if the set has fewer than two elements; otherwise the sorted elements in {@code
+   * data[0..size-1]} of a sparse set, or the bits of a dense set
+   */
+  private int @Nullable [] data;
+
+  public CompactMutableIntSet() {}
+
+  public CompactMutableIntSet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    copySet(set);
+  }
+
+  /**
+   * @param elements sorted, distinct, non-negative elements
+   */
+  private CompactMutableIntSet(int[] elements) {
+    setSorted(elements, elements.length);
+  }
+
+  /**
+   * @return a set holding the given elements, in any order and possibly repeated
+   */
+  public static CompactMutableIntSet make(int[] elements) {
+    if (elements == null) {
+      throw new IllegalArgumentException("elements == null");
+    }
+    int[] sorted = elements.clone();
+    Arrays.sort(sorted);
+    int n = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[n++] = sorted[i];
+      }
+    }
+    if (n > 0 && sorted[0] < 0) {
+      throw new IllegalArgumentException("negative element " + sorted[0]);
+    }
+    return new CompactMutableIntSet(n == sorted.length ? sorted : Arrays.copyOf(sorted, n));
+  }
+
+  private boolean isDense() {
+    return data != null && word != SPARSE;
+  }
+
+  /** the number of words a bit vector holding the range [min,max] needs */
+  private static int wordsFor(int min, int max) {
+    return ((max - (min & ~31)) >>> 5) + 1;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    int[] d = data;
+    if (d == null) {
+      return size == 1 && word == i;
+    } else if (word == SPARSE) {
+      return Arrays.binarySearch(d, 0, size, i) >= 0;
+    } else {
+      int offset = i - word;
+      return offset >= 0
+          && (offset >>> 5) < d.length
+          && (d[offset >>> 5] & (1 << (offset & 31))) != 0;
+    }
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("negative element " + i);
+    }
+    int[] d = data;
+    if (d == null) {
+      if (size == 0) {
+        word = i;
+        size = 1;
+        return true;
+      } else if (word == i) {
+        return false;
+      } else {
+        data = word < i ? new int[] {word, i} : new int[] {i, word};
+        word = SPARSE;
+        size = 2;
+        return true;
+      }
+    } else if (word == SPARSE) {
+      int index = Arrays.binarySearch(d, 0, size, i);
+      if (index >= 0) {
+        return false;
+      }
+      index = -index - 1;
+      if (size == d.length) {
+        int min = Math.min(d[0], i);
+        int max = Math.max(d[size - 1], i);
+        if (size >= MIN_DENSE_SIZE && wordsFor(min, max) <= size) {
+          return addDense(toDense(d, min & ~31, wordsFor(min, max)), i);
+        }
+        // grow slowly, since most sets stop growing early
+        d = data = Arrays.copyOf(d, size + (size >> 2) + 1);
+      }
+      System.arraycopy(d, index, d, index + 1, size - index);
+      d[index] = i;
+      size++;
+      return true;
+    } else {
+      return addDense(d, i);
+    }
+  }
+
+  /**
+   * @param d the bits of this dense set
+   */
+  private boolean addDense(int[] d, int i) {
+    int offset = i - word;
+    if (offset < 0 || (offset >>> 5) >= d.length) {
+      int base = Math.min(word, i & ~31);
+      int end = Math.max(word + (d.length << 5), (i & ~31) + 32);
+      int words = (end - base) >>> 5;
+      if (words > size + 1) {
+        // the bits would take more space than the elements
+        toSparse(size + 1);
+        return add(i);
+      }
+      if (i > word) {
+        // leave some room to grow upwards, where new elements usually go
+        words += words >> 3;
+      }
+      int[] bits = new int[words];
+      System.arraycopy(d, 0, bits, (word - base) >>> 5, d.length);
+      d = data = bits;
+      word = base;
+      offset = i - base;
+    }
+    int mask = 1 << (offset & 31);
+    if ((d[offset >>> 5] & mask) != 0) {
+      return false;
+    }
+    d[offset >>> 5] |= mask;
+    size++;
+    return true;
+  }
+
+  /**
+   * switch from the sparse to the dense representation
+   *
+   * @param elements the elements of this sparse set
+   * @return the bits of the dense set
+   */
+  private int[] toDense(int[] elements, int base, int words) {
+    int[] bits = new int[words];
+    for (int j = 0; j < size; j++) {
+      int offset = elements[j] - base;
+      bits[offset >>> 5] |= 1 << (offset & 31);
+    }
+    data = bits;
+    word = base;
+    return bits;
+  }
+
+  /** switch from the dense to the sparse representation, with room for capacity elements */
+  private void toSparse(int capacity) {
+    int[] elements = new int[Math.max(capacity, size)];
+    int n = 0;
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      elements[n++] = it.next();
+    }
+    data = elements;
+    word = SPARSE;
+  }
+
+  /**
+   * replace the contents of this set with the first n elements of the given array, choosing the
+   * representation that takes the least space
+   *
+   * @param elements sorted, distinct, non-negative elements; may become the backing array of this
+   *     set
+   */
+  private void setSorted(int[] elements, int n) {
+    size = n;
+    if (n == 0) {
+      data = null;
+      word = 0;
+    } else if (n == 1) {
+      data = null;
+      word = elements[0];
+    } else if (n >= MIN_DENSE_SIZE && wordsFor(elements[0], elements[n - 1]) <= n) {
+      toDense(elements, elements[0] & ~31, wordsFor(elements[0], elements[n - 1]));
+    } else {
+      data = elements.length == n ? elements : Arrays.copyOf(elements, n);
+      word = SPARSE;
+    }
+  }
+
+  @Override
+  public boolean remove(int i) {
+    int[] d = data;
+    if (d == null) {
+      if (size == 1 && word == i) {
+        clear();
+        return true;
+      }
+      return false;
+    } else if (word == SPARSE) {
+      int index = Arrays.binarySearch(d, 0, size, i);
+      if (index < 0) {
+        return false;
+      }
+      System.arraycopy(d, index + 1, d, index, size - index - 1);
+      size--;
+      if (size == 1) {
+        word = d[0];
+        data = null;
+      } else if (d.length > 2 * size + 4) {
+        data = Arrays.copyOf(d, size);
+      }
+      return true;
+    } else {
+      int offset = i - word;
+      if (offset < 0 || (offset >>> 5) >= d.length) {
+        return false;
+      }
+      int mask = 1 << (offset & 31);
+      if ((d[offset >>> 5] & mask) == 0) {
+        return false;
+      }
+      d[offset >>> 5] &= ~mask;
+      size--;
+      if (size < 2 || d.length > 2 * size) {
+        // the elements take less space than the bits
+        setSorted(toSortedArray(this), size);
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    word = 0;
+    data = null;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int max() {
+    int[] d = data;
+    if (d == null) {
+      return size == 1 ? word : -1;
+    } else if (word == SPARSE) {
+      return d[size - 1];
+    } else {
+      for (int w = d.length - 1; ; w--) {
+        if (d[w] != 0) {
+          return word + (w << 5) + 31 - Integer.numberOfLeadingZeros(d[w]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    int[] d = data;
+    if (d == null) {
+      if (size == 1) {
+        action.act(word);
+      }
+    } else if (word == SPARSE) {
+      for (int j = 0; j < size; j++) {
+        action.act(d[j]);
+      }
+    } else {
+      for (int w = 0; w < d.length; w++) {
+        for (int bits = d[w]; bits != 0; bits &= bits - 1) {
+          action.act(word + (w << 5) + Integer.numberOfTrailingZeros(bits));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (X == null) {
+      throw new IllegalArgumentException("null X");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    foreach(
+        i -> {
+          if (!X.contains(i)) {
+            action.act(i);
+          }
+        });
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    int[] d = data;
+    if (d == null) {
+      if (size == 0) {
+        return EmptyIntIterator.instance();
+      }
+      int element = word;
+      return new IntIterator() {
+        private boolean done = false;
+
+        @Override
+        public boolean hasNext() {
+          return !done;
+        }
+
+        @Override
+        public int next() {
+          if (done) {
+            throw new NoSuchElementException();
+          }
+          done = true;
+          return element;
+        }
+      };
+    } else if (word == SPARSE) {
+      int n = size;
+      return new IntIterator() {
+        private int j = 0;
+
+        @Override
+        public boolean hasNext() {
+          return j < n;
+        }
+
+        @Override
+        public int next() {
+          if (j >= n) {
+            throw new NoSuchElementException();
+          }
+          return d[j++];
+        }
+      };
+    } else {
+      int base = word;
+      return new IntIterator() {
+        private int w = 0;
+
+        private int bits = d[0];
+
+        @Override
+        public boolean hasNext() {
+          while (bits == 0) {
+            if (++w >= d.length) {
+              return false;
+            }
+            bits = d[w];
+          }
+          return true;
+        }
+
+        @Override
+        public int next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int result = base + (w << 5) + Integer.numberOfTrailingZeros(bits);
+          bits &= bits - 1;
+          return result;
+        }
+      };
+    }
+  }
+
+  /**
+   * @return the elements of set, sorted, in the first set.size() entries of a fresh array
+   */
+  private static int[] toSortedArray(IntSet set) {
+    int[] elements = new int[set.size()];
+    boolean sorted = true;
+    int n = 0;
+    for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+      int i = it.next();
+      if (n > 0 && i < elements[n - 1]) {
+        sorted = false;
+      }
+      elements[n++] = i;
+    }
+    if (!sorted) {
+      Arrays.sort(elements);
+    }
+    return elements;
+  }
+
+  /**
+   * @return true if {@link #wordOf(IntSet, int)} computes the words of set
+   */
+  private static boolean hasWords(IntSet set) {
+    return set instanceof BitVectorIntSet
+        || set instanceof SparseIntSet
+        || set instanceof MutableSharedBitVectorIntSet
+        || set instanceof CompactMutableIntSet;
+  }
+
+  /**
+   * @param base a non-negative multiple of 32
+   * @return the bits of set for the 32 integers starting at base
+   */
+  private static int wordOf(IntSet set, int base) {
+    if (set instanceof BitVectorIntSet) {
+      int[] bits = ((BitVectorIntSet) set).getBitVector().bits;
+      return (base >>> 5) < bits.length ? bits[base >>> 5] : 0;
+    } else if (set instanceof SparseIntSet) {
+      SparseIntSet s = (SparseIntSet) set;
+      return s.size == 0 ? 0 : sparseWord(s.elements, s.size, base);
+    } else if (set instanceof MutableSharedBitVectorIntSet) {
+      MutableSharedBitVectorIntSet s = (MutableSharedBitVectorIntSet) set;
+      MutableSparseIntSet privatePart = s.getPrivatePart();
+      BitVectorIntSet sharedPart = s.getSharedPart();
+      return (privatePart == null ? 0 : wordOf(privatePart, base))
+          | (sharedPart == null ? 0 : wordOf(sharedPart, base));
+    } else {
+      CompactMutableIntSet s = (CompactMutableIntSet) set;
+      int[] d = s.data;
+      if (d == null) {
+        return s.size == 1 && (s.word & ~31) == base ? 1 << (s.word & 31) : 0;
+      } else if (s.word == SPARSE) {
+        return sparseWord(d, s.size, base);
+      } else {
+        return base >= s.word && ((base - s.word) >>> 5) < d.length ? d[(base - s.word) >>> 5] : 0;
+      }
+    }
+  }
+
+  /** the bits for the 32 integers starting at base among the given sorted elements */
+  private static int sparseWord(int[] elements, int size, int base) {
+    int j = Arrays.binarySearch(elements, 0, size, base);
+    if (j < 0) {
+      j = -j - 1;
+    }
+    int result = 0;
+    for (; j < size && elements[j] - base < 32; j++) {
+      result |= 1 << (elements[j] - base);
+    }
+    return result;
+  }
+
+  /** make room for more of at most max elements */
+  private static int[] grow(int[] elements, int max) {
+    return Arrays.copyOf(elements, Math.min(max, Math.max(8, 2 * elements.length)));
+  }
+
+  /**
+   * add the elements of set that are also in filter
+   *
+   * @param filter null to add all elements of set
+   */
+  private boolean addAllInFilter(IntSet set, @Nullable IntSet filter) {
+    // Collect the elements this set lacks, which usually are few or none, and test only those
+    // against the filter. Where possible, do so a word of 32 elements at a time, since elements
+    // that fail the filter are tested again on every call.
+    int[] fresh = NO_ELEMENTS;
+    int n = 0;
+    boolean sorted = true;
+    int[] otherBits =
+        set instanceof CompactMutableIntSet ? ((CompactMutableIntSet) set).data : null;
+    if (otherBits != null
+        && ((CompactMutableIntSet) set).word != SPARSE
+        && (filter == null || hasWords(filter))) {
+      int otherBase = ((CompactMutableIntSet) set).word;
+      for (int w = 0; w < otherBits.length; w++) {
+        int bits = otherBits[w];
+        if (bits == 0) {
+          continue;
+        }
+        int base = otherBase + (w << 5);
+        bits &= ~wordOf(this, base);
+        if (bits != 0 && filter != null) {
+          bits &= wordOf(filter, base);
+        }
+        for (; bits != 0; bits &= bits - 1) {
+          if (n == fresh.length) {
+            fresh = grow(fresh, set.size());
+          }
+          fresh[n++] = base + Integer.numberOfTrailingZeros(bits);
+        }
+      }
+    } else {
+      boolean wordwise = filter != null && hasWords(filter);
+      int filterBase = -1;
+      int filterWord = 0;
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        int i = it.next();
+        if (contains(i)) {
+          continue;
+        }
+        if (filter != null) {
+          if (!wordwise) {
+            if (!filter.contains(i)) {
+              continue;
+            }
+          } else {
+            if ((i & ~31) != filterBase) {
+              filterBase = i & ~31;
+              filterWord = i < 0 ? 0 : wordOf(filter, filterBase);
+            }
+            if ((filterWord & (1 << (i & 31))) == 0) {
+              continue;
+            }
+          }
+        }
+        if (n == fresh.length) {
+          fresh = grow(fresh, set.size());
+        }
+        if (n > 0 && i < fresh[n - 1]) {
+          sorted = false;
+        }
+        fresh[n++] = i;
+      }
+    }
+    if (n == 0) {
+      return false;
+    }
+    if (!sorted) {
+      Arrays.sort(fresh, 0, n);
+    }
+    if (fresh[0] < 0) {
+      throw new IllegalArgumentException("negative element " + fresh[0]);
+    }
+    int[] d = data;
+    if (n == 1 || (d != null && word != SPARSE)) {
+      for (int j = 0; j < n; j++) {
+        add(fresh[j]);
+      }
+      return true;
+    }
+    // merge the two sorted sequences of distinct elements
+    int[] mine = d != null ? d : new int[] {word};
+    int[] merged = new int[size + n];
+    int a = 0;
+    int b = 0;
+    int m = 0;
+    while (a < size && b < n) {
+      merged[m++] = mine[a] < fresh[b] ? mine[a++] : fresh[b++];
+    }
+    while (a < size) {
+      merged[m++] = mine[a++];
+    }
+    while (b < n) {
+      merged[m++] = fresh[b++];
+    }
+    setSorted(merged, m);
+    return true;
+  }
+
+  /**
+   * add the elements of another dense set, if its bits lie within the bits of this dense set
+   *
+   * @param bits the bits of this dense set
+   * @return false, leaving this set unchanged, if the bits of other do not fit
+   */
+  private boolean orDense(int[] bits, CompactMutableIntSet other) {
+    int[] otherBits = other.data;
+    if (otherBits == null
+        || other.word < word
+        || other.word + (otherBits.length << 5) > word + (bits.length << 5)) {
+      return false;
+    }
+    int shift = (other.word - word) >>> 5;
+    for (int w = 0; w < otherBits.length; w++) {
+      int fresh = otherBits[w] & ~bits[w + shift];
+      if (fresh != 0) {
+        bits[w + shift] |= fresh;
+        size += Integer.bitCount(fresh);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this || set.isEmpty()) {
+      return false;
+    }
+    if (set instanceof CompactMutableIntSet) {
+      CompactMutableIntSet other = (CompactMutableIntSet) set;
+      if (size == 0) {
+        copySet(other);
+        return true;
+      }
+      int[] d = data;
+      if (d != null && word != SPARSE && other.isDense()) {
+        int oldSize = size;
+        if (orDense(d, other)) {
+          return size != oldSize;
+        }
+      }
+    }
+    return addAllInFilter(set, null);
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof CompactMutableIntSet) {
+      CompactMutableIntSet other = (CompactMutableIntSet) set;
+      size = other.size;
+      word = other.word;
+      int[] d = other.data;
+      data = d == null ? null : (other.isDense() ? d.clone() : Arrays.copyOf(d, size));
+    } else {
+      int[] elements = toSortedArray(set);
+      if (elements.length > 0 && elements[0] < 0) {
+        throw new IllegalArgumentException("negative element " + elements[0]);
+      }
+      setSorted(elements, elements.length);
+    }
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this || size == 0) {
+      return;
+    }
+    int[] kept = new int[size];
+    int n = 0;
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      int i = it.next();
+      if (set.contains(i)) {
+        kept[n++] = i;
+      }
+    }
+    if (n < size) {
+      setSorted(kept, n);
+    }
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    return addAllInFilter(other, filter);
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    IntSet smaller = set.size() < size ? set : this;
+    IntSet larger = smaller == this ? set : this;
+    for (IntIterator it = smaller.intIterator(); it.hasNext(); ) {
+      if (larger.contains(it.next())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    CompactMutableIntSet result = new CompactMutableIntSet(this);
+    result.intersectWith(that);
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    CompactMutableIntSet result = new CompactMutableIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that.size() < size) {
+      return false;
+    }
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      if (!that.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    return that.size() == size && isSubset(that);
+  }
+
+  /**
+   * @see IntSetInterner#estimateBytes(IntSet)
+   */
+  long estimateBytes() {
+    return IntSetInterner.objectBytes(12)
+        + (data == null ? 0 : IntSetInterner.arrayBytes(data.length, 4));
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(6 * size);
+    sb.append("{ ");
+    foreach(
+        i -> {
+          sb.append(i);
+          sb.append(' ');
+        });
+    sb.append('}');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/** An object that creates {@link CompactMutableIntSet}s. */
+public class CompactMutableIntSetFactory implements MutableIntSetFactory<CompactMutableIntSet> {
+
+  /**
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public CompactMutableIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    return CompactMutableIntSet.make(set);
+  }
+
+  @Override
+  public CompactMutableIntSet parse(String string) throws NumberFormatException {
+    return CompactMutableIntSet.make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public CompactMutableIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    return new CompactMutableIntSet(x);
+  }
+
+  @Override
+  public CompactMutableIntSet make() {
+    return new CompactMutableIntSet();
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A store of canonical int sets, for hash-consing: clients that hold many sets with equal contents
+ * replace each with the canonical set, so that only one copy stays alive.
+ *
+ * <p>Canonical sets must never change; a client that wants to change its value copies the canonical
+ * set first. Unlike {@link BitVectorRepository}, which finds shared subsets of bit vectors under a
+ * global lock, this store finds equal sets of any representation, and threads may intern sets
+ * concurrently.
+ */
+public class IntSetInterner {
+
+  private final ConcurrentHashMap<Key, MutableIntSet> sets = new ConcurrentHashMap<>();
+
+  /** number of calls to {@link #intern(MutableIntSet)} */
+  private final LongAdder lookups = new LongAdder();
+
+  /** number of sets replaced by an equal canonical set */
+  private final LongAdder replaced = new LongAdder();
+
+  /** total size of the sets replaced by an equal canonical set */
+  private final LongAdder replacedElements = new LongAdder();
+
+  /** estimated heap bytes held by the sets replaced by an equal canonical set */
+  private final LongAdder replacedBytes = new LongAdder();
+
+  /**
+   * @return the canonical set equal to set; set itself if there was none yet. Neither set may
+   *     change from now on.
+   * @throws IllegalArgumentException if set is null
+   */
+  public MutableIntSet intern(MutableIntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    lookups.increment();
+    MutableIntSet canonical = sets.putIfAbsent(new Key(set), set);
+    if (canonical == null) {
+      return set;
+    }
+    if (canonical != set) {
+      replaced.increment();
+      replacedElements.add(set.size());
+      replacedBytes.add(estimateBytes(set));
+    }
+    return canonical;
+  }
+
+  /** Forget all canonical sets, e.g. once their holders may have moved on to other values. */
+  public void clear() {
+    sets.clear();
+  }
+
+  /**
+   * @return the number of canonical sets
+   */
+  public int size() {
+    return sets.size();
+  }
+
+  public long getNumberOfLookups() {
+    return lookups.sum();
+  }
+
+  /**
+   * @return the number of sets that were replaced by an equal canonical set, and so could be freed
+   */
+  public long getNumberOfReplacedSets() {
+    return replaced.sum();
+  }
+
+  /**
+   * @return the total number of elements in the sets that were replaced by an equal canonical set
+   */
+  public long getNumberOfReplacedElements() {
+    return replacedElements.sum();
+  }
+
+  /**
+   * @return an estimate of the heap bytes held by the sets that were replaced by an equal canonical
+   *     set, and so could be freed; see {@link #estimateBytes(IntSet)}
+   */
+  public long getEstimatedBytesSaved() {
+    return replacedBytes.sum();
+  }
+
+  @Override
+  public String toString() {
+    return size()
+        + " canonical sets; "
+        + getNumberOfReplacedSets()
+        + " of "
+        + getNumberOfLookups()
+        + " interned sets replaced, holding "
+        + getNumberOfReplacedElements()
+        + " elements in about "
+        + getEstimatedBytesSaved()
+        + " bytes";
+  }
+
+  /**
+   * Estimate the heap bytes that only set holds, on a 64-bit VM with compressed pointers. Bits a
+   * {@link MutableSharedBitVectorIntSet} shares through the {@link BitVectorRepository} stay alive
+   * with the repository, so they are not counted. Sets of other kinds are estimated as if they
+   * held their elements in an int array.
+   */
+  public static long estimateBytes(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (set instanceof CompactMutableIntSet) {
+      return ((CompactMutableIntSet) set).estimateBytes();
+    } else if (set instanceof RoaringMutableIntSet) {
+      return ((RoaringMutableIntSet) set).estimateBytes();
+    } else if (set instanceof SparseIntSet) {
+      int[] elements = ((SparseIntSet) set).elements;
+      return objectBytes(8) + (elements == null ? 0 : arrayBytes(elements.length, 4));
+    } else if (set instanceof BitVectorIntSet) {
+      BitVector bits = ((BitVectorIntSet) set).getBitVector();
+      return objectBytes(8) + objectBytes(4) + arrayBytes(bits.bits.length, 4);
+    } else if (set instanceof MutableSharedBitVectorIntSet) {
+      MutableSparseIntSet privatePart = ((MutableSharedBitVectorIntSet) set).getPrivatePart();
+      return objectBytes(8) + (privatePart == null ? 0 : estimateBytes(privatePart));
+    } else {
+      return objectBytes(0) + arrayBytes(set.size(), 4);
+    }
+  }
+
+  /**
+   * @return the bytes taken by an object with the given bytes of fields
+   */
+  static long objectBytes(int fieldBytes) {
+    return align(12 + fieldBytes);
+  }
+
+  /**
+   * @return the bytes taken by an array of the given length
+   */
+  static long arrayBytes(int length, int elementBytes) {
+    return align(16 + (long) length * elementBytes);
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  /** Wraps a set, comparing by contents. */
+  private static final class Key {
+
+    private final IntSet set;
+
+    private final int hash;
+
+    Key(IntSet set) {
+      this.set = set;
+      this.hash = hash(set);
+    }
+
+    /** a hash of the contents of set that does not depend on the order of iteration */
+    private static int hash(IntSet set) {
+      int h = set.size();
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        int i = it.next() * 0x9E3779B9;
+        h += i ^ (i >>> 16);
+      }
+      return h;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hash == other.hash && set.size() == other.set.size() && set.sameValue(other.set);
+    }
+  }
+}
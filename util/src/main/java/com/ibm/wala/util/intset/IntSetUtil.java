@@ -87,6 +87,10 @@ public class IntSetUtil {
       return new MutableSharedBitVectorIntSet((MutableSharedBitVectorIntSet) set);
     } else if (set instanceof SemiSparseMutableIntSet) {
       return new SemiSparseMutableIntSet((SemiSparseMutableIntSet) set);
+    } else if (set instanceof CompactMutableIntSet) {
+      return new CompactMutableIntSet(set);
+    } else if (set instanceof RoaringMutableIntSet) {
+      return new RoaringMutableIntSet(set);
     } else if (set instanceof DebuggingMutableIntSet) {
       MutableIntSet pCopy = makeMutableCopy(((DebuggingMutableIntSet) set).primaryImpl);
       MutableIntSet sCopy = makeMutableCopy(((DebuggingMutableIntSet) set).secondaryImpl);
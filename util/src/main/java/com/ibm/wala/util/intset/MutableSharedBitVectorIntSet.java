@@ -341,7 +341,9 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
       return that.sameValue(makeSparseCopy());
     } else if (that instanceof BitVectorIntSet) {
       return sameValue((BitVectorIntSet) that);
-    } else if (that instanceof SemiSparseMutableIntSet) {
+    } else if (that instanceof SemiSparseMutableIntSet
+        || that instanceof CompactMutableIntSet
+        || that instanceof RoaringMutableIntSet) {
       return that.sameValue(this);
     } else {
       Assertions.UNREACHABLE("unexpected class " + that.getClass());
@@ -951,6 +953,14 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
     return sharedPart != null;
   }
 
+  @Nullable MutableSparseIntSet getPrivatePart() {
+    return privatePart;
+  }
+
+  @Nullable BitVectorIntSet getSharedPart() {
+    return sharedPart;
+  }
+
   /**
    * @see com.ibm.wala.util.intset.IntSet#containsAny(com.ibm.wala.util.intset.IntSet)
    */
@@ -0,0 +1,1493 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import com.ibm.wala.util.collections.EmptyIntIterator;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A mutable set of non-negative integers stored as a compressed bitmap, in the style of Roaring
+ * bitmaps (Chambi, Lemire et al., "Better bitmap performance with Roaring bitmaps").
+ *
+ * <p>The integers are split into chunks of 2^16 by their high 16 bits. The low 16 bits of the
+ * elements of each non-empty chunk are held in a container of one of three kinds:
+ *
+ * <ul>
+ *   <li>an array container holds at most {@link #MAX_ARRAY} sorted values
+ *   <li>a bitmap container holds 2^16 bits
+ *   <li>a run container holds sorted runs of consecutive values
+ * </ul>
+ *
+ * <p>Single additions keep a container in array or bitmap form; bulk operations leave each
+ * container they change in whichever form takes the least space. Unions, intersections and
+ * subset tests work a container at a time, and a word at a time within bitmaps.
+ *
+ * <p>This suits sets with many elements that cluster in a few wide-ranging regions, such as the
+ * points-to sets of large programs: a {@link BitVectorIntSet} is as long as the largest element,
+ * and a {@link MutableSparseIntSet} merges unions an element at a time. For the many sets with
+ * only a handful of elements, a {@link CompactMutableIntSet} takes less space.
+ */
+public class RoaringMutableIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = 6320553165390128406L;
+
+  /** the most values an array container holds; more take more space than a bitmap */
+  static final int MAX_ARRAY = 4096;
+
+  /** number of longs in a bitmap container */
+  private static final int BITMAP_WORDS = 1 << 10;
+
+  private static final char[] NO_KEYS = new char[0];
+
+  private static final Container[] NO_CONTAINERS = new Container[0];
+
+  /** the high 16 bits of the elements in each container, sorted */
+  private char[] keys = NO_KEYS;
+
+  /** containers[j] holds the low 16 bits of the elements whose high 16 bits are keys[j] */
+  private Container[] containers = NO_CONTAINERS;
+
+  /** number of containers in use */
+  private int nContainers;
+
+  private int size;
+
+  public RoaringMutableIntSet() {}
+
+  public RoaringMutableIntSet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    copySet(set);
+  }
+
+  /**
+   * @return a set holding the given elements, in any order and possibly repeated
+   */
+  public static RoaringMutableIntSet make(int[] elements) {
+    if (elements == null) {
+      throw new IllegalArgumentException("elements == null");
+    }
+    int[] sorted = elements.clone();
+    Arrays.sort(sorted);
+    if (sorted.length > 0 && sorted[0] < 0) {
+      throw new IllegalArgumentException("negative element " + sorted[0]);
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    for (int i : sorted) {
+      // appending in order moves nothing
+      result.add(i);
+    }
+    for (int j = 0; j < result.nContainers; j++) {
+      result.containers[j] = result.containers[j].optimize();
+    }
+    return result;
+  }
+
+  /**
+   * @return the index of the container for the given key, or (-(insertion point) - 1)
+   */
+  private int indexOf(int key) {
+    // elements usually arrive in increasing order, so try the last container first
+    if (nContainers > 0 && keys[nContainers - 1] == key) {
+      return nContainers - 1;
+    }
+    return Arrays.binarySearch(keys, 0, nContainers, (char) key);
+  }
+
+  private void insertContainer(int index, int key, Container c) {
+    if (nContainers == keys.length) {
+      int capacity = Math.max(1, 2 * nContainers);
+      keys = Arrays.copyOf(keys, capacity);
+      containers = Arrays.copyOf(containers, capacity);
+    }
+    System.arraycopy(keys, index, keys, index + 1, nContainers - index);
+    System.arraycopy(containers, index, containers, index + 1, nContainers - index);
+    keys[index] = (char) key;
+    containers[index] = c;
+    nContainers++;
+  }
+
+  private void removeContainer(int index) {
+    System.arraycopy(keys, index + 1, keys, index, nContainers - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, nContainers - index - 1);
+    nContainers--;
+    containers[nContainers] = null;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = indexOf(i >>> 16);
+    return index >= 0 && containers[index].contains(i & 0xFFFF);
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("negative element " + i);
+    }
+    int index = indexOf(i >>> 16);
+    if (index < 0) {
+      ArrayContainer c = new ArrayContainer(new char[] {(char) i}, 1);
+      insertContainer(-index - 1, i >>> 16, c);
+      size++;
+      return true;
+    }
+    Container c = containers[index];
+    int before = c.cardinality();
+    c = containers[index] = c.add(i & 0xFFFF);
+    if (c.cardinality() == before) {
+      return false;
+    }
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = indexOf(i >>> 16);
+    if (index < 0) {
+      return false;
+    }
+    Container c = containers[index];
+    int before = c.cardinality();
+    c = containers[index] = c.remove(i & 0xFFFF);
+    if (c.cardinality() == before) {
+      return false;
+    }
+    size--;
+    if (c.cardinality() == 0) {
+      removeContainer(index);
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    keys = NO_KEYS;
+    containers = NO_CONTAINERS;
+    nContainers = 0;
+    size = 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int max() {
+    if (size == 0) {
+      return -1;
+    }
+    return (keys[nContainers - 1] << 16) | containers[nContainers - 1].last();
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int j = 0; j < nContainers; j++) {
+      containers[j].foreach(keys[j] << 16, action);
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (X == null) {
+      throw new IllegalArgumentException("null X");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    foreach(
+        i -> {
+          if (!X.contains(i)) {
+            action.act(i);
+          }
+        });
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    if (size == 0) {
+      return EmptyIntIterator.instance();
+    }
+    char[] k = keys;
+    Container[] c = containers;
+    int n = nContainers;
+    return new IntIterator() {
+      private int j = 0;
+
+      private IntIterator current = c[0].iterator(k[0] << 16);
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext()) {
+          if (++j >= n) {
+            return false;
+          }
+          current = c[j].iterator(k[j] << 16);
+        }
+        return true;
+      }
+
+      @Override
+      public int next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this || set.isEmpty()) {
+      return false;
+    }
+    if (!(set instanceof RoaringMutableIntSet)) {
+      boolean changed = false;
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        changed |= add(it.next());
+      }
+      return changed;
+    }
+    RoaringMutableIntSet other = (RoaringMutableIntSet) set;
+    if (size == 0) {
+      copySet(other);
+      return true;
+    }
+    int oldSize = size;
+    int missing = countMissingKeys(other);
+    if (missing == 0) {
+      // union in place
+      int a = 0;
+      for (int b = 0; b < other.nContainers; b++) {
+        while (keys[a] != other.keys[b]) {
+          a++;
+        }
+        Container c = containers[a];
+        int before = c.cardinality();
+        c = containers[a] = or(c, other.containers[b]);
+        size += c.cardinality() - before;
+      }
+    } else {
+      int capacity = nContainers + missing;
+      char[] newKeys = new char[capacity];
+      Container[] newContainers = new Container[capacity];
+      int a = 0;
+      int b = 0;
+      int m = 0;
+      while (a < nContainers || b < other.nContainers) {
+        if (b == other.nContainers || (a < nContainers && keys[a] < other.keys[b])) {
+          newKeys[m] = keys[a];
+          newContainers[m++] = containers[a++];
+        } else if (a == nContainers || other.keys[b] < keys[a]) {
+          newKeys[m] = other.keys[b];
+          Container c = other.containers[b++].copy();
+          size += c.cardinality();
+          newContainers[m++] = c;
+        } else {
+          Container c = containers[a];
+          int before = c.cardinality();
+          c = or(c, other.containers[b++]);
+          size += c.cardinality() - before;
+          newKeys[m] = keys[a++];
+          newContainers[m++] = c;
+        }
+      }
+      keys = newKeys;
+      containers = newContainers;
+      nContainers = m;
+    }
+    return size != oldSize;
+  }
+
+  /**
+   * @return the number of keys of other that this set lacks
+   */
+  private int countMissingKeys(RoaringMutableIntSet other) {
+    int missing = 0;
+    int a = 0;
+    for (int b = 0; b < other.nContainers; b++) {
+      char key = other.keys[b];
+      while (a < nContainers && keys[a] < key) {
+        a++;
+      }
+      if (a == nContainers || keys[a] != key) {
+        missing++;
+      }
+    }
+    return missing;
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet other = (RoaringMutableIntSet) set;
+      int n = other.nContainers;
+      keys = n == 0 ? NO_KEYS : Arrays.copyOf(other.keys, n);
+      containers = n == 0 ? NO_CONTAINERS : new Container[n];
+      for (int j = 0; j < n; j++) {
+        containers[j] = other.containers[j].copy();
+      }
+      nContainers = n;
+      size = other.size;
+    } else {
+      int[] elements = new int[set.size()];
+      int n = 0;
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        elements[n++] = it.next();
+      }
+      RoaringMutableIntSet copy = make(elements);
+      keys = copy.keys;
+      containers = copy.containers;
+      nContainers = copy.nContainers;
+      size = copy.size;
+    }
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this || size == 0) {
+      return;
+    }
+    int m = 0;
+    size = 0;
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet other = (RoaringMutableIntSet) set;
+      int b = 0;
+      for (int a = 0; a < nContainers; a++) {
+        while (b < other.nContainers && other.keys[b] < keys[a]) {
+          b++;
+        }
+        if (b < other.nContainers && other.keys[b] == keys[a]) {
+          Container c = and(containers[a], other.containers[b]);
+          if (c.cardinality() > 0) {
+            keys[m] = keys[a];
+            containers[m++] = c;
+            size += c.cardinality();
+          }
+        }
+      }
+    } else {
+      for (int a = 0; a < nContainers; a++) {
+        int base = keys[a] << 16;
+        ArrayContainer kept = new ArrayContainer(new char[0], 0);
+        Container c = kept;
+        for (IntIterator it = containers[a].iterator(base); it.hasNext(); ) {
+          int i = it.next();
+          if (set.contains(i)) {
+            c = c.add(i & 0xFFFF);
+          }
+        }
+        if (c.cardinality() > 0) {
+          keys[m] = keys[a];
+          containers[m++] = c.optimize();
+          size += c.cardinality();
+        }
+      }
+    }
+    Arrays.fill(containers, m, nContainers, null);
+    nContainers = m;
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    if (other == this || filter == this) {
+      // every element in the intersection is already here
+      return false;
+    }
+    if (other instanceof RoaringMutableIntSet && filter instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet o = (RoaringMutableIntSet) other;
+      RoaringMutableIntSet f = (RoaringMutableIntSet) filter;
+      int oldSize = size;
+      int b = 0;
+      for (int a = 0; a < o.nContainers; a++) {
+        while (b < f.nContainers && f.keys[b] < o.keys[a]) {
+          b++;
+        }
+        if (b < f.nContainers && f.keys[b] == o.keys[a]) {
+          int index = indexOf(o.keys[a]);
+          Container oc = o.containers[a];
+          if (index >= 0 && isSubset(oc, containers[index])) {
+            // nothing new; the usual case once propagation settles
+            continue;
+          }
+          Container c = and(oc, f.containers[b]);
+          if (c.cardinality() == 0) {
+            continue;
+          }
+          if (index < 0) {
+            insertContainer(-index - 1, o.keys[a], c);
+            size += c.cardinality();
+          } else {
+            Container mine = containers[index];
+            int before = mine.cardinality();
+            mine = containers[index] = or(mine, c);
+            size += mine.cardinality() - before;
+          }
+        }
+      }
+      return size != oldSize;
+    }
+    boolean changed = false;
+    for (IntIterator it = other.intIterator(); it.hasNext(); ) {
+      int i = it.next();
+      if (!contains(i) && filter.contains(i)) {
+        changed |= add(i);
+      }
+    }
+    return changed;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet other = (RoaringMutableIntSet) set;
+      int b = 0;
+      for (int a = 0; a < nContainers; a++) {
+        while (b < other.nContainers && other.keys[b] < keys[a]) {
+          b++;
+        }
+        if (b < other.nContainers
+            && other.keys[b] == keys[a]
+            && intersects(containers[a], other.containers[b])) {
+          return true;
+        }
+      }
+      return false;
+    }
+    IntSet smaller = set.size() < size ? set : this;
+    IntSet larger = smaller == this ? set : this;
+    for (IntIterator it = smaller.intIterator(); it.hasNext(); ) {
+      if (larger.contains(it.next())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet(this);
+    result.intersectWith(that);
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that.size() < size) {
+      return false;
+    }
+    if (that instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet other = (RoaringMutableIntSet) that;
+      int b = 0;
+      for (int a = 0; a < nContainers; a++) {
+        while (b < other.nContainers && other.keys[b] < keys[a]) {
+          b++;
+        }
+        if (b == other.nContainers
+            || other.keys[b] != keys[a]
+            || !isSubset(containers[a], other.containers[b])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      if (!that.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    return that.size() == size && isSubset(that);
+  }
+
+  /**
+   * @return the number of containers of each kind, in the order array, bitmap, run
+   */
+  public int[] getContainerCounts() {
+    int[] result = new int[3];
+    for (int j = 0; j < nContainers; j++) {
+      Container c = containers[j];
+      result[c instanceof ArrayContainer ? 0 : c instanceof BitmapContainer ? 1 : 2]++;
+    }
+    return result;
+  }
+
+  /**
+   * @see IntSetInterner#estimateBytes(IntSet)
+   */
+  long estimateBytes() {
+    long result = IntSetInterner.objectBytes(16);
+    if (keys != NO_KEYS) {
+      result += IntSetInterner.arrayBytes(keys.length, 2);
+      result += IntSetInterner.arrayBytes(containers.length, 4);
+    }
+    for (int j = 0; j < nContainers; j++) {
+      result += containers[j].estimateBytes();
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(6 * size);
+    sb.append("{ ");
+    foreach(
+        i -> {
+          sb.append(i);
+          sb.append(' ');
+        });
+    sb.append('}');
+    return sb.toString();
+  }
+
+  /*
+   * Operations on pairs of containers. The results may share no state with the arguments, except
+   * that or may update and return its first argument.
+   */
+
+  /**
+   * @return a container holding the values of a and b; may be a, updated in place
+   */
+  private static Container or(Container a, Container b) {
+    if (a instanceof BitmapContainer) {
+      BitmapContainer bitmap = (BitmapContainer) a;
+      if (bitmap.orInPlace(b)) {
+        return bitmap.optimize();
+      }
+      return bitmap;
+    } else if (a instanceof ArrayContainer) {
+      if (b instanceof ArrayContainer) {
+        return ((ArrayContainer) a).or((ArrayContainer) b);
+      } else if (isSubset(b, a)) {
+        return a;
+      } else if (b instanceof BitmapContainer) {
+        BitmapContainer result = (BitmapContainer) b.copy();
+        result.orInPlace(a);
+        return result.optimize();
+      }
+    } else {
+      RunContainer runs = (RunContainer) a;
+      if (b instanceof RunContainer) {
+        return runs.or((RunContainer) b).optimize();
+      } else if (isSubset(b, a)) {
+        return a;
+      }
+    }
+    BitmapContainer result = a.toBitmap();
+    result.orInPlace(b);
+    return result.optimize();
+  }
+
+  /**
+   * @return a container holding the values in both a and b
+   */
+  private static Container and(Container a, Container b) {
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).and(b);
+    } else if (b instanceof ArrayContainer) {
+      return ((ArrayContainer) b).and(a);
+    } else if (a instanceof RunContainer && b instanceof RunContainer) {
+      return ((RunContainer) a).and((RunContainer) b).optimize();
+    } else if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+      return ((BitmapContainer) a).and((BitmapContainer) b).optimize();
+    } else {
+      BitmapContainer bitmap = (BitmapContainer) (a instanceof BitmapContainer ? a : b);
+      RunContainer runs = (RunContainer) (a instanceof RunContainer ? a : b);
+      return bitmap.and(runs.toBitmap()).optimize();
+    }
+  }
+
+  private static boolean intersects(Container a, Container b) {
+    if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+      long[] x = ((BitmapContainer) a).bits;
+      long[] y = ((BitmapContainer) b).bits;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        if ((x[w] & y[w]) != 0) {
+          return true;
+        }
+      }
+      return false;
+    } else if (a instanceof RunContainer && b instanceof RunContainer) {
+      return ((RunContainer) a).intersects((RunContainer) b);
+    }
+    // test the values of the container with fewer of them
+    Container smaller = a.cardinality() <= b.cardinality() ? a : b;
+    Container larger = smaller == a ? b : a;
+    for (IntIterator it = smaller.iterator(0); it.hasNext(); ) {
+      if (larger.contains(it.next())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true iff every value of a is in b
+   */
+  private static boolean isSubset(Container a, Container b) {
+    if (a.cardinality() > b.cardinality()) {
+      return false;
+    }
+    if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+      long[] x = ((BitmapContainer) a).bits;
+      long[] y = ((BitmapContainer) b).bits;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        if ((x[w] & ~y[w]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    } else if (a instanceof RunContainer && b instanceof RunContainer) {
+      return ((RunContainer) a).isSubset((RunContainer) b);
+    }
+    for (IntIterator it = a.iterator(0); it.hasNext(); ) {
+      if (!b.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** set bits [from, to) */
+  private static void setRange(long[] bits, int from, int to) {
+    if (from >= to) {
+      return;
+    }
+    int first = from >>> 6;
+    int last = (to - 1) >>> 6;
+    long firstMask = -1L << from;
+    long lastMask = -1L >>> -to;
+    if (first == last) {
+      bits[first] |= firstMask & lastMask;
+    } else {
+      bits[first] |= firstMask;
+      for (int w = first + 1; w < last; w++) {
+        bits[w] = -1L;
+      }
+      bits[last] |= lastMask;
+    }
+  }
+
+  /** The low 16 bits of the elements of one chunk. */
+  private abstract static class Container implements Serializable {
+
+    private static final long serialVersionUID = -6287006101452233519L;
+
+    abstract int cardinality();
+
+    /**
+     * @param low a value in [0, 2^16)
+     */
+    abstract boolean contains(int low);
+
+    /**
+     * @return a container holding the values of this one and low; may be this one, updated
+     */
+    abstract Container add(int low);
+
+    /**
+     * @return a container holding the values of this one but low; may be this one, updated
+     */
+    abstract Container remove(int low);
+
+    abstract int last();
+
+    /** apply the action to base + each value */
+    abstract void foreach(int base, IntSetAction action);
+
+    /**
+     * @return an iterator over base + each value
+     */
+    abstract IntIterator iterator(int base);
+
+    abstract Container copy();
+
+    /** an estimate of the heap bytes held by this container */
+    abstract long estimateBytes();
+
+    /**
+     * @return the number of maximal runs of consecutive values
+     */
+    abstract int numberOfRuns();
+
+    /**
+     * @return a fresh bitmap container holding the values of this one
+     */
+    BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      foreach(0, i -> result.bits[i >>> 6] |= 1L << i);
+      result.cardinality = cardinality();
+      return result;
+    }
+
+    /**
+     * @return this container, or one holding the same values in the form that takes the least
+     *     space
+     */
+    Container optimize() {
+      int cardinality = cardinality();
+      int runs = numberOfRuns();
+      // sizes of the forms in bytes, ignoring headers
+      int runBytes = 4 * runs;
+      int arrayBytes = 2 * cardinality;
+      int bitmapBytes = 8 * BITMAP_WORDS;
+      if (runBytes < Math.min(arrayBytes, bitmapBytes)) {
+        return this instanceof RunContainer ? this : RunContainer.make(this, runs);
+      } else if (cardinality <= MAX_ARRAY) {
+        return this instanceof ArrayContainer ? this : ArrayContainer.make(this);
+      } else {
+        return this instanceof BitmapContainer ? this : toBitmap();
+      }
+    }
+  }
+
+  /** A container holding its values in a sorted array. */
+  private static final class ArrayContainer extends Container {
+
+    private static final long serialVersionUID = 3021946381582617093L;
+
+    /** the values, sorted, in values[0..cardinality-1] */
+    char[] values;
+
+    int cardinality;
+
+    ArrayContainer(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    static ArrayContainer make(Container c) {
+      char[] values = new char[c.cardinality()];
+      int n = 0;
+      for (IntIterator it = c.iterator(0); it.hasNext(); ) {
+        values[n++] = (char) it.next();
+      }
+      return new ArrayContainer(values, n);
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+    }
+
+    @Override
+    Container add(int low) {
+      int index =
+          cardinality > 0 && values[cardinality - 1] < low
+              ? -cardinality - 1
+              : Arrays.binarySearch(values, 0, cardinality, (char) low);
+      if (index >= 0) {
+        return this;
+      }
+      if (cardinality == MAX_ARRAY) {
+        return toBitmap().add(low);
+      }
+      index = -index - 1;
+      if (cardinality == values.length) {
+        // grow slowly while small, since most sets stop growing early
+        int capacity = cardinality < 64 ? 2 * cardinality + 1 : cardinality + (cardinality >> 1);
+        values = Arrays.copyOf(values, Math.min(capacity, MAX_ARRAY));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = (char) low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(int low) {
+      int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+      if (index >= 0) {
+        System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    int last() {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    void foreach(int base, IntSetAction action) {
+      for (int j = 0; j < cardinality; j++) {
+        action.act(base + values[j]);
+      }
+    }
+
+    @Override
+    IntIterator iterator(int base) {
+      char[] v = values;
+      int n = cardinality;
+      return new IntIterator() {
+        private int j = 0;
+
+        @Override
+        public boolean hasNext() {
+          return j < n;
+        }
+
+        @Override
+        public int next() {
+          if (j >= n) {
+            throw new NoSuchElementException();
+          }
+          return base + v[j++];
+        }
+      };
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+    }
+
+    @Override
+    long estimateBytes() {
+      return IntSetInterner.objectBytes(8) + IntSetInterner.arrayBytes(values.length, 2);
+    }
+
+    @Override
+    int numberOfRuns() {
+      int runs = 0;
+      for (int j = 0; j < cardinality; j++) {
+        if (j == 0 || values[j] != values[j - 1] + 1) {
+          runs++;
+        }
+      }
+      return runs;
+    }
+
+    /**
+     * @return a container holding the values of this one and other; may be this one, updated
+     */
+    Container or(ArrayContainer other) {
+      char[] x = values;
+      char[] y = other.values;
+      int n = cardinality;
+      int m = other.cardinality;
+      // count the values of other that this container lacks, which usually are few or none
+      int fresh = 0;
+      for (int a = 0, b = 0; b < m; ) {
+        if (a == n || y[b] < x[a]) {
+          fresh++;
+          b++;
+        } else if (y[b] == x[a]) {
+          a++;
+          b++;
+        } else {
+          a++;
+        }
+      }
+      if (fresh == 0) {
+        return this;
+      }
+      int total = n + fresh;
+      if (total > MAX_ARRAY) {
+        BitmapContainer result = toBitmap();
+        result.orInPlace(other);
+        return result.optimize();
+      }
+      if (x.length < total) {
+        x = values = Arrays.copyOf(x, total);
+      }
+      // merge from the back, in place
+      int a = n - 1;
+      int b = m - 1;
+      for (int k = total - 1; b >= 0; k--) {
+        if (a >= 0 && x[a] > y[b]) {
+          x[k] = x[a--];
+        } else {
+          if (a >= 0 && x[a] == y[b]) {
+            a--;
+          }
+          x[k] = y[b--];
+        }
+      }
+      cardinality = total;
+      return optimize();
+    }
+
+    /**
+     * @return a fresh container holding the values of this one that are also in other
+     */
+    Container and(Container other) {
+      char[] result = new char[Math.min(cardinality, other.cardinality())];
+      int n = 0;
+      if (other instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) other;
+        for (int a = 0, b = 0; a < cardinality && b < that.cardinality; ) {
+          if (values[a] < that.values[b]) {
+            a++;
+          } else if (values[a] > that.values[b]) {
+            b++;
+          } else {
+            result[n++] = values[a];
+            a++;
+            b++;
+          }
+        }
+      } else {
+        for (int a = 0; a < cardinality && n < result.length; a++) {
+          if (other.contains(values[a])) {
+            result[n++] = values[a];
+          }
+        }
+      }
+      return new ArrayContainer(result, n).optimize();
+    }
+  }
+
+  /** A container holding its values as 2^16 bits. */
+  private static final class BitmapContainer extends Container {
+
+    private static final long serialVersionUID = -2378211698393283937L;
+
+    final long[] bits;
+
+    int cardinality;
+
+    BitmapContainer() {
+      this(new long[BITMAP_WORDS], 0);
+    }
+
+    BitmapContainer(long[] bits, int cardinality) {
+      this.bits = bits;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return (bits[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    Container add(int low) {
+      long word = bits[low >>> 6];
+      long updated = word | (1L << low);
+      if (updated != word) {
+        bits[low >>> 6] = updated;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(int low) {
+      long word = bits[low >>> 6];
+      long updated = word & ~(1L << low);
+      if (updated != word) {
+        bits[low >>> 6] = updated;
+        cardinality--;
+        if (cardinality <= MAX_ARRAY) {
+          return ArrayContainer.make(this);
+        }
+      }
+      return this;
+    }
+
+    @Override
+    int last() {
+      for (int w = BITMAP_WORDS - 1; ; w--) {
+        if (bits[w] != 0) {
+          return (w << 6) + 63 - Long.numberOfLeadingZeros(bits[w]);
+        }
+      }
+    }
+
+    @Override
+    void foreach(int base, IntSetAction action) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        for (long word = bits[w]; word != 0; word &= word - 1) {
+          action.act(base + (w << 6) + Long.numberOfTrailingZeros(word));
+        }
+      }
+    }
+
+    @Override
+    IntIterator iterator(int base) {
+      long[] b = bits;
+      return new IntIterator() {
+        private int w = 0;
+
+        private long word = b[0];
+
+        @Override
+        public boolean hasNext() {
+          while (word == 0) {
+            if (++w >= BITMAP_WORDS) {
+              return false;
+            }
+            word = b[w];
+          }
+          return true;
+        }
+
+        @Override
+        public int next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int result = base + (w << 6) + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+          return result;
+        }
+      };
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(bits.clone(), cardinality);
+    }
+
+    @Override
+    long estimateBytes() {
+      return IntSetInterner.objectBytes(8) + IntSetInterner.arrayBytes(bits.length, 8);
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      return (BitmapContainer) copy();
+    }
+
+    @Override
+    int numberOfRuns() {
+      int runs = 0;
+      long previous = 0;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        long word = bits[w];
+        // a run starts at each set bit whose predecessor is clear
+        runs += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+        previous = word;
+      }
+      return runs;
+    }
+
+    /**
+     * add the values of other to this container
+     *
+     * @return true iff this container changed
+     */
+    boolean orInPlace(Container other) {
+      int before = cardinality;
+      if (other instanceof BitmapContainer) {
+        long[] y = ((BitmapContainer) other).bits;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          long fresh = y[w] & ~bits[w];
+          if (fresh != 0) {
+            bits[w] |= fresh;
+            cardinality += Long.bitCount(fresh);
+          }
+        }
+      } else if (other instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) other;
+        for (int j = 0; j < array.cardinality; j++) {
+          add(array.values[j]);
+        }
+      } else {
+        RunContainer runs = (RunContainer) other;
+        for (int j = 0; j < runs.nRuns; j++) {
+          setRange(bits, runs.start(j), runs.end(j) + 1);
+        }
+        cardinality = 0;
+        for (long word : bits) {
+          cardinality += Long.bitCount(word);
+        }
+      }
+      return cardinality != before;
+    }
+
+    /**
+     * @return a fresh bitmap holding the values in both this container and other
+     */
+    BitmapContainer and(BitmapContainer other) {
+      long[] result = new long[BITMAP_WORDS];
+      int n = 0;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        result[w] = bits[w] & other.bits[w];
+        n += Long.bitCount(result[w]);
+      }
+      return new BitmapContainer(result, n);
+    }
+  }
+
+  /** A container holding its values as sorted, disjoint, non-adjacent runs. */
+  private static final class RunContainer extends Container {
+
+    private static final long serialVersionUID = -8709722493922233186L;
+
+    /** the start of run j in runs[2j], and its length minus one in runs[2j+1] */
+    char[] runs;
+
+    int nRuns;
+
+    int cardinality;
+
+    RunContainer(char[] runs, int nRuns, int cardinality) {
+      this.runs = runs;
+      this.nRuns = nRuns;
+      this.cardinality = cardinality;
+    }
+
+    /**
+     * @param nRuns the number of runs in c
+     */
+    static RunContainer make(Container c, int nRuns) {
+      char[] runs = new char[2 * nRuns];
+      int n = -1;
+      int previous = -2;
+      for (IntIterator it = c.iterator(0); it.hasNext(); ) {
+        int i = it.next();
+        if (i == previous + 1) {
+          runs[2 * n + 1]++;
+        } else {
+          n++;
+          runs[2 * n] = (char) i;
+        }
+        previous = i;
+      }
+      return new RunContainer(runs, n + 1, c.cardinality());
+    }
+
+    int start(int j) {
+      return runs[2 * j];
+    }
+
+    int end(int j) {
+      return runs[2 * j] + runs[2 * j + 1];
+    }
+
+    /**
+     * @return the index of the last run that starts at or before low, or -1
+     */
+    private int runBefore(int low) {
+      int lo = 0;
+      int hi = nRuns - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (start(mid) <= low) {
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return hi;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int low) {
+      int j = runBefore(low);
+      return j >= 0 && low <= end(j);
+    }
+
+    private void insertRun(int j, int start, int end) {
+      if (2 * nRuns == runs.length) {
+        runs = Arrays.copyOf(runs, 2 * (nRuns + (nRuns >> 1) + 1));
+      }
+      System.arraycopy(runs, 2 * j, runs, 2 * j + 2, 2 * (nRuns - j));
+      runs[2 * j] = (char) start;
+      runs[2 * j + 1] = (char) (end - start);
+      nRuns++;
+    }
+
+    private void removeRun(int j) {
+      System.arraycopy(runs, 2 * j + 2, runs, 2 * j, 2 * (nRuns - j - 1));
+      nRuns--;
+    }
+
+    @Override
+    Container add(int low) {
+      int j = runBefore(low);
+      if (j >= 0 && low <= end(j)) {
+        return this;
+      }
+      boolean extendsPrevious = j >= 0 && end(j) + 1 == low;
+      boolean extendsNext = j + 1 < nRuns && start(j + 1) == low + 1;
+      if (extendsPrevious && extendsNext) {
+        runs[2 * j + 1] = (char) (end(j + 1) - start(j));
+        removeRun(j + 1);
+      } else if (extendsPrevious) {
+        runs[2 * j + 1]++;
+      } else if (extendsNext) {
+        runs[2 * j + 2] = (char) low;
+        runs[2 * j + 3]++;
+      } else {
+        insertRun(j + 1, low, low);
+      }
+      cardinality++;
+      // once the runs take more space than the values, switch to another form
+      return 4 * nRuns > Math.min(2 * cardinality, 8 * BITMAP_WORDS) ? optimize() : this;
+    }
+
+    @Override
+    Container remove(int low) {
+      int j = runBefore(low);
+      if (j < 0 || low > end(j)) {
+        return this;
+      }
+      int start = start(j);
+      int end = end(j);
+      if (start == end) {
+        removeRun(j);
+      } else if (low == start) {
+        runs[2 * j]++;
+        runs[2 * j + 1]--;
+      } else if (low == end) {
+        runs[2 * j + 1]--;
+      } else {
+        runs[2 * j + 1] = (char) (low - 1 - start);
+        insertRun(j + 1, low + 1, end);
+      }
+      cardinality--;
+      return 4 * nRuns > Math.min(2 * cardinality, 8 * BITMAP_WORDS) ? optimize() : this;
+    }
+
+    @Override
+    int last() {
+      return end(nRuns - 1);
+    }
+
+    @Override
+    void foreach(int base, IntSetAction action) {
+      for (int j = 0; j < nRuns; j++) {
+        for (int i = start(j), end = end(j); i <= end; i++) {
+          action.act(base + i);
+        }
+      }
+    }
+
+    @Override
+    IntIterator iterator(int base) {
+      return new IntIterator() {
+        private int j = 0;
+
+        private int next = nRuns > 0 ? start(0) : 0;
+
+        @Override
+        public boolean hasNext() {
+          return j < nRuns;
+        }
+
+        @Override
+        public int next() {
+          if (j >= nRuns) {
+            throw new NoSuchElementException();
+          }
+          int result = next;
+          if (next == end(j)) {
+            if (++j < nRuns) {
+              next = start(j);
+            }
+          } else {
+            next++;
+          }
+          return base + result;
+        }
+      };
+    }
+
+    @Override
+    Container copy() {
+      return new RunContainer(Arrays.copyOf(runs, 2 * nRuns), nRuns, cardinality);
+    }
+
+    @Override
+    long estimateBytes() {
+      return IntSetInterner.objectBytes(12) + IntSetInterner.arrayBytes(runs.length, 2);
+    }
+
+    @Override
+    int numberOfRuns() {
+      return nRuns;
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      for (int j = 0; j < nRuns; j++) {
+        setRange(result.bits, start(j), end(j) + 1);
+      }
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    /**
+     * @return a fresh container holding the values of this one and other
+     */
+    RunContainer or(RunContainer other) {
+      char[] result = new char[2 * (nRuns + other.nRuns)];
+      int n = 0;
+      int total = 0;
+      int start = -1;
+      int end = -2;
+      for (int a = 0, b = 0; a < nRuns || b < other.nRuns; ) {
+        int s;
+        int e;
+        if (b == other.nRuns || (a < nRuns && start(a) <= other.start(b))) {
+          s = start(a);
+          e = end(a++);
+        } else {
+          s = other.start(b);
+          e = other.end(b++);
+        }
+        if (s <= end + 1) {
+          end = Math.max(end, e);
+        } else {
+          if (start >= 0) {
+            result[2 * n] = (char) start;
+            result[2 * n++ + 1] = (char) (end - start);
+            total += end - start + 1;
+          }
+          start = s;
+          end = e;
+        }
+      }
+      result[2 * n] = (char) start;
+      result[2 * n++ + 1] = (char) (end - start);
+      total += end - start + 1;
+      return new RunContainer(result, n, total);
+    }
+
+    /**
+     * @return a fresh container holding the values in both this container and other
+     */
+    RunContainer and(RunContainer other) {
+      char[] result = new char[2 * (nRuns + other.nRuns)];
+      int n = 0;
+      int total = 0;
+      for (int a = 0, b = 0; a < nRuns && b < other.nRuns; ) {
+        int s = Math.max(start(a), other.start(b));
+        int e = Math.min(end(a), other.end(b));
+        if (s <= e) {
+          result[2 * n] = (char) s;
+          result[2 * n++ + 1] = (char) (e - s);
+          total += e - s + 1;
+        }
+        if (end(a) < other.end(b)) {
+          a++;
+        } else {
+          b++;
+        }
+      }
+      return new RunContainer(result, n, total);
+    }
+
+    boolean intersects(RunContainer other) {
+      for (int a = 0, b = 0; a < nRuns && b < other.nRuns; ) {
+        if (Math.max(start(a), other.start(b)) <= Math.min(end(a), other.end(b))) {
+          return true;
+        }
+        if (end(a) < other.end(b)) {
+          a++;
+        } else {
+          b++;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return true iff each run of this container lies within a run of other
+     */
+    boolean isSubset(RunContainer other) {
+      int b = 0;
+      for (int a = 0; a < nRuns; a++) {
+        while (b < other.nRuns && other.end(b) < start(a)) {
+          b++;
+        }
+        if (b == other.nRuns || other.start(b) > start(a) || other.end(b) < end(a)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/** An object that creates {@link RoaringMutableIntSet}s. */
+public class RoaringMutableIntSetFactory implements MutableIntSetFactory<RoaringMutableIntSet> {
+
+  /**
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public RoaringMutableIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    return RoaringMutableIntSet.make(set);
+  }
+
+  @Override
+  public RoaringMutableIntSet parse(String string) throws NumberFormatException {
+    return RoaringMutableIntSet.make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public RoaringMutableIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    return new RoaringMutableIntSet(x);
+  }
+
+  @Override
+  public RoaringMutableIntSet make() {
+    return new RoaringMutableIntSet();
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for one call of {@link
+ * com.ibm.wala.fixpoint.IFixedPointSolver#solve}, i.e. one round of evaluating statements until the
+ * work list is empty.
+ */
+@Name("com.ibm.wala.FixedPointSolve")
+@Label("Fixed Point Solve")
+@Category({"WALA", "Solver"})
+@Description("A round of a fixed point solver, until its work list is empty")
+@StackTrace(false)
+public final class FixedPointSolveEvent extends Event {
+
+  @Label("Solver")
+  public Class<?> solver;
+
+  @Label("Initial Work List Size")
+  public int initialWorkListSize;
+
+  @Label("Evaluations")
+  @Description("Statements evaluated in this round")
+  public int evaluations;
+
+  @Label("Statements Created")
+  @Description("Statements added to the system in this round")
+  public int statementsCreated;
+
+  @Label("Changed")
+  @Description("Did some evaluation change the value of a variable?")
+  public boolean changed;
+}
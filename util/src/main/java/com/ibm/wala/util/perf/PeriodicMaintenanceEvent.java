@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.perf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for a call of the periodic maintenance hook of {@link
+ * com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver}.
+ */
+@Name("com.ibm.wala.PeriodicMaintenance")
+@Label("Periodic Maintenance")
+@Category({"WALA", "Solver"})
+@StackTrace(false)
+public final class PeriodicMaintenanceEvent extends Event {
+
+  @Label("Solver")
+  public Class<?> solver;
+
+  @Label("Evaluations")
+  public int evaluations;
+
+  @Label("Work List Size")
+  public int workListSize;
+}